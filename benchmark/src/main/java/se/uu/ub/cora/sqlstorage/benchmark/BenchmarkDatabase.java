@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactoryImp;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+
+/**
+ * BenchmarkDatabase is the database a benchmark runs against, selected using the JMH parameter
+ * database.
+ * <p>
+ * IN_PROCESS uses an {@link InProcessSqlDatabaseFactory}, measuring only the cpu time and
+ * allocations of the storage code. POSTGRESQL connects to a running PostgreSQL database, created
+ * using the scripts in the sql directory, to get end-to-end numbers. The connection is read from
+ * the system properties benchmark.postgresql.url, benchmark.postgresql.user and
+ * benchmark.postgresql.password, defaulting to jdbc:postgresql://localhost:5432/cora with user
+ * and password cora.
+ */
+public enum BenchmarkDatabase {
+	IN_PROCESS {
+		@Override
+		SqlDatabaseFactory createSqlDatabaseFactory() {
+			return new InProcessSqlDatabaseFactory();
+		}
+
+		@Override
+		void deleteAllOfType(SqlDatabaseFactory sqlDatabaseFactory, SqlRecordStorage storage,
+				String type) {
+			((InProcessSqlDatabaseFactory) sqlDatabaseFactory).deleteAllOfType(type);
+		}
+	},
+	POSTGRESQL {
+		@Override
+		SqlDatabaseFactory createSqlDatabaseFactory() {
+			return SqlDatabaseFactoryImp.usingUriAndUserAndPassword(
+					System.getProperty("benchmark.postgresql.url",
+							"jdbc:postgresql://localhost:5432/cora"),
+					System.getProperty("benchmark.postgresql.user", "cora"),
+					System.getProperty("benchmark.postgresql.password", "cora"));
+		}
+
+		@Override
+		void deleteAllOfType(SqlDatabaseFactory sqlDatabaseFactory, SqlRecordStorage storage,
+				String type) {
+			storage.deleteAllOfType(type);
+		}
+	};
+
+	abstract SqlDatabaseFactory createSqlDatabaseFactory();
+
+	/**
+	 * deleteAllOfType removes all records of a type that a benchmark has stored, so that the next
+	 * trial or iteration starts from the same state.
+	 */
+	abstract void deleteAllOfType(SqlDatabaseFactory sqlDatabaseFactory, SqlRecordStorage storage,
+			String type);
+}
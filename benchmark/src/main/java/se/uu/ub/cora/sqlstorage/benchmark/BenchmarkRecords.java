@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.DataRecordLink;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+
+/**
+ * BenchmarkRecords creates the records, storage terms and links used by the benchmarks. A record
+ * has a recordInfo like the records of a Cora system, followed by a number of repeated groups
+ * each holding a text with attributes and a link.
+ */
+final class BenchmarkRecords {
+	static final String DATA_DIVIDER = "benchmarkSystem";
+	static final String STORAGE_KEY = "benchmarkKey";
+	static final String LINK_TARGET_TYPE = "benchmarkLinkTarget";
+
+	private BenchmarkRecords() {
+		// only static methods
+	}
+
+	static DataGroup createRecord(String type, String id, int numberOfChildren) {
+		DataGroup record = DataProvider.createGroupUsingNameInData("benchmarkRecord");
+		record.addChild(createRecordInfo(type, id));
+		for (int i = 0; i < numberOfChildren; i++) {
+			record.addChild(createChild(i));
+		}
+		return record;
+	}
+
+	private static DataGroup createRecordInfo(String type, String id) {
+		DataGroup recordInfo = DataProvider.createGroupUsingNameInData("recordInfo");
+		recordInfo.addChild(DataProvider.createAtomicUsingNameInDataAndValue("id", id));
+		recordInfo.addChild(
+				DataProvider.createRecordLinkUsingNameInDataAndTypeAndId("type", "recordType", type));
+		recordInfo.addChild(DataProvider.createRecordLinkUsingNameInDataAndTypeAndId("dataDivider",
+				"system", DATA_DIVIDER));
+		recordInfo.addChild(DataProvider.createAtomicUsingNameInDataAndValue("tsCreated",
+				"2026-01-01T00:00:00.000000Z"));
+		return recordInfo;
+	}
+
+	private static DataGroup createChild(int index) {
+		DataGroup child = DataProvider.createGroupUsingNameInData("note");
+		child.setRepeatId(String.valueOf(index));
+		child.addAttributeByIdWithValue("type", "benchmark");
+		DataAtomic text = DataProvider.createAtomicUsingNameInDataAndValue("text",
+				"Some text for note " + index + " with \u00e5\u00e4\u00f6 and \"quotes\"");
+		text.addAttributeByIdWithValue("lang", "sv");
+		child.addChild(text);
+		DataRecordLink link = DataProvider.createRecordLinkUsingNameInDataAndTypeAndId(
+				"linkedNote", LINK_TARGET_TYPE, "target" + index);
+		child.addChild(link);
+		return child;
+	}
+
+	static Set<StorageTerm> createStorageTerms(int numberOfStorageTerms, String value) {
+		Set<StorageTerm> storageTerms = new LinkedHashSet<>();
+		if (numberOfStorageTerms > 0) {
+			storageTerms.add(new StorageTerm("benchmarkStorageTerm", STORAGE_KEY, value));
+		}
+		for (int i = 1; i < numberOfStorageTerms; i++) {
+			storageTerms.add(new StorageTerm("storageTerm" + i, "storageKey" + i, "value" + i));
+		}
+		return storageTerms;
+	}
+
+	static Set<Link> createLinks(int numberOfLinks, int firstTarget) {
+		Set<Link> links = new LinkedHashSet<>();
+		for (int i = 0; i < numberOfLinks; i++) {
+			links.add(new Link(LINK_TARGET_TYPE, "target" + (firstTarget + i)));
+		}
+		return links;
+	}
+}
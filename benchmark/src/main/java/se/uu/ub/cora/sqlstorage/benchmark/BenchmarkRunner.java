@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner runs the sqlstorage benchmarks with the JMH command line options in args, always
+ * adding the gc profiler so that the allocation rate is reported together with the throughput and
+ * the latency percentiles of each benchmark.
+ * <p>
+ * Examples, from the benchmark directory after mvn package:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar
+ * java -jar target/benchmarks.jar DatabaseRecordStorageReadBenchmark
+ * java -jar target/benchmarks.jar DatabaseRecordStorageWriteBenchmark -p numberOfLinks=100
+ * java -jar target/benchmarks.jar FromDbStoragePopulatorBenchmark -p numberOfRecords=1000000 \
+ *     -rf json -rff populator.json
+ * java -Dbenchmark.postgresql.url=jdbc:postgresql://localhost:5432/cora \
+ *     -jar target/benchmarks.jar -p database=POSTGRESQL DatabaseRecordStorage
+ * java -Dbenchmark.postgresql.url=jdbc:postgresql://localhost:5432/cora \
+ *     -jar target/benchmarks.jar GroupCommitWriteBenchmark -t 32
+ * </pre>
+ * 
+ * The benchmarks run against the in-process database by default, see {@link BenchmarkDatabase}
+ * for how to run them against PostgreSQL.
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// only static methods
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.json.parser.org.OrgJsonParser;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+import se.uu.ub.cora.storage.Condition;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.Part;
+import se.uu.ub.cora.storage.RelationalOperator;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * DatabaseRecordStorageReadBenchmark measures the read operations of DatabaseRecordStorage against
+ * numberOfRecords stored records, each with childrenPerRecord repeated children, one storage term
+ * with one of ten values and one link to one of ten link targets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DatabaseRecordStorageReadBenchmark {
+	private static final String TYPE = "benchmarkRead";
+	private static final String OTHER_TYPE = "benchmarkReadOther";
+	private static final int NUMBER_OF_VALUES = 10;
+
+	@Param({ "IN_PROCESS" })
+	public BenchmarkDatabase database;
+
+	@Param({ "1000" })
+	public int numberOfRecords;
+
+	@Param({ "20" })
+	public int childrenPerRecord;
+
+	@Param({ "10" })
+	public int listPageSize;
+
+	private SqlDatabaseFactory sqlDatabaseFactory;
+	private DatabaseRecordStorage storage;
+	private Filter pageFilter;
+	private Filter conditionFilter;
+
+	@Setup
+	public void setUp() {
+		sqlDatabaseFactory = database.createSqlDatabaseFactory();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactory, new OrgJsonParser());
+		database.deleteAllOfType(sqlDatabaseFactory, storage, TYPE);
+		for (int i = 0; i < numberOfRecords; i++) {
+			createRecord(i);
+		}
+		pageFilter = createPageFilter();
+		conditionFilter = createPageFilter();
+		conditionFilter.include.add(createPartWithStorageTermCondition("value0"));
+	}
+
+	private void createRecord(int index) {
+		String id = "id" + index;
+		DataGroup dataRecord = BenchmarkRecords.createRecord(TYPE, id, childrenPerRecord);
+		storage.create(TYPE, id, dataRecord,
+				BenchmarkRecords.createStorageTerms(1, "value" + index % NUMBER_OF_VALUES),
+				BenchmarkRecords.createLinks(1, index % NUMBER_OF_VALUES),
+				BenchmarkRecords.DATA_DIVIDER);
+	}
+
+	private Filter createPageFilter() {
+		Filter filter = new Filter();
+		filter.fromNo = 1;
+		filter.toNo = listPageSize;
+		return filter;
+	}
+
+	private Part createPartWithStorageTermCondition(String value) {
+		Part part = new Part();
+		part.conditions.add(
+				new Condition(BenchmarkRecords.STORAGE_KEY, RelationalOperator.EQUAL_TO, value));
+		return part;
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.deleteAllOfType(sqlDatabaseFactory, storage, TYPE);
+	}
+
+	private String randomId() {
+		return "id" + ThreadLocalRandom.current().nextInt(numberOfRecords);
+	}
+
+	@Benchmark
+	public DataRecordGroup readUsingTypeAndId() {
+		return storage.read(TYPE, randomId());
+	}
+
+	@Benchmark
+	public DataGroup readUsingTypesAndId() {
+		return storage.read(List.of(OTHER_TYPE, TYPE), randomId());
+	}
+
+	@Benchmark
+	public StorageReadResult readListWithoutFilterConditions() {
+		return storage.readList(TYPE, pageFilter);
+	}
+
+	@Benchmark
+	public StorageReadResult readListWithFilterCondition() {
+		return storage.readList(TYPE, conditionFilter);
+	}
+
+	@Benchmark
+	public Set<Link> getLinksToRecord() {
+		String targetId = "target" + ThreadLocalRandom.current().nextInt(NUMBER_OF_VALUES);
+		return storage.getLinksToRecord(BenchmarkRecords.LINK_TARGET_TYPE, targetId);
+	}
+}
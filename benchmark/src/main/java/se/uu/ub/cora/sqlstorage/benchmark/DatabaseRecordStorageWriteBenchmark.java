@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.json.parser.org.OrgJsonParser;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+
+/**
+ * DatabaseRecordStorageWriteBenchmark measures create and update of records with
+ * numberOfStorageTerms storage terms and numberOfLinks links.
+ * <p>
+ * Created records are deleted after each iteration, which is kept short so that the in-process
+ * database does not grow large enough to affect the measured allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class DatabaseRecordStorageWriteBenchmark {
+	private static final String CREATE_TYPE = "benchmarkCreate";
+	private static final String UPDATE_TYPE = "benchmarkUpdate";
+	private static final String UPDATE_ID = "updatedRecord";
+
+	@Param({ "IN_PROCESS" })
+	public BenchmarkDatabase database;
+
+	@Param({ "20" })
+	public int childrenPerRecord;
+
+	@Param({ "0", "10", "100" })
+	public int numberOfStorageTerms;
+
+	@Param({ "0", "10", "100" })
+	public int numberOfLinks;
+
+	private SqlDatabaseFactory sqlDatabaseFactory;
+	private DatabaseRecordStorage storage;
+	private DataGroup dataRecord;
+	private Set<StorageTerm> storageTerms;
+	private Set<Link> links;
+	private AtomicLong nextId = new AtomicLong();
+
+	@Setup
+	public void setUp() {
+		sqlDatabaseFactory = database.createSqlDatabaseFactory();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactory, new OrgJsonParser());
+		deleteAllBenchmarkRecords();
+		dataRecord = BenchmarkRecords.createRecord(CREATE_TYPE, "someId", childrenPerRecord);
+		storageTerms = BenchmarkRecords.createStorageTerms(numberOfStorageTerms, "someValue");
+		links = BenchmarkRecords.createLinks(numberOfLinks, 0);
+		storage.create(UPDATE_TYPE, UPDATE_ID, dataRecord, storageTerms, links,
+				BenchmarkRecords.DATA_DIVIDER);
+	}
+
+	private void deleteAllBenchmarkRecords() {
+		database.deleteAllOfType(sqlDatabaseFactory, storage, CREATE_TYPE);
+		database.deleteAllOfType(sqlDatabaseFactory, storage, UPDATE_TYPE);
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteCreatedRecords() {
+		database.deleteAllOfType(sqlDatabaseFactory, storage, CREATE_TYPE);
+	}
+
+	@TearDown
+	public void tearDown() {
+		deleteAllBenchmarkRecords();
+	}
+
+	@Benchmark
+	public void create() {
+		String id = "id" + nextId.incrementAndGet();
+		storage.create(CREATE_TYPE, id, dataRecord, storageTerms, links,
+				BenchmarkRecords.DATA_DIVIDER);
+	}
+
+	@Benchmark
+	public void update() {
+		storage.update(UPDATE_TYPE, UPDATE_ID, dataRecord, storageTerms, links,
+				BenchmarkRecords.DATA_DIVIDER);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.basicstorage.RecordStorageInMemory;
+import se.uu.ub.cora.json.parser.org.OrgJsonParser;
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqlstorage.cache.FromDbStoragePopulatorImp;
+import se.uu.ub.cora.sqlstorage.cache.RecordVersions;
+import se.uu.ub.cora.sqlstorage.cache.ReverseLinkIndex;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+
+/**
+ * FromDbStoragePopulatorBenchmark measures populating the cache at startup, running
+ * FromDbStoragePopulatorImp#populateStorageFromDatabase against a synthetic dataset created by a
+ * {@link SyntheticDatasetGenerator} from the parameters of the benchmark.
+ * <p>
+ * Each populate is one single shot, so the primary result is the wall time of a full populate.
+ * After each iteration the wall time, gc time and peak heap of each phase, one phase per table
+ * read, is written to the output as measured by a {@link PhaseRecorder}. Run with the gc
+ * profiler, as done by BenchmarkRunner, to also get allocation rate and total gc counts. Saving
+ * results using -rf json makes it possible to compare populator changes against a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FromDbStoragePopulatorBenchmark {
+	private static final long SEED = 42;
+	private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+	@Param({ "IN_PROCESS" })
+	public BenchmarkDatabase database;
+
+	@Param({ "10000", "100000" })
+	public int numberOfRecords;
+
+	@Param({ "10" })
+	public int numberOfTypes;
+
+	@Param({ "20" })
+	public int medianChildrenPerRecord;
+
+	@Param({ "1.0" })
+	public double childrenSpread;
+
+	@Param({ "5" })
+	public int storageTermsPerRecord;
+
+	@Param({ "5" })
+	public int linksPerRecord;
+
+	@Param({ "0.0", "1.2" })
+	public double linkFanInSkew;
+
+	private SqlDatabaseFactory sqlDatabaseFactory;
+	private DatabaseRecordStorage storage;
+	private SyntheticDatasetGenerator generator;
+	private PhaseRecorder phaseRecorder;
+
+	@Setup
+	public void setUp() {
+		sqlDatabaseFactory = database.createSqlDatabaseFactory();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactory, new OrgJsonParser());
+		generator = SyntheticDatasetGenerator.usingSettings(new SyntheticDatasetSettings(
+				numberOfRecords, numberOfTypes, medianChildrenPerRecord, childrenSpread,
+				storageTermsPerRecord, linksPerRecord, linkFanInSkew, SEED));
+		deleteDataset();
+		SyntheticDatasetSummary summary = generator.generateInto(storage);
+		System.out.println("Synthetic dataset: " + summary);
+	}
+
+	private void deleteDataset() {
+		for (String type : generator.getTypes()) {
+			database.deleteAllOfType(sqlDatabaseFactory, storage, type);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpIteration() {
+		phaseRecorder = new PhaseRecorder();
+	}
+
+	@Benchmark
+	public RecordStorageInMemory populateStorageFromDatabase() {
+		RecordStorageInMemory memory = new RecordStorageInMemory();
+		try (DatabaseFacade databaseFacade = PhaseRecordingDatabaseFacade
+				.usingDatabaseFacadeAndPhaseRecorder(sqlDatabaseFactory.factorDatabaseFacade(),
+						phaseRecorder)) {
+			FromDbStoragePopulatorImp populator = new FromDbStoragePopulatorImp(databaseFacade,
+					new OrgJsonParser());
+			populator.populateStorageFromDatabase(memory, new ReverseLinkIndex(),
+					new RecordVersions());
+			phaseRecorder.endPhase();
+		}
+		return memory;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() {
+		for (PopulatorPhase phase : phaseRecorder.getPhases()) {
+			System.out.println(String.format("%-28s wall %7d ms, gc %6d ms, peak heap %6d MB",
+					phase.name(), phase.wallTimeMillis(), phase.gcTimeMillis(),
+					phase.peakHeapBytes() / BYTES_PER_MEGABYTE));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		deleteDataset();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.json.parser.org.OrgJsonParser;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.GroupCommitRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.GroupCommitWriter;
+
+/**
+ * GroupCommitWriteBenchmark measures concurrent creates with and without group commit, to decide
+ * if the settings groupCommitMaxBatchSize and groupCommitMaxWaitMillis should be used for a
+ * deployment.
+ * <p>
+ * A maxBatchSize of 0 creates each record in its own transaction, any other value creates them
+ * through a {@link GroupCommitWriter} using maxBatchSize and maxWaitMillis. The gain depends on
+ * the time a commit takes, so the benchmark only runs against PostgreSQL, and the number of
+ * threads should be set close to the number of concurrent writers expected, using -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Threads(16)
+public class GroupCommitWriteBenchmark {
+	private static final String CREATE_TYPE = "benchmarkGroupCommit";
+
+	@Param({ "POSTGRESQL" })
+	public BenchmarkDatabase database;
+
+	@Param({ "0", "16", "64" })
+	public int maxBatchSize;
+
+	@Param({ "2" })
+	public long maxWaitMillis;
+
+	@Param({ "20" })
+	public int childrenPerRecord;
+
+	private SqlDatabaseFactory sqlDatabaseFactory;
+	private DatabaseRecordStorage databaseStorage;
+	private GroupCommitWriter groupCommitWriter;
+	private SqlRecordStorage storage;
+	private DataGroup dataRecord;
+	private AtomicLong nextId = new AtomicLong();
+
+	@Setup
+	public void setUp() {
+		sqlDatabaseFactory = database.createSqlDatabaseFactory();
+		databaseStorage = new DatabaseRecordStorage(sqlDatabaseFactory, new OrgJsonParser());
+		storage = possiblyUseGroupCommit();
+		deleteCreatedRecords();
+		dataRecord = BenchmarkRecords.createRecord(CREATE_TYPE, "someId", childrenPerRecord);
+	}
+
+	private SqlRecordStorage possiblyUseGroupCommit() {
+		if (maxBatchSize == 0) {
+			return databaseStorage;
+		}
+		groupCommitWriter = GroupCommitWriter.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(
+				databaseStorage, maxBatchSize, maxWaitMillis);
+		return GroupCommitRecordStorage.usingDatabaseAndGroupCommitWriter(databaseStorage,
+				groupCommitWriter);
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteCreatedRecords() {
+		database.deleteAllOfType(sqlDatabaseFactory, databaseStorage, CREATE_TYPE);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (groupCommitWriter != null) {
+			groupCommitWriter.close();
+		}
+		deleteCreatedRecords();
+	}
+
+	@Benchmark
+	public void create() {
+		String id = "id" + nextId.incrementAndGet();
+		storage.create(CREATE_TYPE, id, dataRecord, Collections.emptySet(),
+				Collections.emptySet(), BenchmarkRecords.DATA_DIVIDER);
+	}
+}
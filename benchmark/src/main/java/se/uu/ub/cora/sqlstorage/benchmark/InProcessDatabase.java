@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlConflictException;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
+
+/**
+ * InProcessDatabase keeps the record, storageterm and link tables in memory, indexed in the same
+ * way as the database so that reading one record or the links to a record does not depend on the
+ * number of stored rows.
+ * <p>
+ * The supported queries are the ones DatabaseRecordStorage uses for reading, listing, creating,
+ * updating and deleting records and for reading links to a record:
+ * <ul>
+ * <li>record: insert, read, update and delete on type and id, where type can be a list</li>
+ * <li>recordstorageterm: read on a list of types, optionally with a storageKey and value, ordered
+ * by id descending and limited by from and to number</li>
+ * <li>storageterm: insert and delete on recordtype and recordid</li>
+ * <li>link: insert, delete on fromtype and fromid and read on totype and toid</li>
+ * </ul>
+ * All rows of the record, storageterm and link tables can also be read, as done when populating a
+ * cache from the database.
+ * Other queries throw an SqlDatabaseException. This class is threadsafe.
+ */
+final class InProcessDatabase {
+	private static final String RECORD = "record";
+	private static final String RECORD_STORAGE_TERM = "recordstorageterm";
+	private static final String STORAGE_TERM = "storageterm";
+	private static final String LINK = "link";
+	private static final Comparator<String> ID_DESCENDING = Comparator.reverseOrder();
+
+	private final Map<String, TreeMap<String, Map<String, Object>>> recordsByType = new HashMap<>();
+	private final Map<RecordKey, List<Map<String, Object>>> storageTermsByRecord = new HashMap<>();
+	private final Map<RecordKey, List<Map<String, Object>>> linksByFromRecord = new HashMap<>();
+	private final Map<RecordKey, List<Map<String, Object>>> linksByToRecord = new HashMap<>();
+
+	private record RecordKey(Object type, Object id) {
+	}
+
+	synchronized void insert(String tableName, Map<String, Object> parameters) {
+		switch (tableName) {
+		case RECORD -> insertRecord(parameters);
+		case STORAGE_TERM -> addRow(storageTermsByRecord,
+				keyFrom(parameters, "recordtype", "recordid"), parameters);
+		case LINK -> insertLink(parameters);
+		default -> throw createNotSupportedException("insert into", tableName);
+		}
+	}
+
+	private void insertRecord(Map<String, Object> parameters) {
+		TreeMap<String, Map<String, Object>> records = recordsByType.computeIfAbsent(
+				(String) parameters.get("type"), type -> new TreeMap<>(ID_DESCENDING));
+		String id = (String) parameters.get("id");
+		if (records.containsKey(id)) {
+			throw SqlConflictException.withMessage("Record already exists in in-process database.");
+		}
+		Map<String, Object> row = new HashMap<>(parameters);
+		row.put("version", 1L);
+		records.put(id, row);
+	}
+
+	private void insertLink(Map<String, Object> parameters) {
+		addRow(linksByFromRecord, keyFrom(parameters, "fromtype", "fromid"), parameters);
+		addRow(linksByToRecord, keyFrom(parameters, "totype", "toid"), parameters);
+	}
+
+	private RecordKey keyFrom(Map<String, Object> columns, String typeColumn, String idColumn) {
+		return new RecordKey(columns.get(typeColumn), columns.get(idColumn));
+	}
+
+	private void addRow(Map<RecordKey, List<Map<String, Object>>> rowsByRecord, RecordKey key,
+			Map<String, Object> parameters) {
+		rowsByRecord.computeIfAbsent(key, k -> new ArrayList<>()).add(new HashMap<>(parameters));
+	}
+
+	private SqlDatabaseException createNotSupportedException(String operation, String tableName) {
+		return SqlDatabaseException.withMessage("The in-process database does not support "
+				+ operation + " table: " + tableName + ".");
+	}
+
+	synchronized List<Row> read(String tableName, Map<String, Object> conditions, Long fromNo,
+			Long toNo) {
+		List<Map<String, Object>> rows = switch (tableName) {
+		case RECORD -> readRecords(conditions);
+		case RECORD_STORAGE_TERM -> readRecordsMatchingStorageTerm(conditions);
+		case LINK -> linksByToRecord.getOrDefault(keyFrom(conditions, "totype", "toid"),
+				Collections.emptyList());
+		default -> throw createNotSupportedException("read from", tableName);
+		};
+		return toRowsFromNoToNo(rows, fromNo, toNo);
+	}
+
+	private List<Map<String, Object>> readRecords(Map<String, Object> conditions) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		Object id = conditions.get("id");
+		for (String type : typesFrom(conditions.get("type"))) {
+			TreeMap<String, Map<String, Object>> records = recordsByType.get(type);
+			possiblyAddRecord(rows, records, id);
+		}
+		return rows;
+	}
+
+	private Collection<String> typesFrom(Object typeCondition) {
+		if (typeCondition instanceof Collection<?> types) {
+			List<String> typeList = new ArrayList<>(types.size());
+			types.forEach(type -> typeList.add((String) type));
+			return typeList;
+		}
+		return List.of((String) typeCondition);
+	}
+
+	private void possiblyAddRecord(List<Map<String, Object>> rows,
+			TreeMap<String, Map<String, Object>> records, Object id) {
+		if (records == null) {
+			return;
+		}
+		if (id == null) {
+			rows.addAll(records.values());
+		} else if (records.containsKey(id)) {
+			rows.add(records.get(id));
+		}
+	}
+
+	private List<Map<String, Object>> readRecordsMatchingStorageTerm(
+			Map<String, Object> conditions) {
+		List<Map<String, Object>> records = readRecords(conditions);
+		if (!conditions.containsKey("storageKey")) {
+			return records;
+		}
+		List<Map<String, Object>> matching = new ArrayList<>();
+		for (Map<String, Object> record : records) {
+			if (hasStorageTerm(record, conditions.get("storageKey"), conditions.get("value"))) {
+				matching.add(record);
+			}
+		}
+		return matching;
+	}
+
+	private boolean hasStorageTerm(Map<String, Object> record, Object storageKey, Object value) {
+		List<Map<String, Object>> storageTerms = storageTermsByRecord
+				.getOrDefault(keyFrom(record, "type", "id"), Collections.emptyList());
+		for (Map<String, Object> storageTerm : storageTerms) {
+			if (storageKey.equals(storageTerm.get("storagekey"))
+					&& value.equals(storageTerm.get("value"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	synchronized List<Row> readAll(String tableName) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		switch (tableName) {
+		case RECORD -> recordsByType.values().forEach(records -> rows.addAll(records.values()));
+		case STORAGE_TERM -> storageTermsByRecord.values().forEach(rows::addAll);
+		case LINK -> linksByFromRecord.values().forEach(rows::addAll);
+		default -> throw createNotSupportedException("read all from", tableName);
+		}
+		return toRowsFromNoToNo(rows, null, null);
+	}
+
+	private List<Row> toRowsFromNoToNo(List<Map<String, Object>> rows, Long fromNo, Long toNo) {
+		int from = fromNo == null ? 0 : (int) Math.min(rows.size(), fromNo - 1);
+		int to = toNo == null ? rows.size() : (int) Math.min(rows.size(), toNo);
+		List<Row> result = new ArrayList<>(Math.max(0, to - from));
+		for (Map<String, Object> row : rows.subList(from, Math.max(from, to))) {
+			result.add(new InProcessRow(row));
+		}
+		return result;
+	}
+
+	synchronized int update(String tableName, Map<String, Object> conditions,
+			Map<String, Object> parameters) {
+		if (!RECORD.equals(tableName)) {
+			throw createNotSupportedException("update", tableName);
+		}
+		TreeMap<String, Map<String, Object>> records = recordsByType
+				.get(conditions.get("type"));
+		if (records == null || !records.containsKey(conditions.get("id"))) {
+			return 0;
+		}
+		Map<String, Object> record = records.get(conditions.get("id"));
+		record.putAll(parameters);
+		record.put("version", (long) record.get("version") + 1);
+		return 1;
+	}
+
+	synchronized int delete(String tableName, Map<String, Object> conditions) {
+		return switch (tableName) {
+		case RECORD -> deleteRecord(conditions.get("type"), conditions.get("id"));
+		case STORAGE_TERM -> deleteRows(storageTermsByRecord
+				.remove(keyFrom(conditions, "recordtype", "recordid")));
+		case LINK -> deleteLinksFromRecord(keyFrom(conditions, "fromtype", "fromid"));
+		default -> throw createNotSupportedException("delete from", tableName);
+		};
+	}
+
+	private int deleteRecord(Object type, Object id) {
+		TreeMap<String, Map<String, Object>> records = recordsByType.get(type);
+		if (records == null || records.remove(id) == null) {
+			return 0;
+		}
+		return 1;
+	}
+
+	private int deleteRows(List<Map<String, Object>> deletedRows) {
+		return deletedRows == null ? 0 : deletedRows.size();
+	}
+
+	private int deleteLinksFromRecord(RecordKey fromRecord) {
+		List<Map<String, Object>> links = linksByFromRecord.remove(fromRecord);
+		if (links == null) {
+			return 0;
+		}
+		for (Map<String, Object> link : links) {
+			removeLinkToRecord(link);
+		}
+		return links.size();
+	}
+
+	private void removeLinkToRecord(Map<String, Object> link) {
+		RecordKey toRecord = keyFrom(link, "totype", "toid");
+		List<Map<String, Object>> linksToRecord = linksByToRecord.get(toRecord);
+		linksToRecord.remove(link);
+		if (linksToRecord.isEmpty()) {
+			linksByToRecord.remove(toRecord);
+		}
+	}
+
+	synchronized void deleteAllOfType(String type) {
+		TreeMap<String, Map<String, Object>> records = recordsByType.remove(type);
+		if (records == null) {
+			return;
+		}
+		for (String id : records.keySet()) {
+			storageTermsByRecord.remove(new RecordKey(type, id));
+			deleteLinksFromRecord(new RecordKey(type, id));
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlConflictException;
+import se.uu.ub.cora.sqldatabase.SqlDataException;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
+import se.uu.ub.cora.sqldatabase.SqlNotFoundException;
+
+/**
+ * InProcessDatabaseFacade is the DatabaseFacade of an {@link InProcessSqlDatabaseFactory}. The sql
+ * supported is reading all rows of a table, "select * from tableName" without values, as done by
+ * FromDbStoragePopulatorImp, and the sql DatabaseRecordStorage uses to read, list, create and
+ * update records without compression and to read the links to a record. A list can have at most
+ * one storage term condition. All other sql throws an SqlDatabaseException.
+ * <p>
+ * Transactions are not supported, each statement is applied directly.
+ */
+final class InProcessDatabaseFacade implements DatabaseFacade {
+	private static final String SELECT_ALL_FROM = "select * from ";
+	private static final String SELECT_RECORD = "select * from record where type = ? and id = ?";
+	private static final String SELECT_RECORD_FOR_TYPES = "select * from record"
+			+ " where type = any(?) and id = ?";
+	private static final String INSERT_RECORD = "insert into record"
+			+ " (type, id, datadivider, data) values (?, ?, ?, ?) on conflict (type, id)"
+			+ " do nothing";
+	private static final String UPDATE_RECORD = "update record set datadivider = ?, data = ?"
+			+ " where type = ? and id = ?";
+	private static final String DELETE_STORAGE_TERMS = "delete from storageterm"
+			+ " where recordtype = ? and recordid = ?";
+	private static final String DELETE_LINKS = "delete from link"
+			+ " where fromtype = ? and fromid = ?";
+	private static final String INSERT_STORAGE_TERMS = "insert into storageterm"
+			+ " (recordtype, recordid, storagetermid, value, storagekey) values ";
+	private static final List<String> STORAGE_TERM_COLUMNS = List.of("recordtype", "recordid",
+			"storagetermid", "value", "storagekey");
+	private static final String INSERT_LINKS = "insert into link"
+			+ " (fromtype, fromid, totype, toid) values ";
+	private static final List<String> LINK_COLUMNS = List.of("fromtype", "fromid", "totype",
+			"toid");
+	private static final String SELECT_LINKS_TO_RECORD = "select fromtype, fromid from link"
+			+ " where totype = ? and toid = ?";
+	private static final String SELECT_LIST = "select * from recordstorageterm"
+			+ " where type = any(?)";
+	private static final String COUNT_LIST = "select count(*) as count from recordstorageterm"
+			+ " where type = any(?)";
+	private static final String STORAGE_TERM_CONDITION = " and storagekey = ? and value = ?";
+	private static final String LIST_OFFSET = " offset ?";
+	private static final String LIST_LIMIT = " limit ?";
+	private final InProcessDatabase database;
+
+	InProcessDatabaseFacade(InProcessDatabase database) {
+		this.database = database;
+	}
+
+	@Override
+	public List<Row> readUsingSqlAndValues(String sql, List<Object> values) {
+		if (sql.startsWith(SELECT_ALL_FROM) && values.isEmpty()) {
+			return database.readAll(sql.substring(SELECT_ALL_FROM.length()));
+		}
+		if (SELECT_RECORD_FOR_TYPES.equals(sql)) {
+			return readRecordForTypes(values);
+		}
+		if (SELECT_LINKS_TO_RECORD.equals(sql)) {
+			return database.read("link", Map.of("totype", values.get(0), "toid", values.get(1)),
+					null, null);
+		}
+		if (sql.startsWith(SELECT_LIST)) {
+			return readList(sql, values);
+		}
+		throw createNotSupportedException(sql);
+	}
+
+	private List<Row> readRecordForTypes(List<Object> values) {
+		String[] types = (String[]) values.get(0);
+		return database.read("record", Map.of("type", List.of(types), "id", values.get(1)), null,
+				null);
+	}
+
+	private SqlDatabaseException createNotSupportedException(String sql) {
+		return SqlDatabaseException
+				.withMessage("Sql is not supported by the in-process database: " + sql);
+	}
+
+	private List<Row> readList(String sql, List<Object> values) {
+		Map<String, Object> conditions = createListConditions(sql, values);
+		int nextValue = conditions.containsKey("storageKey") ? 3 : 1;
+		Long fromNo = null;
+		Long toNo = null;
+		long offset = 0;
+		if (sql.contains(LIST_OFFSET)) {
+			offset = ((Number) values.get(nextValue)).longValue();
+			fromNo = offset + 1;
+			nextValue++;
+		}
+		if (sql.contains(LIST_LIMIT)) {
+			toNo = offset + ((Number) values.get(nextValue)).longValue();
+		}
+		return database.read("recordstorageterm", conditions, fromNo, toNo);
+	}
+
+	private Map<String, Object> createListConditions(String sql, List<Object> values) {
+		int numberOfConditions = countConditions(sql);
+		if (numberOfConditions > 1) {
+			throw createNotSupportedException(sql);
+		}
+		Map<String, Object> conditions = new HashMap<>();
+		conditions.put("type", List.of((String[]) values.get(0)));
+		if (numberOfConditions == 1) {
+			conditions.put("storageKey", values.get(1));
+			conditions.put("value", values.get(2));
+		}
+		return conditions;
+	}
+
+	private int countConditions(String sql) {
+		int numberOfConditions = 0;
+		int index = sql.indexOf(STORAGE_TERM_CONDITION);
+		while (index != -1) {
+			numberOfConditions++;
+			index = sql.indexOf(STORAGE_TERM_CONDITION, index + 1);
+		}
+		return numberOfConditions;
+	}
+
+	@Override
+	public Row readOneRowOrFailUsingSqlAndValues(String sql, List<Object> values) {
+		if (SELECT_RECORD.equals(sql)) {
+			return getOneRowOrFail(database.read("record",
+					Map.of("type", values.get(0), "id", values.get(1)), null, null));
+		}
+		if (SELECT_RECORD_FOR_TYPES.equals(sql)) {
+			return getOneRowOrFail(readRecordForTypes(values));
+		}
+		if (sql.startsWith(COUNT_LIST)) {
+			long count = database.read("recordstorageterm", createListConditions(sql, values),
+					null, null).size();
+			return new InProcessRow(Map.of("count", count));
+		}
+		throw createNotSupportedException(sql);
+	}
+
+	private Row getOneRowOrFail(List<Row> rows) {
+		if (rows.isEmpty()) {
+			throw SqlNotFoundException.withMessage("No row found in in-process database.");
+		}
+		if (rows.size() > 1) {
+			throw SqlDataException.withMessage("More than one row found in in-process database.");
+		}
+		return rows.get(0);
+	}
+
+	@Override
+	public int executeSqlWithValues(String sql, List<Object> values) {
+		if (INSERT_RECORD.equals(sql)) {
+			return insertRecordIfMissing(values);
+		}
+		if (UPDATE_RECORD.equals(sql)) {
+			return database.update("record", Map.of("type", values.get(2), "id", values.get(3)),
+					Map.of("datadivider", values.get(0), "data", values.get(1)));
+		}
+		if (DELETE_STORAGE_TERMS.equals(sql)) {
+			return database.delete("storageterm",
+					Map.of("recordtype", values.get(0), "recordid", values.get(1)));
+		}
+		if (DELETE_LINKS.equals(sql)) {
+			return database.delete("link",
+					Map.of("fromtype", values.get(0), "fromid", values.get(1)));
+		}
+		if (sql.startsWith(INSERT_STORAGE_TERMS)) {
+			return insertRows("storageterm", STORAGE_TERM_COLUMNS, values);
+		}
+		if (sql.startsWith(INSERT_LINKS)) {
+			return insertRows("link", LINK_COLUMNS, values);
+		}
+		throw createNotSupportedException(sql);
+	}
+
+	private int insertRecordIfMissing(List<Object> values) {
+		try {
+			database.insert("record", Map.of("type", values.get(0), "id", values.get(1),
+					"datadivider", values.get(2), "data", values.get(3)));
+			return 1;
+		} catch (SqlConflictException e) {
+			return 0;
+		}
+	}
+
+	private int insertRows(String tableName, List<String> columns, List<Object> values) {
+		for (int start = 0; start < values.size(); start += columns.size()) {
+			Map<String, Object> row = new HashMap<>();
+			for (int column = 0; column < columns.size(); column++) {
+				row.put(columns.get(column), values.get(start + column));
+			}
+			database.insert(tableName, row);
+		}
+		return values.size() / columns.size();
+	}
+
+	@Override
+	public void startTransaction() {
+		// statements are applied directly
+	}
+
+	@Override
+	public void endTransaction() {
+		// statements are applied directly
+	}
+
+	@Override
+	public void rollback() {
+		// statements are applied directly
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import se.uu.ub.cora.sqldatabase.Row;
+
+/**
+ * InProcessRow is a row read from an {@link InProcessDatabase}, holding a copy of the columns.
+ */
+final class InProcessRow implements Row {
+	private final Map<String, Object> columns;
+
+	InProcessRow(Map<String, Object> columns) {
+		this.columns = new HashMap<>(columns);
+	}
+
+	@Override
+	public Object getValueByColumn(String columnName) {
+		return columns.get(columnName);
+	}
+
+	@Override
+	public Set<String> columnSet() {
+		return columns.keySet();
+	}
+
+	@Override
+	public boolean hasColumn(String columnName) {
+		return columns.containsKey(columnName);
+	}
+
+	@Override
+	public boolean hasColumnWithNonEmptyValue(String columnName) {
+		Object value = columns.get(columnName);
+		return value != null && !"".equals(value);
+	}
+}
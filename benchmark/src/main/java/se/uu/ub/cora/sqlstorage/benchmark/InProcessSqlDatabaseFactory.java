@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqldatabase.table.TableFacade;
+import se.uu.ub.cora.sqldatabase.table.TableQuery;
+
+/**
+ * InProcessSqlDatabaseFactory is a SqlDatabaseFactory for an {@link InProcessDatabase}, making it
+ * possible to measure the cpu time and allocations of DatabaseRecordStorage without the cost of a
+ * real database and network.
+ * <p>
+ * Only the table operations used by the benchmarks are supported, see {@link InProcessDatabase}.
+ * The sql supported through a DatabaseFacade is reading all rows of a table and the sql that
+ * DatabaseRecordStorage uses in the benchmarks, see {@link InProcessDatabaseFacade}.
+ */
+public final class InProcessSqlDatabaseFactory implements SqlDatabaseFactory {
+	private final InProcessDatabase database = new InProcessDatabase();
+
+	@Override
+	public DatabaseFacade factorDatabaseFacade() {
+		return new InProcessDatabaseFacade(database);
+	}
+
+	@Override
+	public TableFacade factorTableFacade() {
+		return new InProcessTableFacade(database);
+	}
+
+	@Override
+	public TableQuery factorTableQuery(String tableName) {
+		return new InProcessTableQuery(tableName);
+	}
+
+	/**
+	 * deleteAllOfType removes all records of the type, together with their storage terms and
+	 * links.
+	 */
+	public void deleteAllOfType(String type) {
+		database.deleteAllOfType(type);
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.List;
+
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlDataException;
+import se.uu.ub.cora.sqldatabase.SqlNotFoundException;
+import se.uu.ub.cora.sqldatabase.table.TableFacade;
+import se.uu.ub.cora.sqldatabase.table.TableQuery;
+
+/**
+ * InProcessTableFacade runs table queries against an {@link InProcessDatabase}. Transactions are
+ * not supported, each query is applied directly.
+ */
+final class InProcessTableFacade implements TableFacade {
+	private final InProcessDatabase database;
+	private long sequenceValue = 0;
+
+	InProcessTableFacade(InProcessDatabase database) {
+		this.database = database;
+	}
+
+	@Override
+	public void insertRowUsingQuery(TableQuery tableQuery) {
+		InProcessTableQuery query = (InProcessTableQuery) tableQuery;
+		database.insert(query.getTableName(), query.getParameters());
+	}
+
+	@Override
+	public List<Row> readRowsForQuery(TableQuery tableQuery) {
+		InProcessTableQuery query = (InProcessTableQuery) tableQuery;
+		return database.read(query.getTableName(), query.getConditions(), query.getFromNo(),
+				query.getToNo());
+	}
+
+	@Override
+	public Row readOneRowForQuery(TableQuery tableQuery) {
+		List<Row> rows = readRowsForQuery(tableQuery);
+		if (rows.isEmpty()) {
+			throw SqlNotFoundException.withMessage("No row found in in-process database.");
+		}
+		if (rows.size() > 1) {
+			throw SqlDataException.withMessage("More than one row found in in-process database.");
+		}
+		return rows.get(0);
+	}
+
+	@Override
+	public long readNumberOfRows(TableQuery tableQuery) {
+		InProcessTableQuery query = (InProcessTableQuery) tableQuery;
+		return database.read(query.getTableName(), query.getConditions(), null, null).size();
+	}
+
+	@Override
+	public int updateRowsUsingQuery(TableQuery tableQuery) {
+		InProcessTableQuery query = (InProcessTableQuery) tableQuery;
+		return database.update(query.getTableName(), query.getConditions(),
+				query.getParameters());
+	}
+
+	@Override
+	public int deleteRowsForQuery(TableQuery tableQuery) {
+		InProcessTableQuery query = (InProcessTableQuery) tableQuery;
+		return database.delete(query.getTableName(), query.getConditions());
+	}
+
+	@Override
+	public long nextValueFromSequence(String sequenceName) {
+		sequenceValue++;
+		return sequenceValue;
+	}
+
+	@Override
+	public void startTransaction() {
+		// queries are applied directly
+	}
+
+	@Override
+	public void endTransaction() {
+		// queries are applied directly
+	}
+
+	@Override
+	public void rollback() {
+		// queries are applied directly
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+}
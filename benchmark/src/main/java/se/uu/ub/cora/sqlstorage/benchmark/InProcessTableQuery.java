@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.uu.ub.cora.sqldatabase.table.TableQuery;
+
+/**
+ * InProcessTableQuery holds the parameters and conditions of a query against an
+ * {@link InProcessDatabase}. No sql is assembled, the assemble methods return an empty String.
+ */
+final class InProcessTableQuery implements TableQuery {
+	private final String tableName;
+	private final Map<String, Object> parameters = new LinkedHashMap<>();
+	private final Map<String, Object> conditions = new LinkedHashMap<>();
+	private Long fromNo;
+	private Long toNo;
+
+	InProcessTableQuery(String tableName) {
+		this.tableName = tableName;
+	}
+
+	@Override
+	public void addParameter(String name, Object value) {
+		parameters.put(name, value);
+	}
+
+	@Override
+	public void addCondition(String name, Object value) {
+		conditions.put(name, value);
+	}
+
+	@Override
+	public void setFromNo(Long fromNo) {
+		this.fromNo = fromNo;
+	}
+
+	@Override
+	public void setToNo(Long toNo) {
+		this.toNo = toNo;
+	}
+
+	@Override
+	public void addOrderByAsc(String column) {
+		// records are always read ordered by id descending
+	}
+
+	@Override
+	public void addOrderByDesc(String column) {
+		// records are always read ordered by id descending
+	}
+
+	@Override
+	public String assembleCreateSql() {
+		return "";
+	}
+
+	@Override
+	public String assembleReadSql() {
+		return "";
+	}
+
+	@Override
+	public String assembleUpdateSql() {
+		return "";
+	}
+
+	@Override
+	public String assembleDeleteSql() {
+		return "";
+	}
+
+	@Override
+	public List<Object> getQueryValues() {
+		List<Object> values = new ArrayList<>(parameters.values());
+		values.addAll(conditions.values());
+		return values;
+	}
+
+	@Override
+	public String assembleCountSql() {
+		return "";
+	}
+
+	String getTableName() {
+		return tableName;
+	}
+
+	Map<String, Object> getParameters() {
+		return parameters;
+	}
+
+	Map<String, Object> getConditions() {
+		return conditions;
+	}
+
+	Long getFromNo() {
+		return fromNo;
+	}
+
+	Long getToNo() {
+		return toNo;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PhaseRecorder measures wall time, gc time and peak heap usage of consecutive phases. A phase
+ * lasts from {@link #startPhase(String)} until the next phase is started or
+ * {@link #endPhase()} is called.
+ * <p>
+ * Peak heap is the sum of the peak usage of the heap memory pools during the phase. As the pools
+ * can peak at different times it can be somewhat higher than the real peak, but it is comparable
+ * between runs. The gc time is the collection time reported by the garbage collectors.
+ * <p>
+ * This class is not threadsafe.
+ */
+public final class PhaseRecorder {
+	private final List<PopulatorPhase> phases = new ArrayList<>();
+	private String currentPhase;
+	private long phaseStartNanos;
+	private long phaseStartGcMillis;
+
+	/**
+	 * startPhase ends the current phase, if any, and starts a new phase with the specified name.
+	 */
+	public void startPhase(String name) {
+		endPhase();
+		resetPeakHeapUsage();
+		currentPhase = name;
+		phaseStartGcMillis = readGcTimeMillis();
+		phaseStartNanos = System.nanoTime();
+	}
+
+	private void resetPeakHeapUsage() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private long readGcTimeMillis() {
+		long gcTime = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcTime += Math.max(0, collector.getCollectionTime());
+		}
+		return gcTime;
+	}
+
+	/**
+	 * endPhase ends the current phase. Calling it when no phase is started does nothing.
+	 */
+	public void endPhase() {
+		if (currentPhase == null) {
+			return;
+		}
+		long wallTimeMillis = (System.nanoTime() - phaseStartNanos) / 1_000_000;
+		long gcTimeMillis = readGcTimeMillis() - phaseStartGcMillis;
+		phases.add(new PopulatorPhase(currentPhase, wallTimeMillis, gcTimeMillis,
+				readPeakHeapUsage()));
+		currentPhase = null;
+	}
+
+	private long readPeakHeapUsage() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * getPhases returns the ended phases in the order they were started.
+	 */
+	public List<PopulatorPhase> getPhases() {
+		return List.copyOf(phases);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.List;
+
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.Row;
+
+/**
+ * PhaseRecordingDatabaseFacade is a DatabaseFacade that starts a new phase in a
+ * {@link PhaseRecorder}, named by the sql, each time sql is read, before delegating to another
+ * DatabaseFacade.
+ * <p>
+ * FromDbStoragePopulatorImp reads each table using one query and then processes the rows, so a
+ * phase covers reading and processing one table. The last phase lasts until the recorder is
+ * ended.
+ */
+public final class PhaseRecordingDatabaseFacade implements DatabaseFacade {
+	private final DatabaseFacade databaseFacade;
+	private final PhaseRecorder phaseRecorder;
+
+	public static PhaseRecordingDatabaseFacade usingDatabaseFacadeAndPhaseRecorder(
+			DatabaseFacade databaseFacade, PhaseRecorder phaseRecorder) {
+		return new PhaseRecordingDatabaseFacade(databaseFacade, phaseRecorder);
+	}
+
+	private PhaseRecordingDatabaseFacade(DatabaseFacade databaseFacade,
+			PhaseRecorder phaseRecorder) {
+		this.databaseFacade = databaseFacade;
+		this.phaseRecorder = phaseRecorder;
+	}
+
+	@Override
+	public List<Row> readUsingSqlAndValues(String sql, List<Object> values) {
+		phaseRecorder.startPhase(sql);
+		return databaseFacade.readUsingSqlAndValues(sql, values);
+	}
+
+	@Override
+	public Row readOneRowOrFailUsingSqlAndValues(String sql, List<Object> values) {
+		phaseRecorder.startPhase(sql);
+		return databaseFacade.readOneRowOrFailUsingSqlAndValues(sql, values);
+	}
+
+	@Override
+	public int executeSqlWithValues(String sql, List<Object> values) {
+		return databaseFacade.executeSqlWithValues(sql, values);
+	}
+
+	@Override
+	public void startTransaction() {
+		databaseFacade.startTransaction();
+	}
+
+	@Override
+	public void endTransaction() {
+		databaseFacade.endTransaction();
+	}
+
+	@Override
+	public void rollback() {
+		databaseFacade.rollback();
+	}
+
+	@Override
+	public void close() {
+		databaseFacade.close();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.converter.DataToJsonConverterFactory;
+import se.uu.ub.cora.data.converter.DataToJsonConverterProvider;
+import se.uu.ub.cora.json.parser.org.OrgJsonParser;
+import se.uu.ub.cora.sqlstorage.internal.DataGroupBinaryCodec;
+import se.uu.ub.cora.sqlstorage.internal.ParsingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataCompressor;
+import se.uu.ub.cora.sqlstorage.internal.RecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.StreamingRecordJsonConverter;
+
+/**
+ * RecordDataBenchmark measures the conversions of record data done by DatabaseRecordStorage
+ * without any database: converting records to and from json, encoding and decoding the binary
+ * form, and compressing and decompressing records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecordDataBenchmark {
+	private static final String TYPE = "benchmarkRecordData";
+
+	@Param({ "20", "200" })
+	public int childrenPerRecord;
+
+	private DataGroup dataRecord;
+	private String json;
+	private byte[] encoded;
+	private byte[] compressed;
+	private DataToJsonConverterFactory dataToJsonConverterFactory;
+	private RecordJsonConverter parsingConverter;
+	private RecordJsonConverter streamingConverter;
+	private RecordDataCompressor compressor;
+
+	@Setup
+	public void setUp() {
+		dataRecord = BenchmarkRecords.createRecord(TYPE, "someId", childrenPerRecord);
+		dataToJsonConverterFactory = DataToJsonConverterProvider.createImplementingFactory();
+		json = dataToJsonConverterFactory.factorUsingConvertible(dataRecord).toJson();
+		encoded = DataGroupBinaryCodec.encode(dataRecord);
+		parsingConverter = ParsingRecordJsonConverter.usingJsonParser(new OrgJsonParser());
+		streamingConverter = StreamingRecordJsonConverter.usingFallbackConverter(parsingConverter);
+		compressor = RecordDataCompressor.usingCompressedTypesAndThreshold(Set.of(TYPE), 0);
+		compressed = compressor.possiblyCompress(TYPE, dataRecord).get();
+	}
+
+	@Benchmark
+	public String toJsonCreatingFactory() {
+		return DataToJsonConverterProvider.createImplementingFactory()
+				.factorUsingConvertible(dataRecord).toJson();
+	}
+
+	@Benchmark
+	public String toJsonReusingFactory() {
+		return dataToJsonConverterFactory.factorUsingConvertible(dataRecord).toJson();
+	}
+
+	@Benchmark
+	public DataGroup fromJsonUsingParsingConverter() {
+		return parsingConverter.convert(json);
+	}
+
+	@Benchmark
+	public DataGroup fromJsonUsingStreamingConverter() {
+		return streamingConverter.convert(json);
+	}
+
+	@Benchmark
+	public byte[] encodeBinary() {
+		return DataGroupBinaryCodec.encode(dataRecord);
+	}
+
+	@Benchmark
+	public DataGroup decodeBinary() {
+		return DataGroupBinaryCodec.decode(encoded);
+	}
+
+	@Benchmark
+	public Optional<byte[]> compress() {
+		return compressor.possiblyCompress(TYPE, dataRecord);
+	}
+
+	@Benchmark
+	public DataGroup decompress() {
+		return RecordDataCompressor.decompress(compressed, parsingConverter::convert);
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+
+/**
+ * SyntheticDatasetGenerator creates a synthetic dataset, as described by a
+ * {@link SyntheticDatasetSettings}, and stores it in the record, storageterm and link tables
+ * through a SqlRecordStorage, the same way records are stored by a running system.
+ * <p>
+ * Record number n gets the id synthetic{n} and the type syntheticType{n % numberOfTypes}. Links
+ * point to records in the dataset, where the record with the lowest number is the most popular
+ * target when linkFanInSkew is above 0. The record data is created using {@link BenchmarkRecords}.
+ */
+public final class SyntheticDatasetGenerator {
+	private static final String TYPE_PREFIX = "syntheticType";
+	private static final String ID_PREFIX = "synthetic";
+	private static final int NUMBER_OF_STORAGE_TERM_VALUES = 100;
+	private static final int MAX_CHILDREN_FACTOR = 50;
+
+	private final SyntheticDatasetSettings settings;
+	private final double[] cumulativeLinkWeights;
+
+	public static SyntheticDatasetGenerator usingSettings(SyntheticDatasetSettings settings) {
+		return new SyntheticDatasetGenerator(settings);
+	}
+
+	private SyntheticDatasetGenerator(SyntheticDatasetSettings settings) {
+		this.settings = settings;
+		cumulativeLinkWeights = createCumulativeLinkWeights();
+	}
+
+	private double[] createCumulativeLinkWeights() {
+		double[] cumulative = new double[settings.numberOfRecords()];
+		double sum = 0;
+		for (int rank = 0; rank < cumulative.length; rank++) {
+			sum += 1 / Math.pow(rank + 1.0, settings.linkFanInSkew());
+			cumulative[rank] = sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * getTypes returns the record types of the dataset.
+	 */
+	public List<String> getTypes() {
+		List<String> types = new ArrayList<>(settings.numberOfTypes());
+		for (int i = 0; i < settings.numberOfTypes(); i++) {
+			types.add(TYPE_PREFIX + i);
+		}
+		return types;
+	}
+
+	/**
+	 * createRecords returns the descriptions of all records in the dataset, in record number
+	 * order.
+	 */
+	List<SyntheticRecord> createRecords() {
+		Random random = new Random(settings.seed());
+		List<SyntheticRecord> records = new ArrayList<>(settings.numberOfRecords());
+		for (int number = 0; number < settings.numberOfRecords(); number++) {
+			records.add(createRecord(random, number));
+		}
+		return records;
+	}
+
+	private SyntheticRecord createRecord(Random random, int number) {
+		return new SyntheticRecord(typeOf(number), ID_PREFIX + number,
+				drawNumberOfChildren(random), createStorageTerms(random), createLinks(random));
+	}
+
+	private String typeOf(int number) {
+		return TYPE_PREFIX + number % settings.numberOfTypes();
+	}
+
+	private int drawNumberOfChildren(Random random) {
+		int median = settings.medianChildrenPerRecord();
+		double size = median * Math.exp(settings.childrenSpread() * random.nextGaussian());
+		return (int) Math.min(Math.round(size), (long) median * MAX_CHILDREN_FACTOR);
+	}
+
+	private Set<StorageTerm> createStorageTerms(Random random) {
+		Set<StorageTerm> storageTerms = new LinkedHashSet<>();
+		for (int i = 0; i < settings.storageTermsPerRecord(); i++) {
+			String value = "value" + random.nextInt(NUMBER_OF_STORAGE_TERM_VALUES);
+			storageTerms
+					.add(new StorageTerm("syntheticStorageTerm" + i, "syntheticKey" + i, value));
+		}
+		return storageTerms;
+	}
+
+	private Set<Link> createLinks(Random random) {
+		Set<Link> links = new LinkedHashSet<>();
+		for (int i = 0; i < settings.linksPerRecord(); i++) {
+			int target = drawLinkTarget(random);
+			links.add(new Link(typeOf(target), ID_PREFIX + target));
+		}
+		return links;
+	}
+
+	private int drawLinkTarget(Random random) {
+		double totalWeight = cumulativeLinkWeights[cumulativeLinkWeights.length - 1];
+		int index = Arrays.binarySearch(cumulativeLinkWeights, random.nextDouble() * totalWeight);
+		return Math.min(index < 0 ? -index - 1 : index, cumulativeLinkWeights.length - 1);
+	}
+
+	/**
+	 * generateInto creates all records of the dataset in the storage and returns a summary of
+	 * what was created.
+	 */
+	public SyntheticDatasetSummary generateInto(SqlRecordStorage storage) {
+		long children = 0;
+		long storageTerms = 0;
+		long links = 0;
+		for (SyntheticRecord record : createRecords()) {
+			DataGroup dataRecord = BenchmarkRecords.createRecord(record.type(), record.id(),
+					record.numberOfChildren());
+			storage.create(record.type(), record.id(), dataRecord, record.storageTerms(),
+					record.links(), BenchmarkRecords.DATA_DIVIDER);
+			children += record.numberOfChildren();
+			storageTerms += record.storageTerms().size();
+			links += record.links().size();
+		}
+		return new SyntheticDatasetSummary(settings.numberOfRecords(), children, storageTerms,
+				links);
+	}
+
+	SyntheticDatasetSettings onlyForTestGetSettings() {
+		return settings;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+/**
+ * SyntheticDatasetSettings describes the dataset created by a {@link SyntheticDatasetGenerator}.
+ * <p>
+ * The records are spread evenly over numberOfTypes record types. The number of children of a
+ * record is log-normally distributed around medianChildrenPerRecord, where childrenSpread is the
+ * standard deviation of the logarithm, 0 giving all records the same size. Each record has
+ * storageTermsPerRecord storage terms and up to linksPerRecord links to other records in the
+ * dataset. The targets of the links are Zipf distributed with the exponent linkFanInSkew, 0 giving
+ * all records the same expected number of links to them and higher values concentrating the links
+ * to a few popular records. The same seed always gives the same dataset.
+ */
+public record SyntheticDatasetSettings(int numberOfRecords, int numberOfTypes,
+		int medianChildrenPerRecord, double childrenSpread, int storageTermsPerRecord,
+		int linksPerRecord, double linkFanInSkew, long seed) {
+
+	public SyntheticDatasetSettings {
+		if (numberOfRecords < 1 || numberOfTypes < 1) {
+			throw new IllegalArgumentException(
+					"Synthetic dataset must have at least one record and one type.");
+		}
+		if (medianChildrenPerRecord < 0 || childrenSpread < 0 || storageTermsPerRecord < 0
+				|| linksPerRecord < 0 || linkFanInSkew < 0) {
+			throw new IllegalArgumentException(
+					"Synthetic dataset sizes, spread and skew can not be negative.");
+		}
+	}
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlConflictException;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
+import se.uu.ub.cora.sqldatabase.SqlNotFoundException;
+import se.uu.ub.cora.sqldatabase.table.TableFacade;
+import se.uu.ub.cora.sqldatabase.table.TableQuery;
+
+public class InProcessSqlDatabaseFactoryTest {
+	private InProcessSqlDatabaseFactory factory;
+	private TableFacade tableFacade;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		factory = new InProcessSqlDatabaseFactory();
+		tableFacade = factory.factorTableFacade();
+	}
+
+	@Test
+	public void testInsertAndReadRecord() throws Exception {
+		insertRecord("someType", "someId", "someData");
+
+		Row row = tableFacade.readOneRowForQuery(createQuery("record", "type", "someType", "id",
+				"someId"));
+
+		assertEquals(row.getValueByColumn("data"), "someData");
+		assertEquals(row.getValueByColumn("version"), 1L);
+	}
+
+	private void insertRecord(String type, String id, String data) {
+		TableQuery query = factory.factorTableQuery("record");
+		query.addParameter("type", type);
+		query.addParameter("id", id);
+		query.addParameter("data", data);
+		tableFacade.insertRowUsingQuery(query);
+	}
+
+	private TableQuery createQuery(String tableName, String firstColumn, Object firstValue,
+			String secondColumn, Object secondValue) {
+		TableQuery query = factory.factorTableQuery(tableName);
+		query.addCondition(firstColumn, firstValue);
+		query.addCondition(secondColumn, secondValue);
+		return query;
+	}
+
+	@Test
+	public void testReadRecordUsingListOfTypes() throws Exception {
+		insertRecord("someType", "someId", "someData");
+
+		Row row = tableFacade.readOneRowForQuery(createQuery("record", "type",
+				List.of("otherType", "someType"), "id", "someId"));
+
+		assertEquals(row.getValueByColumn("data"), "someData");
+	}
+
+	@Test(expectedExceptions = SqlNotFoundException.class)
+	public void testReadMissingRecord() throws Exception {
+		tableFacade.readOneRowForQuery(createQuery("record", "type", "someType", "id", "someId"));
+	}
+
+	@Test(expectedExceptions = SqlConflictException.class)
+	public void testInsertExistingRecord() throws Exception {
+		insertRecord("someType", "someId", "someData");
+		insertRecord("someType", "someId", "someData");
+	}
+
+	@Test
+	public void testUpdateRecord() throws Exception {
+		insertRecord("someType", "someId", "someData");
+		TableQuery update = createQuery("record", "type", "someType", "id", "someId");
+		update.addParameter("data", "otherData");
+
+		int updated = tableFacade.updateRowsUsingQuery(update);
+
+		assertEquals(updated, 1);
+		Row row = tableFacade.readOneRowForQuery(createQuery("record", "type", "someType", "id",
+				"someId"));
+		assertEquals(row.getValueByColumn("data"), "otherData");
+		assertEquals(row.getValueByColumn("version"), 2L);
+	}
+
+	@Test
+	public void testUpdateMissingRecord() throws Exception {
+		TableQuery update = createQuery("record", "type", "someType", "id", "someId");
+		update.addParameter("data", "otherData");
+
+		assertEquals(tableFacade.updateRowsUsingQuery(update), 0);
+	}
+
+	@Test
+	public void testReadListOrderedByIdDescendingAndPaged() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertRecord("someType", "id3", "data3");
+		insertRecord("someType", "id2", "data2");
+		TableQuery query = factory.factorTableQuery("recordstorageterm");
+		query.addCondition("type", List.of("someType"));
+		query.setFromNo(2L);
+		query.setToNo(3L);
+
+		List<Row> rows = tableFacade.readRowsForQuery(query);
+
+		assertEquals(readIds(rows), List.of("id2", "id1"));
+		assertEquals(tableFacade.readNumberOfRows(query), 3);
+	}
+
+	private List<String> readIds(List<Row> rows) {
+		List<String> ids = new ArrayList<>();
+		for (Row row : rows) {
+			ids.add((String) row.getValueByColumn("id"));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testReadListUsingStorageTerm() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertRecord("someType", "id2", "data2");
+		insertStorageTerm("someType", "id2", "someKey", "someValue");
+		insertStorageTerm("someType", "id1", "someKey", "otherValue");
+		TableQuery query = createQuery("recordstorageterm", "type", List.of("someType"),
+				"storageKey", "someKey");
+		query.addCondition("value", "someValue");
+
+		List<Row> rows = tableFacade.readRowsForQuery(query);
+
+		assertEquals(readIds(rows), List.of("id2"));
+	}
+
+	private void insertStorageTerm(String type, String id, String storageKey, String value) {
+		TableQuery query = factory.factorTableQuery("storageterm");
+		query.addParameter("recordtype", type);
+		query.addParameter("recordid", id);
+		query.addParameter("storagetermid", "someStorageTermId");
+		query.addParameter("value", value);
+		query.addParameter("storagekey", storageKey);
+		tableFacade.insertRowUsingQuery(query);
+	}
+
+	@Test
+	public void testDeleteStorageTerms() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertStorageTerm("someType", "id1", "someKey", "someValue");
+
+		int deleted = tableFacade.deleteRowsForQuery(
+				createQuery("storageterm", "recordtype", "someType", "recordid", "id1"));
+
+		assertEquals(deleted, 1);
+		TableQuery query = createQuery("recordstorageterm", "type", List.of("someType"),
+				"storageKey", "someKey");
+		query.addCondition("value", "someValue");
+		assertTrue(tableFacade.readRowsForQuery(query).isEmpty());
+	}
+
+	@Test
+	public void testInsertReadAndDeleteLinks() throws Exception {
+		insertLink("someType", "id1", "toType", "toId");
+		insertLink("someType", "id2", "toType", "toId");
+
+		TableQuery linksToRecord = createQuery("link", "totype", "toType", "toid", "toId");
+		assertEquals(tableFacade.readRowsForQuery(linksToRecord).size(), 2);
+
+		int deleted = tableFacade.deleteRowsForQuery(
+				createQuery("link", "fromtype", "someType", "fromid", "id1"));
+
+		assertEquals(deleted, 1);
+		List<Row> rows = tableFacade.readRowsForQuery(linksToRecord);
+		assertEquals(rows.size(), 1);
+		assertEquals(rows.get(0).getValueByColumn("fromid"), "id2");
+	}
+
+	private void insertLink(String fromType, String fromId, String toType, String toId) {
+		TableQuery query = factory.factorTableQuery("link");
+		query.addParameter("fromtype", fromType);
+		query.addParameter("fromid", fromId);
+		query.addParameter("totype", toType);
+		query.addParameter("toid", toId);
+		tableFacade.insertRowUsingQuery(query);
+	}
+
+	@Test
+	public void testDeleteAllOfType() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertLink("someType", "id1", "toType", "toId");
+		insertRecord("otherType", "id1", "data1");
+
+		factory.deleteAllOfType("someType");
+
+		TableQuery query = factory.factorTableQuery("recordstorageterm");
+		query.addCondition("type", List.of("someType", "otherType"));
+		assertEquals(tableFacade.readNumberOfRows(query), 1);
+		TableQuery linksToRecord = createQuery("link", "totype", "toType", "toid", "toId");
+		assertTrue(tableFacade.readRowsForQuery(linksToRecord).isEmpty());
+	}
+
+	@Test
+	public void testReadAllRowsOfTablesUsingSql() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertRecord("otherType", "id1", "data1");
+		insertStorageTerm("someType", "id1", "someKey", "someValue");
+		insertLink("someType", "id1", "toType", "toId");
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+
+		assertEquals(databaseFacade.readUsingSqlAndValues("select * from record", List.of())
+				.size(), 2);
+		List<Row> storageTerms = databaseFacade
+				.readUsingSqlAndValues("select * from storageterm", List.of());
+		assertEquals(storageTerms.size(), 1);
+		assertEquals(storageTerms.get(0).getValueByColumn("storagekey"), "someKey");
+		List<Row> links = databaseFacade.readUsingSqlAndValues("select * from link", List.of());
+		assertEquals(links.size(), 1);
+		assertEquals(links.get(0).getValueByColumn("toid"), "toId");
+	}
+
+	@Test
+	public void testReadRecordForTypesUsingSql() throws Exception {
+		insertRecord("someType", "id1", "data1");
+		insertRecord("otherType", "id2", "data2");
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+
+		List<Row> rows = databaseFacade.readUsingSqlAndValues(
+				"select * from record where type = any(?) and id = ?",
+				List.of(new String[] { "someType", "otherType" }, "id2"));
+
+		assertEquals(rows.size(), 1);
+		assertEquals(rows.get(0).getValueByColumn("data"), "data2");
+	}
+
+	@Test
+	public void testCreateReadAndUpdateRecordUsingSql() throws Exception {
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+
+		assertEquals(insertRecordUsingSql(databaseFacade, "someType", "someId", "someData"), 1);
+		assertEquals(insertRecordUsingSql(databaseFacade, "someType", "someId", "otherData"), 0);
+		int updated = databaseFacade.executeSqlWithValues(
+				"update record set datadivider = ?, data = ? where type = ? and id = ?",
+				List.of("someDataDivider", "otherData", "someType", "someId"));
+
+		assertEquals(updated, 1);
+		Row row = databaseFacade.readOneRowOrFailUsingSqlAndValues(
+				"select * from record where type = ? and id = ?", List.of("someType", "someId"));
+		assertEquals(row.getValueByColumn("data"), "otherData");
+		assertEquals(row.getValueByColumn("version"), 2L);
+	}
+
+	private int insertRecordUsingSql(DatabaseFacade databaseFacade, String type, String id,
+			String data) {
+		return databaseFacade.executeSqlWithValues("insert into record"
+				+ " (type, id, datadivider, data) values (?, ?, ?, ?) on conflict (type, id)"
+				+ " do nothing", List.of(type, id, "someDataDivider", data));
+	}
+
+	@Test(expectedExceptions = SqlNotFoundException.class)
+	public void testReadMissingRecordUsingSql() throws Exception {
+		factory.factorDatabaseFacade().readOneRowOrFailUsingSqlAndValues(
+				"select * from record where type = any(?) and id = ?",
+				List.of(new String[] { "someType" }, "someId"));
+	}
+
+	@Test
+	public void testReadListAndCountUsingSql() throws Exception {
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+		for (String id : List.of("id1", "id2", "id3", "id4")) {
+			insertRecordUsingSql(databaseFacade, "someType", id, "data");
+		}
+		databaseFacade.executeSqlWithValues("insert into storageterm"
+				+ " (recordtype, recordid, storagetermid, value, storagekey)"
+				+ " values (?, ?, ?, ?, ?), (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)",
+				List.of("someType", "id1", "someStorageTermId", "someValue", "someKey",
+						"someType", "id2", "someStorageTermId", "someValue", "someKey",
+						"someType", "id3", "someStorageTermId", "someValue", "someKey"));
+
+		List<Row> rows = databaseFacade.readUsingSqlAndValues("select * from recordstorageterm"
+				+ " where type = any(?) and storagekey = ? and value = ?"
+				+ " order by id desc offset ? limit ?",
+				List.of(new String[] { "someType" }, "someKey", "someValue", 1L, 1L));
+		Row count = databaseFacade.readOneRowOrFailUsingSqlAndValues("select count(*) as count"
+				+ " from recordstorageterm where type = any(?)",
+				List.of((Object) new String[] { "someType" }));
+
+		assertEquals(readIds(rows), List.of("id2"));
+		assertEquals(count.getValueByColumn("count"), 4L);
+	}
+
+	@Test
+	public void testReadListWithLimitUsingSql() throws Exception {
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+		for (String id : List.of("id1", "id2", "id3")) {
+			insertRecordUsingSql(databaseFacade, "someType", id, "data");
+		}
+
+		List<Row> rows = databaseFacade.readUsingSqlAndValues("select * from recordstorageterm"
+				+ " where type = any(?) order by id desc limit ?",
+				List.of(new String[] { "someType" }, 2L));
+
+		assertEquals(readIds(rows), List.of("id3", "id2"));
+	}
+
+	@Test
+	public void testInsertReadAndDeleteLinksUsingSql() throws Exception {
+		DatabaseFacade databaseFacade = factory.factorDatabaseFacade();
+		String linksToRecordSql = "select fromtype, fromid from link"
+				+ " where totype = ? and toid = ?";
+
+		int inserted = databaseFacade.executeSqlWithValues("insert into link"
+				+ " (fromtype, fromid, totype, toid) values (?, ?, ?, ?), (?, ?, ?, ?)",
+				List.of("someType", "id1", "toType", "toId", "someType", "id2", "toType",
+						"toId"));
+		int deleted = databaseFacade.executeSqlWithValues(
+				"delete from link where fromtype = ? and fromid = ?", List.of("someType", "id1"));
+
+		assertEquals(inserted, 2);
+		assertEquals(deleted, 1);
+		List<Row> rows = databaseFacade.readUsingSqlAndValues(linksToRecordSql,
+				List.of("toType", "toId"));
+		assertEquals(rows.size(), 1);
+		assertEquals(rows.get(0).getValueByColumn("fromid"), "id2");
+	}
+
+	@Test
+	public void testUnsupportedTable() throws Exception {
+		try {
+			tableFacade.readRowsForQuery(factory.factorTableQuery("someTable"));
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof SqlDatabaseException);
+			assertEquals(e.getMessage(),
+					"The in-process database does not support read from table: someTable.");
+		}
+	}
+
+	@Test
+	public void testSqlIsNotSupported() throws Exception {
+		try {
+			factory.factorDatabaseFacade().executeSqlWithValues("delete from record", List.of());
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof SqlDatabaseException);
+			assertEquals(e.getMessage(),
+					"Sql is not supported by the in-process database: delete from record");
+		}
+	}
+}
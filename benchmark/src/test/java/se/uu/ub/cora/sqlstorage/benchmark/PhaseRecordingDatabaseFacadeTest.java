@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
+import se.uu.ub.cora.sqldatabase.table.TableQuery;
+
+public class PhaseRecordingDatabaseFacadeTest {
+	private InProcessSqlDatabaseFactory factory;
+	private PhaseRecorder phaseRecorder;
+	private DatabaseFacade databaseFacade;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		factory = new InProcessSqlDatabaseFactory();
+		phaseRecorder = new PhaseRecorder();
+		databaseFacade = PhaseRecordingDatabaseFacade.usingDatabaseFacadeAndPhaseRecorder(
+				factory.factorDatabaseFacade(), phaseRecorder);
+	}
+
+	@Test
+	public void testNoPhasesBeforeSqlIsRead() throws Exception {
+		phaseRecorder.endPhase();
+
+		assertTrue(phaseRecorder.getPhases().isEmpty());
+	}
+
+	@Test
+	public void testReadingSqlStartsPhase() throws Exception {
+		TableQuery query = factory.factorTableQuery("link");
+		query.addParameter("fromtype", "someType");
+		query.addParameter("fromid", "someId");
+		query.addParameter("totype", "toType");
+		query.addParameter("toid", "toId");
+		factory.factorTableFacade().insertRowUsingQuery(query);
+
+		assertEquals(databaseFacade.readUsingSqlAndValues("select * from link", List.of()).size(),
+				1);
+		assertTrue(phaseRecorder.getPhases().isEmpty());
+		databaseFacade.readUsingSqlAndValues("select * from record", List.of());
+		phaseRecorder.endPhase();
+
+		List<PopulatorPhase> phases = phaseRecorder.getPhases();
+		assertEquals(phases.size(), 2);
+		assertPhase(phases.get(0), "select * from link");
+		assertPhase(phases.get(1), "select * from record");
+	}
+
+	private void assertPhase(PopulatorPhase phase, String name) {
+		assertEquals(phase.name(), name);
+		assertTrue(phase.wallTimeMillis() >= 0);
+		assertTrue(phase.gcTimeMillis() >= 0);
+		assertTrue(phase.peakHeapBytes() > 0);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.benchmark;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+
+public class SyntheticDatasetGeneratorTest {
+	private static final int NUMBER_OF_RECORDS = 1000;
+
+	private SyntheticDatasetSettings createSettings(double childrenSpread, double linkFanInSkew,
+			long seed) {
+		return new SyntheticDatasetSettings(NUMBER_OF_RECORDS, 3, 20, childrenSpread, 4, 5,
+				linkFanInSkew, seed);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		SyntheticDatasetSettings settings = createSettings(1.0, 0, 1);
+
+		SyntheticDatasetGenerator generator = SyntheticDatasetGenerator.usingSettings(settings);
+
+		assertSame(generator.onlyForTestGetSettings(), settings);
+	}
+
+	@Test
+	public void testTypes() throws Exception {
+		SyntheticDatasetGenerator generator = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 0, 1));
+
+		assertEquals(generator.getTypes(),
+				List.of("syntheticType0", "syntheticType1", "syntheticType2"));
+	}
+
+	@Test
+	public void testRecordsHaveIdsTypesAndStorageTerms() throws Exception {
+		SyntheticDatasetGenerator generator = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 0, 1));
+
+		List<SyntheticRecord> records = generator.createRecords();
+
+		assertEquals(records.size(), NUMBER_OF_RECORDS);
+		SyntheticRecord record = records.get(4);
+		assertEquals(record.type(), "syntheticType1");
+		assertEquals(record.id(), "synthetic4");
+		assertEquals(record.storageTerms().size(), 4);
+		StorageTerm storageTerm = record.storageTerms().iterator().next();
+		assertEquals(storageTerm.storageTermId(), "syntheticStorageTerm0");
+		assertEquals(storageTerm.storageKey(), "syntheticKey0");
+		assertTrue(storageTerm.value().startsWith("value"));
+	}
+
+	@Test
+	public void testSameSeedGivesSameRecords() throws Exception {
+		List<SyntheticRecord> records = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 1.0, 7)).createRecords();
+		List<SyntheticRecord> sameRecords = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 1.0, 7)).createRecords();
+
+		assertEquals(sameRecords, records);
+	}
+
+	@Test
+	public void testNoSpreadGivesSameNumberOfChildren() throws Exception {
+		List<SyntheticRecord> records = SyntheticDatasetGenerator
+				.usingSettings(createSettings(0, 0, 1)).createRecords();
+
+		for (SyntheticRecord record : records) {
+			assertEquals(record.numberOfChildren(), 20);
+		}
+	}
+
+	@Test
+	public void testSpreadGivesNumberOfChildrenAroundMedian() throws Exception {
+		List<SyntheticRecord> records = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 0, 1)).createRecords();
+
+		int smaller = 0;
+		int larger = 0;
+		for (SyntheticRecord record : records) {
+			assertTrue(record.numberOfChildren() <= 20 * 50);
+			smaller += record.numberOfChildren() < 20 ? 1 : 0;
+			larger += record.numberOfChildren() > 20 ? 1 : 0;
+		}
+		assertTrue(smaller > 400, "smaller: " + smaller);
+		assertTrue(larger > 400, "larger: " + larger);
+	}
+
+	@Test
+	public void testLinksPointToRecordsInDataset() throws Exception {
+		List<SyntheticRecord> records = SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, 1.0, 1)).createRecords();
+
+		for (SyntheticRecord record : records) {
+			assertTrue(record.links().size() >= 1 && record.links().size() <= 5);
+			for (Link link : record.links()) {
+				int number = Integer.parseInt(link.id().substring("synthetic".length()));
+				assertTrue(number >= 0 && number < NUMBER_OF_RECORDS);
+				assertEquals(link.type(), "syntheticType" + number % 3);
+			}
+		}
+	}
+
+	@Test
+	public void testFanInSkewConcentratesLinksToFirstRecord() throws Exception {
+		int uniformLinksToFirst = countLinksToFirstRecord(0);
+		int skewedLinksToFirst = countLinksToFirstRecord(1.5);
+
+		assertTrue(uniformLinksToFirst < 30, "uniform: " + uniformLinksToFirst);
+		assertTrue(skewedLinksToFirst > 500, "skewed: " + skewedLinksToFirst);
+	}
+
+	private int countLinksToFirstRecord(double linkFanInSkew) {
+		Map<String, Integer> linksToRecord = new HashMap<>();
+		for (SyntheticRecord record : SyntheticDatasetGenerator
+				.usingSettings(createSettings(1.0, linkFanInSkew, 1)).createRecords()) {
+			for (Link link : record.links()) {
+				linksToRecord.merge(link.id(), 1, Integer::sum);
+			}
+		}
+		return linksToRecord.getOrDefault("synthetic0", 0);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class,
+			expectedExceptionsMessageRegExp = ""
+					+ "Synthetic dataset must have at least one record and one type.")
+	public void testSettingsWithoutRecords() throws Exception {
+		new SyntheticDatasetSettings(0, 1, 20, 1.0, 4, 5, 0, 1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class,
+			expectedExceptionsMessageRegExp = ""
+					+ "Synthetic dataset sizes, spread and skew can not be negative.")
+	public void testSettingsWithNegativeSkew() throws Exception {
+		new SyntheticDatasetSettings(10, 1, 20, 1.0, 4, 5, -1, 1);
+	}
+}
@@ -0,0 +1,15 @@
+-- Adds a version to each record, used for optimistic concurrency control.
+-- New records get version 1 and every update of a record increases its version by one.
+alter table record add column version bigint not null default 1;
+
+create or replace function increase_record_version() returns trigger as $$
+begin
+	new.version := old.version + 1;
+	return new;
+end;
+$$ language plpgsql;
+
+drop trigger if exists record_increase_version on record;
+create trigger record_increase_version
+	before update on record
+	for each row execute function increase_record_version();
@@ -0,0 +1,2 @@
+-- Adds an index on the target of links, used when checking and listing links pointing to a record.
+create index if not exists link_totype_toid_idx on link (totype, toid);
@@ -0,0 +1,5 @@
+-- Replaces the index on the target of links with one that also covers the source of the links,
+-- so that links pointing to a record can be read in pages ordered by source without sorting.
+create index if not exists link_totype_toid_fromtype_fromid_idx
+	on link (totype, toid, fromtype, fromid);
+drop index if exists link_totype_toid_idx;
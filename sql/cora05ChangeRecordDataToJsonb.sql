@@ -0,0 +1,26 @@
+-- Changes the data column in the record table from json to jsonb, so that records can be indexed
+-- and queried in the database. Deployments running this must also set the setting recordDataType
+-- to jsonb, so that records are written as jsonb.
+-- The change rewrites the record table and holds an exclusive lock on it while running.
+--
+-- The view recordstorageterm selects data from record, and postgresql can not change the type of
+-- a column used by a view. The view is therefore dropped and created again from its current
+-- definition, in the same transaction as the change. Privileges granted on the view must be
+-- granted again after running this.
+--
+-- To change back, run this file with jsonb replaced by json in the alter table statement.
+-- Note that jsonb does not keep the order of keys in objects or duplicate keys, neither is used
+-- by the json created from DataGroups.
+begin;
+
+do $$
+declare
+	view_definition text := pg_get_viewdef('recordstorageterm'::regclass);
+begin
+	drop view recordstorageterm;
+	alter table record alter column data type jsonb using data::jsonb;
+	execute 'create view recordstorageterm as ' || view_definition;
+end;
+$$;
+
+commit;
@@ -0,0 +1,40 @@
+-- Adds the column compresseddata to the record table, used to store large records compressed.
+-- Records are only stored compressed for the record types in the setting compressedRecordTypes,
+-- and only if their binary encoded data has at least compressionThresholdBytes bytes (default
+-- 8192). A compressed record has data set to null and its deflated binary encoded data in
+-- compresseddata. Records with content the binary encoding can not represent, such as resource
+-- links, are stored as deflated json instead, and for them the threshold applies to the json size.
+--
+-- Records in lists are read through the view recordstorageterm, so the view must also select
+-- compresseddata from record. The view is dropped and created again from its current definition,
+-- with compresseddata added after the data column of record, in the same transaction as the
+-- change. Privileges granted on the view must be granted again after running this. If the
+-- definition of the view does not select the data column of record, nothing is changed and an
+-- error is raised, and the view must then be changed by hand.
+--
+-- Records already stored compressed must be read and updated with compression turned off for
+-- their type before changing back, as data can not be null after the change back.
+-- To change back, create the view again without compresseddata, then run:
+-- alter table record drop column compresseddata;
+-- alter table record alter column data set not null;
+begin;
+
+alter table record add column compresseddata bytea;
+alter table record alter column data drop not null;
+
+do $$
+declare
+	view_definition text := pg_get_viewdef('recordstorageterm'::regclass);
+	new_view_definition text;
+begin
+	new_view_definition := regexp_replace(view_definition, '(\m(\w+)\.data)\M',
+		'\1, \2.compresseddata');
+	if new_view_definition = view_definition then
+		raise exception 'The view recordstorageterm does not select the data column of record';
+	end if;
+	drop view recordstorageterm;
+	execute 'create view recordstorageterm as ' || new_view_definition;
+end;
+$$;
+
+commit;
@@ -0,0 +1,7 @@
+-- Replaces the index on the target and source of links with one ordering the source using
+-- collate "C", as links pointing to a record are read in pages ordered by source compared by code
+-- point, the same order as the reverse link index in the cache uses, regardless of the collation of
+-- the database.
+create index if not exists link_totype_toid_fromtype_fromid_c_idx
+	on link (totype, toid, fromtype collate "C", fromid collate "C");
+drop index if exists link_totype_toid_fromtype_fromid_idx;
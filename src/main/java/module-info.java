@@ -13,12 +13,14 @@ module se.uu.ub.cora.sqlstorage {
 	requires se.uu.ub.cora.logger;
 	requires org.postgresql.jdbc;
 	requires java.sql;
+	requires java.management;
 	requires se.uu.ub.cora.initialize;
 	requires se.uu.ub.cora.basicstorage;
 
-	// Temporal export. Should be removed when DatabaseStorageProvider can be load via a service
-	// loader.
+	// Holds the api of the module, SqlRecordStorage and the types it uses, and the providers that
+	// give access to it through getSqlRecordStorage.
 	exports se.uu.ub.cora.sqlstorage;
+	exports se.uu.ub.cora.sqlstorage.metrics;
 
 	// provides se.uu.ub.cora.storage.RecordStorageInstanceProvider
 	// with DatabaseStorageInstanceProvider;
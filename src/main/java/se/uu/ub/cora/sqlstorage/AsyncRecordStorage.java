@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageException;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * AsyncRecordStorage runs the calls to a {@link RecordStorage} on an Executor and returns a
+ * CompletableFuture for each call, so that callers in asynchronous pipelines do not block on the
+ * database.
+ * <p>
+ * AsyncRecordStorage is not created by the RecordStorageInstanceProviders, callers that want
+ * asynchronous calls wrap a RecordStorage themselves. Wrap a storage whose calls go to the
+ * database, such as the one returned from DatabaseStorageInstanceProvider. Do not wrap a
+ * CachedDatabaseRecordStorage, as its reads are answered from memory and would then wait for the
+ * same permits as the calls that go to the database.
+ * <p>
+ * At most maxConcurrentCalls calls run against the RecordStorage at the same time, further calls
+ * wait in order for a permit on the thread running them. Waiting uses a {@link Semaphore} and not
+ * a monitor, so a virtual thread waiting for a permit unmounts from its carrier thread instead of
+ * pinning it. Create one AsyncRecordStorage per database and share it, with a maxConcurrentCalls
+ * no higher than the size of the connection pool of the database, so that a burst of calls can
+ * not exhaust the pool.
+ * <p>
+ * A future completes exceptionally with the exception thrown by the RecordStorage.
+ * <p>
+ * This class is threadsafe.
+ */
+public final class AsyncRecordStorage {
+	private final RecordStorage recordStorage;
+	private final Executor executor;
+	private final int maxConcurrentCalls;
+	private final Semaphore limiter;
+
+	/**
+	 * usingRecordStorageAndExecutorAndMaxConcurrentCalls creates an AsyncRecordStorage running
+	 * calls to recordStorage on executor, with at most maxConcurrentCalls calls at a time.
+	 * <p>
+	 * The executor is typically one starting a virtual thread per call, as the calls block while
+	 * waiting for a permit and for the database.
+	 */
+	public static AsyncRecordStorage usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+			RecordStorage recordStorage, Executor executor, int maxConcurrentCalls) {
+		return new AsyncRecordStorage(recordStorage, executor, maxConcurrentCalls);
+	}
+
+	private AsyncRecordStorage(RecordStorage recordStorage, Executor executor,
+			int maxConcurrentCalls) {
+		if (maxConcurrentCalls < 1) {
+			throw new IllegalArgumentException(
+					"MaxConcurrentCalls must be at least 1, was: " + maxConcurrentCalls + ".");
+		}
+		this.recordStorage = recordStorage;
+		this.executor = executor;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		limiter = new Semaphore(maxConcurrentCalls, true);
+	}
+
+	public CompletableFuture<DataRecordGroup> read(String type, String id) {
+		return callWithinLimit(() -> recordStorage.read(type, id));
+	}
+
+	public CompletableFuture<DataGroup> read(List<String> types, String id) {
+		return callWithinLimit(() -> recordStorage.read(types, id));
+	}
+
+	public CompletableFuture<StorageReadResult> readList(String type, Filter filter) {
+		return callWithinLimit(() -> recordStorage.readList(type, filter));
+	}
+
+	public CompletableFuture<StorageReadResult> readList(List<String> types, Filter filter) {
+		return callWithinLimit(() -> recordStorage.readList(types, filter));
+	}
+
+	public CompletableFuture<Void> create(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		return runWithinLimit(() -> recordStorage.create(type, id, dataRecord, storageTerms,
+				links, dataDivider));
+	}
+
+	public CompletableFuture<Void> update(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		return runWithinLimit(() -> recordStorage.update(type, id, dataRecord, storageTerms,
+				links, dataDivider));
+	}
+
+	public CompletableFuture<Void> deleteByTypeAndId(String type, String id) {
+		return runWithinLimit(() -> recordStorage.deleteByTypeAndId(type, id));
+	}
+
+	private CompletableFuture<Void> runWithinLimit(Runnable call) {
+		return callWithinLimit(() -> {
+			call.run();
+			return null;
+		});
+	}
+
+	private <T> CompletableFuture<T> callWithinLimit(Supplier<T> call) {
+		return CompletableFuture.supplyAsync(() -> callUsingPermit(call), executor);
+	}
+
+	private <T> T callUsingPermit(Supplier<T> call) {
+		acquirePermit();
+		try {
+			return call.get();
+		} finally {
+			limiter.release();
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			limiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw StorageException.withMessageAndException(
+					"Interrupted while waiting to call the record storage.", e);
+		}
+	}
+
+	public RecordStorage onlyForTestGetRecordStorage() {
+		return recordStorage;
+	}
+
+	public Executor onlyForTestGetExecutor() {
+		return executor;
+	}
+
+	public int onlyForTestGetMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public int onlyForTestGetNumberOfWaitingCalls() {
+		return limiter.getQueueLength();
+	}
+}
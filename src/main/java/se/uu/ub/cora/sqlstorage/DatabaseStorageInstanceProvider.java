@@ -1,5 +1,5 @@
 /*
- * Copyright 2021,2022 Uppsala University Library
+ * Copyright 2021,2022,2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -18,7 +18,8 @@
  */
 package se.uu.ub.cora.sqlstorage;
 
-import se.uu.ub.cora.initialize.SettingsProvider;
+import java.util.concurrent.locks.ReentrantLock;
+
 import se.uu.ub.cora.json.parser.JsonParser;
 import se.uu.ub.cora.json.parser.org.OrgJsonParser;
 import se.uu.ub.cora.logger.Logger;
@@ -26,15 +27,21 @@ import se.uu.ub.cora.logger.LoggerProvider;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactoryImp;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorageOptions;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseStorageInstance;
+import se.uu.ub.cora.sqlstorage.internal.StorageSettings;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationProgress;
+import se.uu.ub.cora.sqlstorage.metrics.StorageReadiness;
 import se.uu.ub.cora.storage.RecordStorage;
 import se.uu.ub.cora.storage.RecordStorageInstanceProvider;
 
 public class DatabaseStorageInstanceProvider implements RecordStorageInstanceProvider {
 
 	private Logger log = LoggerProvider.getLoggerForClass(DatabaseStorageInstanceProvider.class);
-	private static final String LOOKUP_NAME = "coraDatabaseLookupName";
+	private final StorageSettings settings = StorageSettings.usingLoggerAndProviderName(log,
+			"DatabaseStorageInstanceProvider");
 	private String databaseLookupValue;
+	private final ReentrantLock startLock = new ReentrantLock();
 
 	@Override
 	public int getOrderToSelectImplementionsBy() {
@@ -43,17 +50,38 @@ public class DatabaseStorageInstanceProvider implements RecordStorageInstancePro
 
 	@Override
 	public RecordStorage getRecordStorage() {
+		return getSqlRecordStorage();
+	}
+
+	/**
+	 * getSqlRecordStorage returns the same storage as {@link #getRecordStorage()}, typed as the
+	 * SqlRecordStorage it is, so that callers can use the operations it adds to RecordStorage,
+	 * such as projections, link pages and units of work, without casting to an internal class.
+	 * The storage is started on the first call.
+	 */
+	public SqlRecordStorage getSqlRecordStorage() {
 		possiblyStartStorage();
 		return DatabaseStorageInstance.getInstance();
 	}
 
-	static void setStaticInstance(DatabaseRecordStorage recordStorage) {
+	static void setStaticInstance(SqlRecordStorage recordStorage) {
 		DatabaseStorageInstance.setInstance(recordStorage);
 	}
 
-	private synchronized void possiblyStartStorage() {
+	private void possiblyStartStorage() {
 		if (storageNotStarted()) {
-			logAndStartStorage();
+			startStorageHoldingStartLock();
+		}
+	}
+
+	private void startStorageHoldingStartLock() {
+		startLock.lock();
+		try {
+			if (storageNotStarted()) {
+				logAndStartStorage();
+			}
+		} finally {
+			startLock.unlock();
 		}
 	}
 
@@ -65,11 +93,18 @@ public class DatabaseStorageInstanceProvider implements RecordStorageInstancePro
 		log.logInfoUsingMessage(
 				"DatabaseStorageInstanceProvider starting DatabaseRecordStorage...");
 		startStorage();
+		markStorageReady();
 		log.logInfoUsingMessage("DatabaseStorageInstanceProvider started DatabaseRecordStorage");
 	}
 
+	private void markStorageReady() {
+		PopulationProgress populationProgress = PopulationProgress.notReported();
+		populationProgress.markReady();
+		StorageReadiness.setPopulationProgress(populationProgress);
+	}
+
 	private void startStorage() {
-		databaseLookupValue = SettingsProvider.getSetting(LOOKUP_NAME);
+		databaseLookupValue = settings.readDatabaseLookupName();
 		createDependenciesAndStartStorage();
 	}
 
@@ -77,6 +112,14 @@ public class DatabaseStorageInstanceProvider implements RecordStorageInstancePro
 		SqlDatabaseFactory sqlDatabaseFactory = SqlDatabaseFactoryImp
 				.usingLookupNameFromContext(databaseLookupValue);
 		JsonParser jsonParser = new OrgJsonParser();
-		setStaticInstance(new DatabaseRecordStorage(sqlDatabaseFactory, jsonParser));
+		DatabaseRecordStorageOptions options = settings.readDatabaseRecordStorageOptions()
+				.withRecordJsonConverter(settings.createRecordJsonConverter(jsonParser));
+		DatabaseRecordStorage database = new DatabaseRecordStorage(sqlDatabaseFactory, jsonParser,
+				options);
+		setStaticInstance(settings.possiblyUseGroupCommit(database));
+	}
+
+	public ReentrantLock onlyForTestGetStartLock() {
+		return startLock;
 	}
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.List;
+
+import se.uu.ub.cora.data.collected.Link;
+
+/**
+ * LinkPage holds one page of links pointing to a record, ordered by type and id of the record the
+ * link is from.
+ * 
+ * @param links
+ *            A List with the links in this page
+ * @param nextCursor
+ *            A String to use in {@link LinkPageRequest#withCursor(String)} to read the next page,
+ *            or null if this is the last page
+ */
+public record LinkPage(List<Link> links, String nextCursor) {
+
+	public boolean hasNextPage() {
+		return nextCursor != null;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+/**
+ * LinkPageRequest describes which page of links pointing to a record to read.
+ * <p>
+ * A request for the first page is created using {@link #usingLimit(int)}, the following pages are
+ * requested by adding the nextCursor from the previous {@link LinkPage} using
+ * {@link #withCursor(String)}. Links can be limited to those from records of one type using
+ * {@link #withFromType(String)}.
+ * 
+ * @param fromType
+ *            A String with the type of the records linking to the record, or null for all types
+ * @param cursor
+ *            A String with the nextCursor from the previous page, or null for the first page
+ * @param limit
+ *            An int with the maximum number of links in the page
+ */
+public record LinkPageRequest(String fromType, String cursor, int limit) {
+
+	public LinkPageRequest {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be at least 1, was: " + limit + ".");
+		}
+	}
+
+	public static LinkPageRequest usingLimit(int limit) {
+		return new LinkPageRequest(null, null, limit);
+	}
+
+	public LinkPageRequest withFromType(String fromType) {
+		return new LinkPageRequest(fromType, cursor, limit);
+	}
+
+	public LinkPageRequest withCursor(String cursor) {
+		return new LinkPageRequest(fromType, cursor, limit);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * LinkTraversalRequest describes how to walk the links between records when finding all records
+ * reachable from a record.
+ * <p>
+ * {@link Direction#LINKS_TO_RECORD} follows links backwards and finds the records that directly
+ * or indirectly link to the record, that is the records depending on it.
+ * {@link Direction#LINKS_FROM_RECORD} follows links forwards and finds the records the record
+ * directly or indirectly links to.
+ * 
+ * @param direction
+ *            A Direction to follow links in
+ * @param maxDepth
+ *            An int with the maximum number of links to follow from the start record
+ * @param limit
+ *            An int with the maximum number of records to return
+ * @param types
+ *            A Set with the record types to visit, an empty set visits records of all types
+ */
+public record LinkTraversalRequest(Direction direction, int maxDepth, int limit,
+		Set<String> types) {
+
+	public enum Direction {
+		LINKS_TO_RECORD, LINKS_FROM_RECORD
+	}
+
+	public LinkTraversalRequest {
+		if (maxDepth < 1 || limit < 1) {
+			throw new IllegalArgumentException(
+					"MaxDepth and limit must be at least 1, was: " + maxDepth + " and " + limit
+							+ ".");
+		}
+	}
+
+	public static LinkTraversalRequest usingDirectionAndMaxDepthAndLimit(Direction direction,
+			int maxDepth, int limit) {
+		return new LinkTraversalRequest(direction, maxDepth, limit, Collections.emptySet());
+	}
+
+	public LinkTraversalRequest withTypes(Set<String> types) {
+		return new LinkTraversalRequest(direction, maxDepth, limit, Set.copyOf(types));
+	}
+
+	public boolean isTypeVisited(String type) {
+		return types.isEmpty() || types.contains(type);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+
+/**
+ * RecordProjection describes which parts of a record to read when only some of its data is
+ * needed, such as the recordInfo or a title.
+ * <p>
+ * Each path is a list of nameInData separated by "/", starting below the top group of the record,
+ * for example "recordInfo" or "recordInfo/id". A path matches all children with the last name
+ * that are found by following groups with the previous names. The projected record is a group
+ * with the nameInData of the record, holding the matching children of each path below groups
+ * named as the rest of the path. These groups are created by the projection and only have a
+ * nameInData, they do not keep the repeatId or attributes of the groups in the record. A path
+ * without matching children is left out of the projected record.
+ * 
+ * @param paths
+ *            A List of the paths to read, no path can be the start of another path
+ */
+public record RecordProjection(List<String> paths) {
+	private static final Pattern PATH_PATTERN = Pattern
+			.compile("[A-Za-z0-9_.:-]+(/[A-Za-z0-9_.:-]+)*");
+
+	public RecordProjection {
+		if (paths.isEmpty()) {
+			throw new IllegalArgumentException("Projection must have at least one path.");
+		}
+		paths = List.copyOf(paths);
+		for (String path : paths) {
+			validatePath(path, paths);
+		}
+	}
+
+	private static void validatePath(String path, List<String> paths) {
+		if (!PATH_PATTERN.matcher(path).matches()) {
+			throw new IllegalArgumentException("Projection path is not valid: " + path + ".");
+		}
+		for (String otherPath : paths) {
+			if (otherPath.startsWith(path + "/")) {
+				throw new IllegalArgumentException(
+						"Projection path: " + otherPath + " overlaps path: " + path + ".");
+			}
+		}
+	}
+
+	public static RecordProjection usingPaths(String... paths) {
+		return new RecordProjection(List.of(paths));
+	}
+
+	/**
+	 * project returns the projection of a record that is already read, as described in
+	 * {@link RecordProjection}.
+	 */
+	public DataGroup project(DataGroup dataGroup) {
+		List<List<DataChild>> childrenForPaths = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			childrenForPaths.add(findChildrenForPath(dataGroup, path));
+		}
+		return assembleUsingNameAndChildrenForPaths(dataGroup.getNameInData(), childrenForPaths);
+	}
+
+	private List<DataChild> findChildrenForPath(DataGroup dataGroup, String path) {
+		List<DataChild> found = List.of(dataGroup);
+		for (String name : path.split("/")) {
+			found = findChildrenWithNameInData(found, name);
+		}
+		return found;
+	}
+
+	private List<DataChild> findChildrenWithNameInData(List<DataChild> parents, String name) {
+		List<DataChild> children = new ArrayList<>();
+		for (DataChild parent : parents) {
+			if (parent instanceof DataGroup group) {
+				children.addAll(group.getAllChildrenWithNameInData(name));
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * toJsonPath returns a PostgreSQL jsonpath selecting the children matching the path with the
+	 * specified index, from a record stored as json.
+	 */
+	public String toJsonPath(int pathIndex) {
+		StringBuilder jsonPath = new StringBuilder("$");
+		for (String name : paths.get(pathIndex).split("/")) {
+			jsonPath.append(".children[*] ? (@.name == \"").append(name).append("\")");
+		}
+		return jsonPath.toString();
+	}
+
+	/**
+	 * assembleUsingNameAndChildrenForPaths creates the projected record from the name of the
+	 * record and the children matching each path, in the same order as the paths.
+	 */
+	public DataGroup assembleUsingNameAndChildrenForPaths(String name,
+			List<List<DataChild>> childrenForPaths) {
+		DataGroup projected = DataProvider.createGroupUsingNameInData(name);
+		Map<String, DataGroup> createdGroups = new LinkedHashMap<>();
+		for (int i = 0; i < paths.size(); i++) {
+			List<DataChild> children = childrenForPaths.get(i);
+			if (!children.isEmpty()) {
+				DataGroup parent = getOrCreateParentForPath(projected, createdGroups, paths.get(i));
+				parent.addChildren(children);
+			}
+		}
+		return projected;
+	}
+
+	private DataGroup getOrCreateParentForPath(DataGroup projected,
+			Map<String, DataGroup> createdGroups, String path) {
+		DataGroup parent = projected;
+		int end = path.indexOf('/');
+		while (end != -1) {
+			parent = getOrCreateGroup(parent, createdGroups, path.substring(0, end));
+			end = path.indexOf('/', end + 1);
+		}
+		return parent;
+	}
+
+	private DataGroup getOrCreateGroup(DataGroup parent, Map<String, DataGroup> createdGroups,
+			String pathToGroup) {
+		return createdGroups.computeIfAbsent(pathToGroup, key -> {
+			String name = key.substring(key.lastIndexOf('/') + 1);
+			DataGroup group = DataProvider.createGroupUsingNameInData(name);
+			parent.addChild(group);
+			return group;
+		});
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.Collections;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.RecordStorage;
+
+/**
+ * RecordWrite holds one pending create, update or delete of a record, so that writes can be
+ * collected and later written to a storage, one by one or several in one transaction.
+ */
+public record RecordWrite(Action action, String type, String id, DataGroup dataRecord,
+		Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+
+	public enum Action {
+		CREATE, UPDATE, DELETE
+	}
+
+	public static RecordWrite forCreate(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		return new RecordWrite(Action.CREATE, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+	}
+
+	public static RecordWrite forUpdate(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		return new RecordWrite(Action.UPDATE, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+	}
+
+	public static RecordWrite forDelete(String type, String id) {
+		return new RecordWrite(Action.DELETE, type, id, null, Collections.emptySet(),
+				Collections.emptySet(), null);
+	}
+
+	public RecordWrite withAction(Action newAction) {
+		return new RecordWrite(newAction, type, id, dataRecord, storageTerms, links, dataDivider);
+	}
+
+	/**
+	 * applyTo writes this RecordWrite to the provided recordStorage, using the method matching
+	 * the action of this write.
+	 * 
+	 * @param recordStorage
+	 *            The RecordStorage to write to
+	 */
+	public void applyTo(RecordStorage recordStorage) {
+		switch (action) {
+		case CREATE -> recordStorage.create(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		case UPDATE -> recordStorage.update(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		case DELETE -> recordStorage.deleteByTypeAndId(type, id);
+		}
+	}
+}
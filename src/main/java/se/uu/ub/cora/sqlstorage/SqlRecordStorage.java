@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.RecordConflictException;
+import se.uu.ub.cora.storage.RecordNotFoundException;
+import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * SqlRecordStorage extends {@link RecordStorage} with operations that only make sense for a
+ * storage backed by a sql database, such as writing several records in one transaction.
+ */
+public interface SqlRecordStorage extends RecordStorage {
+
+	/**
+	 * writeInOneTransaction writes all the provided writes, in order, using one database
+	 * transaction. If any of the writes fails is the whole transaction rolled back and a
+	 * StorageException thrown, leaving the database unchanged.
+	 * 
+	 * @param writes
+	 *            A List of RecordWrite to write to the database
+	 */
+	void writeInOneTransaction(List<RecordWrite> writes);
+
+	/**
+	 * writeInOneTransactionUsingSavepoints writes all the provided writes, in order, using one
+	 * database transaction with a savepoint before each write. A write that fails is rolled back
+	 * to its savepoint, without affecting the other writes, which are committed together.
+	 * 
+	 * @param writes
+	 *            A List of RecordWrite to write to the database
+	 * @return A List with the outcome of each write, in the same order as writes. The outcome is
+	 *         empty for a write that succeeded, and holds the exception for a write that failed,
+	 *         such as a RecordConflictException or a RecordNotFoundException
+	 * @throws StorageException
+	 *             if the transaction itself fails, nothing is then written
+	 */
+	List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes);
+
+	/**
+	 * deleteByTypeAndIds deletes all records of the type with an id in ids, together with their
+	 * storage terms and links, using one statement. Ids that do not exist are ignored.
+	 * 
+	 * @return A List with the ids of the records that were deleted
+	 */
+	List<String> deleteByTypeAndIds(String type, List<String> ids);
+
+	/**
+	 * deleteAllOfType deletes all records of the type, together with their storage terms and
+	 * links, using one statement.
+	 * 
+	 * @return A List with the ids of the records that were deleted
+	 */
+	List<String> deleteAllOfType(String type);
+
+	/**
+	 * upsert creates the record if it does not exist and otherwise updates it, as one atomic
+	 * operation in one transaction. The storage terms and links of the record are replaced in the
+	 * same transaction. Using upsert instead of {@link RecordStorage#recordExists(List, String)}
+	 * followed by create or update saves round trips to the database and can not fail because
+	 * another writer created or deleted the record in between.
+	 */
+	void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider);
+
+	/**
+	 * updateUsingExpectedVersion updates a record in the same way as
+	 * {@link RecordStorage#update(String, String, DataGroup, Set, Set, String)}, but only if the
+	 * version of the record in storage still is expectedVersion. Each update of a record
+	 * increases its version by one.
+	 * 
+	 * @param expectedVersion
+	 *            A long with the version of the record that the update is based on
+	 * @throws RecordConflictException
+	 *             if the record has another version than expectedVersion
+	 * @throws RecordNotFoundException
+	 *             if no record exists with the type and id
+	 */
+	void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion);
+
+	/**
+	 * readVersion reads only the version of a record, which is a cheap way to check if a copy of
+	 * a record is stale.
+	 * 
+	 * @return A long with the current version of the record
+	 * @throws RecordNotFoundException
+	 *             if no record exists with the type and id
+	 */
+	long readVersion(String type, String id);
+
+	/**
+	 * readWithVersion reads a record together with its current version, so that the version can
+	 * later be used with
+	 * {@link #updateUsingExpectedVersion(String, String, DataGroup, Set, Set, String, long)}.
+	 * 
+	 * @throws RecordNotFoundException
+	 *             if no record exists with the type and id
+	 */
+	VersionedRecordGroup readWithVersion(String type, String id);
+
+	/**
+	 * readProjection reads only the parts of a record described by the projection, which moves and
+	 * converts far less data than {@link RecordStorage#read(String, String)} when only a few
+	 * fields of a large record are needed.
+	 * 
+	 * @param projection
+	 *            A RecordProjection with the paths of the parts to read
+	 * @return A DataGroup with the nameInData of the record holding the read parts, as described
+	 *         in {@link RecordProjection}
+	 * @throws RecordNotFoundException
+	 *             if no record exists with the type and id
+	 */
+	DataGroup readProjection(String type, String id, RecordProjection projection);
+
+	/**
+	 * readLinksToRecord reads one page of the links pointing to a record, without reading all
+	 * links. The links are ordered by type and id of the record the link is from, comparing code
+	 * points as postgresql does using collate "C".
+	 * 
+	 * @param pageRequest
+	 *            A LinkPageRequest with the limit, cursor and optional type of linking records
+	 * @return A LinkPage with the links and a cursor for the next page
+	 */
+	LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest);
+
+	/**
+	 * countLinksToRecord returns the number of links pointing to a record, without reading the
+	 * links.
+	 */
+	long countLinksToRecord(String type, String id);
+
+	/**
+	 * traverseLinks finds all records reachable from a record by following links, as described by
+	 * the traversalRequest. The start record is not included in the result, even if it is reachable
+	 * through a cycle of links.
+	 * 
+	 * @param traversalRequest
+	 *            A LinkTraversalRequest with direction, max depth, limit and types to visit
+	 * @return A List with the reachable records ordered by depth, type and id, comparing code
+	 *         points as postgresql does using collate "C"
+	 */
+	List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest);
+
+	/**
+	 * runInUnitOfWork runs work with a {@link UnitOfWork} whose operations all use one database
+	 * connection and one transaction. The transaction is committed when work returns, and rolled
+	 * back if work throws an exception, which is then thrown on to the caller.
+	 * 
+	 * @param work
+	 *            A Function running the storage operations of the unit of work
+	 * @return The value returned by work
+	 * @throws StorageException
+	 *             if the database connection or transaction fails
+	 */
+	<T> T runInUnitOfWork(Function<UnitOfWork, T> work);
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import java.util.List;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * UnitOfWork holds the storage operations that can be run together using
+ * {@link SqlRecordStorage#runInUnitOfWork(java.util.function.Function)}. All operations of a
+ * unit of work use the same database connection and the same transaction, so that a caller can
+ * read records and write records based on what was read, without other writers seeing the writes
+ * before all of them are done.
+ * <p>
+ * The operations behave as the operations with the same name in {@link RecordStorage}, and throw
+ * the same exceptions. A UnitOfWork can only be used inside the function it is given to, and only
+ * by the thread running that function. When an operation has failed the transaction can not be
+ * used for more operations, so the exception should be let through to end the unit of work.
+ */
+public interface UnitOfWork {
+
+	DataRecordGroup read(String type, String id);
+
+	StorageReadResult readList(List<String> types, Filter filter);
+
+	boolean recordExists(List<String> types, String id);
+
+	long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter);
+
+	void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider);
+
+	void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider);
+
+	void deleteByTypeAndId(String type, String id);
+}
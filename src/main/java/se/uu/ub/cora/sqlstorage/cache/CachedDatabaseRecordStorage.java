@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Uppsala University Library
+ * Copyright 2022, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -18,30 +18,83 @@
  */
 package se.uu.ub.cora.sqlstorage.cache;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import se.uu.ub.cora.data.DataGroup;
 import se.uu.ub.cora.data.DataRecordGroup;
 import se.uu.ub.cora.data.collected.Link;
 import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.NotImplementedException;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
 import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordConflictException;
 import se.uu.ub.cora.storage.RecordStorage;
 import se.uu.ub.cora.storage.StorageReadResult;
 
-public class CachedDatabaseRecordStorage implements RecordStorage {
+public class CachedDatabaseRecordStorage implements SqlRecordStorage {
 
-	private RecordStorage database;
+	private SqlRecordStorage database;
 	private RecordStorage memory;
+	private ReverseLinkIndex reverseLinkIndex;
+	private RecordVersions recordVersions;
+	private WriteBehindQueue writeBehindQueue;
+	private Set<String> writeBehindTypes = Collections.emptySet();
+	private final ReentrantLock upsertLock = new ReentrantLock();
 
-	public static CachedDatabaseRecordStorage usingDatabaseAndMemory(RecordStorage database,
-			RecordStorage memory) {
-		return new CachedDatabaseRecordStorage(database, memory);
+	/**
+	 * usingDatabaseAndCache creates a CachedDatabaseRecordStorage that reads from the memory of
+	 * cache and writes to the database and then to the cache. The reverse link index of the cache
+	 * is kept up to date by this storage and used to answer
+	 * {@link #linksExistForRecord(String, String)}. The record versions of the cache are kept up to
+	 * date by this storage and used to answer {@link #readVersion(String, String)} and
+	 * {@link #readWithVersion(String, String)}.
+	 */
+	public static CachedDatabaseRecordStorage usingDatabaseAndCache(SqlRecordStorage database,
+			RecordCache cache) {
+		return new CachedDatabaseRecordStorage(database, cache);
 	}
 
-	private CachedDatabaseRecordStorage(RecordStorage database, RecordStorage memory) {
+	/**
+	 * usingDatabaseAndCacheAndWriteBehind creates a CachedDatabaseRecordStorage where writes of
+	 * records with a type in writeBehindTypes are done in memory and then put on the
+	 * writeBehindQueue, to be written to the database later. Writes of records with other types
+	 * are done to the database first and then in memory, as in a storage created with
+	 * {@link #usingDatabaseAndCache(SqlRecordStorage, RecordCache)}.
+	 * <p>
+	 * Writes of records with a write behind type are lost if the application stops without
+	 * {@link WriteBehindQueue#shutdown()} being called. A record whose write is moved to the dead
+	 * letters of the queue is removed from memory, so that data the database never received is
+	 * not read from memory.
+	 */
+	public static CachedDatabaseRecordStorage usingDatabaseAndCacheAndWriteBehind(
+			SqlRecordStorage database, RecordCache cache, WriteBehindQueue writeBehindQueue,
+			Set<String> writeBehindTypes) {
+		CachedDatabaseRecordStorage storage = new CachedDatabaseRecordStorage(database, cache);
+		storage.writeBehindQueue = writeBehindQueue;
+		storage.writeBehindTypes = writeBehindTypes;
+		writeBehindQueue.setDeadLetterListener(storage::removeDeadLetterFromMemory);
+		return storage;
+	}
+
+	private CachedDatabaseRecordStorage(SqlRecordStorage database, RecordCache cache) {
 		this.database = database;
-		this.memory = memory;
+		memory = cache.memory();
+		reverseLinkIndex = cache.reverseLinkIndex();
+		recordVersions = cache.recordVersions();
 	}
 
 	@Override
@@ -57,24 +110,70 @@ public class CachedDatabaseRecordStorage implements RecordStorage {
 	@Override
 	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
 			Set<Link> links, String dataDivider) {
+		if (isWriteBehindType(type)) {
+			writeBehindQueue.enqueue(type, id, () -> {
+				createInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+				return RecordWrite.forCreate(type, id, dataRecord, storageTerms, links,
+						dataDivider);
+			});
+			return;
+		}
 		database.create(type, id, dataRecord, storageTerms, links, dataDivider);
-		memory.create(type, id, dataRecord, storageTerms, links, dataDivider);
+		createInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+	}
 
+	private void createInMemory(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		memory.create(type, id, dataRecord, storageTerms, links, dataDivider);
+		reverseLinkIndex.replaceLinksFromRecord(type, id, links);
+		recordVersions.setVersion(type, id, 1);
 	}
 
 	@Override
 	public void deleteByTypeAndId(String type, String id) {
+		if (isWriteBehindType(type)) {
+			writeBehindQueue.enqueue(type, id, () -> {
+				deleteInMemory(type, id);
+				return RecordWrite.forDelete(type, id);
+			});
+			return;
+		}
 		database.deleteByTypeAndId(type, id);
-		memory.deleteByTypeAndId(type, id);
+		deleteInMemory(type, id);
+	}
 
+	private void removeDeadLetterFromMemory(RecordWrite deadLetter) {
+		if (memory.recordExists(List.of(deadLetter.type()), deadLetter.id())) {
+			deleteInMemory(deadLetter.type(), deadLetter.id());
+		}
+	}
+
+	private void deleteInMemory(String type, String id) {
+		memory.deleteByTypeAndId(type, id);
+		reverseLinkIndex.removeLinksFromRecord(type, id);
+		recordVersions.removeVersion(type, id);
 	}
 
 	@Override
 	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
 			Set<Link> links, String dataDivider) {
+		if (isWriteBehindType(type)) {
+			writeBehindQueue.enqueue(type, id, () -> {
+				updateInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+				return RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links,
+						dataDivider);
+			});
+			return;
+		}
 		database.update(type, id, dataRecord, storageTerms, links, dataDivider);
-		memory.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		updateInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+	}
 
+	private void updateInMemory(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		memory.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		reverseLinkIndex.replaceLinksFromRecord(type, id, links);
+		recordVersions.increaseVersion(type, id);
 	}
 
 	@Override
@@ -94,12 +193,12 @@ public class CachedDatabaseRecordStorage implements RecordStorage {
 
 	@Override
 	public boolean linksExistForRecord(String type, String id) {
-		return memory.linksExistForRecord(type, id);
+		return reverseLinkIndex.linksExistToRecord(type, id);
 	}
 
 	@Override
 	public Set<Link> getLinksToRecord(String type, String id) {
-		return memory.getLinksToRecord(type, id);
+		return reverseLinkIndex.getLinksToRecord(type, id);
 	}
 
 	@Override
@@ -107,8 +206,266 @@ public class CachedDatabaseRecordStorage implements RecordStorage {
 		return memory.getTotalNumberOfRecordsForTypes(types, filter);
 	}
 
-	RecordStorage onlyForTestGetDatabase() {
+	@Override
+	public void writeInOneTransaction(List<RecordWrite> writes) {
+		database.writeInOneTransaction(writes);
+		for (RecordWrite write : writes) {
+			applyToMemory(write);
+		}
+	}
+
+	/**
+	 * writeInOneTransactionUsingSavepoints writes to the database and then applies the writes
+	 * that succeeded to memory.
+	 */
+	@Override
+	public List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes) {
+		List<Optional<RuntimeException>> outcomes = database
+				.writeInOneTransactionUsingSavepoints(writes);
+		for (int i = 0; i < writes.size(); i++) {
+			if (outcomes.get(i).isEmpty()) {
+				applyToMemory(writes.get(i));
+			}
+		}
+		return outcomes;
+	}
+
+	private void applyToMemory(RecordWrite write) {
+		switch (write.action()) {
+		case CREATE -> createInMemory(write.type(), write.id(), write.dataRecord(),
+				write.storageTerms(), write.links(), write.dataDivider());
+		case UPDATE -> updateInMemory(write.type(), write.id(), write.dataRecord(),
+				write.storageTerms(), write.links(), write.dataDivider());
+		case DELETE -> deleteInMemory(write.type(), write.id());
+		}
+	}
+
+	@Override
+	public List<String> deleteByTypeAndIds(String type, List<String> ids) {
+		possiblyFlushWriteBehindQueue(type);
+		List<String> deletedIds = database.deleteByTypeAndIds(type, ids);
+		deleteFromMemory(type, deletedIds);
+		return deletedIds;
+	}
+
+	private void possiblyFlushWriteBehindQueue(String type) {
+		if (isWriteBehindType(type)) {
+			writeBehindQueue.flush();
+		}
+	}
+
+	private void deleteFromMemory(String type, List<String> deletedIds) {
+		for (String deletedId : deletedIds) {
+			deleteInMemory(type, deletedId);
+		}
+	}
+
+	@Override
+	public List<String> deleteAllOfType(String type) {
+		possiblyFlushWriteBehindQueue(type);
+		List<String> deletedIds = database.deleteAllOfType(type);
+		deleteFromMemory(type, deletedIds);
+		return deletedIds;
+	}
+
+	/**
+	 * upsert writes the record to the database and then creates or updates it in memory. The
+	 * memory side is done under a lock, so that concurrent upserts of the same new record do not
+	 * both try to create it. A record created in memory by a concurrent create after the check is
+	 * updated instead.
+	 * <p>
+	 * For a write behind type, the memory side is done under the lock of the write behind queue
+	 * instead, and the write is put on the queue as a create or an update depending on what was
+	 * done in memory.
+	 */
+	@Override
+	public void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		if (isWriteBehindType(type)) {
+			upsertInMemoryAndEnqueue(type, id, dataRecord, storageTerms, links, dataDivider);
+			return;
+		}
+		database.upsert(type, id, dataRecord, storageTerms, links, dataDivider);
+		upsertLock.lock();
+		try {
+			createOrUpdateInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+		} finally {
+			upsertLock.unlock();
+		}
+	}
+
+	private void upsertInMemoryAndEnqueue(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		writeBehindQueue.enqueue(type, id, () -> {
+			boolean created = createOrUpdateInMemory(type, id, dataRecord, storageTerms, links,
+					dataDivider);
+			return createWriteForUpsert(created, type, id, dataRecord, storageTerms, links,
+					dataDivider);
+		});
+	}
+
+	private boolean createOrUpdateInMemory(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		if (!memory.recordExists(List.of(type), id)
+				&& tryToCreateInMemory(type, id, dataRecord, storageTerms, links, dataDivider)) {
+			return true;
+		}
+		updateInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+		return false;
+	}
+
+	private boolean tryToCreateInMemory(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+		try {
+			createInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+			return true;
+		} catch (RecordConflictException e) {
+			return false;
+		}
+	}
+
+	private RecordWrite createWriteForUpsert(boolean created, String type, String id,
+			DataGroup dataRecord, Set<StorageTerm> storageTerms, Set<Link> links,
+			String dataDivider) {
+		if (created) {
+			return RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider);
+		}
+		return RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links, dataDivider);
+	}
+
+	/**
+	 * updateUsingExpectedVersion updates the record in the database, checking the version there,
+	 * and then in memory. For a write behind type, any pending write to the record is written to
+	 * the database first, using {@link WriteBehindQueue#writeThrough(String, String, Runnable)},
+	 * so that the version is checked against all earlier writes and the update is not overwritten
+	 * by a pending write flushed later.
+	 */
+	@Override
+	public void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion) {
+		if (isWriteBehindType(type)) {
+			writeBehindQueue.writeThrough(type, id,
+					() -> updateInDatabaseAndMemoryUsingExpectedVersion(type, id, dataRecord,
+							storageTerms, links, dataDivider, expectedVersion));
+			return;
+		}
+		updateInDatabaseAndMemoryUsingExpectedVersion(type, id, dataRecord, storageTerms, links,
+				dataDivider, expectedVersion);
+	}
+
+	private void updateInDatabaseAndMemoryUsingExpectedVersion(String type, String id,
+			DataGroup dataRecord, Set<StorageTerm> storageTerms, Set<Link> links,
+			String dataDivider, long expectedVersion) {
+		database.updateUsingExpectedVersion(type, id, dataRecord, storageTerms, links,
+				dataDivider, expectedVersion);
+		updateInMemory(type, id, dataRecord, storageTerms, links, dataDivider);
+	}
+
+	/**
+	 * readVersion answers from the version kept in memory. The version is read from the database
+	 * for a record without a known version and for a write behind type, as writes of such records
+	 * are merged before they reach the database.
+	 * <p>
+	 * The version in memory is increased after the record in memory is updated, so a version read
+	 * during an update can be older than the record, which only makes a following
+	 * {@link #updateUsingExpectedVersion} fail with a conflict.
+	 */
+	@Override
+	public long readVersion(String type, String id) {
+		OptionalLong version = readVersionFromMemory(type, id);
+		if (version.isPresent()) {
+			return version.getAsLong();
+		}
+		return database.readVersion(type, id);
+	}
+
+	private OptionalLong readVersionFromMemory(String type, String id) {
+		if (isWriteBehindType(type)) {
+			return OptionalLong.empty();
+		}
+		return recordVersions.getVersion(type, id);
+	}
+
+	/**
+	 * readWithVersion answers from memory when the version of the record is the same before and
+	 * after the record is read. Otherwise, and in the same cases as
+	 * {@link #readVersion(String, String)}, the record and version are read from the database.
+	 */
+	@Override
+	public VersionedRecordGroup readWithVersion(String type, String id) {
+		OptionalLong versionBefore = readVersionFromMemory(type, id);
+		if (versionBefore.isPresent()) {
+			DataRecordGroup dataRecordGroup = memory.read(type, id);
+			if (versionBefore.equals(readVersionFromMemory(type, id))) {
+				return new VersionedRecordGroup(dataRecordGroup, versionBefore.getAsLong());
+			}
+		}
+		return database.readWithVersion(type, id);
+	}
+
+	@Override
+	public DataGroup readProjection(String type, String id, RecordProjection projection) {
+		return projection.project(memory.read(List.of(type), id));
+	}
+
+	@Override
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		return reverseLinkIndex.readLinksToRecord(type, id, pageRequest);
+	}
+
+	@Override
+	public long countLinksToRecord(String type, String id) {
+		return reverseLinkIndex.countLinksToRecord(type, id);
+	}
+
+	@Override
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		return reverseLinkIndex.traverseLinks(type, id, traversalRequest);
+	}
+
+	/**
+	 * runInUnitOfWork is not implemented, as the writes of a unit of work go straight to the
+	 * database and can not be kept in step with memory. Use a storage started without cache, with
+	 * the setting doNotCache, to run units of work.
+	 * 
+	 * @throws NotImplementedException
+	 *             always
+	 */
+	@Override
+	public <T> T runInUnitOfWork(Function<UnitOfWork, T> work) {
+		throw NotImplementedException
+				.withMessage("runInUnitOfWork is not implemented for a cached storage.");
+	}
+
+	private boolean isWriteBehindType(String type) {
+		return writeBehindTypes.contains(type);
+	}
+
+	SqlRecordStorage onlyForTestGetDatabase() {
 		return database;
 	}
 
+	RecordStorage onlyForTestGetMemory() {
+		return memory;
+	}
+
+	ReverseLinkIndex onlyForTestGetReverseLinkIndex() {
+		return reverseLinkIndex;
+	}
+
+	RecordVersions onlyForTestGetRecordVersions() {
+		return recordVersions;
+	}
+
+	WriteBehindQueue onlyForTestGetWriteBehindQueue() {
+		return writeBehindQueue;
+	}
+
+	Set<String> onlyForTestGetWriteBehindTypes() {
+		return writeBehindTypes;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021,2022 Uppsala University Library
+ * Copyright 2021,2022,2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -18,17 +18,33 @@
  */
 package se.uu.ub.cora.sqlstorage.cache;
 
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
 import se.uu.ub.cora.basicstorage.RecordStorageInMemory;
-import se.uu.ub.cora.initialize.InitializationException;
-import se.uu.ub.cora.initialize.SettingsProvider;
 import se.uu.ub.cora.json.parser.JsonParser;
 import se.uu.ub.cora.json.parser.org.OrgJsonParser;
 import se.uu.ub.cora.logger.Logger;
 import se.uu.ub.cora.logger.LoggerProvider;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactoryImp;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorageOptions;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseStorageInstance;
+import se.uu.ub.cora.sqlstorage.internal.RecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.StorageSettings;
+import se.uu.ub.cora.sqlstorage.metrics.CacheStatistics;
+import se.uu.ub.cora.sqlstorage.metrics.CacheStatisticsRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.HistogramStorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredSqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationProgress;
+import se.uu.ub.cora.sqlstorage.metrics.StorageLayer;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.StorageReadiness;
 import se.uu.ub.cora.storage.RecordStorage;
 import se.uu.ub.cora.storage.RecordStorageInstanceProvider;
 
@@ -36,8 +52,27 @@ public class CachedDatabaseStorageInstanceProvider implements RecordStorageInsta
 
 	private Logger log = LoggerProvider
 			.getLoggerForClass(CachedDatabaseStorageInstanceProvider.class);
-	private static final String LOOKUP_NAME = "coraDatabaseLookupName";
+	private static final String WRITE_BEHIND_RECORD_TYPES = "writeBehindRecordTypes";
+	private static final String WRITE_BEHIND_FLUSH_INTERVAL = "writeBehindFlushIntervalMillis";
+	private static final String WRITE_BEHIND_MAX_PENDING_WRITES = "writeBehindMaxPendingWrites";
+	private static final String WRITE_BEHIND_BATCH_SIZE = "writeBehindBatchSize";
+	private static final String WRITE_BEHIND_MAX_ATTEMPTS = "writeBehindMaxAttempts";
+	private static final String WRITE_BEHIND_MAX_ENQUEUE_WAIT = "writeBehindMaxEnqueueWaitMillis";
+	private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+	private static final WriteBehindOptions DEFAULT_WRITE_BEHIND_OPTIONS = WriteBehindOptions
+			.usingMaxPendingWritesAndBatchSize(10_000, 500);
+	private static final String STORAGE_METRICS = "storageMetrics";
+	private static final String JMX_STORAGE_METRICS = "jmx";
+	private static final String CACHE_STATISTICS = "cacheStatistics";
+	private static final String CACHE_STATISTICS_LOG_INTERVAL = "cacheStatisticsLogIntervalMillis";
+	private static final long DEFAULT_CACHE_STATISTICS_LOG_INTERVAL = 300_000;
+	private static final String PROGRESS_LOG_INTERVAL = "populationProgressLogIntervalMillis";
+	private static final long DEFAULT_PROGRESS_LOG_INTERVAL = 10_000;
+	private final StorageSettings settings = StorageSettings.usingLoggerAndProviderName(log,
+			"CachedDatabaseStorageInstanceProvider");
 	private String databaseLookupValue;
+	private final ReentrantLock startLock = new ReentrantLock();
+	private PopulationProgress populationProgress = PopulationProgress.notReported();
 
 	@Override
 	public int getOrderToSelectImplementionsBy() {
@@ -46,17 +81,40 @@ public class CachedDatabaseStorageInstanceProvider implements RecordStorageInsta
 
 	@Override
 	public RecordStorage getRecordStorage() {
+		return getSqlRecordStorage();
+	}
+
+	/**
+	 * getSqlRecordStorage returns the same storage as {@link #getRecordStorage()}, typed as the
+	 * SqlRecordStorage it is, so that callers can use the operations it adds to RecordStorage,
+	 * such as projections, link pages and units of work, without casting to an internal class.
+	 * The storage is started on the first call, and
+	 * {@link SqlRecordStorage#runInUnitOfWork(java.util.function.Function)} is only implemented
+	 * when the storage is started with the setting doNotCache.
+	 */
+	public SqlRecordStorage getSqlRecordStorage() {
 		possiblyStartStorage();
 		return DatabaseStorageInstance.getInstance();
 	}
 
-	static void setStaticInstance(RecordStorage recordStorage) {
+	static void setStaticInstance(SqlRecordStorage recordStorage) {
 		DatabaseStorageInstance.setInstance(recordStorage);
 	}
 
-	private synchronized void possiblyStartStorage() {
+	private void possiblyStartStorage() {
 		if (storageNotStarted()) {
-			logAndStartStorage();
+			startStorageHoldingStartLock();
+		}
+	}
+
+	private void startStorageHoldingStartLock() {
+		startLock.lock();
+		try {
+			if (storageNotStarted()) {
+				logAndStartStorage();
+			}
+		} finally {
+			startLock.unlock();
 		}
 	}
 
@@ -67,51 +125,209 @@ public class CachedDatabaseStorageInstanceProvider implements RecordStorageInsta
 	private void logAndStartStorage() {
 		log.logInfoUsingMessage(
 				"CachedDatabaseStorageInstanceProvider starting DatabaseCachedRecordStorage...");
-		startStorage();
+		startPopulationProgress();
+		startStorageAndMarkFailureInPopulationProgress();
+		populationProgress.markReady();
 		log.logInfoUsingMessage(
 				"CachedDatabaseStorageInstanceProvider started DatabaseCachedRecordStorage");
 	}
 
+	private void startPopulationProgress() {
+		populationProgress = PopulationProgress.usingLogIntervalMillis(settings
+				.getLongSettingOrDefault(PROGRESS_LOG_INTERVAL, DEFAULT_PROGRESS_LOG_INTERVAL));
+		populationProgress.registerInPlatformMBeanServer();
+		StorageReadiness.setPopulationProgress(populationProgress);
+	}
+
+	private void startStorageAndMarkFailureInPopulationProgress() {
+		try {
+			startStorage();
+		} catch (RuntimeException | Error e) {
+			populationProgress.markFailed(e);
+			throw e;
+		}
+	}
+
 	private void startStorage() {
-		databaseLookupValue = SettingsProvider.getSetting(LOOKUP_NAME);
+		databaseLookupValue = settings.readDatabaseLookupName();
 		createDependenciesAndStartStorage();
 	}
 
 	private void createDependenciesAndStartStorage() {
-		RecordStorage cachedDbStorage = startCachedDbStorage();
+		SqlRecordStorage cachedDbStorage = startCachedDbStorage();
 		setStaticInstance(cachedDbStorage);
 	}
 
-	private RecordStorage startCachedDbStorage() {
+	private SqlRecordStorage startCachedDbStorage() {
 		SqlDatabaseFactory sqlDatabaseFactory = SqlDatabaseFactoryImp
 				.usingLookupNameFromContext(databaseLookupValue);
 		JsonParser jsonParser = new OrgJsonParser();
-		DatabaseRecordStorage database = new DatabaseRecordStorage(sqlDatabaseFactory, jsonParser);
+		Optional<StorageMetrics> storageMetrics = createStorageMetrics();
+		RecordJsonConverter recordJsonConverter = possiblyMeasureJsonConverter(
+				settings.createRecordJsonConverter(jsonParser), storageMetrics);
+		DatabaseRecordStorageOptions options = settings.readDatabaseRecordStorageOptions()
+				.withRecordJsonConverter(recordJsonConverter)
+				.withStorageMetrics(storageMetrics.orElse(StorageMetrics.noMetrics()));
+		SqlRecordStorage database = possiblyMeasure(
+				settings.possiblyUseGroupCommit(
+						new DatabaseRecordStorage(sqlDatabaseFactory, jsonParser, options)),
+				storageMetrics, StorageLayer.DATABASE);
 		if (shouldNotCache()) {
 			return database;
 		}
 		RecordStorageInMemory memory = new RecordStorageInMemory();
-		return populateFromDatabase(sqlDatabaseFactory, jsonParser, database, memory);
+		CachedDatabaseRecordStorage cachedStorage = populateFromDatabase(sqlDatabaseFactory,
+				jsonParser, recordJsonConverter, database, memory, storageMetrics);
+		return possiblyMeasure(cachedStorage, storageMetrics, StorageLayer.STORAGE);
 	}
 
-	private boolean shouldNotCache() {
-		try {
-			String setting = SettingsProvider.getSetting("doNotCache");
-			return "true".equals(setting);
-		} catch (InitializationException e) {
-			return false;
+	/**
+	 * createStorageMetrics returns the StorageMetrics that latencies and errors of the storage
+	 * are recorded in, or an empty Optional if the storage should not be measured.
+	 * <p>
+	 * By default the storage is measured only if the setting storageMetrics is jmx, in which case
+	 * the metrics are kept in a {@link HistogramStorageMetrics} registered in the platform
+	 * MBeanServer. Override this method to record metrics in another registry.
+	 */
+	protected Optional<StorageMetrics> createStorageMetrics() {
+		if (!JMX_STORAGE_METRICS.equals(settings.getSettingOrDefault(STORAGE_METRICS, ""))) {
+			return Optional.empty();
+		}
+		HistogramStorageMetrics storageMetrics = new HistogramStorageMetrics();
+		storageMetrics.registerInPlatformMBeanServer();
+		log.logInfoUsingMessage("CachedDatabaseStorageInstanceProvider exposing storage metrics "
+				+ "through JMX with name: " + HistogramStorageMetrics.OBJECT_NAME);
+		return Optional.of(storageMetrics);
+	}
+
+	private RecordJsonConverter possiblyMeasureJsonConverter(
+			RecordJsonConverter recordJsonConverter, Optional<StorageMetrics> storageMetrics) {
+		if (storageMetrics.isEmpty()) {
+			return recordJsonConverter;
 		}
+		return MeasuredRecordJsonConverter.usingConverterAndMetrics(recordJsonConverter,
+				storageMetrics.get());
+	}
+
+	private SqlRecordStorage possiblyMeasure(SqlRecordStorage sqlRecordStorage,
+			Optional<StorageMetrics> storageMetrics, StorageLayer layer) {
+		if (storageMetrics.isEmpty()) {
+			return sqlRecordStorage;
+		}
+		return MeasuredSqlRecordStorage.usingDatabaseAndMetricsAndLayer(sqlRecordStorage,
+				storageMetrics.get(), layer);
+	}
+
+	private boolean shouldNotCache() {
+		return "true".equals(settings.getSettingOrDefault("doNotCache", "false"));
 	}
 
 	private CachedDatabaseRecordStorage populateFromDatabase(SqlDatabaseFactory sqlDatabaseFactory,
-			JsonParser jsonParser, DatabaseRecordStorage database, RecordStorageInMemory memory) {
-		FromDbStoragePopulator populator = createPopulater(sqlDatabaseFactory, jsonParser);
-		populator.populateStorageFromDatabase(memory);
-		return CachedDatabaseRecordStorage.usingDatabaseAndMemory(database, memory);
+			JsonParser jsonParser, RecordJsonConverter recordJsonConverter,
+			SqlRecordStorage database, RecordStorageInMemory memory,
+			Optional<StorageMetrics> storageMetrics) {
+		FromDbStoragePopulator populator = createPopulater(sqlDatabaseFactory, jsonParser,
+				recordJsonConverter);
+		ReverseLinkIndex reverseLinkIndex = new ReverseLinkIndex();
+		RecordVersions recordVersions = new RecordVersions();
+		Optional<CacheStatistics> cacheStatistics = createCacheStatistics();
+		RecordStorage cache = possiblyRecordCacheStatistics(memory, cacheStatistics);
+		populator.populateStorageFromDatabase(cache, reverseLinkIndex, recordVersions);
+		cacheStatistics.ifPresent(this::startCacheStatistics);
+		return createCachedStorage(database, possiblyMeasureMemory(cache, storageMetrics),
+				reverseLinkIndex, recordVersions);
+	}
+
+	/**
+	 * createCacheStatistics returns the CacheStatistics that the use and size of the cache are
+	 * recorded in, or an empty Optional if no cache statistics should be kept.
+	 * <p>
+	 * By default cache statistics are kept only if the setting cacheStatistics is jmx, in which
+	 * case they are registered in the platform MBeanServer and a summary is logged with the
+	 * interval in the setting cacheStatisticsLogIntervalMillis, every five minutes by default, or
+	 * not at all if the interval is 0.
+	 */
+	protected Optional<CacheStatistics> createCacheStatistics() {
+		if (!JMX_STORAGE_METRICS.equals(settings.getSettingOrDefault(CACHE_STATISTICS, ""))) {
+			return Optional.empty();
+		}
+		CacheStatistics cacheStatistics = new CacheStatistics();
+		cacheStatistics.registerInPlatformMBeanServer();
+		log.logInfoUsingMessage("CachedDatabaseStorageInstanceProvider exposing cache statistics "
+				+ "through JMX with name: " + CacheStatistics.OBJECT_NAME);
+		return Optional.of(cacheStatistics);
+	}
+
+	private RecordStorage possiblyRecordCacheStatistics(RecordStorageInMemory memory,
+			Optional<CacheStatistics> cacheStatistics) {
+		if (cacheStatistics.isEmpty()) {
+			return memory;
+		}
+		return CacheStatisticsRecordStorage.usingCacheAndCacheStatistics(memory,
+				cacheStatistics.get());
+	}
+
+	private void startCacheStatistics(CacheStatistics cacheStatistics) {
+		cacheStatistics.markWarmedUp();
+		long logInterval = settings.getLongSettingOrDefault(CACHE_STATISTICS_LOG_INTERVAL,
+				DEFAULT_CACHE_STATISTICS_LOG_INTERVAL);
+		if (logInterval > 0) {
+			cacheStatistics.startLoggingSummaryWithIntervalInMilliseconds(logInterval);
+		}
+	}
+
+	private RecordStorage possiblyMeasureMemory(RecordStorage memory,
+			Optional<StorageMetrics> storageMetrics) {
+		if (storageMetrics.isEmpty()) {
+			return memory;
+		}
+		return MeasuredRecordStorage.usingRecordStorageAndMetricsAndLayer(memory,
+				storageMetrics.get(), StorageLayer.CACHE);
+	}
+
+	private CachedDatabaseRecordStorage createCachedStorage(SqlRecordStorage database,
+			RecordStorage memory, ReverseLinkIndex reverseLinkIndex,
+			RecordVersions recordVersions) {
+		RecordCache cache = new RecordCache(memory, reverseLinkIndex, recordVersions);
+		Set<String> writeBehindTypes = settings.getTypesSetting(WRITE_BEHIND_RECORD_TYPES);
+		if (writeBehindTypes.isEmpty()) {
+			return CachedDatabaseRecordStorage.usingDatabaseAndCache(database, cache);
+		}
+		WriteBehindQueue writeBehindQueue = startWriteBehindQueue(database);
+		log.logInfoUsingMessage("CachedDatabaseStorageInstanceProvider using write behind for "
+				+ "recordTypes: " + writeBehindTypes);
+		return CachedDatabaseRecordStorage.usingDatabaseAndCacheAndWriteBehind(database, cache,
+				writeBehindQueue, writeBehindTypes);
+	}
+
+	private WriteBehindQueue startWriteBehindQueue(SqlRecordStorage database) {
+		WriteBehindQueue writeBehindQueue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				readWriteBehindOptions());
+		writeBehindQueue.startFlushingWithIntervalInMilliseconds(settings
+				.getLongSettingOrDefault(WRITE_BEHIND_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL));
+		Runtime.getRuntime().addShutdownHook(
+				new Thread(writeBehindQueue::shutdown, "sqlstorage-write-behind-shutdown"));
+		return writeBehindQueue;
+	}
+
+	private WriteBehindOptions readWriteBehindOptions() {
+		WriteBehindOptions defaults = DEFAULT_WRITE_BEHIND_OPTIONS;
+		return new WriteBehindOptions(
+				settings.getIntSettingOrDefault(WRITE_BEHIND_MAX_PENDING_WRITES,
+						defaults.maxPendingWrites()),
+				settings.getIntSettingOrDefault(WRITE_BEHIND_BATCH_SIZE, defaults.batchSize()),
+				settings.getIntSettingOrDefault(WRITE_BEHIND_MAX_ATTEMPTS, defaults.maxAttempts()),
+				settings.getLongSettingOrDefault(WRITE_BEHIND_MAX_ENQUEUE_WAIT,
+						defaults.maxEnqueueWaitMillis()));
 	}
 
 	protected FromDbStoragePopulator createPopulater(SqlDatabaseFactory sqlDatabaseFactory,
-			JsonParser jsonParser) {
-		return new FromDbStoragePopulatorImp(sqlDatabaseFactory.factorDatabaseFacade(), jsonParser);
+			JsonParser jsonParser, RecordJsonConverter recordJsonConverter) {
+		return new FromDbStoragePopulatorImp(sqlDatabaseFactory.factorDatabaseFacade(), jsonParser,
+				recordJsonConverter, populationProgress);
+	}
+
+	public ReentrantLock onlyForTestGetStartLock() {
+		return startLock;
 	}
 }
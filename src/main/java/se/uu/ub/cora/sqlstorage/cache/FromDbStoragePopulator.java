@@ -4,6 +4,12 @@ import se.uu.ub.cora.storage.RecordStorage;
 
 public interface FromDbStoragePopulator {
 
-	void populateStorageFromDatabase(RecordStorage recordStorageInMemory);
+	/**
+	 * populateStorageFromDatabase reads all records from the database and creates them in the
+	 * provided recordStorageInMemory. The links from each record are also added to the provided
+	 * reverseLinkIndex and the version of each record is set in the provided recordVersions.
+	 */
+	void populateStorageFromDatabase(RecordStorage recordStorageInMemory,
+			ReverseLinkIndex reverseLinkIndex, RecordVersions recordVersions);
 
 }
\ No newline at end of file
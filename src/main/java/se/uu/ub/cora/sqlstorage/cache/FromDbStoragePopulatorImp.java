@@ -28,42 +28,105 @@ import java.util.Set;
 import se.uu.ub.cora.data.DataGroup;
 import se.uu.ub.cora.data.collected.Link;
 import se.uu.ub.cora.data.collected.StorageTerm;
-import se.uu.ub.cora.data.converter.JsonToDataConverter;
-import se.uu.ub.cora.data.converter.JsonToDataConverterProvider;
 import se.uu.ub.cora.json.parser.JsonParser;
-import se.uu.ub.cora.json.parser.JsonValue;
 import se.uu.ub.cora.sqldatabase.DatabaseFacade;
 import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
+import se.uu.ub.cora.sqlstorage.internal.ParsingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataCompressor;
+import se.uu.ub.cora.sqlstorage.internal.RecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationPhase;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationProgress;
 import se.uu.ub.cora.storage.RecordStorage;
 
 public class FromDbStoragePopulatorImp implements FromDbStoragePopulator {
 
 	private static final List<Object> EMPTY_LIST = Collections.emptyList();
+	private static final String ESTIMATED_ROWS_SQL = "select relname, reltuples::bigint"
+			+ " as estimatedrows from pg_class where relname in ('storageterm', 'link', 'record')"
+			+ " and relkind = 'r'";
+	private static final long UNKNOWN_NUMBER_OF_ROWS = -1;
 	private DatabaseFacade dbFacade;
 	private JsonParser jsonParser;
+	private RecordJsonConverter recordJsonConverter;
 	private RecordStorage recordStorageInMemory;
+	private ReverseLinkIndex reverseLinkIndex;
+	private RecordVersions recordVersions;
 	private InternalHolder internalHolder;
+	private PopulationProgress populationProgress;
+	private Map<String, Long> estimatedRows = Collections.emptyMap();
 
 	public FromDbStoragePopulatorImp(DatabaseFacade dbFacade, JsonParser jsonParser) {
+		this(dbFacade, jsonParser, ParsingRecordJsonConverter.usingJsonParser(jsonParser));
+	}
+
+	public FromDbStoragePopulatorImp(DatabaseFacade dbFacade, JsonParser jsonParser,
+			RecordJsonConverter recordJsonConverter) {
+		this(dbFacade, jsonParser, recordJsonConverter, PopulationProgress.notReported());
+	}
+
+	/**
+	 * Creates a FromDbStoragePopulatorImp as above, that reports the progress of each phase of the
+	 * population to populationProgress. If the progress is reported, the number of rows in each
+	 * phase is estimated from the statistics of the tables in pg_class before the rows are read.
+	 */
+	public FromDbStoragePopulatorImp(DatabaseFacade dbFacade, JsonParser jsonParser,
+			RecordJsonConverter recordJsonConverter, PopulationProgress populationProgress) {
 		this.dbFacade = dbFacade;
 		this.jsonParser = jsonParser;
+		this.recordJsonConverter = recordJsonConverter;
+		this.populationProgress = populationProgress;
 		internalHolder = new InternalHolder();
 	}
 
 	@Override
-	public void populateStorageFromDatabase(RecordStorage recordStorageInMemory) {
+	public void populateStorageFromDatabase(RecordStorage recordStorageInMemory,
+			ReverseLinkIndex reverseLinkIndex, RecordVersions recordVersions) {
 		this.recordStorageInMemory = recordStorageInMemory;
+		this.reverseLinkIndex = reverseLinkIndex;
+		this.recordVersions = recordVersions;
+		possiblyReadEstimatedRows();
 		readAllStorageTermsAndSaveIntoInternalHolder();
 		readAllLinksAndSaveIntoInternalHolder();
 		readAllRecordsAndPopulateStorageInMemory();
+		reverseLinkIndex.finishAddingLinksInBulk();
+	}
+
+	private void possiblyReadEstimatedRows() {
+		if (populationProgress.isReported()) {
+			estimatedRows = readEstimatedRows();
+		}
+	}
+
+	private Map<String, Long> readEstimatedRows() {
+		Map<String, Long> estimates = new HashMap<>();
+		try {
+			for (Row row : dbFacade.readUsingSqlAndValues(ESTIMATED_ROWS_SQL, EMPTY_LIST)) {
+				estimates.put(getColumnFromRow(row, "relname"),
+						((Number) row.getValueByColumn("estimatedrows")).longValue());
+			}
+		} catch (SqlDatabaseException e) {
+			// the population is reported without estimates
+		}
+		return estimates;
+	}
+
+	private List<Row> startPhaseAndReadRows(PopulationPhase phase, String table) {
+		populationProgress.startPhase(phase,
+				estimatedRows.getOrDefault(table, UNKNOWN_NUMBER_OF_ROWS));
+		List<Row> rows = dbFacade.readUsingSqlAndValues("select * from " + table, EMPTY_LIST);
+		populationProgress.rowsRead(rows.size());
+		return rows;
 	}
 
 	private void readAllStorageTermsAndSaveIntoInternalHolder() {
-		List<Row> storageTermRows = dbFacade.readUsingSqlAndValues("select * from storageterm",
-				EMPTY_LIST);
+		List<Row> storageTermRows = startPhaseAndReadRows(PopulationPhase.STORAGE_TERMS,
+				"storageterm");
 		for (Row row : storageTermRows) {
 			addStorageTermToInternalHolder(row);
+			populationProgress.rowProcessed();
 		}
+		populationProgress.finishPhase();
 	}
 
 	private void addStorageTermToInternalHolder(Row row) {
@@ -80,10 +143,12 @@ public class FromDbStoragePopulatorImp implements FromDbStoragePopulator {
 	}
 
 	private void readAllLinksAndSaveIntoInternalHolder() {
-		List<Row> linksRows = dbFacade.readUsingSqlAndValues("select * from link", EMPTY_LIST);
+		List<Row> linksRows = startPhaseAndReadRows(PopulationPhase.LINKS, "link");
 		for (Row row : linksRows) {
 			addLinkToInternalHolder(row);
+			populationProgress.rowProcessed();
 		}
+		populationProgress.finishPhase();
 	}
 
 	private void addLinkToInternalHolder(Row row) {
@@ -92,24 +157,27 @@ public class FromDbStoragePopulatorImp implements FromDbStoragePopulator {
 		String totype = getColumnFromRow(row, "totype");
 		String toid = getColumnFromRow(row, "toid");
 		internalHolder.addLink(fromtype, fromid, totype, toid);
+		reverseLinkIndex.addLinkInBulk(fromtype, fromid, totype, toid);
 	}
 
 	private void readAllRecordsAndPopulateStorageInMemory() {
-		List<Row> dataRows = dbFacade.readUsingSqlAndValues("select * from record", EMPTY_LIST);
+		List<Row> dataRows = startPhaseAndReadRows(PopulationPhase.RECORDS, "record");
 		for (Row row : dataRows) {
 			createRecordInMemoryStorage(row);
+			populationProgress.rowProcessed();
 		}
+		populationProgress.finishPhase();
 	}
 
 	private void createRecordInMemoryStorage(Row row) {
 		String type = getColumnFromRow(row, "type");
 		String id = getColumnFromRow(row, "id");
-		String data = getColumnFromRow(row, "data");
+		DataGroup dataRecordGroup = RecordDataCompressor.readDataGroupFromRow(row,
+				recordJsonConverter::convert);
 		String dataDivider = getColumnFromRow(row, "datadivider");
 
-		DataGroup dataRecordGroup = convertJsonToDataGroup(data);
-
 		populateStorageInMemory(type, id, dataDivider, dataRecordGroup);
+		recordVersions.setVersion(type, id, ((Number) row.getValueByColumn("version")).longValue());
 	}
 
 	private void populateStorageInMemory(String type, String id, String dataDivider,
@@ -119,13 +187,6 @@ public class FromDbStoragePopulatorImp implements FromDbStoragePopulator {
 				dataDivider);
 	}
 
-	private DataGroup convertJsonToDataGroup(String data) {
-		JsonValue jsonValue = jsonParser.parseString(data);
-		JsonToDataConverter jsonToDataConverter = JsonToDataConverterProvider
-				.getConverterUsingJsonObject(jsonValue);
-		return (DataGroup) jsonToDataConverter.toInstance();
-	}
-
 	private class InternalHolder {
 		Map<String, Set<StorageTerm>> storageTerms = new HashMap<>();
 		Map<String, Set<Link>> links = new HashMap<>();
@@ -164,4 +225,12 @@ public class FromDbStoragePopulatorImp implements FromDbStoragePopulator {
 	public JsonParser onlyForTestGetJsonParser() {
 		return jsonParser;
 	}
+
+	public RecordJsonConverter onlyForTestGetRecordJsonConverter() {
+		return recordJsonConverter;
+	}
+
+	public PopulationProgress onlyForTestGetPopulationProgress() {
+		return populationProgress;
+	}
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import se.uu.ub.cora.storage.RecordStorage;
+
+/**
+ * RecordCache holds the parts of a {@link CachedDatabaseRecordStorage} kept in memory. The
+ * reverseLinkIndex must be populated with the links of all records in memory and the
+ * recordVersions with the versions of all records in memory.
+ * 
+ * @param memory
+ *            A RecordStorage holding all records
+ * @param reverseLinkIndex
+ *            A ReverseLinkIndex with the links to each record in memory
+ * @param recordVersions
+ *            A RecordVersions with the version of each record in memory
+ */
+public record RecordCache(RecordStorage memory, ReverseLinkIndex reverseLinkIndex,
+		RecordVersions recordVersions) {
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.util.Arrays;
+
+/**
+ * RecordCodes gives each record referenced in {@link ReverseLinkIndex} an int code, so that the
+ * lists of links can store each record as an int. The type code and id of a record are stored once,
+ * in two arrays indexed by the code, and the code of a record is found through a hash table of int
+ * codes using open addressing, so that no object is created for each record apart from its id.
+ * <p>
+ * Records are ordered by type and then id, comparing Unicode code points in the same way as
+ * postgresql orders text using collate "C" in a UTF-8 database.
+ * <p>
+ * The code of a record no longer referenced from the index is released using
+ * {@link #release(int)}, and is then given to the next new record.
+ * <p>
+ * This class is not threadsafe, it is used under the lock of {@link ReverseLinkIndex}.
+ */
+final class RecordCodes {
+	static final int UNKNOWN_RECORD = -1;
+	private static final int EMPTY_SLOT = -1;
+	private static final int RELEASED_SLOT = -2;
+	private static final int INITIAL_CAPACITY = 16;
+	private RecordTypeCodes typeCodes;
+	private int[] recordTypeCodes = new int[INITIAL_CAPACITY];
+	private String[] recordIds = new String[INITIAL_CAPACITY];
+	private int numberOfCodes = 0;
+	private int[] releasedCodes = new int[INITIAL_CAPACITY];
+	private int numberOfReleasedCodes = 0;
+	private int[] slots = createEmptySlots(INITIAL_CAPACITY * 2);
+	private int numberOfUsedSlots = 0;
+
+	RecordCodes(RecordTypeCodes typeCodes) {
+		this.typeCodes = typeCodes;
+	}
+
+	private static int[] createEmptySlots(int numberOfSlots) {
+		int[] emptySlots = new int[numberOfSlots];
+		Arrays.fill(emptySlots, EMPTY_SLOT);
+		return emptySlots;
+	}
+
+	int getOrCreateCode(String type, String id) {
+		int typeCode = typeCodes.getOrCreateCode(type);
+		int slot = findSlot(typeCode, id);
+		if (slot >= 0) {
+			return slots[slot];
+		}
+		possiblyGrowSlots();
+		int code = createCode(typeCode, id);
+		addToSlots(code);
+		return code;
+	}
+
+	private int findSlot(int typeCode, String id) {
+		int mask = slots.length - 1;
+		int slot = hash(typeCode, id) & mask;
+		while (slots[slot] != EMPTY_SLOT) {
+			int code = slots[slot];
+			if (code >= 0 && recordTypeCodes[code] == typeCode && recordIds[code].equals(id)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hash(int typeCode, String id) {
+		int hash = 31 * typeCode + id.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private int createCode(int typeCode, String id) {
+		int code = takeReleasedCodeOrNewCode();
+		recordTypeCodes[code] = typeCode;
+		recordIds[code] = id;
+		return code;
+	}
+
+	private int takeReleasedCodeOrNewCode() {
+		if (numberOfReleasedCodes > 0) {
+			numberOfReleasedCodes--;
+			return releasedCodes[numberOfReleasedCodes];
+		}
+		if (numberOfCodes == recordIds.length) {
+			int newCapacity = numberOfCodes + (numberOfCodes >> 1);
+			recordTypeCodes = Arrays.copyOf(recordTypeCodes, newCapacity);
+			recordIds = Arrays.copyOf(recordIds, newCapacity);
+		}
+		return numberOfCodes++;
+	}
+
+	private void possiblyGrowSlots() {
+		if ((numberOfUsedSlots + 1) * 2 > slots.length) {
+			int numberOfRecords = numberOfCodes - numberOfReleasedCodes;
+			int numberOfSlots = Math.max(slots.length,
+					Integer.highestOneBit(Math.max(numberOfRecords, 1) * 4));
+			rebuildSlots(numberOfSlots);
+		}
+	}
+
+	private void rebuildSlots(int numberOfSlots) {
+		slots = createEmptySlots(numberOfSlots);
+		numberOfUsedSlots = 0;
+		for (int code = 0; code < numberOfCodes; code++) {
+			if (recordIds[code] != null) {
+				addToSlots(code);
+			}
+		}
+	}
+
+	private void addToSlots(int code) {
+		int mask = slots.length - 1;
+		int slot = hash(recordTypeCodes[code], recordIds[code]) & mask;
+		while (slots[slot] != EMPTY_SLOT) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = code;
+		numberOfUsedSlots++;
+	}
+
+	int getCode(String type, String id) {
+		int typeCode = typeCodes.getCode(type);
+		if (typeCode == RecordTypeCodes.UNKNOWN_TYPE) {
+			return UNKNOWN_RECORD;
+		}
+		int slot = findSlot(typeCode, id);
+		return slot >= 0 ? slots[slot] : UNKNOWN_RECORD;
+	}
+
+	/**
+	 * release releases the code of a record, the code must not be used after this.
+	 */
+	void release(int code) {
+		int slot = findSlot(recordTypeCodes[code], recordIds[code]);
+		slots[slot] = RELEASED_SLOT;
+		recordIds[code] = null;
+		if (numberOfReleasedCodes == releasedCodes.length) {
+			releasedCodes = Arrays.copyOf(releasedCodes, numberOfReleasedCodes * 2);
+		}
+		releasedCodes[numberOfReleasedCodes] = code;
+		numberOfReleasedCodes++;
+	}
+
+	int getTypeCode(int code) {
+		return recordTypeCodes[code];
+	}
+
+	String getType(int code) {
+		return typeCodes.getType(recordTypeCodes[code]);
+	}
+
+	String getId(int code) {
+		return recordIds[code];
+	}
+
+	int getNumberOfRecords() {
+		return numberOfCodes - numberOfReleasedCodes;
+	}
+
+	/**
+	 * compare compares the record with the code to the record with the specified type and id, in
+	 * the order described for this class.
+	 */
+	int compare(int code, String type, String id) {
+		int comparedType = compareCodePoints(getType(code), type);
+		if (comparedType != 0) {
+			return comparedType;
+		}
+		return compareCodePoints(recordIds[code], id);
+	}
+
+	int compare(int code, int otherCode) {
+		return compare(code, getType(otherCode), recordIds[otherCode]);
+	}
+
+	/**
+	 * compareCodePoints compares two strings by their Unicode code points, which is the order
+	 * postgresql uses for text with collate "C" in a UTF-8 database. It differs from
+	 * {@link String#compareTo(String)} in that characters outside the basic multilingual plane are
+	 * ordered after all characters in it.
+	 */
+	static int compareCodePoints(String first, String second) {
+		int length = Math.min(first.length(), second.length());
+		for (int i = 0; i < length; i++) {
+			char firstChar = first.charAt(i);
+			char secondChar = second.charAt(i);
+			if (firstChar != secondChar) {
+				return compareChars(firstChar, secondChar);
+			}
+		}
+		return first.length() - second.length();
+	}
+
+	private static int compareChars(char firstChar, char secondChar) {
+		boolean firstIsSurrogate = Character.isSurrogate(firstChar);
+		if (firstIsSurrogate != Character.isSurrogate(secondChar)) {
+			return firstIsSurrogate ? 1 : -1;
+		}
+		return firstChar - secondChar;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.util.Arrays;
+
+/**
+ * RecordList is a compact, ordered list of references to records, stored as the int codes of the
+ * records from {@link RecordCodes} in an int array. The records are ordered by type and id, in the
+ * order described in {@link RecordCodes}, and each record is only present once.
+ * <p>
+ * Records can also be appended unordered using {@link #append(int)}, the list must then be ordered
+ * using {@link #sortAndRemoveDuplicates()} before it is used in any other way.
+ * <p>
+ * This class is not threadsafe, it is used under the lock of {@link ReverseLinkIndex}.
+ */
+final class RecordList {
+	private static final int INITIAL_CAPACITY = 2;
+	private RecordCodes recordCodes;
+	private int[] records = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	RecordList(RecordCodes recordCodes) {
+		this.recordCodes = recordCodes;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int getRecordCode(int position) {
+		return records[position];
+	}
+
+	String getType(int position) {
+		return recordCodes.getType(records[position]);
+	}
+
+	String getId(int position) {
+		return recordCodes.getId(records[position]);
+	}
+
+	/**
+	 * add adds a record at its position in the list, if it is not already present.
+	 */
+	void add(int recordCode) {
+		int position = findPosition(recordCodes.getType(recordCode), recordCodes.getId(recordCode));
+		if (position >= 0) {
+			return;
+		}
+		insertAt(-(position + 1), recordCode);
+	}
+
+	private void insertAt(int position, int recordCode) {
+		ensureCapacity();
+		System.arraycopy(records, position, records, position + 1, size - position);
+		records[position] = recordCode;
+		size++;
+	}
+
+	private void ensureCapacity() {
+		if (size == records.length) {
+			records = Arrays.copyOf(records, size + (size >> 1) + 1);
+		}
+	}
+
+	/**
+	 * remove removes a record from the list, if present.
+	 */
+	void remove(int recordCode) {
+		int position = findPosition(recordCodes.getType(recordCode), recordCodes.getId(recordCode));
+		if (position < 0) {
+			return;
+		}
+		System.arraycopy(records, position + 1, records, position, size - position - 1);
+		size--;
+	}
+
+	/**
+	 * findPosition searches for a record with the specified type and id.
+	 * 
+	 * @return The position of the record if present, otherwise (-(insertion point) - 1), in the
+	 *         same way as {@link Arrays#binarySearch(int[], int)}
+	 */
+	int findPosition(String type, String id) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compared = recordCodes.compare(records[middle], type, id);
+			if (compared < 0) {
+				low = middle + 1;
+			} else if (compared > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	void append(int recordCode) {
+		ensureCapacity();
+		records[size] = recordCode;
+		size++;
+	}
+
+	void sortAndRemoveDuplicates() {
+		Integer[] sorted = createSortedRecords();
+		int sortedSize = 0;
+		for (int recordCode : sorted) {
+			if (sortedSize == 0 || records[sortedSize - 1] != recordCode) {
+				records[sortedSize] = recordCode;
+				sortedSize++;
+			}
+		}
+		records = Arrays.copyOf(records, sortedSize);
+		size = sortedSize;
+	}
+
+	private Integer[] createSortedRecords() {
+		Integer[] sorted = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = records[i];
+		}
+		Arrays.sort(sorted, recordCodes::compare);
+		return sorted;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecordTypeCodes gives each record type a small int code, so that structures holding many
+ * references to records can store the type as an int instead of a reference to a String.
+ * <p>
+ * This class is not threadsafe, it is used under the lock of {@link ReverseLinkIndex}.
+ */
+final class RecordTypeCodes {
+	static final int UNKNOWN_TYPE = -1;
+	private Map<String, Integer> codes = new HashMap<>();
+	private List<String> types = new ArrayList<>();
+
+	int getOrCreateCode(String type) {
+		Integer code = codes.get(type);
+		if (code != null) {
+			return code;
+		}
+		int newCode = types.size();
+		codes.put(type, newCode);
+		types.add(type);
+		return newCode;
+	}
+
+	int getCode(String type) {
+		return codes.getOrDefault(type, UNKNOWN_TYPE);
+	}
+
+	String getType(int code) {
+		return types.get(code);
+	}
+}
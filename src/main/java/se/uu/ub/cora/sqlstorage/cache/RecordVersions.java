@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RecordVersions keeps the version of each record held in memory, matching the version column of
+ * the record table, so that the version of a record can be read without asking the database.
+ * <p>
+ * The versions are kept up to date by {@link CachedDatabaseRecordStorage}, a record gets version 1
+ * when created, its version is increased by one each time it is updated and it is removed when the
+ * record is deleted.
+ * <p>
+ * This class is threadsafe.
+ */
+public class RecordVersions {
+	private Map<String, Map<String, Long>> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * setVersion sets the version of the record with the specified type and id.
+	 */
+	public void setVersion(String type, String id, long version) {
+		versions.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).put(id, version);
+	}
+
+	/**
+	 * getVersion returns the version of the record with the specified type and id, or an empty
+	 * OptionalLong if no version is known for the record.
+	 */
+	public OptionalLong getVersion(String type, String id) {
+		Map<String, Long> versionsForType = versions.get(type);
+		if (versionsForType == null) {
+			return OptionalLong.empty();
+		}
+		Long version = versionsForType.get(id);
+		return version == null ? OptionalLong.empty() : OptionalLong.of(version);
+	}
+
+	/**
+	 * increaseVersion increases the version of the record with the specified type and id by one.
+	 * Nothing is done if no version is known for the record.
+	 */
+	public void increaseVersion(String type, String id) {
+		Map<String, Long> versionsForType = versions.get(type);
+		if (versionsForType != null) {
+			versionsForType.computeIfPresent(id, (k, version) -> version + 1);
+		}
+	}
+
+	/**
+	 * removeVersion removes the version of the record with the specified type and id.
+	 */
+	public void removeVersion(String type, String id) {
+		Map<String, Long> versionsForType = versions.get(type);
+		if (versionsForType != null) {
+			versionsForType.remove(id);
+		}
+	}
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.internal.LinkCursor;
+
+/**
+ * ReverseLinkIndex keeps track of the records linking to each record, ordered by type and id, so
+ * that questions about incoming links can be answered without looking through all records.
+ * <p>
+ * Each record linking or linked to is given an int code by {@link RecordCodes}, which stores its
+ * type and id once. The links to and from each record are stored in {@link RecordList}s of codes,
+ * kept in arrays indexed by the code of the record, so that the index stays small also with a large
+ * number of links. Records are ordered by comparing code points, in the same way as the database
+ * orders links using collate "C".
+ * <p>
+ * The index is maintained incrementally, the links from a record are replaced each time the record
+ * is created or updated and removed when the record is deleted. When populating the index from
+ * storage, links can be added in bulk using {@link #addLinkInBulk(String, String, String, String)}
+ * followed by {@link #finishAddingLinksInBulk()}.
+ * <p>
+ * This class is threadsafe.
+ */
+public class ReverseLinkIndex {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final Comparator<ReachableRecord> REACHABLE_ORDER = Comparator
+			.comparing(ReachableRecord::type, RecordCodes::compareCodePoints)
+			.thenComparing(ReachableRecord::id, RecordCodes::compareCodePoints);
+	private RecordTypeCodes typeCodes = new RecordTypeCodes();
+	private RecordCodes recordCodes = new RecordCodes(typeCodes);
+	private RecordList[] linksFromRecord = new RecordList[INITIAL_CAPACITY];
+	private RecordList[] linksToRecord = new RecordList[INITIAL_CAPACITY];
+	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * replaceLinksFromRecord sets the links from the record with the specified type and id,
+	 * replacing any links previously registered for the record.
+	 */
+	public void replaceLinksFromRecord(String type, String id, Set<Link> links) {
+		lock.writeLock().lock();
+		try {
+			int fromRecord = createCode(type, id);
+			removeLinksFromRecordUsingCode(fromRecord);
+			addLinksFromRecordUsingCode(fromRecord, links);
+			possiblyReleaseCode(fromRecord);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private int createCode(String type, String id) {
+		int code = recordCodes.getOrCreateCode(type, id);
+		if (code >= linksFromRecord.length) {
+			int newCapacity = Math.max(code + 1, linksFromRecord.length * 2);
+			linksFromRecord = Arrays.copyOf(linksFromRecord, newCapacity);
+			linksToRecord = Arrays.copyOf(linksToRecord, newCapacity);
+		}
+		return code;
+	}
+
+	private void addLinksFromRecordUsingCode(int fromRecord, Set<Link> links) {
+		if (links.isEmpty()) {
+			return;
+		}
+		RecordList toRecords = new RecordList(recordCodes);
+		for (Link link : links) {
+			int toRecord = createCode(link.type(), link.id());
+			toRecords.add(toRecord);
+			getOrCreateList(linksToRecord, toRecord).add(fromRecord);
+		}
+		linksFromRecord[fromRecord] = toRecords;
+	}
+
+	private RecordList getOrCreateList(RecordList[] lists, int code) {
+		if (lists[code] == null) {
+			lists[code] = new RecordList(recordCodes);
+		}
+		return lists[code];
+	}
+
+	private void removeLinksFromRecordUsingCode(int fromRecord) {
+		RecordList oldToRecords = linksFromRecord[fromRecord];
+		if (oldToRecords == null) {
+			return;
+		}
+		linksFromRecord[fromRecord] = null;
+		for (int i = 0; i < oldToRecords.size(); i++) {
+			removeLinkToRecord(fromRecord, oldToRecords.getRecordCode(i));
+		}
+	}
+
+	private void removeLinkToRecord(int fromRecord, int toRecord) {
+		RecordList fromRecords = linksToRecord[toRecord];
+		fromRecords.remove(fromRecord);
+		if (fromRecords.size() == 0) {
+			linksToRecord[toRecord] = null;
+			if (toRecord != fromRecord) {
+				possiblyReleaseCode(toRecord);
+			}
+		}
+	}
+
+	private void possiblyReleaseCode(int code) {
+		if (linksFromRecord[code] == null && linksToRecord[code] == null) {
+			recordCodes.release(code);
+		}
+	}
+
+	/**
+	 * removeLinksFromRecord removes all links from the record with the specified type and id.
+	 */
+	public void removeLinksFromRecord(String type, String id) {
+		lock.writeLock().lock();
+		try {
+			int fromRecord = recordCodes.getCode(type, id);
+			if (fromRecord != RecordCodes.UNKNOWN_RECORD) {
+				removeLinksFromRecordUsingCode(fromRecord);
+				possiblyReleaseCode(fromRecord);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * addLinkInBulk adds a link without ordering or checking for duplicates, which is considerably
+	 * faster than {@link #replaceLinksFromRecord(String, String, Set)} when adding all links in
+	 * storage. The index can not be read or updated in other ways until
+	 * {@link #finishAddingLinksInBulk()} has been called.
+	 */
+	public void addLinkInBulk(String fromType, String fromId, String toType, String toId) {
+		lock.writeLock().lock();
+		try {
+			int fromRecord = createCode(fromType, fromId);
+			int toRecord = createCode(toType, toId);
+			getOrCreateList(linksFromRecord, fromRecord).append(toRecord);
+			getOrCreateList(linksToRecord, toRecord).append(fromRecord);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * finishAddingLinksInBulk orders the links added using
+	 * {@link #addLinkInBulk(String, String, String, String)} and removes duplicates.
+	 */
+	public void finishAddingLinksInBulk() {
+		lock.writeLock().lock();
+		try {
+			sortAndRemoveDuplicates(linksFromRecord);
+			sortAndRemoveDuplicates(linksToRecord);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void sortAndRemoveDuplicates(RecordList[] lists) {
+		for (RecordList list : lists) {
+			if (list != null) {
+				list.sortAndRemoveDuplicates();
+			}
+		}
+	}
+
+	public boolean linksExistToRecord(String type, String id) {
+		return countLinksToRecord(type, id) > 0;
+	}
+
+	public int countLinksToRecord(String type, String id) {
+		lock.readLock().lock();
+		try {
+			RecordList fromRecords = findLinksToRecord(type, id);
+			return fromRecords == null ? 0 : fromRecords.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private RecordList findLinksToRecord(String type, String id) {
+		int toRecord = recordCodes.getCode(type, id);
+		if (toRecord == RecordCodes.UNKNOWN_RECORD) {
+			return null;
+		}
+		return linksToRecord[toRecord];
+	}
+
+	/**
+	 * getLinksToRecord returns links to all records linking to the record with the specified type
+	 * and id, ordered by type and id.
+	 */
+	public Set<Link> getLinksToRecord(String type, String id) {
+		lock.readLock().lock();
+		try {
+			RecordList fromRecords = findLinksToRecord(type, id);
+			if (fromRecords == null) {
+				return Collections.emptySet();
+			}
+			return createLinks(fromRecords, 0, fromRecords.size(), new LinkedHashSet<>());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T extends Collection<Link>> T createLinks(RecordList records, int from,
+			int to, T links) {
+		for (int i = from; i < to; i++) {
+			links.add(new Link(records.getType(i), records.getId(i)));
+		}
+		return links;
+	}
+
+	/**
+	 * readLinksToRecord reads one page of the links pointing to the record with the specified type
+	 * and id, in the same order and using the same cursors as
+	 * {@link se.uu.ub.cora.sqlstorage.SqlRecordStorage#readLinksToRecord}.
+	 */
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		lock.readLock().lock();
+		try {
+			RecordList fromRecords = findLinksToRecord(type, id);
+			if (fromRecords == null) {
+				return new LinkPage(Collections.emptyList(), null);
+			}
+			return createLinkPage(fromRecords, pageRequest);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private LinkPage createLinkPage(RecordList fromRecords, LinkPageRequest pageRequest) {
+		int start = findStartOfPage(fromRecords, pageRequest);
+		int end = start;
+		while (end < start + pageRequest.limit() && isInPage(fromRecords, pageRequest, end)) {
+			end++;
+		}
+		List<Link> links = createLinks(fromRecords, start, end, new ArrayList<>());
+		boolean moreLinks = isInPage(fromRecords, pageRequest, end);
+		return new LinkPage(links, moreLinks ? createCursorForLastLink(links) : null);
+	}
+
+	private boolean isInPage(RecordList fromRecords, LinkPageRequest pageRequest, int position) {
+		return position < fromRecords.size() && (pageRequest.fromType() == null
+				|| pageRequest.fromType().equals(fromRecords.getType(position)));
+	}
+
+	private int findStartOfPage(RecordList fromRecords, LinkPageRequest pageRequest) {
+		int start = 0;
+		if (pageRequest.fromType() != null) {
+			start = toInsertionPoint(fromRecords.findPosition(pageRequest.fromType(), ""));
+		}
+		if (pageRequest.cursor() != null) {
+			LinkCursor cursor = LinkCursor.decode(pageRequest.cursor());
+			int afterCursor = findPositionAfter(fromRecords, cursor);
+			start = Math.max(start, afterCursor);
+		}
+		return start;
+	}
+
+	private int toInsertionPoint(int position) {
+		return position >= 0 ? position : -(position + 1);
+	}
+
+	private int findPositionAfter(RecordList fromRecords, LinkCursor cursor) {
+		int position = fromRecords.findPosition(cursor.fromType(), cursor.fromId());
+		return position >= 0 ? position + 1 : -(position + 1);
+	}
+
+	private String createCursorForLastLink(List<Link> links) {
+		Link lastLink = links.get(links.size() - 1);
+		return new LinkCursor(lastLink.type(), lastLink.id()).encode();
+	}
+
+	/**
+	 * traverseLinks finds the records reachable from the record with the specified type and id,
+	 * with the same result as
+	 * {@link se.uu.ub.cora.sqlstorage.SqlRecordStorage#traverseLinks}.
+	 * <p>
+	 * The links are followed breadth first, so each record is visited once at the least depth it
+	 * can be reached at.
+	 */
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		lock.readLock().lock();
+		try {
+			int startRecord = recordCodes.getCode(type, id);
+			if (startRecord == RecordCodes.UNKNOWN_RECORD) {
+				return Collections.emptyList();
+			}
+			return traverseLinksBreadthFirst(startRecord, traversalRequest);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<ReachableRecord> traverseLinksBreadthFirst(int startRecord,
+			LinkTraversalRequest traversalRequest) {
+		RecordList[] links = getLinksToFollow(traversalRequest);
+		BitSet visited = new BitSet();
+		visited.set(startRecord);
+		int[] currentLevel = { startRecord };
+		List<ReachableRecord> reachable = new ArrayList<>();
+		int depth = 0;
+		while (currentLevel.length > 0 && depth < traversalRequest.maxDepth()
+				&& reachable.size() < traversalRequest.limit()) {
+			depth++;
+			int[] nextLevel = findUnvisitedLinkedRecords(links, currentLevel, visited,
+					traversalRequest);
+			addSortedToReachable(reachable, nextLevel, depth);
+			currentLevel = nextLevel;
+		}
+		return reachable.subList(0, Math.min(reachable.size(), traversalRequest.limit()));
+	}
+
+	private RecordList[] getLinksToFollow(LinkTraversalRequest traversalRequest) {
+		if (traversalRequest.direction() == LinkTraversalRequest.Direction.LINKS_FROM_RECORD) {
+			return linksFromRecord;
+		}
+		return linksToRecord;
+	}
+
+	private int[] findUnvisitedLinkedRecords(RecordList[] links, int[] currentLevel,
+			BitSet visited, LinkTraversalRequest traversalRequest) {
+		int[] nextLevel = new int[INITIAL_CAPACITY];
+		int size = 0;
+		for (int record : currentLevel) {
+			RecordList linkedRecords = links[record];
+			int numberOfLinkedRecords = linkedRecords == null ? 0 : linkedRecords.size();
+			for (int i = 0; i < numberOfLinkedRecords; i++) {
+				int linkedRecord = linkedRecords.getRecordCode(i);
+				if (isUnvisitedAndOfVisitedType(linkedRecord, visited, traversalRequest)) {
+					visited.set(linkedRecord);
+					if (size == nextLevel.length) {
+						nextLevel = Arrays.copyOf(nextLevel, size * 2);
+					}
+					nextLevel[size] = linkedRecord;
+					size++;
+				}
+			}
+		}
+		return Arrays.copyOf(nextLevel, size);
+	}
+
+	private boolean isUnvisitedAndOfVisitedType(int record, BitSet visited,
+			LinkTraversalRequest traversalRequest) {
+		return !visited.get(record)
+				&& traversalRequest.isTypeVisited(recordCodes.getType(record));
+	}
+
+	private void addSortedToReachable(List<ReachableRecord> reachable, int[] level, int depth) {
+		List<ReachableRecord> reachableAtDepth = new ArrayList<>(level.length);
+		for (int record : level) {
+			reachableAtDepth.add(new ReachableRecord(recordCodes.getType(record),
+					recordCodes.getId(record), depth));
+		}
+		reachableAtDepth.sort(REACHABLE_ORDER);
+		reachable.addAll(reachableAtDepth);
+	}
+
+	int onlyForTestGetTypeCode(String type) {
+		return typeCodes.getCode(type);
+	}
+
+	int onlyForTestGetNumberOfRecords() {
+		return recordCodes.getNumberOfRecords();
+	}
+
+	Set<Link> onlyForTestGetLinksFromRecord(String type, String id) {
+		int fromRecord = recordCodes.getCode(type, id);
+		if (fromRecord == RecordCodes.UNKNOWN_RECORD || linksFromRecord[fromRecord] == null) {
+			return Collections.emptySet();
+		}
+		RecordList toRecords = linksFromRecord[fromRecord];
+		return createLinks(toRecords, 0, toRecords.size(), new LinkedHashSet<>());
+	}
+}
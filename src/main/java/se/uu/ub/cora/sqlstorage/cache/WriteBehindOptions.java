@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+/**
+ * WriteBehindOptions holds the limits of a {@link WriteBehindQueue}.
+ * 
+ * @param maxPendingWrites
+ *            An int with the number of pending writes at which enqueue blocks
+ * @param batchSize
+ *            An int with the maximum number of writes written in one transaction
+ * @param maxAttempts
+ *            An int with the number of failed attempts in a row after which a write is moved to
+ *            the dead letters
+ * @param maxEnqueueWaitMillis
+ *            A long with the maximum number of milliseconds enqueue waits for room
+ */
+public record WriteBehindOptions(int maxPendingWrites, int batchSize, int maxAttempts,
+		long maxEnqueueWaitMillis) {
+	private static final int DEFAULT_MAX_ATTEMPTS = 10;
+	private static final long DEFAULT_MAX_ENQUEUE_WAIT_MILLIS = 30_000;
+
+	/**
+	 * usingMaxPendingWritesAndBatchSize creates WriteBehindOptions that move writes to the dead
+	 * letters after 10 failed attempts and wait at most 30 seconds for room in enqueue.
+	 */
+	public static WriteBehindOptions usingMaxPendingWritesAndBatchSize(int maxPendingWrites,
+			int batchSize) {
+		return new WriteBehindOptions(maxPendingWrites, batchSize, DEFAULT_MAX_ATTEMPTS,
+				DEFAULT_MAX_ENQUEUE_WAIT_MILLIS);
+	}
+
+	public WriteBehindOptions withMaxAttempts(int maxAttempts) {
+		return new WriteBehindOptions(maxPendingWrites, batchSize, maxAttempts,
+				maxEnqueueWaitMillis);
+	}
+
+	public WriteBehindOptions withMaxEnqueueWaitMillis(long maxEnqueueWaitMillis) {
+		return new WriteBehindOptions(maxPendingWrites, batchSize, maxAttempts,
+				maxEnqueueWaitMillis);
+	}
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.RecordWrite.Action;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.storage.RecordConflictException;
+import se.uu.ub.cora.storage.RecordNotFoundException;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * WriteBehindQueue collects writes that already are done in memory and writes them to the
+ * database in the background, several writes in one transaction.
+ * <p>
+ * Repeated writes to the same record, not yet written to the database, are coalesced into one
+ * write. When the number of pending writes reaches maxPendingWrites, enqueue blocks until the
+ * flusher has made room, so that a burst of writes can not use unlimited memory. If there is no
+ * room within maxEnqueueWaitMillis, enqueue fails with a StorageException.
+ * <p>
+ * Writes that fail because the record is in conflict or not found in the database can never
+ * succeed, they are moved to the dead letters at once. Other failed writes are kept in the queue
+ * and retried at the next flush, until they have failed maxAttempts times in a row, then they are
+ * moved to the dead letters as well. Dead letters are logged as errors and the latest
+ * maxDeadLetters of them are kept, so that they can be taken using {@link #drainDeadLetters()}
+ * and handled manually. As a dead letter already is written in memory, the listener set using
+ * {@link #setDeadLetterListener(Consumer)} is told about it, so that the record can be removed from
+ * memory. {@link #shutdown()} stops the background flusher and writes all pending writes before
+ * returning.
+ * <p>
+ * The queue is only kept in memory, writes that are pending when the application stops without
+ * {@link #shutdown()} being called are lost.
+ * <p>
+ * This class is threadsafe.
+ */
+public class WriteBehindQueue {
+	private Logger log = LoggerProvider.getLoggerForClass(WriteBehindQueue.class);
+
+	private SqlRecordStorage database;
+	private int maxPendingWrites;
+	private int batchSize;
+	private int maxAttempts;
+	private long maxEnqueueWaitMillis;
+	private Map<RecordKey, RecordWrite> pendingWrites = new LinkedHashMap<>();
+	private Map<RecordKey, Integer> failedAttempts = new HashMap<>();
+	private int maxDeadLetters = DEFAULT_MAX_DEAD_LETTERS;
+	private Deque<RecordWrite> deadLetters = new ArrayDeque<>();
+	private Consumer<RecordWrite> deadLetterListener = write -> {
+	};
+	private ReentrantLock pendingLock = new ReentrantLock();
+	private Condition roomForMoreWrites = pendingLock.newCondition();
+	private ReentrantLock flushLock = new ReentrantLock();
+	private ScheduledExecutorService flusher;
+
+	private static final int DEFAULT_MAX_DEAD_LETTERS = 1000;
+
+	private record RecordKey(String type, String id) {
+	}
+
+	/**
+	 * usingDatabaseAndOptions creates a WriteBehindQueue writing to database, with the limits in
+	 * options.
+	 */
+	public static WriteBehindQueue usingDatabaseAndOptions(SqlRecordStorage database,
+			WriteBehindOptions options) {
+		return new WriteBehindQueue(database, options);
+	}
+
+	private WriteBehindQueue(SqlRecordStorage database, WriteBehindOptions options) {
+		this.database = database;
+		maxPendingWrites = options.maxPendingWrites();
+		batchSize = options.batchSize();
+		maxAttempts = options.maxAttempts();
+		maxEnqueueWaitMillis = options.maxEnqueueWaitMillis();
+	}
+
+	/**
+	 * setDeadLetterListener sets a listener that is called with each write moved to the dead
+	 * letters, unless a newer write to the same record is pending. The listener is called while
+	 * holding the lock of the queue, so that no write to the record is enqueued while the listener
+	 * runs.
+	 */
+	public void setDeadLetterListener(Consumer<RecordWrite> deadLetterListener) {
+		this.deadLetterListener = deadLetterListener;
+	}
+
+	/**
+	 * startFlushingWithIntervalInMilliseconds starts a background thread that flushes the queue
+	 * with the specified interval.
+	 * 
+	 * @param interval
+	 *            A long with the number of milliseconds between the end of one flush and the start
+	 *            of the next
+	 */
+	public void startFlushingWithIntervalInMilliseconds(long interval) {
+		flusher = Executors.newSingleThreadScheduledExecutor(this::createFlusherThread);
+		flusher.scheduleWithFixedDelay(this::flushAndLogUnexpectedErrors, interval, interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	private Thread createFlusherThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, "sqlstorage-write-behind-flusher");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private void flushAndLogUnexpectedErrors() {
+		try {
+			flush();
+		} catch (Exception e) {
+			log.logErrorUsingMessageAndException("Unexpected error when flushing write behind queue.",
+					e);
+		}
+	}
+
+	/**
+	 * enqueue adds a write to the queue. If a write to the same record already is pending are the
+	 * two writes coalesced. If the queue is full, enqueue blocks until there is room for the write.
+	 * 
+	 * @param write
+	 *            A RecordWrite to write to the database
+	 * @throws StorageException
+	 *             if there is no room for the write within maxEnqueueWaitMillis
+	 */
+	public void enqueue(RecordWrite write) {
+		enqueue(write.type(), write.id(), () -> write);
+	}
+
+	/**
+	 * enqueue waits for room for a write to the record with the specified type and id, then calls
+	 * writeInMemory and adds the returned write to the queue, as {@link #enqueue(RecordWrite)}.
+	 * <p>
+	 * writeInMemory is called while holding the lock of the queue, so that the write in memory and
+	 * the write to the queue are done in the same order for concurrent writes. If there is no room
+	 * for the write, writeInMemory is not called, and if writeInMemory throws an exception, nothing
+	 * is added to the queue.
+	 * 
+	 * @param type
+	 *            A String with the type of the record to write
+	 * @param id
+	 *            A String with the id of the record to write
+	 * @param writeInMemory
+	 *            A Supplier that writes the record in memory and returns the matching RecordWrite
+	 * @throws StorageException
+	 *             if there is no room for the write within maxEnqueueWaitMillis
+	 */
+	public void enqueue(String type, String id, Supplier<RecordWrite> writeInMemory) {
+		RecordKey key = new RecordKey(type, id);
+		pendingLock.lock();
+		try {
+			waitForRoomUnlessAlreadyPending(key);
+			RecordWrite write = writeInMemory.get();
+			failedAttempts.remove(key);
+			pendingWrites.merge(key, write, this::coalesce);
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	private void waitForRoomUnlessAlreadyPending(RecordKey key) {
+		long nanosLeft = TimeUnit.MILLISECONDS.toNanos(maxEnqueueWaitMillis);
+		while (pendingWrites.size() >= maxPendingWrites && !pendingWrites.containsKey(key)) {
+			if (nanosLeft <= 0) {
+				throw StorageException.withMessage(MessageFormat.format(
+						"Write behind queue is full, no room for write to record with type: {0} "
+								+ "and id: {1} within {2} milliseconds.",
+						key.type(), key.id(), String.valueOf(maxEnqueueWaitMillis)));
+			}
+			nanosLeft = awaitRoomForMoreWrites(key, nanosLeft);
+		}
+	}
+
+	private long awaitRoomForMoreWrites(RecordKey key, long nanosLeft) {
+		try {
+			return roomForMoreWrites.awaitNanos(nanosLeft);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw StorageException.withMessageAndException(
+					"Interrupted while waiting for room in write behind queue for record with type: "
+							+ key.type() + " and id: " + key.id(),
+					e);
+		}
+	}
+
+	private RecordKey createKey(RecordWrite write) {
+		return new RecordKey(write.type(), write.id());
+	}
+
+	private RecordWrite coalesce(RecordWrite earlier, RecordWrite later) {
+		if (earlier.action() == Action.CREATE) {
+			return coalesceWithPendingCreate(later);
+		}
+		if (earlier.action() == Action.DELETE && later.action() == Action.CREATE) {
+			return later.withAction(Action.UPDATE);
+		}
+		return later;
+	}
+
+	private RecordWrite coalesceWithPendingCreate(RecordWrite later) {
+		if (later.action() == Action.DELETE) {
+			return null;
+		}
+		return later.withAction(Action.CREATE);
+	}
+
+	/**
+	 * writeThrough writes any pending write to the record with the specified type and id to the
+	 * database and then calls writeToDatabase, so that a write that must be checked against the
+	 * database, such as an update using an expected version, is done after all earlier writes to
+	 * the record and is not overwritten by a write flushed later.
+	 * <p>
+	 * No writes are flushed and no writes are enqueued while writeThrough runs. If the pending
+	 * write fails, it is put back in the queue and writeToDatabase is not called.
+	 * 
+	 * @param type
+	 *            A String with the type of the record to write
+	 * @param id
+	 *            A String with the id of the record to write
+	 * @param writeToDatabase
+	 *            A Runnable that writes the record to the database, and then in memory
+	 */
+	public void writeThrough(String type, String id, Runnable writeToDatabase) {
+		flushLock.lock();
+		pendingLock.lock();
+		try {
+			writePendingWriteForRecord(new RecordKey(type, id));
+			writeToDatabase.run();
+		} finally {
+			pendingLock.unlock();
+			flushLock.unlock();
+		}
+	}
+
+	private void writePendingWriteForRecord(RecordKey key) {
+		RecordWrite pendingWrite = pendingWrites.remove(key);
+		if (pendingWrite == null) {
+			return;
+		}
+		roomForMoreWrites.signalAll();
+		try {
+			pendingWrite.applyTo(database);
+			failedAttempts.remove(key);
+		} catch (RuntimeException e) {
+			pendingWrites.put(key, pendingWrite);
+			throw e;
+		}
+	}
+
+	/**
+	 * flush writes the writes that are pending when the flush starts to the database, batchSize
+	 * writes in each transaction. If a transaction fails are the writes in it retried one by one.
+	 * Writes that still fail are put back in the queue to be retried at the next flush, or moved to
+	 * the dead letters if they can never succeed or have failed maxAttempts times.
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			flushWritesPendingAtStart();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void flushWritesPendingAtStart() {
+		int remaining = getNumberOfPendingWrites();
+		while (remaining > 0) {
+			List<RecordWrite> batch = takeBatchOfMaxSize(Math.min(batchSize, remaining));
+			remaining -= batch.size();
+			writeBatch(batch);
+		}
+	}
+
+	private List<RecordWrite> takeBatchOfMaxSize(int maxSize) {
+		pendingLock.lock();
+		try {
+			List<RecordWrite> batch = removeFromPending(maxSize);
+			roomForMoreWrites.signalAll();
+			return batch;
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	private List<RecordWrite> removeFromPending(int maxSize) {
+		List<RecordWrite> batch = new ArrayList<>(maxSize);
+		Iterator<RecordWrite> iterator = pendingWrites.values().iterator();
+		while (iterator.hasNext() && batch.size() < maxSize) {
+			batch.add(iterator.next());
+			iterator.remove();
+		}
+		return batch;
+	}
+
+	private void writeBatch(List<RecordWrite> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			database.writeInOneTransaction(batch);
+		} catch (Exception e) {
+			log.logWarnUsingMessage(MessageFormat.format(
+					"Writing {0} records in one transaction failed, retrying them one by one.",
+					batch.size()));
+			writeOneByOne(batch);
+		}
+	}
+
+	private void writeOneByOne(List<RecordWrite> batch) {
+		for (RecordWrite write : batch) {
+			writeOrPutBackInQueue(write);
+		}
+	}
+
+	private void writeOrPutBackInQueue(RecordWrite write) {
+		try {
+			write.applyTo(database);
+			resetFailedAttempts(write);
+		} catch (RecordConflictException | RecordNotFoundException e) {
+			moveToDeadLetters(write, e);
+		} catch (Exception e) {
+			putBackInQueueOrMoveToDeadLetters(write, e);
+		}
+	}
+
+	private void resetFailedAttempts(RecordWrite write) {
+		pendingLock.lock();
+		try {
+			failedAttempts.remove(createKey(write));
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	private void moveToDeadLetters(RecordWrite write, Exception e) {
+		pendingLock.lock();
+		try {
+			failedAttempts.remove(createKey(write));
+			addToDeadLetters(write);
+			possiblyTellDeadLetterListener(write);
+		} finally {
+			pendingLock.unlock();
+		}
+		logWriteFailure(write, "moving it to dead letters", e);
+	}
+
+	private void addToDeadLetters(RecordWrite write) {
+		if (deadLetters.size() >= maxDeadLetters) {
+			RecordWrite dropped = deadLetters.removeFirst();
+			log.logWarnUsingMessage(MessageFormat.format(
+					"Write behind has more than {0} dead letters, dropping {1} of record with "
+							+ "type: {2} and id: {3}.",
+					String.valueOf(maxDeadLetters), dropped.action(), dropped.type(),
+					dropped.id()));
+		}
+		deadLetters.addLast(write);
+	}
+
+	private void possiblyTellDeadLetterListener(RecordWrite write) {
+		if (pendingWrites.containsKey(createKey(write))) {
+			return;
+		}
+		try {
+			deadLetterListener.accept(write);
+		} catch (Exception e) {
+			log.logErrorUsingMessageAndException(MessageFormat.format(
+					"Dead letter listener failed for record with type: {0} and id: {1}.",
+					write.type(), write.id()), e);
+		}
+	}
+
+	private void logWriteFailure(RecordWrite write, String handling, Exception e) {
+		log.logErrorUsingMessageAndException(MessageFormat.format(
+				"Write behind failed when {0} record with type: {1} and id: {2}, {3}.",
+				write.action(), write.type(), write.id(), handling), e);
+	}
+
+	private void putBackInQueueOrMoveToDeadLetters(RecordWrite write, Exception e) {
+		if (increaseFailedAttempts(write) >= maxAttempts) {
+			moveToDeadLetters(write, e);
+			return;
+		}
+		putBackInQueue(write);
+		logWriteFailure(write, "keeping it for retry", e);
+	}
+
+	private int increaseFailedAttempts(RecordWrite write) {
+		pendingLock.lock();
+		try {
+			return failedAttempts.merge(createKey(write), 1, Integer::sum);
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	private void putBackInQueue(RecordWrite failedWrite) {
+		pendingLock.lock();
+		try {
+			pendingWrites.merge(createKey(failedWrite), failedWrite,
+					(newer, failed) -> coalesce(failed, newer));
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * shutdown stops the background flusher and writes all pending writes to the database. Writes
+	 * that still can not be written are logged as errors so that they can be handled manually.
+	 */
+	public void shutdown() {
+		stopFlusher();
+		flush();
+		logWritesThatCouldNotBeWritten();
+	}
+
+	private void stopFlusher() {
+		if (flusher != null) {
+			flusher.shutdown();
+			awaitFlusherTermination();
+		}
+	}
+
+	private void awaitFlusherTermination() {
+		try {
+			flusher.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void logWritesThatCouldNotBeWritten() {
+		pendingLock.lock();
+		try {
+			for (RecordWrite write : pendingWrites.values()) {
+				log.logFatalUsingMessage(MessageFormat.format(
+						"Write behind could not write {0} of record with type: {1} and id: {2} "
+								+ "to database before shutdown.",
+						write.action(), write.type(), write.id()));
+			}
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	public int getNumberOfPendingWrites() {
+		pendingLock.lock();
+		try {
+			return pendingWrites.size();
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * getDeadLetters returns the writes that have been given up on and not yet drained, in the
+	 * order they were given up on. The writes are not written to the database by the queue, they
+	 * must be handled manually.
+	 * 
+	 * @return A List with the RecordWrites that could not be written to the database
+	 */
+	public List<RecordWrite> getDeadLetters() {
+		pendingLock.lock();
+		try {
+			return List.copyOf(deadLetters);
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * drainDeadLetters returns the writes that have been given up on, as
+	 * {@link #getDeadLetters()}, and removes them from the queue.
+	 * 
+	 * @return A List with the RecordWrites that could not be written to the database
+	 */
+	public List<RecordWrite> drainDeadLetters() {
+		pendingLock.lock();
+		try {
+			List<RecordWrite> drained = List.copyOf(deadLetters);
+			deadLetters.clear();
+			return drained;
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+
+	SqlRecordStorage onlyForTestGetDatabase() {
+		return database;
+	}
+
+	int onlyForTestGetMaxPendingWrites() {
+		return maxPendingWrites;
+	}
+
+	int onlyForTestGetBatchSize() {
+		return batchSize;
+	}
+
+	int onlyForTestGetMaxAttempts() {
+		return maxAttempts;
+	}
+
+	long onlyForTestGetMaxEnqueueWaitMillis() {
+		return maxEnqueueWaitMillis;
+	}
+
+	void onlyForTestSetMaxDeadLetters(int maxDeadLetters) {
+		this.maxDeadLetters = maxDeadLetters;
+	}
+
+	Consumer<RecordWrite> onlyForTestGetDeadLetterListener() {
+		return deadLetterListener;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * BoundedPool keeps objects that are expensive to create, such as a Deflater, so that they can be
+ * reused between calls from any thread, including virtual threads.
+ * <p>
+ * {@link #borrow()} returns an idle object, or a new one from factory if no object is idle, so a
+ * caller never waits for another. {@link #giveBack(Object)} keeps the object for the next caller
+ * unless maxIdle objects are already idle, in which case the object is passed to discarder, that
+ * releases any resources the object holds. The pool thereby holds at most maxIdle objects, no
+ * matter how many threads have used it.
+ */
+final class BoundedPool<T> {
+	static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors();
+	private final Supplier<T> factory;
+	private final Consumer<T> discarder;
+	private final BlockingQueue<T> idle;
+
+	static <T> BoundedPool<T> usingFactoryAndDiscarderAndMaxIdle(Supplier<T> factory,
+			Consumer<T> discarder, int maxIdle) {
+		return new BoundedPool<>(factory, discarder, maxIdle);
+	}
+
+	private BoundedPool(Supplier<T> factory, Consumer<T> discarder, int maxIdle) {
+		this.factory = factory;
+		this.discarder = discarder;
+		this.idle = new ArrayBlockingQueue<>(maxIdle);
+	}
+
+	T borrow() {
+		T object = idle.poll();
+		return object != null ? object : factory.get();
+	}
+
+	void giveBack(T object) {
+		if (!idle.offer(object)) {
+			discarder.accept(object);
+		}
+	}
+
+	int onlyForTestGetNumberOfIdle() {
+		return idle.size();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.converter.DataToJsonConverter;
+import se.uu.ub.cora.data.converter.DataToJsonConverterFactory;
+import se.uu.ub.cora.data.converter.DataToJsonConverterProvider;
+import se.uu.ub.cora.sqlstorage.metrics.JsonConversionTime;
+import se.uu.ub.cora.sqlstorage.metrics.StorageLayer;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.StorageOperation;
+
+/**
+ * ConverterPool keeps the converter factories used by {@link DatabaseRecordStorage}, so that a
+ * factory is not created through {@link DataToJsonConverterProvider} for every converted record.
+ * <p>
+ * The factories are not guaranteed to be threadsafe, so each conversion borrows a factory from a
+ * {@link BoundedPool}, creating a new one only if no factory is idle, and gives it back when done.
+ * This reuses factories also when records are converted on virtual threads.
+ * <p>
+ * Each conversion is recorded in storageMetrics as {@link StorageOperation#TO_JSON} in the layer
+ * {@link StorageLayer#JSON_CONVERSION}, and the time is added to {@link JsonConversionTime}.
+ */
+final class ConverterPool {
+	private final BoundedPool<DataToJsonConverterFactory> dataToJsonConverterFactories = BoundedPool
+			.usingFactoryAndDiscarderAndMaxIdle(
+					DataToJsonConverterProvider::createImplementingFactory, factory -> {
+					}, BoundedPool.DEFAULT_MAX_IDLE);
+	private final StorageMetrics storageMetrics;
+
+	ConverterPool() {
+		this(StorageMetrics.noMetrics());
+	}
+
+	ConverterPool(StorageMetrics storageMetrics) {
+		this.storageMetrics = storageMetrics;
+	}
+
+	String convertToJson(DataGroup dataGroup) {
+		long start = System.nanoTime();
+		try {
+			return convertUsingPooledFactory(dataGroup);
+		} catch (RuntimeException e) {
+			storageMetrics.recordError(StorageLayer.JSON_CONVERSION, StorageOperation.TO_JSON,
+					StorageMetrics.ALL_TYPES);
+			throw e;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			JsonConversionTime.addOnCurrentThread(nanos);
+			storageMetrics.recordLatency(StorageLayer.JSON_CONVERSION, StorageOperation.TO_JSON,
+					StorageMetrics.ALL_TYPES, nanos);
+		}
+	}
+
+	private String convertUsingPooledFactory(DataGroup dataGroup) {
+		DataToJsonConverterFactory factory = dataToJsonConverterFactories.borrow();
+		try {
+			DataToJsonConverter dataToJsonConverter = factory.factorUsingConvertible(dataGroup);
+			return dataToJsonConverter.toJson();
+		} finally {
+			dataToJsonConverterFactories.giveBack(factory);
+		}
+	}
+
+	StorageMetrics onlyForTestGetStorageMetrics() {
+		return storageMetrics;
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataAttribute;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.DataRecordLink;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * DataGroupBinaryCodec encodes a DataGroup into a compact binary form and decodes it back into
+ * data objects, without going through json text or a json tree.
+ * <p>
+ * The encoded form starts with a version byte followed by the top group. Each child is written as
+ * a tag byte telling if it is a group, an atomic or a record link, followed by its nameInData,
+ * repeatId, attributes and then its children, value or linked type and id. Lengths and counts are
+ * written as varints. Names, attribute names and linked record types are interned per encoded
+ * group, the first occurrence is written as text and later occurrences as a reference to it.
+ * <p>
+ * Only groups, atomics and record links with no other children than linkedRecordType and
+ * linkedRecordId can be encoded, {@link #canEncode(DataGroup)} tells if a DataGroup can be encoded
+ * without losing any data.
+ * <p>
+ * This class is threadsafe, encoder buffers are borrowed from a {@link BoundedPool} and reused
+ * between calls.
+ */
+public final class DataGroupBinaryCodec {
+	private static final byte VERSION = 1;
+	private static final byte TAG_GROUP = 1;
+	private static final byte TAG_ATOMIC = 2;
+	private static final byte TAG_RECORD_LINK = 3;
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+	private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+	private static final BoundedPool<Encoder> ENCODERS = BoundedPool
+			.usingFactoryAndDiscarderAndMaxIdle(Encoder::new, encoder -> {
+			}, BoundedPool.DEFAULT_MAX_IDLE);
+
+	private DataGroupBinaryCodec() {
+		// only static methods
+	}
+
+	/**
+	 * canEncode returns true if all children of the dataGroup can be encoded without losing any
+	 * data. Resource links and other children that are not groups, atomics or record links can not
+	 * be encoded, neither can record links with other children than linkedRecordType and
+	 * linkedRecordId.
+	 */
+	public static boolean canEncode(DataGroup dataGroup) {
+		for (DataChild child : dataGroup.getChildren()) {
+			if (!canEncodeChild(child)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean canEncodeChild(DataChild child) {
+		if (child instanceof DataRecordLink recordLink) {
+			return hasOnlyLinkedRecordTypeAndId(recordLink);
+		}
+		if (child instanceof DataGroup group) {
+			return canEncode(group);
+		}
+		return child instanceof DataAtomic;
+	}
+
+	private static boolean hasOnlyLinkedRecordTypeAndId(DataRecordLink recordLink) {
+		if (!(recordLink instanceof DataGroup linkAsGroup)) {
+			return true;
+		}
+		List<DataChild> children = linkAsGroup.getChildren();
+		return children.size() == 2 && isLinkedRecordTypeOrId(children.get(0))
+				&& isLinkedRecordTypeOrId(children.get(1));
+	}
+
+	private static boolean isLinkedRecordTypeOrId(DataChild child) {
+		String nameInData = child.getNameInData();
+		return child instanceof DataAtomic && !child.hasRepeatId() && !child.hasAttributes()
+				&& (LINKED_RECORD_TYPE.equals(nameInData) || LINKED_RECORD_ID.equals(nameInData));
+	}
+
+	/**
+	 * encode returns the binary form of the dataGroup. Record links are encoded with only their
+	 * linked record type and id, use {@link #canEncode(DataGroup)} to check that no data is lost.
+	 * 
+	 * @throws StorageException
+	 *             if the dataGroup contains a child that can not be encoded
+	 */
+	public static byte[] encode(DataGroup dataGroup) {
+		Encoder encoder = ENCODERS.borrow();
+		try {
+			encoder.writeByte(VERSION);
+			encoder.writeChild(dataGroup);
+			return encoder.toByteArray();
+		} finally {
+			encoder.reset();
+			ENCODERS.giveBack(encoder);
+		}
+	}
+
+	/**
+	 * decode returns a DataGroup created from data encoded by {@link #encode(DataGroup)}.
+	 * 
+	 * @throws StorageException
+	 *             if the data has an unknown version or is corrupt
+	 */
+	public static DataGroup decode(byte[] encoded) {
+		return decode(encoded, encoded.length);
+	}
+
+	/**
+	 * decode returns a DataGroup created from the first length bytes of encoded, making it possible
+	 * to decode from a buffer that is reused between calls.
+	 */
+	static DataGroup decode(byte[] encoded, int length) {
+		Decoder decoder = new Decoder(encoded, length);
+		return decoder.tryToDecode();
+	}
+
+	private static final class Encoder {
+		private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+		private int position = 0;
+		private Map<String, Integer> names = new HashMap<>();
+
+		void reset() {
+			position = 0;
+			names.clear();
+			if (buffer.length > MAX_KEPT_BUFFER_SIZE) {
+				buffer = new byte[INITIAL_BUFFER_SIZE];
+			}
+		}
+
+		void writeChild(DataChild child) {
+			if (child instanceof DataRecordLink recordLink) {
+				writeRecordLink(recordLink);
+			} else if (child instanceof DataGroup group) {
+				writeGroup(group);
+			} else if (child instanceof DataAtomic atomic) {
+				writeAtomic(atomic);
+			} else {
+				throw StorageException.withMessage(MessageFormat.format(
+						"Can not encode data child of class: {0}.", child.getClass().getName()));
+			}
+		}
+
+		private void writeRecordLink(DataRecordLink recordLink) {
+			writeByte(TAG_RECORD_LINK);
+			writeNameRepeatIdAndAttributes(recordLink);
+			writeName(recordLink.getLinkedRecordType());
+			writeString(recordLink.getLinkedRecordId());
+		}
+
+		private void writeGroup(DataGroup group) {
+			writeByte(TAG_GROUP);
+			writeNameRepeatIdAndAttributes(group);
+			List<DataChild> children = group.getChildren();
+			writeVarInt(children.size());
+			for (DataChild child : children) {
+				writeChild(child);
+			}
+		}
+
+		private void writeAtomic(DataAtomic atomic) {
+			writeByte(TAG_ATOMIC);
+			writeNameRepeatIdAndAttributes(atomic);
+			writeString(atomic.getValue());
+		}
+
+		private void writeNameRepeatIdAndAttributes(DataChild child) {
+			writeName(child.getNameInData());
+			writeRepeatId(child);
+			writeAttributes(child);
+		}
+
+		private void writeRepeatId(DataChild child) {
+			if (child.hasRepeatId()) {
+				writeVarInt(1);
+				writeString(child.getRepeatId());
+			} else {
+				writeVarInt(0);
+			}
+		}
+
+		private void writeAttributes(DataChild child) {
+			if (!child.hasAttributes()) {
+				writeVarInt(0);
+				return;
+			}
+			Collection<DataAttribute> attributes = child.getAttributes();
+			writeVarInt(attributes.size());
+			for (DataAttribute attribute : attributes) {
+				writeName(attribute.getNameInData());
+				writeString(attribute.getValue());
+			}
+		}
+
+		private void writeName(String name) {
+			Integer reference = names.get(name);
+			if (reference != null) {
+				writeVarInt(reference + 1);
+				return;
+			}
+			names.put(name, names.size());
+			writeVarInt(0);
+			writeString(name);
+		}
+
+		private void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+		}
+
+		private void writeVarInt(int value) {
+			ensureCapacity(5);
+			int remaining = value;
+			while ((remaining & ~0x7F) != 0) {
+				buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			buffer[position++] = (byte) remaining;
+		}
+
+		void writeByte(byte value) {
+			ensureCapacity(1);
+			buffer[position++] = value;
+		}
+
+		private void ensureCapacity(int needed) {
+			if (position + needed > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + needed));
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+	}
+
+	private static final class Decoder {
+		private byte[] encoded;
+		private int length;
+		private int position = 0;
+		private List<String> names = new ArrayList<>();
+
+		Decoder(byte[] encoded, int length) {
+			this.encoded = encoded;
+			this.length = length;
+		}
+
+		DataGroup tryToDecode() {
+			try {
+				readVersion();
+				return readTopGroup();
+			} catch (IndexOutOfBoundsException e) {
+				throw StorageException.withMessageAndException("Binary encoded data is corrupt.",
+						e);
+			}
+		}
+
+		private void readVersion() {
+			byte version = readByte();
+			if (version != VERSION) {
+				throw StorageException.withMessage(MessageFormat
+						.format("Unknown version of binary encoded data: {0}.", version));
+			}
+		}
+
+		private DataGroup readTopGroup() {
+			DataChild child = readChild();
+			if (!(child instanceof DataGroup) || position != length) {
+				throw StorageException.withMessage("Binary encoded data is corrupt.");
+			}
+			return (DataGroup) child;
+		}
+
+		private DataChild readChild() {
+			byte tag = readByte();
+			if (tag == TAG_GROUP) {
+				return readGroup();
+			}
+			if (tag == TAG_ATOMIC) {
+				return readAtomic();
+			}
+			if (tag == TAG_RECORD_LINK) {
+				return readRecordLink();
+			}
+			throw StorageException.withMessage("Binary encoded data is corrupt.");
+		}
+
+		private DataGroup readGroup() {
+			DataGroup group = DataProvider.createGroupUsingNameInData(readName());
+			readRepeatIdAndAttributes(group);
+			int numberOfChildren = readVarInt();
+			for (int i = 0; i < numberOfChildren; i++) {
+				group.addChild(readChild());
+			}
+			return group;
+		}
+
+		private DataAtomic readAtomic() {
+			String nameInData = readName();
+			String repeatId = readRepeatId();
+			List<String> attributes = readAttributes();
+			DataAtomic atomic = DataProvider.createAtomicUsingNameInDataAndValue(nameInData,
+					readString());
+			setRepeatIdAndAttributes(atomic, repeatId, attributes);
+			return atomic;
+		}
+
+		private DataRecordLink readRecordLink() {
+			String nameInData = readName();
+			String repeatId = readRepeatId();
+			List<String> attributes = readAttributes();
+			DataRecordLink recordLink = DataProvider.createRecordLinkUsingNameInDataAndTypeAndId(
+					nameInData, readName(), readString());
+			setRepeatIdAndAttributes(recordLink, repeatId, attributes);
+			return recordLink;
+		}
+
+		private void readRepeatIdAndAttributes(DataChild child) {
+			setRepeatIdAndAttributes(child, readRepeatId(), readAttributes());
+		}
+
+		private String readRepeatId() {
+			return readVarInt() == 0 ? null : readString();
+		}
+
+		private List<String> readAttributes() {
+			int numberOfAttributes = readVarInt();
+			List<String> attributes = new ArrayList<>(numberOfAttributes * 2);
+			for (int i = 0; i < numberOfAttributes; i++) {
+				attributes.add(readName());
+				attributes.add(readString());
+			}
+			return attributes;
+		}
+
+		private void setRepeatIdAndAttributes(DataChild child, String repeatId,
+				List<String> attributes) {
+			if (repeatId != null) {
+				child.setRepeatId(repeatId);
+			}
+			for (int i = 0; i < attributes.size(); i += 2) {
+				child.addAttributeByIdWithValue(attributes.get(i), attributes.get(i + 1));
+			}
+		}
+
+		private String readName() {
+			int reference = readVarInt();
+			if (reference != 0) {
+				return names.get(reference - 1);
+			}
+			String name = readString();
+			names.add(name);
+			return name;
+		}
+
+		private String readString() {
+			int stringLength = readVarInt();
+			if (stringLength > length - position) {
+				throw new IndexOutOfBoundsException(stringLength);
+			}
+			String value = new String(encoded, position, stringLength, StandardCharsets.UTF_8);
+			position += stringLength;
+			return value;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte current;
+			do {
+				current = readByte();
+				value |= (current & 0x7F) << shift;
+				shift += 7;
+			} while ((current & 0x80) != 0 && shift < 35);
+			return value;
+		}
+
+		private byte readByte() {
+			if (position >= length) {
+				throw new IndexOutOfBoundsException(position);
+			}
+			return encoded[position++];
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021, 2022, 2023 Uppsala University Library
+ * Copyright 2021, 2022, 2023, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -21,36 +21,42 @@ package se.uu.ub.cora.sqlstorage.internal;
 import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
 
 import org.postgresql.util.PGobject;
 
+import se.uu.ub.cora.data.DataChild;
 import se.uu.ub.cora.data.DataGroup;
 import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.DataRecordGroup;
 import se.uu.ub.cora.data.collected.Link;
 import se.uu.ub.cora.data.collected.StorageTerm;
-import se.uu.ub.cora.data.converter.DataToJsonConverter;
-import se.uu.ub.cora.data.converter.DataToJsonConverterFactory;
-import se.uu.ub.cora.data.converter.DataToJsonConverterProvider;
-import se.uu.ub.cora.data.converter.JsonToDataConverter;
-import se.uu.ub.cora.data.converter.JsonToDataConverterProvider;
 import se.uu.ub.cora.json.parser.JsonParser;
-import se.uu.ub.cora.json.parser.JsonValue;
+import se.uu.ub.cora.sqldatabase.DatabaseFacade;
 import se.uu.ub.cora.sqldatabase.Row;
-import se.uu.ub.cora.sqldatabase.SqlConflictException;
 import se.uu.ub.cora.sqldatabase.SqlDataException;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
 import se.uu.ub.cora.sqldatabase.SqlNotFoundException;
-import se.uu.ub.cora.sqldatabase.table.TableFacade;
-import se.uu.ub.cora.sqldatabase.table.TableQuery;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
 import se.uu.ub.cora.storage.Condition;
 import se.uu.ub.cora.storage.Filter;
-import se.uu.ub.cora.storage.Part;
 import se.uu.ub.cora.storage.RecordConflictException;
 import se.uu.ub.cora.storage.RecordNotFoundException;
 import se.uu.ub.cora.storage.RecordStorage;
@@ -66,312 +72,631 @@ import se.uu.ub.cora.storage.StorageReadResult;
  * <p>
  * This implementation of RecordStorage is threadsafe.
  */
-public class DatabaseRecordStorage implements RecordStorage {
-	private static final String TABLE_RECORD = "record";
-	private static final String VIEW_RECORDSTORAGETERM = "recordstorageterm";
-	private static final String TABLE_LINK = "link";
-
+public class DatabaseRecordStorage implements SqlRecordStorage {
 	private static final String FROMTYPE_COLUMN = "fromtype";
 	private static final String FROMID_COLUMN = "fromid";
-	private static final String TOTYPE_COLUMN = "totype";
-	private static final String TOID_COLUMN = "toid";
 
 	private static final String TYPE_COLUMN = "type";
 	private static final String ID_COLUMN = "id";
-	private static final String RECORD_DATA_COLUMN = "data";
-	private static final String DATA_DIVIDER_COLUMN = "datadivider";
+	private static final String DEPTH_COLUMN = "depth";
+	private static final String COMPRESSED_DATA_COLUMN = "compresseddata";
+	private static final String VERSION_COLUMN = "version";
+	private static final String PROJECTION_NAME_COLUMN = "name";
+	private static final String PROJECTION_PATH_COLUMN = "path";
+	private static final String SELECT_RECORD_SQL = "select * from record"
+			+ " where type = ? and id = ?";
+	private static final String SELECT_RECORD_FOR_TYPES_SQL = "select * from record"
+			+ " where type = any(?) and id = ?";
+	private static final String SELECT_VERSION_SQL = "select version from record"
+			+ " where type = ? and id = ?";
+	private static final String UPSERT_RECORD_SQL = "insert into record"
+			+ " (type, id, datadivider, data) values (?, ?, ?, ?) on conflict (type, id)"
+			+ " do update set datadivider = excluded.datadivider, data = excluded.data";
+	private static final String UPSERT_COMPRESSED_RECORD_SQL = "insert into record"
+			+ " (type, id, datadivider, data, compresseddata) values (?, ?, ?, ?, ?)"
+			+ " on conflict (type, id) do update set datadivider = excluded.datadivider,"
+			+ " data = excluded.data, compresseddata = excluded.compresseddata";
+	private static final String INSERT_RECORD_SQL = "insert into record"
+			+ " (type, id, datadivider, data) values (?, ?, ?, ?) on conflict (type, id)"
+			+ " do nothing";
+	private static final String INSERT_COMPRESSED_RECORD_SQL = "insert into record"
+			+ " (type, id, datadivider, data, compresseddata) values (?, ?, ?, ?, ?)"
+			+ " on conflict (type, id) do nothing";
+	private static final String UPDATE_RECORD_SQL = "update record set datadivider = ?,"
+			+ " data = ? where type = ? and id = ?";
+	private static final String UPDATE_COMPRESSED_RECORD_SQL = "update record set"
+			+ " datadivider = ?, data = ?, compresseddata = ? where type = ? and id = ?";
+	private static final String UPDATE_RECORD_WITH_VERSION_SQL = "update record set"
+			+ " datadivider = ?, data = ? where type = ? and id = ? and version = ?";
+	private static final String UPDATE_COMPRESSED_RECORD_WITH_VERSION_SQL = "update record set"
+			+ " datadivider = ?, data = ?, compresseddata = ? where type = ? and id = ?"
+			+ " and version = ?";
+	private static final String SAVEPOINT_SQL = "savepoint recordwrite";
+	private static final String RELEASE_SAVEPOINT_SQL = "release savepoint recordwrite";
+	private static final String ROLLBACK_TO_SAVEPOINT_SQL = "rollback to savepoint recordwrite";
+	private static final String DELETE_STORAGETERMS_SQL = "delete from storageterm"
+			+ " where recordtype = ? and recordid = ?";
+	private static final String DELETE_LINKS_SQL = "delete from link"
+			+ " where fromtype = ? and fromid = ?";
+	private static final String INSERT_STORAGETERMS_SQL = "insert into storageterm"
+			+ " (recordtype, recordid, storagetermid, value, storagekey) values ";
+	private static final String INSERT_LINKS_SQL = "insert into link"
+			+ " (fromtype, fromid, totype, toid) values ";
+	private static final String DELETE_RECORD_SQL = "with"
+			+ " deletedstorageterms as (delete from storageterm"
+			+ " where recordtype = ? and recordid = ?),"
+			+ " deletedlinks as (delete from link where fromtype = ? and fromid = ?)"
+			+ " delete from record where type = ? and id = ?";
+	private static final String DELETE_RECORDS_SQL = "with"
+			+ " deletedstorageterms as (delete from storageterm"
+			+ " where recordtype = ? and recordid = any(?)),"
+			+ " deletedlinks as (delete from link where fromtype = ? and fromid = any(?))"
+			+ " delete from record where type = ? and id = any(?) returning id";
+	private static final String DELETE_ALL_RECORDS_OF_TYPE_SQL = "with"
+			+ " deletedstorageterms as (delete from storageterm where recordtype = ?),"
+			+ " deletedlinks as (delete from link where fromtype = ?)"
+			+ " delete from record where type = ? returning id";
+	private static final String RECORD_EXISTS_SQL = "select exists(select 1 from record"
+			+ " where type = any(?) and id = ?) as recordexists";
+	private static final String RECORD_EXISTS_COLUMN = "recordexists";
+	private static final String COUNT_COLUMN = "count";
+	private static final String SELECT_LINKS_TO_RECORD_SQL = "select fromtype, fromid from link"
+			+ " where totype = ? and toid = ?";
+	private static final String LINKS_EXIST_SQL = "select 1 from link"
+			+ " where totype = ? and toid = ? limit 2";
+	private static final String COUNT_LINKS_TO_RECORD_SQL = "select count(*) as numberoflinks"
+			+ " from link where totype = ? and toid = ?";
+	private static final String READ_LIST_OPERATION = "readList";
+	private static final String COUNT_OPERATION = "getTotalNumberOfRecordsForTypes";
+	private static final String QUERY_PLAN_COLUMN = "QUERY PLAN";
 	private SqlDatabaseFactory sqlDatabaseFactory;
 	private JsonParser jsonParser;
+	private RecordDataType recordDataType;
+	private RecordDataCompressor recordDataCompressor;
+	private RecordJsonConverter recordJsonConverter;
+	private ConverterPool converterPool;
+	private SlowOperationLog slowOperationLog;
+	private QueryTemplateCache queryTemplates;
 
 	public DatabaseRecordStorage(SqlDatabaseFactory sqlDatabaseFactory, JsonParser jsonParser) {
+		this(sqlDatabaseFactory, jsonParser, DatabaseRecordStorageOptions.defaults());
+	}
+
+	/**
+	 * Creates a DatabaseRecordStorage using the parts set in options, see
+	 * {@link DatabaseRecordStorageOptions}.
+	 */
+	public DatabaseRecordStorage(SqlDatabaseFactory sqlDatabaseFactory, JsonParser jsonParser,
+			DatabaseRecordStorageOptions options) {
 		this.sqlDatabaseFactory = sqlDatabaseFactory;
 		this.jsonParser = jsonParser;
+		recordDataType = options.recordDataType();
+		recordDataCompressor = options.recordDataCompressor();
+		recordJsonConverter = options.recordJsonConverterOrParsingUsing(jsonParser);
+		converterPool = new ConverterPool(options.storageMetrics());
+		slowOperationLog = options.slowOperationLog();
+		queryTemplates = QueryTemplateCache
+				.usingReadCompressedData(recordDataCompressor.isEnabled());
 	}
 
 	@Override
 	public DataGroup read(List<String> types, String id) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return readAndConvertData(types, id, tableFacade);
-		} catch (SqlNotFoundException e) {
-			throw RecordNotFoundException.withMessageAndException(MessageFormat
-					.format("No record found for recordType(s): {0}, with id: {1}.", types, id), e);
-		} catch (SqlDataException e) {
-			throw StorageException.withMessageAndException(MessageFormat.format(
-					"Read did not generate a single result for recordType(s): {0}, with id: {1}.",
-					types, id), e);
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			Row readRow = readOneRecordRow(databaseFacade, SELECT_RECORD_FOR_TYPES_SQL,
+					List.of(types.toArray(new String[0]), id), types, id);
+			return convertRowToDataGroup(readRow);
 		}
 	}
 
 	@Override
 	public DataRecordGroup read(String type, String id) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			Row readRow = readFromDatabase(type, id, tableFacade);
-			return convertRowToDataRecordGroup(readRow);
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return readUsingDatabaseFacade(type, id, databaseFacade);
+		}
+	}
+
+	private DataRecordGroup readUsingDatabaseFacade(String type, String id,
+			DatabaseFacade databaseFacade) {
+		Row readRow = readOneRecordRow(databaseFacade, SELECT_RECORD_SQL, List.of(type, id), type,
+				id);
+		return convertRowToDataRecordGroup(readRow);
+	}
+
+	private Row readOneRecordRow(DatabaseFacade databaseFacade, String sql, List<Object> values,
+			Object types, String id) {
+		try {
+			return databaseFacade.readOneRowOrFailUsingSqlAndValues(sql, values);
 		} catch (SqlNotFoundException e) {
 			throw RecordNotFoundException.withMessageAndException(MessageFormat
-					.format("No record found for recordType(s): {0}, with id: {1}.", type, id), e);
+					.format("No record found for recordType(s): {0}, with id: {1}.", types, id), e);
 		} catch (SqlDataException e) {
 			throw StorageException.withMessageAndException(MessageFormat.format(
 					"Read did not generate a single result for recordType(s): {0}, with id: {1}.",
-					type, id), e);
+					types, id), e);
 		}
 	}
 
 	private DataRecordGroup convertRowToDataRecordGroup(Row readRow) {
-		String jsonRecord = (String) readRow.getValueByColumn(RECORD_DATA_COLUMN);
-		JsonValue jsonValue = jsonParser.parseString(jsonRecord);
-		JsonToDataConverter jsonToDataConverter = JsonToDataConverterProvider
-				.getConverterUsingJsonObject(jsonValue);
-		DataGroup dataGroup = (DataGroup) jsonToDataConverter.toInstance();
+		DataGroup dataGroup = convertRowToDataGroup(readRow);
 		return DataProvider.createRecordGroupFromDataGroup(dataGroup);
 	}
 
-	private DataGroup readAndConvertData(List<String> types, String id, TableFacade tableFacade) {
-		Row readRow = readFromDatabase(types, id, tableFacade);
-		return convertRowToDataGroup(readRow);
+	private DataGroup convertRowToDataGroup(Row readRow) {
+		return RecordDataCompressor.readDataGroupFromRow(readRow, recordJsonConverter::convert);
 	}
 
-	private Row readFromDatabase(String type, String id, TableFacade tableFacade) {
-		TableQuery tableQuery = assembleReadOneQuery(type, id);
-		return tableFacade.readOneRowForQuery(tableQuery);
+	@Override
+	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		writeInTransaction(
+				RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider));
 	}
 
-	private Row readFromDatabase(List<String> types, String id, TableFacade tableFacade) {
-		TableQuery tableQuery = assembleReadOneQuery(types, id);
-		return tableFacade.readOneRowForQuery(tableQuery);
+	private void writeInTransaction(RecordWrite write) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			writeEachInTransaction(List.of(write), databaseFacade);
+		} catch (RecordConflictException | RecordNotFoundException e) {
+			throw e;
+		} catch (Exception e) {
+			throw createStorageExceptionUsingAction(write.type(), write.id(),
+					describeAction(write), e);
+		}
 	}
 
-	private TableQuery assembleReadOneQuery(String type, String id) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addCondition(TYPE_COLUMN, type);
-		tableQuery.addCondition(ID_COLUMN, id);
-		return tableQuery;
+	private void writeEachInTransaction(List<RecordWrite> writes, DatabaseFacade databaseFacade)
+			throws SQLException {
+		databaseFacade.startTransaction();
+		try {
+			for (RecordWrite write : writes) {
+				writeUsingDatabaseFacade(write, databaseFacade);
+			}
+			databaseFacade.endTransaction();
+		} catch (Exception e) {
+			databaseFacade.rollback();
+			throw e;
+		}
 	}
 
-	private TableQuery assembleReadOneQuery(List<String> types, String id) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addCondition(TYPE_COLUMN, types);
-		tableQuery.addCondition(ID_COLUMN, id);
-		return tableQuery;
+	private StorageException createStorageExceptionUsingAction(String type, String id,
+			String action, Exception exception) {
+		return StorageException.withMessageAndException(MessageFormat.format(
+				"Storage exception when {0} record with recordType: {1} and id: {2}.", action, type,
+				id), exception);
 	}
 
-	private DataGroup convertRowToDataGroup(Row readRow) {
-		String jsonRecord = (String) readRow.getValueByColumn(RECORD_DATA_COLUMN);
-		JsonValue jsonValue = jsonParser.parseString(jsonRecord);
-		JsonToDataConverter jsonToDataConverter = JsonToDataConverterProvider
-				.getConverterUsingJsonObject(jsonValue);
-		return (DataGroup) jsonToDataConverter.toInstance();
+	@Override
+	public void deleteByTypeAndId(String type, String id) {
+		int deletedRows = 0;
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			deletedRows = databaseFacade.executeSqlWithValues(DELETE_RECORD_SQL,
+					List.of(type, id, type, id, type, id));
+		} catch (Exception e) {
+			throw createStorageExceptionUsingAction(type, id, "deleting", e);
+		}
+		throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, deletedRows, "deleting");
 	}
 
 	@Override
-	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
-			Set<Link> links, String dataDivider) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			tryToCreate(type, id, dataRecord, storageTerms, links, dataDivider, tableFacade);
-		} catch (SqlConflictException e) {
-			throw RecordConflictException.withMessageAndException(MessageFormat.format(
-					"Record with type: {0}, and id: {1} already exists in storage.", type, id), e);
+	public List<String> deleteByTypeAndIds(String type, List<String> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String[] idArray = ids.toArray(new String[0]);
+		List<Object> values = List.of(type, idArray, type, idArray, type, idArray);
+		return deleteUsingSqlAndValuesReturningIds(DELETE_RECORDS_SQL, values, type);
+	}
+
+	private List<String> deleteUsingSqlAndValuesReturningIds(String sql, List<Object> values,
+			String type) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> deletedRows = databaseFacade.readUsingSqlAndValues(sql, values);
+			return readIdsFromRows(deletedRows);
 		} catch (Exception e) {
-			throw createStorageExceptionUsingAction(type, id, "creating", e);
+			throw StorageException.withMessageAndException(MessageFormat.format(
+					"Storage exception when deleting records with recordType: {0}.", type), e);
 		}
 	}
 
-	private void tryToCreate(String type, String id, DataGroup dataRecord,
-			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
-			TableFacade tableFacade) throws SQLException {
-		tableFacade.startTransaction();
-		createCreateQueryForRecordAndAddItToTableFacade(type, id, dataRecord, dataDivider,
-				tableFacade);
-		createCreateQueriesForStorageTermsAndAddThemToTableFacade(type, id, storageTerms,
-				tableFacade);
-		createCreateQueriesForLinksAndAddThemToTableFacade(type, id, links, tableFacade);
-		tableFacade.endTransaction();
+	private List<String> readIdsFromRows(List<Row> rows) {
+		List<String> ids = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			ids.add((String) row.getValueByColumn(ID_COLUMN));
+		}
+		return ids;
 	}
 
-	private void createCreateQueryForRecordAndAddItToTableFacade(String type, String id,
-			DataGroup dataRecord, String dataDivider, TableFacade tableFacade) throws SQLException {
-		String dataRecordJson = convertDataGroupToJsonString(dataRecord);
-		TableQuery tableQuery = assembleCreateQuery(type, id, dataDivider, dataRecordJson);
-		tableFacade.insertRowUsingQuery(tableQuery);
+	@Override
+	public List<String> deleteAllOfType(String type) {
+		return deleteUsingSqlAndValuesReturningIds(DELETE_ALL_RECORDS_OF_TYPE_SQL,
+				List.of(type, type, type), type);
 	}
 
-	private void createCreateQueriesForStorageTermsAndAddThemToTableFacade(String type, String id,
-			Set<StorageTerm> storageTerms, TableFacade tableFacade) {
-		for (StorageTerm storageTerm : storageTerms) {
-			insertRowForStorageTerm(type, id, tableFacade, storageTerm);
+	@Override
+	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		writeInTransaction(
+				RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links, dataDivider));
+	}
+
+	private void throwRecordNotFoundExceptionIfAffectedRowsIsZero(String type, String id,
+			int affectedRows, String storageAction) {
+		if (affectedRows == 0) {
+			throw RecordNotFoundException.withMessage(MessageFormat.format(
+					"Record not found when {0} record with recordType: {1} and id: {2}.",
+					storageAction, type, id));
 		}
 	}
 
-	private void insertRowForStorageTerm(String type, String id, TableFacade tableFacade,
-			StorageTerm storageTerm) {
-		TableQuery storageTermsQuery = sqlDatabaseFactory.factorTableQuery("storageterm");
-		addParametersForStorageTerm(type, id, storageTerm, storageTermsQuery);
-		tableFacade.insertRowUsingQuery(storageTermsQuery);
+	@Override
+	public void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion) {
+		RecordWrite write = RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		int updatedRows = 0;
+		boolean recordExists = true;
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			updatedRows = tryToUpdateUsingExpectedVersion(write, expectedVersion, databaseFacade);
+			recordExists = updatedRows > 0
+					|| recordExistsUsingDatabaseFacade(List.of(type), id, databaseFacade);
+		} catch (Exception e) {
+			throw createStorageExceptionUsingAction(type, id, "updating", e);
+		}
+		throwConflictOrNotFoundIfAffectedRowsIsZero(type, id, expectedVersion, updatedRows,
+				recordExists);
 	}
 
-	private void addParametersForStorageTerm(String type, String id, StorageTerm storageTerm,
-			TableQuery storageTermsQuery) {
-		storageTermsQuery.addParameter("recordtype", type);
-		storageTermsQuery.addParameter("recordid", id);
-		storageTermsQuery.addParameter("storagetermid", storageTerm.storageTermId());
-		storageTermsQuery.addParameter("value", storageTerm.value());
-		storageTermsQuery.addParameter("storagekey", storageTerm.storageKey());
+	private int tryToUpdateUsingExpectedVersion(RecordWrite write, long expectedVersion,
+			DatabaseFacade databaseFacade) throws SQLException {
+		databaseFacade.startTransaction();
+		try {
+			int updatedRows = updateRecordUsingExpectedVersion(write, expectedVersion,
+					databaseFacade);
+			if (updatedRows == 0) {
+				databaseFacade.rollback();
+				return updatedRows;
+			}
+			replaceStorageTermsAndLinks(write, databaseFacade);
+			databaseFacade.endTransaction();
+			return updatedRows;
+		} catch (Exception e) {
+			databaseFacade.rollback();
+			throw e;
+		}
 	}
 
-	private void createCreateQueriesForLinksAndAddThemToTableFacade(String type, String id,
-			Set<Link> links, TableFacade tableFacade) {
-		for (Link link : links) {
-			insertRowForLink(type, id, tableFacade, link);
+	private int updateRecordUsingExpectedVersion(RecordWrite write, long expectedVersion,
+			DatabaseFacade databaseFacade) throws SQLException {
+		List<Object> values = createUpdateRecordValues(write);
+		values.add(expectedVersion);
+		return databaseFacade.executeSqlWithValues(chooseSqlForCompression(
+				UPDATE_RECORD_WITH_VERSION_SQL, UPDATE_COMPRESSED_RECORD_WITH_VERSION_SQL), values);
+	}
+
+	private void throwConflictOrNotFoundIfAffectedRowsIsZero(String type, String id,
+			long expectedVersion, int updatedRows, boolean recordExists) {
+		if (updatedRows == 0 && recordExists) {
+			throw RecordConflictException.withMessage(MessageFormat.format(
+					"Record with type: {0}, and id: {1} has been updated since version: {2} "
+							+ "was read.",
+					type, id, String.valueOf(expectedVersion)));
 		}
+		throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, updatedRows, "updating");
 	}
 
-	private void insertRowForLink(String type, String id, TableFacade tableFacade, Link link) {
-		TableQuery linkQuery = sqlDatabaseFactory.factorTableQuery(TABLE_LINK);
-		addParemetersForLink(type, id, link, linkQuery);
-		tableFacade.insertRowUsingQuery(linkQuery);
+	@Override
+	public void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			tryToUpsert(type, id, dataRecord, storageTerms, links, dataDivider, databaseFacade);
+		} catch (Exception e) {
+			throw createStorageExceptionUsingAction(type, id, "upserting", e);
+		}
 	}
 
-	private void addParemetersForLink(String type, String id, Link link, TableQuery linkQuery) {
-		linkQuery.addParameter(FROMTYPE_COLUMN, type);
-		linkQuery.addParameter(FROMID_COLUMN, id);
-		linkQuery.addParameter(TOTYPE_COLUMN, link.type());
-		linkQuery.addParameter(TOID_COLUMN, link.id());
+	private void tryToUpsert(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			DatabaseFacade databaseFacade) throws SQLException {
+		databaseFacade.startTransaction();
+		try {
+			upsertRecordStorageTermsAndLinks(type, id, dataRecord, storageTerms, links,
+					dataDivider, databaseFacade);
+			databaseFacade.endTransaction();
+		} catch (Exception e) {
+			databaseFacade.rollback();
+			throw e;
+		}
 	}
 
-	private StorageException createStorageExceptionUsingAction(String type, String id,
-			String action, Exception exception) {
-		return StorageException.withMessageAndException(MessageFormat.format(
-				"Storage exception when {0} record with recordType: {1} and id: {2}.", action, type,
-				id), exception);
+	private void upsertRecordStorageTermsAndLinks(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			DatabaseFacade databaseFacade) throws SQLException {
+		upsertRecord(type, id, dataRecord, dataDivider, databaseFacade);
+		databaseFacade.executeSqlWithValues(DELETE_STORAGETERMS_SQL, List.of(type, id));
+		databaseFacade.executeSqlWithValues(DELETE_LINKS_SQL, List.of(type, id));
+		possiblyInsertStorageTermsInOneStatement(type, id, storageTerms, databaseFacade);
+		possiblyInsertLinksInOneStatement(type, id, links, databaseFacade);
 	}
 
-	private String convertDataGroupToJsonString(DataGroup dataGroup) {
-		DataToJsonConverter dataToJsonConverter = createDataGroupToJsonConvert(dataGroup);
-		return dataToJsonConverter.toJson();
+	private void upsertRecord(String type, String id, DataGroup dataRecord, String dataDivider,
+			DatabaseFacade databaseFacade) throws SQLException {
+		List<Object> values = new ArrayList<>(List.of(type, id, dataDivider));
+		values.addAll(createRecordDataValues(type, dataRecord));
+		databaseFacade.executeSqlWithValues(
+				chooseSqlForCompression(UPSERT_RECORD_SQL, UPSERT_COMPRESSED_RECORD_SQL), values);
 	}
 
-	private DataToJsonConverter createDataGroupToJsonConvert(DataGroup dataGroup) {
-		DataToJsonConverterFactory converterFactory = DataToJsonConverterProvider
-				.createImplementingFactory();
-		return converterFactory.factorUsingConvertible(dataGroup);
+	private String chooseSqlForCompression(String sql, String compressedSql) {
+		return recordDataCompressor.isEnabled() ? compressedSql : sql;
 	}
 
-	private TableQuery assembleCreateQuery(String type, String id, String dataDivider,
-			String dataRecord) throws SQLException {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addParameter(TYPE_COLUMN, type);
-		tableQuery.addParameter(ID_COLUMN, id);
-		tableQuery.addParameter(DATA_DIVIDER_COLUMN, dataDivider);
-		PGobject jsonObject = createJsonObject(dataRecord);
-		tableQuery.addParameter(RECORD_DATA_COLUMN, jsonObject);
-		return tableQuery;
+	private List<Object> createRecordDataValues(String type, DataGroup dataRecord)
+			throws SQLException {
+		if (!recordDataCompressor.isEnabled()) {
+			return List.of(createJsonObject(dataRecord));
+		}
+		Optional<byte[]> compressed = recordDataCompressor.possiblyCompress(type, dataRecord,
+				converterPool::convertToJson);
+		if (compressed.isPresent()) {
+			return Arrays.asList(null, compressed.get());
+		}
+		return Arrays.asList(createJsonObject(dataRecord), null);
+	}
+
+	private void possiblyInsertStorageTermsInOneStatement(String type, String id,
+			Set<StorageTerm> storageTerms, DatabaseFacade databaseFacade) {
+		if (storageTerms.isEmpty()) {
+			return;
+		}
+		List<Object> values = new ArrayList<>(storageTerms.size() * 5);
+		for (StorageTerm storageTerm : storageTerms) {
+			values.addAll(List.of(type, id, storageTerm.storageTermId(), storageTerm.value(),
+					storageTerm.storageKey()));
+		}
+		databaseFacade.executeSqlWithValues(
+				INSERT_STORAGETERMS_SQL + createValuesPlaceholders(storageTerms.size(), 5),
+				values);
+	}
+
+	private void possiblyInsertLinksInOneStatement(String type, String id, Set<Link> links,
+			DatabaseFacade databaseFacade) {
+		if (links.isEmpty()) {
+			return;
+		}
+		List<Object> values = new ArrayList<>(links.size() * 4);
+		for (Link link : links) {
+			values.addAll(List.of(type, id, link.type(), link.id()));
+		}
+		databaseFacade.executeSqlWithValues(
+				INSERT_LINKS_SQL + createValuesPlaceholders(links.size(), 4), values);
+	}
+
+	private String createValuesPlaceholders(int numberOfRows, int numberOfColumns) {
+		String row = "(" + String.join(", ", Collections.nCopies(numberOfColumns, "?")) + ")";
+		return String.join(", ", Collections.nCopies(numberOfRows, row));
 	}
 
 	@Override
-	public void deleteByTypeAndId(String type, String id) {
-		int deletedRows = 0;
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			tableFacade.startTransaction();
-			createDeleteQueryForStorageTermAndAddItToTableFacade(type, id, tableFacade);
-			createDeleteQueryForLinkAndAddItToTableFacade(type, id, tableFacade);
-			deletedRows = createDeleteQueryForRecordAndAddItToTableFacade(type, id, tableFacade);
-			tableFacade.endTransaction();
-		} catch (Exception e) {
-			throw createStorageExceptionUsingAction(type, id, "deleting", e);
+	public long readVersion(String type, String id) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> rows = databaseFacade.readUsingSqlAndValues(SELECT_VERSION_SQL,
+					List.of(type, id));
+			throwRecordNotFoundIfNoRows(type, id, rows);
+			return readVersionFromRow(rows.get(0));
+		} catch (SqlDatabaseException e) {
+			throw createStorageExceptionUsingAction(type, id, "reading version of", e);
 		}
-		throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, deletedRows, "deleting");
 	}
 
-	private void createDeleteQueryForStorageTermAndAddItToTableFacade(String type, String id,
-			TableFacade tableFacade) {
-		TableQuery storageTermQuery = sqlDatabaseFactory.factorTableQuery("storageterm");
-		storageTermQuery.addCondition("recordtype", type);
-		storageTermQuery.addCondition("recordid", id);
-		tableFacade.deleteRowsForQuery(storageTermQuery);
+	private void throwRecordNotFoundIfNoRows(String type, String id, List<Row> rows) {
+		if (rows.isEmpty()) {
+			throw RecordNotFoundException.withMessage(MessageFormat
+					.format("No record found for recordType(s): {0}, with id: {1}.", type, id));
+		}
 	}
 
-	private void createDeleteQueryForLinkAndAddItToTableFacade(String type, String id,
-			TableFacade tableFacade) {
-		TableQuery linkQuery = sqlDatabaseFactory.factorTableQuery(TABLE_LINK);
-		linkQuery.addCondition(FROMTYPE_COLUMN, type);
-		linkQuery.addCondition(FROMID_COLUMN, id);
-		tableFacade.deleteRowsForQuery(linkQuery);
+	private long readVersionFromRow(Row row) {
+		return ((Number) row.getValueByColumn(VERSION_COLUMN)).longValue();
 	}
 
-	private int createDeleteQueryForRecordAndAddItToTableFacade(String type, String id,
-			TableFacade tableFacade) {
-		int deletedRows;
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addCondition(TYPE_COLUMN, type);
-		tableQuery.addCondition(ID_COLUMN, id);
-		deletedRows = tableFacade.deleteRowsForQuery(tableQuery);
-		return deletedRows;
+	@Override
+	public VersionedRecordGroup readWithVersion(String type, String id) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			Row readRow = readOneRecordRow(databaseFacade, SELECT_RECORD_SQL, List.of(type, id),
+					type, id);
+			return new VersionedRecordGroup(convertRowToDataRecordGroup(readRow),
+					readVersionFromRow(readRow));
+		}
 	}
 
 	@Override
-	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
-			Set<Link> links, String dataDivider) {
-		int updatedRows = 0;
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			updatedRows = tryToUpdate(type, id, dataRecord, storageTerms, links, dataDivider,
-					tableFacade);
-		} catch (Exception e) {
-			throw createStorageExceptionUsingAction(type, id, "updating", e);
+	public DataGroup readProjection(String type, String id, RecordProjection projection) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> rows = databaseFacade.readUsingSqlAndValues(
+					queryTemplates.getProjectionSql(projection.paths().size()),
+					assembleProjectionValues(type, id, projection));
+			throwRecordNotFoundIfNoRows(type, id, rows);
+			return convertRowToProjection(rows.get(0), projection);
+		} catch (SqlDatabaseException e) {
+			throw createStorageExceptionUsingAction(type, id, "reading projection of", e);
 		}
-		throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, updatedRows, "updating");
 	}
 
-	private int tryToUpdate(String type, String id, DataGroup dataRecord,
-			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
-			TableFacade tableFacade) throws SQLException {
-		tableFacade.startTransaction();
-		createDeleteQueryForStorageTermAndAddItToTableFacade(type, id, tableFacade);
-		createDeleteQueryForLinkAndAddItToTableFacade(type, id, tableFacade);
-		createCreateQueriesForStorageTermsAndAddThemToTableFacade(type, id, storageTerms,
-				tableFacade);
-		createCreateQueriesForLinksAndAddThemToTableFacade(type, id, links, tableFacade);
-		int updatedRows = updateRecordData(type, id, dataRecord, dataDivider, tableFacade);
-		tableFacade.endTransaction();
-		return updatedRows;
-	}
-
-	private int updateRecordData(String type, String id, DataGroup dataRecord, String dataDivider,
-			TableFacade tableFacade) throws SQLException {
-		int updatedRows;
-		String dataRecordJson = convertDataGroupToJsonString(dataRecord);
-		TableQuery tableQuery = assembleUpdateQuery(type, id, dataDivider, dataRecordJson);
-		updatedRows = tableFacade.updateRowsUsingQuery(tableQuery);
-		return updatedRows;
+	private List<Object> assembleProjectionValues(String type, String id,
+			RecordProjection projection) {
+		List<Object> values = new ArrayList<>();
+		for (int i = 0; i < projection.paths().size(); i++) {
+			values.add(projection.toJsonPath(i));
+		}
+		values.add(type);
+		values.add(id);
+		return values;
 	}
 
-	private void throwRecordNotFoundExceptionIfAffectedRowsIsZero(String type, String id,
-			int affectedRows, String storageAction) {
-		if (affectedRows == 0) {
-			throw RecordNotFoundException.withMessage(MessageFormat.format(
-					"Record not found when {0} record with recordType: {1} and id: {2}.",
-					storageAction, type, id));
+	private DataGroup convertRowToProjection(Row row, RecordProjection projection) {
+		if (rowHasCompressedData(row)) {
+			byte[] compressed = (byte[]) row.getValueByColumn(COMPRESSED_DATA_COLUMN);
+			return projection.project(
+					RecordDataCompressor.decompress(compressed, recordJsonConverter::convert));
+		}
+		List<List<DataChild>> childrenForPaths = new ArrayList<>();
+		for (int i = 0; i < projection.paths().size(); i++) {
+			Object pathValue = row.getValueByColumn(PROJECTION_PATH_COLUMN + i);
+			childrenForPaths.add(convertJsonArrayToChildren(pathValue));
 		}
+		String name = (String) row.getValueByColumn(PROJECTION_NAME_COLUMN);
+		return projection.assembleUsingNameAndChildrenForPaths(name, childrenForPaths);
 	}
 
-	private TableQuery assembleUpdateQuery(String type, String id, String dataDivider,
-			String dataRecord) throws SQLException {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addParameter(DATA_DIVIDER_COLUMN, dataDivider);
-		PGobject jsonObject = createJsonObject(dataRecord);
+	private boolean rowHasCompressedData(Row row) {
+		return recordDataCompressor.isEnabled()
+				&& row.getValueByColumn(COMPRESSED_DATA_COLUMN) != null;
+	}
 
-		tableQuery.addParameter(RECORD_DATA_COLUMN, jsonObject);
-		tableQuery.addCondition(TYPE_COLUMN, type);
-		tableQuery.addCondition(ID_COLUMN, id);
-		return tableQuery;
+	private List<DataChild> convertJsonArrayToChildren(Object columnValue) {
+		String jsonArray = RecordDataType.readJsonFromColumnValue(columnValue);
+		if ("[]".equals(jsonArray)) {
+			return Collections.emptyList();
+		}
+		String jsonGroup = "{\"name\":\"projection\",\"children\":" + jsonArray + "}";
+		return recordJsonConverter.convert(jsonGroup).getChildren();
 	}
 
-	private PGobject createJsonObject(String dataRecord) throws SQLException {
+	private PGobject createJsonObject(DataGroup dataRecord) throws SQLException {
 		PGobject jsonObject = new PGobject();
-		jsonObject.setType("json");
-		jsonObject.setValue(dataRecord);
+		jsonObject.setType(recordDataType.typeName());
+		jsonObject.setValue(converterPool.convertToJson(dataRecord));
 		return jsonObject;
 	}
 
+	@Override
+	public void writeInOneTransaction(List<RecordWrite> writes) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			writeEachInTransaction(writes, databaseFacade);
+		} catch (Exception e) {
+			throw StorageException.withMessageAndException(MessageFormat.format(
+					"Storage exception when writing {0} records in one transaction.",
+					writes.size()), e);
+		}
+	}
+
+	@Override
+	public List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return tryToWriteInOneTransactionUsingSavepoints(writes, databaseFacade);
+		} catch (Exception e) {
+			throw StorageException.withMessageAndException(MessageFormat.format(
+					"Storage exception when writing {0} records in one transaction.",
+					writes.size()), e);
+		}
+	}
+
+	private List<Optional<RuntimeException>> tryToWriteInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes, DatabaseFacade databaseFacade) {
+		databaseFacade.startTransaction();
+		try {
+			List<Optional<RuntimeException>> outcomes = new ArrayList<>(writes.size());
+			for (RecordWrite write : writes) {
+				outcomes.add(writeUsingSavepoint(write, databaseFacade));
+			}
+			databaseFacade.endTransaction();
+			return outcomes;
+		} catch (Exception e) {
+			databaseFacade.rollback();
+			throw e;
+		}
+	}
+
+	private Optional<RuntimeException> writeUsingSavepoint(RecordWrite write,
+			DatabaseFacade databaseFacade) {
+		databaseFacade.executeSqlWithValues(SAVEPOINT_SQL, Collections.emptyList());
+		try {
+			writeUsingDatabaseFacade(write, databaseFacade);
+			databaseFacade.executeSqlWithValues(RELEASE_SAVEPOINT_SQL, Collections.emptyList());
+			return Optional.empty();
+		} catch (RecordConflictException | RecordNotFoundException e) {
+			databaseFacade.executeSqlWithValues(ROLLBACK_TO_SAVEPOINT_SQL, Collections.emptyList());
+			return Optional.of(e);
+		} catch (Exception e) {
+			databaseFacade.executeSqlWithValues(ROLLBACK_TO_SAVEPOINT_SQL, Collections.emptyList());
+			return Optional.of(createStorageExceptionUsingAction(write.type(), write.id(),
+					describeAction(write), e));
+		}
+	}
+
+	private String describeAction(RecordWrite write) {
+		return switch (write.action()) {
+		case CREATE -> "creating";
+		case UPDATE -> "updating";
+		case DELETE -> "deleting";
+		};
+	}
+
+	private void writeUsingDatabaseFacade(RecordWrite write, DatabaseFacade databaseFacade)
+			throws SQLException {
+		String type = write.type();
+		String id = write.id();
+		switch (write.action()) {
+		case CREATE -> {
+			insertRecordOrThrowConflict(write, databaseFacade);
+			insertStorageTermsAndLinks(write, databaseFacade);
+		}
+		case UPDATE -> {
+			int updatedRows = updateRecordUsingDatabaseFacade(write, databaseFacade);
+			throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, updatedRows, "updating");
+			replaceStorageTermsAndLinks(write, databaseFacade);
+		}
+		case DELETE -> {
+			int deletedRows = databaseFacade.executeSqlWithValues(DELETE_RECORD_SQL,
+					List.of(type, id, type, id, type, id));
+			throwRecordNotFoundExceptionIfAffectedRowsIsZero(type, id, deletedRows, "deleting");
+		}
+		}
+	}
+
+	private void insertRecordOrThrowConflict(RecordWrite write, DatabaseFacade databaseFacade)
+			throws SQLException {
+		List<Object> values = new ArrayList<>(
+				List.of(write.type(), write.id(), write.dataDivider()));
+		values.addAll(createRecordDataValues(write.type(), write.dataRecord()));
+		int insertedRows = databaseFacade.executeSqlWithValues(
+				chooseSqlForCompression(INSERT_RECORD_SQL, INSERT_COMPRESSED_RECORD_SQL), values);
+		if (insertedRows == 0) {
+			throw RecordConflictException.withMessage(MessageFormat.format(
+					"Record with type: {0}, and id: {1} already exists in storage.",
+					write.type(), write.id()));
+		}
+	}
+
+	private int updateRecordUsingDatabaseFacade(RecordWrite write, DatabaseFacade databaseFacade)
+			throws SQLException {
+		return databaseFacade.executeSqlWithValues(
+				chooseSqlForCompression(UPDATE_RECORD_SQL, UPDATE_COMPRESSED_RECORD_SQL),
+				createUpdateRecordValues(write));
+	}
+
+	private List<Object> createUpdateRecordValues(RecordWrite write) throws SQLException {
+		List<Object> values = new ArrayList<>(List.of(write.dataDivider()));
+		values.addAll(createRecordDataValues(write.type(), write.dataRecord()));
+		values.addAll(List.of(write.type(), write.id()));
+		return values;
+	}
+
+	private void replaceStorageTermsAndLinks(RecordWrite write, DatabaseFacade databaseFacade) {
+		List<Object> typeAndId = List.of(write.type(), write.id());
+		databaseFacade.executeSqlWithValues(DELETE_STORAGETERMS_SQL, typeAndId);
+		databaseFacade.executeSqlWithValues(DELETE_LINKS_SQL, typeAndId);
+		insertStorageTermsAndLinks(write, databaseFacade);
+	}
+
+	private void insertStorageTermsAndLinks(RecordWrite write, DatabaseFacade databaseFacade) {
+		possiblyInsertStorageTermsInOneStatement(write.type(), write.id(), write.storageTerms(),
+				databaseFacade);
+		possiblyInsertLinksInOneStatement(write.type(), write.id(), write.links(),
+				databaseFacade);
+	}
+
 	@Override
 	public StorageReadResult readList(String type, Filter filter) {
 		StorageReadResult readResult = readList(List.of(type), filter);
@@ -387,11 +712,17 @@ public class DatabaseRecordStorage implements RecordStorage {
 
 	@Override
 	public StorageReadResult readList(List<String> types, Filter filter) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return readAndConvertDataList(types, tableFacade, filter);
+		String sql = createReadListSql(filter);
+		List<Object> values = createReadListValues(types, filter);
+		ReadRows readRows;
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			readRows = readRowsAndNumberOfMatches(types, filter, sql, values, databaseFacade);
 		} catch (SqlDatabaseException e) {
 			throw createRecordNotFoundExceptionForType(types, e);
 		}
+		slowOperationLog.logIfSlow(READ_LIST_OPERATION, types, filter, readRows.rows().size(),
+				readRows.elapsedNanos(), () -> readQueryPlan(sql, values));
+		return convertReadRows(readRows);
 	}
 
 	private RecordNotFoundException createRecordNotFoundExceptionForType(List<String> types,
@@ -400,55 +731,68 @@ public class DatabaseRecordStorage implements RecordStorage {
 		return RecordNotFoundException.withMessageAndException(errMsg, e);
 	}
 
-	private StorageReadResult readAndConvertDataList(List<String> types, TableFacade tableFacade,
-			Filter filter) {
-		List<Row> readRows = readRowsFromDatabase(types, tableFacade, filter);
-		long totalNumberOfMatches = readNumberOfRows(types, tableFacade, filter);
-		StorageReadResult readResult = convertRowsToListOfDataGroups(readRows);
-		readResult.totalNumberOfMatches = totalNumberOfMatches;
+	private ReadRows readRowsAndNumberOfMatches(List<String> types, Filter filter, String sql,
+			List<Object> values, DatabaseFacade databaseFacade) {
+		long startTime = System.nanoTime();
+		List<Row> rows = databaseFacade.readUsingSqlAndValues(sql, values);
+		long totalNumberOfMatches = readNumberOfRowsUsingDatabaseFacade(types, filter,
+				databaseFacade);
+		return new ReadRows(rows, totalNumberOfMatches, System.nanoTime() - startTime);
+	}
+
+	private StorageReadResult convertReadRows(ReadRows readRows) {
+		StorageReadResult readResult = convertRowsToListOfDataGroups(readRows.rows());
+		readResult.totalNumberOfMatches = readRows.totalNumberOfMatches();
 		return readResult;
 	}
 
-	private List<Row> readRowsFromDatabase(List<String> types, TableFacade tableFacade,
-			Filter filter) {
-		TableQuery tableQuery = assembleReadRowsQuery(types, filter);
-		return tableFacade.readRowsForQuery(tableQuery);
+	/**
+	 * readQueryPlan reads the query plan of a slow query. It is only called after the connection
+	 * used by the slow operation is closed, so that reading the plan does not hold a second
+	 * connection from the pool.
+	 */
+	private String readQueryPlan(String sql, List<Object> values) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> rows = databaseFacade
+					.readUsingSqlAndValues(slowOperationLog.createExplainSql(sql), values);
+			StringJoiner queryPlan = new StringJoiner("\n");
+			for (Row row : rows) {
+				queryPlan.add(String.valueOf(row.getValueByColumn(QUERY_PLAN_COLUMN)));
+			}
+			return queryPlan.toString();
+		}
 	}
 
-	private TableQuery assembleReadRowsQuery(List<String> types, Filter filter) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(VIEW_RECORDSTORAGETERM);
-		tableQuery.addCondition(TYPE_COLUMN, types);
-		possiblySetFromNoInQueryFromFilter(tableQuery, filter);
-		possiblySetToNoInQueryFromFilter(tableQuery, filter);
-		possiblyAddConditionsForIncludeParts(filter, tableQuery);
-		tableQuery.addOrderByDesc("id");
-		return tableQuery;
+	private String createReadListSql(Filter filter) {
+		return queryTemplates.getReadListSql(countConditions(filter), !filter.fromNoIsDefault(),
+				!filter.toNoIsDefault());
 	}
 
-	private void possiblySetFromNoInQueryFromFilter(TableQuery tableQuery, Filter filter) {
-		if (!filter.fromNoIsDefault()) {
-			tableQuery.setFromNo(filter.fromNo);
-		}
+	private int countConditions(Filter filter) {
+		return filter.hasIncludeParts() ? filter.include.get(0).conditions.size() : 0;
 	}
 
-	private void possiblySetToNoInQueryFromFilter(TableQuery tableQuery, Filter filter) {
+	private List<Object> createReadListValues(List<String> types, Filter filter) {
+		List<Object> values = createCountValues(types, filter);
+		if (!filter.fromNoIsDefault()) {
+			values.add(filter.fromNo - 1);
+		}
 		if (!filter.toNoIsDefault()) {
-			tableQuery.setToNo(filter.toNo);
+			values.add(Math.max(0, filter.toNo - filter.fromNo + 1));
 		}
+		return values;
 	}
 
-	private void possiblyAddConditionsForIncludeParts(Filter filter, TableQuery tableQuery) {
+	private List<Object> createCountValues(List<String> types, Filter filter) {
+		List<Object> values = new ArrayList<>();
+		values.add(types.toArray(new String[0]));
 		if (filter.hasIncludeParts()) {
-			addConditionsForIncludeParts(filter, tableQuery);
-		}
-	}
-
-	private void addConditionsForIncludeParts(Filter filter, TableQuery tableQuery) {
-		Part part0 = filter.include.get(0);
-		for (Condition condition : part0.conditions) {
-			tableQuery.addCondition("storageKey", condition.key());
-			tableQuery.addCondition("value", condition.value());
+			for (Condition condition : filter.include.get(0).conditions) {
+				values.add(condition.key());
+				values.add(condition.value());
+			}
 		}
+		return values;
 	}
 
 	private StorageReadResult convertRowsToListOfDataGroups(List<Row> readRows) {
@@ -467,81 +811,161 @@ public class DatabaseRecordStorage implements RecordStorage {
 
 	@Override
 	public boolean linksExistForRecord(String type, String id) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return tryToDetermineIfLinksExistForRecord(type, id, tableFacade);
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> rows = databaseFacade.readUsingSqlAndValues(LINKS_EXIST_SQL,
+					List.of(type, id));
+			return rows.size() > 1;
 		} catch (Exception e) {
 			throw StorageException.withMessageAndException(MessageFormat.format(
 					"Could not determine if links exist for type: {0} and id: {1}.", type, id), e);
 		}
 	}
 
-	private boolean tryToDetermineIfLinksExistForRecord(String type, String id,
-			TableFacade tableFacade) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_LINK);
-		tableQuery.addCondition(TOTYPE_COLUMN, type);
-		tableQuery.addCondition(TOID_COLUMN, id);
-		return tableFacade.readNumberOfRows(tableQuery) > 1;
-	}
-
 	@Override
 	public Set<Link> getLinksToRecord(String type, String id) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return tryToGetLinksToRecord(type, id, tableFacade);
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			List<Row> rows = databaseFacade.readUsingSqlAndValues(SELECT_LINKS_TO_RECORD_SQL,
+					List.of(type, id));
+			return transformRowsToLinks(rows);
 		} catch (Exception e) {
 			throw StorageException.withMessageAndException(MessageFormat
 					.format("Could not get links for type: {0} and id: {1}.", type, id), e);
 		}
 	}
 
-	private Set<Link> tryToGetLinksToRecord(String type, String id, TableFacade tableFacade) {
-		List<Row> readRowsForQuery = findLinksInStorage(tableFacade, type, id);
-		return transformRowsToLinks(readRowsForQuery);
-	}
-
-	private List<Row> findLinksInStorage(TableFacade tableFacade, String type, String id) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_LINK);
-		tableQuery.addCondition(TOTYPE_COLUMN, type);
-		tableQuery.addCondition(TOID_COLUMN, id);
-		return tableFacade.readRowsForQuery(tableQuery);
-	}
-
 	private Set<Link> transformRowsToLinks(List<Row> readRowsForQuery) {
 		Set<Link> result = new LinkedHashSet<>();
 		for (Row row : readRowsForQuery) {
-			String linkType = (String) row.getValueByColumn(FROMTYPE_COLUMN);
-			String linkId = (String) row.getValueByColumn(FROMID_COLUMN);
-			Link link = new Link(linkType, linkId);
-			result.add(link);
+			result.add(createLinkFromRow(row));
 		}
 		return result;
 	}
 
+	private Link createLinkFromRow(Row row) {
+		String linkType = (String) row.getValueByColumn(FROMTYPE_COLUMN);
+		String linkId = (String) row.getValueByColumn(FROMID_COLUMN);
+		return new Link(linkType, linkId);
+	}
+
 	@Override
-	public boolean recordExists(List<String> types, String id) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return tryToCheckIfRecordExistsForTypeAndId(types, id, tableFacade);
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return tryToReadLinksToRecord(databaseFacade, type, id, pageRequest);
 		} catch (SqlDatabaseException e) {
-			throw createRecordNotFoundExceptionForExists(types, id, e);
+			throw StorageException.withMessageAndException(MessageFormat
+					.format("Could not get links for type: {0} and id: {1}.", type, id), e);
 		}
 	}
 
-	private boolean tryToCheckIfRecordExistsForTypeAndId(List<String> types, String id,
-			TableFacade tableFacade) {
-		for (String type : types) {
-			long numberOfRows = readNumberOfRowsFromDatabaseForTypeAndId(type, id, tableFacade);
-			if (numberOfRows > 0) {
-				return true;
-			}
+	private LinkPage tryToReadLinksToRecord(DatabaseFacade databaseFacade, String type, String id,
+			LinkPageRequest pageRequest) {
+		String sql = queryTemplates.getLinksToRecordSql(pageRequest.fromType() != null,
+				pageRequest.cursor() != null);
+		List<Object> values = new ArrayList<>(List.of(type, id));
+		possiblyAddFromType(pageRequest, values);
+		possiblyAddCursor(pageRequest, values);
+		values.add(pageRequest.limit() + 1);
+		List<Row> rows = databaseFacade.readUsingSqlAndValues(sql, values);
+		return createLinkPage(rows, pageRequest.limit());
+	}
+
+	private void possiblyAddFromType(LinkPageRequest pageRequest, List<Object> values) {
+		if (pageRequest.fromType() != null) {
+			values.add(pageRequest.fromType());
+		}
+	}
+
+	private void possiblyAddCursor(LinkPageRequest pageRequest, List<Object> values) {
+		if (pageRequest.cursor() != null) {
+			LinkCursor cursor = LinkCursor.decode(pageRequest.cursor());
+			values.add(cursor.fromType());
+			values.add(cursor.fromId());
+		}
+	}
+
+	private LinkPage createLinkPage(List<Row> rows, int limit) {
+		int numberOfLinks = Math.min(rows.size(), limit);
+		List<Link> links = new ArrayList<>(numberOfLinks);
+		for (Row row : rows.subList(0, numberOfLinks)) {
+			links.add(createLinkFromRow(row));
+		}
+		return new LinkPage(links, createNextCursorIfMoreRows(rows, links, limit));
+	}
+
+	private String createNextCursorIfMoreRows(List<Row> rows, List<Link> links, int limit) {
+		if (rows.size() <= limit) {
+			return null;
+		}
+		Link lastLink = links.get(links.size() - 1);
+		return new LinkCursor(lastLink.type(), lastLink.id()).encode();
+	}
+
+	@Override
+	public long countLinksToRecord(String type, String id) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			Row row = databaseFacade.readOneRowOrFailUsingSqlAndValues(COUNT_LINKS_TO_RECORD_SQL,
+					List.of(type, id));
+			return ((Number) row.getValueByColumn("numberoflinks")).longValue();
+		} catch (SqlDatabaseException e) {
+			throw StorageException.withMessageAndException(MessageFormat
+					.format("Could not count links for type: {0} and id: {1}.", type, id), e);
+		}
+	}
+
+	@Override
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return readReachableRecords(databaseFacade, type, id, traversalRequest);
+		} catch (SqlDatabaseException e) {
+			throw StorageException.withMessageAndException(MessageFormat
+					.format("Could not traverse links for type: {0} and id: {1}.", type, id), e);
+		}
+	}
+
+	private List<ReachableRecord> readReachableRecords(DatabaseFacade databaseFacade,
+			String type, String id, LinkTraversalRequest traversalRequest) {
+		List<Row> rows = databaseFacade.readUsingSqlAndValues(
+				createTraverseLinksSql(traversalRequest),
+				createTraverseLinksValues(type, id, traversalRequest));
+		List<ReachableRecord> reachable = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			reachable.add(new ReachableRecord((String) row.getValueByColumn(TYPE_COLUMN),
+					(String) row.getValueByColumn(ID_COLUMN),
+					((Number) row.getValueByColumn(DEPTH_COLUMN)).intValue()));
 		}
-		return false;
+		return reachable;
 	}
 
-	private long readNumberOfRowsFromDatabaseForTypeAndId(String type, String id,
-			TableFacade tableFacade) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(TABLE_RECORD);
-		tableQuery.addCondition(TYPE_COLUMN, type);
-		tableQuery.addCondition(ID_COLUMN, id);
-		return tableFacade.readNumberOfRows(tableQuery);
+	private String createTraverseLinksSql(LinkTraversalRequest traversalRequest) {
+		return queryTemplates.getTraverseLinksSql(traversalRequest.direction(),
+				!traversalRequest.types().isEmpty());
+	}
+
+	private List<Object> createTraverseLinksValues(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		List<Object> values = new ArrayList<>(List.of(type, id, traversalRequest.maxDepth()));
+		if (!traversalRequest.types().isEmpty()) {
+			values.add(traversalRequest.types().stream().sorted().toArray(String[]::new));
+		}
+		values.addAll(List.of(type, id, traversalRequest.limit()));
+		return values;
+	}
+
+	@Override
+	public boolean recordExists(List<String> types, String id) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return recordExistsUsingDatabaseFacade(types, id, databaseFacade);
+		} catch (SqlDatabaseException e) {
+			throw createRecordNotFoundExceptionForExists(types, id, e);
+		}
+	}
+
+	private boolean recordExistsUsingDatabaseFacade(List<String> types, String id,
+			DatabaseFacade databaseFacade) {
+		Row row = databaseFacade.readOneRowOrFailUsingSqlAndValues(RECORD_EXISTS_SQL,
+				List.of(types.toArray(new String[0]), id));
+		return (boolean) row.getValueByColumn(RECORD_EXISTS_COLUMN);
 	}
 
 	private RecordNotFoundException createRecordNotFoundExceptionForExists(List<String> type,
@@ -552,19 +976,51 @@ public class DatabaseRecordStorage implements RecordStorage {
 
 	@Override
 	public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
-		try (TableFacade tableFacade = sqlDatabaseFactory.factorTableFacade()) {
-			return readNumberOfRows(types, tableFacade, filter);
+		long startTime = System.nanoTime();
+		long numberOfRows;
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			numberOfRows = readNumberOfRowsUsingDatabaseFacade(types, filter, databaseFacade);
 		} catch (SqlDatabaseException e) {
 			throw createRecordNotFoundExceptionForType(types, e);
 		}
+		slowOperationLog.logIfSlow(COUNT_OPERATION, types, filter, numberOfRows,
+				System.nanoTime() - startTime, () -> readQueryPlan(
+						createCountSql(filter), createCountValues(types, filter)));
+		return numberOfRows;
 	}
 
-	private long readNumberOfRows(List<String> types, TableFacade tableFacade, Filter filter) {
-		TableQuery tableQuery = sqlDatabaseFactory.factorTableQuery(VIEW_RECORDSTORAGETERM);
-		tableQuery.addCondition(TYPE_COLUMN, types);
-		possiblyAddConditionsForIncludeParts(filter, tableQuery);
+	private long readNumberOfRowsUsingDatabaseFacade(List<String> types, Filter filter,
+			DatabaseFacade databaseFacade) {
+		Row row = databaseFacade.readOneRowOrFailUsingSqlAndValues(createCountSql(filter),
+				createCountValues(types, filter));
+		return ((Number) row.getValueByColumn(COUNT_COLUMN)).longValue();
+	}
 
-		return tableFacade.readNumberOfRows(tableQuery);
+	private String createCountSql(Filter filter) {
+		return queryTemplates.getCountSql(countConditions(filter));
+	}
+
+	@Override
+	public <T> T runInUnitOfWork(Function<UnitOfWork, T> work) {
+		try (DatabaseFacade databaseFacade = sqlDatabaseFactory.factorDatabaseFacade()) {
+			return runInTransaction(work, databaseFacade);
+		} catch (SqlDatabaseException e) {
+			throw StorageException
+					.withMessageAndException("Storage exception when running unit of work.", e);
+		}
+	}
+
+	private <T> T runInTransaction(Function<UnitOfWork, T> work,
+			DatabaseFacade databaseFacade) {
+		databaseFacade.startTransaction();
+		try {
+			T result = work.apply(new DatabaseFacadeUnitOfWork(databaseFacade));
+			databaseFacade.endTransaction();
+			return result;
+		} catch (RuntimeException e) {
+			databaseFacade.rollback();
+			throw e;
+		}
 	}
 
 	public SqlDatabaseFactory onlyForTestGetSqlDatabaseFactory() {
@@ -572,8 +1028,113 @@ public class DatabaseRecordStorage implements RecordStorage {
 		return sqlDatabaseFactory;
 	}
 
+	public RecordDataType onlyForTestGetRecordDataType() {
+		return recordDataType;
+	}
+
+	public RecordDataCompressor onlyForTestGetRecordDataCompressor() {
+		return recordDataCompressor;
+	}
+
+	public RecordJsonConverter onlyForTestGetRecordJsonConverter() {
+		return recordJsonConverter;
+	}
+
+	public SlowOperationLog onlyForTestGetSlowOperationLog() {
+		return slowOperationLog;
+	}
+
+	public StorageMetrics onlyForTestGetStorageMetrics() {
+		return converterPool.onlyForTestGetStorageMetrics();
+	}
+
+	QueryTemplateCache onlyForTestGetQueryTemplateCache() {
+		return queryTemplates;
+	}
+
 	public JsonParser onlyForTestGetJsonParser() {
 		// Needed for test
 		return jsonParser;
 	}
+
+	private record ReadRows(List<Row> rows, long totalNumberOfMatches, long elapsedNanos) {
+	}
+
+	private final class DatabaseFacadeUnitOfWork implements UnitOfWork {
+		private final DatabaseFacade databaseFacade;
+
+		private DatabaseFacadeUnitOfWork(DatabaseFacade databaseFacade) {
+			this.databaseFacade = databaseFacade;
+		}
+
+		@Override
+		public DataRecordGroup read(String type, String id) {
+			return readUsingDatabaseFacade(type, id, databaseFacade);
+		}
+
+		@Override
+		public StorageReadResult readList(List<String> types, Filter filter) {
+			try {
+				ReadRows readRows = readRowsAndNumberOfMatches(types, filter,
+						createReadListSql(filter), createReadListValues(types, filter),
+						databaseFacade);
+				slowOperationLog.logIfSlow(READ_LIST_OPERATION, types, filter,
+						readRows.rows().size(), readRows.elapsedNanos());
+				return convertReadRows(readRows);
+			} catch (SqlDatabaseException e) {
+				throw createRecordNotFoundExceptionForType(types, e);
+			}
+		}
+
+		@Override
+		public boolean recordExists(List<String> types, String id) {
+			try {
+				return recordExistsUsingDatabaseFacade(types, id, databaseFacade);
+			} catch (SqlDatabaseException e) {
+				throw createRecordNotFoundExceptionForExists(types, id, e);
+			}
+		}
+
+		@Override
+		public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
+			try {
+				long startTime = System.nanoTime();
+				long numberOfRows = readNumberOfRowsUsingDatabaseFacade(types, filter,
+						databaseFacade);
+				slowOperationLog.logIfSlow(COUNT_OPERATION, types, filter, numberOfRows,
+						System.nanoTime() - startTime);
+				return numberOfRows;
+			} catch (SqlDatabaseException e) {
+				throw createRecordNotFoundExceptionForType(types, e);
+			}
+		}
+
+		@Override
+		public void create(String type, String id, DataGroup dataRecord,
+				Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+			write(RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider));
+		}
+
+		@Override
+		public void update(String type, String id, DataGroup dataRecord,
+				Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+			write(RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links, dataDivider));
+		}
+
+		@Override
+		public void deleteByTypeAndId(String type, String id) {
+			write(RecordWrite.forDelete(type, id));
+		}
+
+		private void write(RecordWrite write) {
+			try {
+				writeUsingDatabaseFacade(write, databaseFacade);
+			} catch (RecordConflictException | RecordNotFoundException e) {
+				throw e;
+			} catch (Exception e) {
+				throw createStorageExceptionUsingAction(write.type(), write.id(),
+						describeAction(write), e);
+			}
+		}
+	}
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.Optional;
+
+import se.uu.ub.cora.json.parser.JsonParser;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+
+/**
+ * DatabaseRecordStorageOptions holds the optional parts of a {@link DatabaseRecordStorage}. The
+ * options from {@link #defaults()} store records uncompressed as json, convert read records using a
+ * {@link ParsingRecordJsonConverter}, record no metrics and log no slow operations. Each with
+ * method returns a copy of the options with one part changed.
+ * <p>
+ * This class is immutable.
+ */
+public final class DatabaseRecordStorageOptions {
+	private static final DatabaseRecordStorageOptions DEFAULTS = new DatabaseRecordStorageOptions(
+			RecordDataType.JSON, RecordDataCompressor.noCompression(), null,
+			StorageMetrics.noMetrics(), SlowOperationLog.noLog());
+
+	private final RecordDataType recordDataType;
+	private final RecordDataCompressor recordDataCompressor;
+	private final RecordJsonConverter recordJsonConverter;
+	private final StorageMetrics storageMetrics;
+	private final SlowOperationLog slowOperationLog;
+
+	public static DatabaseRecordStorageOptions defaults() {
+		return DEFAULTS;
+	}
+
+	private DatabaseRecordStorageOptions(RecordDataType recordDataType,
+			RecordDataCompressor recordDataCompressor, RecordJsonConverter recordJsonConverter,
+			StorageMetrics storageMetrics, SlowOperationLog slowOperationLog) {
+		this.recordDataType = recordDataType;
+		this.recordDataCompressor = recordDataCompressor;
+		this.recordJsonConverter = recordJsonConverter;
+		this.storageMetrics = storageMetrics;
+		this.slowOperationLog = slowOperationLog;
+	}
+
+	/**
+	 * withRecordDataType returns options as these, for a database where the data column in the
+	 * record table has the type recordDataType.
+	 */
+	public DatabaseRecordStorageOptions withRecordDataType(RecordDataType recordDataType) {
+		return new DatabaseRecordStorageOptions(recordDataType, recordDataCompressor,
+				recordJsonConverter, storageMetrics, slowOperationLog);
+	}
+
+	/**
+	 * withRecordDataCompressor returns options as these, where records selected by
+	 * recordDataCompressor are stored compressed in the compresseddata column.
+	 */
+	public DatabaseRecordStorageOptions withRecordDataCompressor(
+			RecordDataCompressor recordDataCompressor) {
+		return new DatabaseRecordStorageOptions(recordDataType, recordDataCompressor,
+				recordJsonConverter, storageMetrics, slowOperationLog);
+	}
+
+	/**
+	 * withRecordJsonConverter returns options as these, that convert the json of read records into
+	 * DataGroups using recordJsonConverter.
+	 */
+	public DatabaseRecordStorageOptions withRecordJsonConverter(
+			RecordJsonConverter recordJsonConverter) {
+		return new DatabaseRecordStorageOptions(recordDataType, recordDataCompressor,
+				recordJsonConverter, storageMetrics, slowOperationLog);
+	}
+
+	/**
+	 * withStorageMetrics returns options as these, that record the time spent converting records
+	 * to json in storageMetrics.
+	 */
+	public DatabaseRecordStorageOptions withStorageMetrics(StorageMetrics storageMetrics) {
+		return new DatabaseRecordStorageOptions(recordDataType, recordDataCompressor,
+				recordJsonConverter, storageMetrics, slowOperationLog);
+	}
+
+	/**
+	 * withSlowOperationLog returns options as these, that log slow calls to readList and
+	 * getTotalNumberOfRecordsForTypes using slowOperationLog.
+	 */
+	public DatabaseRecordStorageOptions withSlowOperationLog(SlowOperationLog slowOperationLog) {
+		return new DatabaseRecordStorageOptions(recordDataType, recordDataCompressor,
+				recordJsonConverter, storageMetrics, slowOperationLog);
+	}
+
+	RecordDataType recordDataType() {
+		return recordDataType;
+	}
+
+	RecordDataCompressor recordDataCompressor() {
+		return recordDataCompressor;
+	}
+
+	/**
+	 * recordJsonConverterOrParsingUsing returns the RecordJsonConverter of these options, or a
+	 * {@link ParsingRecordJsonConverter} using jsonParser if none is set.
+	 */
+	RecordJsonConverter recordJsonConverterOrParsingUsing(JsonParser jsonParser) {
+		return Optional.ofNullable(recordJsonConverter)
+				.orElseGet(() -> ParsingRecordJsonConverter.usingJsonParser(jsonParser));
+	}
+
+	StorageMetrics storageMetrics() {
+		return storageMetrics;
+	}
+
+	SlowOperationLog slowOperationLog() {
+		return slowOperationLog;
+	}
+}
@@ -18,21 +18,26 @@
  */
 package se.uu.ub.cora.sqlstorage.internal;
 
-import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
 
+/**
+ * DatabaseStorageInstance holds the SqlRecordStorage started by a RecordStorageInstanceProvider.
+ * The instance is volatile, so that a provider can check if the storage is started without taking
+ * its start lock.
+ */
 public class DatabaseStorageInstance {
 
-	private static RecordStorage instance;
+	private static volatile SqlRecordStorage instance;
 
 	private DatabaseStorageInstance() {
 		throw new UnsupportedOperationException();
 	}
 
-	public static void setInstance(RecordStorage storage) {
+	public static void setInstance(SqlRecordStorage storage) {
 		instance = storage;
 	}
 
-	public static RecordStorage getInstance() {
+	public static SqlRecordStorage getInstance() {
 		return instance;
 	}
 
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.StorageException;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * GroupCommitRecordStorage is a {@link SqlRecordStorage} that sends create, update and delete to a
+ * {@link GroupCommitWriter} and waits for the outcome, so that writes from concurrent callers are
+ * committed together. Exceptions for a write are thrown to the caller of that write, as they
+ * would have been from the database directly. All other methods are sent to the database.
+ */
+public class GroupCommitRecordStorage implements SqlRecordStorage {
+	private SqlRecordStorage database;
+	private GroupCommitWriter groupCommitWriter;
+
+	public static GroupCommitRecordStorage usingDatabaseAndGroupCommitWriter(
+			SqlRecordStorage database, GroupCommitWriter groupCommitWriter) {
+		return new GroupCommitRecordStorage(database, groupCommitWriter);
+	}
+
+	private GroupCommitRecordStorage(SqlRecordStorage database,
+			GroupCommitWriter groupCommitWriter) {
+		this.database = database;
+		this.groupCommitWriter = groupCommitWriter;
+	}
+
+	@Override
+	public DataGroup read(List<String> types, String id) {
+		return database.read(types, id);
+	}
+
+	@Override
+	public DataRecordGroup read(String type, String id) {
+		return database.read(type, id);
+	}
+
+	@Override
+	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		submitAndWait(
+				RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider));
+	}
+
+	private void submitAndWait(RecordWrite write) {
+		CompletableFuture<Void> result = groupCommitWriter.submit(write);
+		try {
+			result.join();
+		} catch (CompletionException e) {
+			throw unwrapException(e);
+		}
+	}
+
+	private RuntimeException unwrapException(CompletionException e) {
+		if (e.getCause() instanceof RuntimeException runtimeException) {
+			return runtimeException;
+		}
+		return StorageException.withMessageAndException("Group commit failed.", e);
+	}
+
+	@Override
+	public void deleteByTypeAndId(String type, String id) {
+		submitAndWait(RecordWrite.forDelete(type, id));
+	}
+
+	@Override
+	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		submitAndWait(
+				RecordWrite.forUpdate(type, id, dataRecord, storageTerms, links, dataDivider));
+	}
+
+	@Override
+	public StorageReadResult readList(String type, Filter filter) {
+		return database.readList(type, filter);
+	}
+
+	@Override
+	public StorageReadResult readList(List<String> types, Filter filter) {
+		return database.readList(types, filter);
+	}
+
+	@Override
+	public boolean recordExists(List<String> types, String id) {
+		return database.recordExists(types, id);
+	}
+
+	@Override
+	public boolean linksExistForRecord(String type, String id) {
+		return database.linksExistForRecord(type, id);
+	}
+
+	@Override
+	public Set<Link> getLinksToRecord(String type, String id) {
+		return database.getLinksToRecord(type, id);
+	}
+
+	@Override
+	public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
+		return database.getTotalNumberOfRecordsForTypes(types, filter);
+	}
+
+	@Override
+	public void writeInOneTransaction(List<RecordWrite> writes) {
+		database.writeInOneTransaction(writes);
+	}
+
+	@Override
+	public List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes) {
+		return database.writeInOneTransactionUsingSavepoints(writes);
+	}
+
+	@Override
+	public List<String> deleteByTypeAndIds(String type, List<String> ids) {
+		return database.deleteByTypeAndIds(type, ids);
+	}
+
+	@Override
+	public List<String> deleteAllOfType(String type) {
+		return database.deleteAllOfType(type);
+	}
+
+	@Override
+	public void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		database.upsert(type, id, dataRecord, storageTerms, links, dataDivider);
+	}
+
+	@Override
+	public void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion) {
+		database.updateUsingExpectedVersion(type, id, dataRecord, storageTerms, links,
+				dataDivider, expectedVersion);
+	}
+
+	@Override
+	public long readVersion(String type, String id) {
+		return database.readVersion(type, id);
+	}
+
+	@Override
+	public VersionedRecordGroup readWithVersion(String type, String id) {
+		return database.readWithVersion(type, id);
+	}
+
+	@Override
+	public DataGroup readProjection(String type, String id, RecordProjection projection) {
+		return database.readProjection(type, id, projection);
+	}
+
+	@Override
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		return database.readLinksToRecord(type, id, pageRequest);
+	}
+
+	@Override
+	public long countLinksToRecord(String type, String id) {
+		return database.countLinksToRecord(type, id);
+	}
+
+	@Override
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		return database.traverseLinks(type, id, traversalRequest);
+	}
+
+	@Override
+	public <T> T runInUnitOfWork(Function<UnitOfWork, T> work) {
+		return database.runInUnitOfWork(work);
+	}
+
+	public SqlRecordStorage onlyForTestGetDatabase() {
+		return database;
+	}
+
+	public GroupCommitWriter onlyForTestGetGroupCommitWriter() {
+		return groupCommitWriter;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * GroupCommitWriter collects writes from many threads and writes them to the database several in
+ * one transaction, so that concurrent writers share the cost of one commit.
+ * <p>
+ * A background thread waits for a first write, then collects more writes until maxBatchSize
+ * writes are collected or maxWaitMillis has passed since the first write, and writes the collected
+ * writes using {@link SqlRecordStorage#writeInOneTransactionUsingSavepoints(List)}. Each write
+ * gets its own outcome, such as RecordConflictException or RecordNotFoundException, and a failing
+ * write is rolled back to its savepoint without failing the other writes in the batch. If the
+ * transaction itself fails, all writes in the batch fail with that exception.
+ * <p>
+ * How much group commit gains depends on the time a commit takes in the database, and it adds up
+ * to maxWaitMillis of latency to each write. It should be measured using
+ * GroupCommitWriteBenchmark in the benchmark module before it is turned on.
+ * <p>
+ * If the background thread stops, because it is interrupted or fails unexpectedly, the writes
+ * that are not committed are completed exceptionally, as are writes submitted after that.
+ * <p>
+ * This class is threadsafe.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+	private Logger log = LoggerProvider.getLoggerForClass(GroupCommitWriter.class);
+
+	private SqlRecordStorage database;
+	private int maxBatchSize;
+	private long maxWaitMillis;
+	private BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+	private volatile boolean running = true;
+	private volatile boolean committerStopped = false;
+	private Thread committer;
+
+	private record PendingWrite(RecordWrite write, CompletableFuture<Void> result) {
+	}
+
+	public static GroupCommitWriter usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(
+			SqlRecordStorage database, int maxBatchSize, long maxWaitMillis) {
+		GroupCommitWriter writer = new GroupCommitWriter(database, maxBatchSize, maxWaitMillis);
+		writer.startCommitter();
+		return writer;
+	}
+
+	private GroupCommitWriter(SqlRecordStorage database, int maxBatchSize, long maxWaitMillis) {
+		this.database = database;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	private void startCommitter() {
+		committer = new Thread(this::commitUntilClosed, "sqlstorage-group-commit");
+		committer.setDaemon(true);
+		committer.start();
+	}
+
+	/**
+	 * submit adds a write to the next group commit.
+	 * 
+	 * @param write
+	 *            A RecordWrite to write to the database
+	 * @return A CompletableFuture that is completed when the write is committed, or completed
+	 *         exceptionally with the exception from the database if the write failed
+	 */
+	public CompletableFuture<Void> submit(RecordWrite write) {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		if (!running) {
+			result.completeExceptionally(
+					StorageException.withMessage("GroupCommitWriter is closed."));
+			return result;
+		}
+		queue.add(new PendingWrite(write, result));
+		if (committerStopped) {
+			failPendingWrites();
+		}
+		return result;
+	}
+
+	private void commitUntilClosed() {
+		try {
+			commitWhileRunningOrPending();
+		} finally {
+			running = false;
+			committerStopped = true;
+			failPendingWrites();
+		}
+	}
+
+	private void commitWhileRunningOrPending() {
+		while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+			try {
+				collectAndCommitBatch();
+			} catch (Exception e) {
+				log.logErrorUsingMessageAndException("Unexpected error in group commit.", e);
+			}
+		}
+	}
+
+	private void collectAndCommitBatch() {
+		List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+		try {
+			collectBatch(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!batch.isEmpty()) {
+			commitBatch(batch);
+		}
+	}
+
+	private void collectBatch(List<PendingWrite> batch) throws InterruptedException {
+		PendingWrite first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		while (batch.size() < maxBatchSize) {
+			long remaining = deadline - System.nanoTime();
+			PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+					: queue.poll();
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	private void commitBatch(List<PendingWrite> batch) {
+		try {
+			List<Optional<RuntimeException>> outcomes = database
+					.writeInOneTransactionUsingSavepoints(
+							batch.stream().map(PendingWrite::write).toList());
+			completeWithOutcomes(batch, outcomes);
+		} catch (Exception e) {
+			log.logErrorUsingMessageAndException(MessageFormat
+					.format("Group commit of {0} writes failed.", batch.size()), e);
+			batch.forEach(pending -> pending.result().completeExceptionally(e));
+		}
+	}
+
+	private void completeWithOutcomes(List<PendingWrite> batch,
+			List<Optional<RuntimeException>> outcomes) {
+		for (int i = 0; i < batch.size(); i++) {
+			CompletableFuture<Void> result = batch.get(i).result();
+			outcomes.get(i).ifPresentOrElse(result::completeExceptionally,
+					() -> result.complete(null));
+		}
+	}
+
+	/**
+	 * close stops accepting new writes, commits the writes already submitted and stops the
+	 * background thread.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		try {
+			committer.join(TimeUnit.MINUTES.toMillis(1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		failPendingWrites();
+	}
+
+	private void failPendingWrites() {
+		PendingWrite pending;
+		while ((pending = queue.poll()) != null) {
+			pending.result().completeExceptionally(
+					StorageException.withMessage("GroupCommitWriter is closed."));
+		}
+	}
+
+	SqlRecordStorage onlyForTestGetDatabase() {
+		return database;
+	}
+
+	int onlyForTestGetMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	long onlyForTestGetMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	Thread onlyForTestGetCommitter() {
+		return committer;
+	}
+}
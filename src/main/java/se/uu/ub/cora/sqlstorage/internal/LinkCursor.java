@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Base64;
+
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * LinkCursor is the position in a list of links pointing to a record, that is the type and id of
+ * the record the last returned link is from. The cursor is handed out as an opaque string so that
+ * the next page can be read starting after that position.
+ */
+public record LinkCursor(String fromType, String fromId) {
+	private static final String SEPARATOR = "\n";
+
+	public String encode() {
+		String position = fromType + SEPARATOR + fromId;
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * decode creates a LinkCursor from a string created by {@link #encode()}
+	 * 
+	 * @throws StorageException
+	 *             if the cursor can not be decoded
+	 */
+	public static LinkCursor decode(String cursor) {
+		String[] parts = decodeToParts(cursor);
+		if (parts.length != 2) {
+			throw StorageException.withMessage(createInvalidCursorMessage(cursor));
+		}
+		return new LinkCursor(parts[0], parts[1]);
+	}
+
+	private static String[] decodeToParts(String cursor) {
+		try {
+			byte[] position = Base64.getUrlDecoder().decode(cursor);
+			return new String(position, StandardCharsets.UTF_8).split(SEPARATOR, -1);
+		} catch (IllegalArgumentException e) {
+			throw StorageException.withMessageAndException(createInvalidCursorMessage(cursor),
+					e);
+		}
+	}
+
+	private static String createInvalidCursorMessage(String cursor) {
+		return MessageFormat.format("Invalid link cursor: {0}.", cursor);
+	}
+}
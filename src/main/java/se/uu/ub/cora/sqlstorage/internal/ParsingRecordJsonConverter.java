@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.converter.JsonToDataConverter;
+import se.uu.ub.cora.data.converter.JsonToDataConverterProvider;
+import se.uu.ub.cora.json.parser.JsonParser;
+import se.uu.ub.cora.json.parser.JsonValue;
+
+/**
+ * ParsingRecordJsonConverter converts json by parsing it into a JsonValue tree using a JsonParser
+ * and then converting the tree using a {@link JsonToDataConverter}. It handles everything the
+ * json converters in Cora handle.
+ */
+public final class ParsingRecordJsonConverter implements RecordJsonConverter {
+	private JsonParser jsonParser;
+
+	public static ParsingRecordJsonConverter usingJsonParser(JsonParser jsonParser) {
+		return new ParsingRecordJsonConverter(jsonParser);
+	}
+
+	private ParsingRecordJsonConverter(JsonParser jsonParser) {
+		this.jsonParser = jsonParser;
+	}
+
+	@Override
+	public DataGroup convert(String recordJson) {
+		JsonValue jsonValue = jsonParser.parseString(recordJson);
+		JsonToDataConverter jsonToDataConverter = JsonToDataConverterProvider
+				.getConverterUsingJsonObject(jsonValue);
+		return (DataGroup) jsonToDataConverter.toInstance();
+	}
+
+	public JsonParser onlyForTestGetJsonParser() {
+		return jsonParser;
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+
+/**
+ * QueryTemplateCache holds the sql of the queries that DatabaseRecordStorage assembles from a
+ * request, one sql template for each shape of query. A shape is what decides the sql text, such as
+ * the direction of a link traversal and if it is limited to some types, or the number of
+ * conditions of a list filter and if it has a from and to number, while the values of the query
+ * are always sent as parameters. Types are sent as one array parameter, so that the number of
+ * types does not change the sql text.
+ * <p>
+ * Links are ordered by type and id using collate "C", that orders text by code point in a UTF-8
+ * database, so that the order does not depend on the collation of the database and is the same as
+ * the order of the reverse link index in the cache.
+ * <p>
+ * The templates for link pages and link traversals are created when the cache is created, and the
+ * templates for a projection and for a list are created the first time a projection with that
+ * number of paths or a list with that shape is read. As every query of a shape uses the same sql
+ * text, the jdbc driver can reuse the server side prepared statement it keeps for that text on each
+ * pooled connection, instead of parsing and planning the query again.
+ * <p>
+ * This class is threadsafe.
+ */
+final class QueryTemplateCache {
+	static final int MAX_CACHED_PROJECTION_PATHS = 32;
+	static final int MAX_CACHED_LIST_CONDITIONS = 32;
+	private static final String SELECT_LINKS_TO_RECORD_SQL = "select fromtype, fromid from link"
+			+ " where totype = ? and toid = ?";
+	private static final String LINKS_FROM_TYPE_CONDITION = " and fromtype = ?";
+	private static final String LINKS_AFTER_CURSOR_CONDITION = " and (fromtype collate \"C\","
+			+ " fromid collate \"C\") > (?, ?)";
+	private static final String LINKS_ORDER_AND_LIMIT = " order by fromtype collate \"C\","
+			+ " fromid collate \"C\" limit ?";
+	private static final String TRAVERSE_LINKS_SQL = "with recursive reachable (type, id, depth)"
+			+ " as (select ?::text, ?::text, 0 union select l.%1$stype, l.%1$sid, r.depth + 1"
+			+ " from reachable r join link l on l.%2$stype = r.type and l.%2$sid = r.id"
+			+ " where r.depth < ?%3$s)"
+			+ " select type collate \"C\" as type, id collate \"C\" as id, min(depth) as depth"
+			+ " from reachable where depth > 0 and (type, id) <> (?, ?)"
+			+ " group by reachable.type, reachable.id order by depth, type, id limit ?";
+	private static final String TRAVERSE_TYPES_CONDITION = " and l.%stype = any(?)";
+	private static final String SELECT_PROJECTION_SQL = "select data->>'name' as name";
+	private static final String COMPRESSED_DATA_SQL = ", compresseddata";
+	private static final String SELECT_PROJECTION_PATH_SQL = ", jsonb_path_query_array(data::jsonb,"
+			+ " ?::jsonpath) as path";
+	private static final String FROM_RECORD_WHERE_TYPE_AND_ID = " from record"
+			+ " where type = ? and id = ?";
+	private static final String SELECT_LIST_SQL = "select * from recordstorageterm"
+			+ " where type = any(?)";
+	private static final String COUNT_LIST_SQL = "select count(*) as count"
+			+ " from recordstorageterm where type = any(?)";
+	private static final String STORAGE_TERM_CONDITION = " and storagekey = ? and value = ?";
+	private static final String LIST_ORDER = " order by id desc";
+	private static final String LIST_OFFSET = " offset ?";
+	private static final String LIST_LIMIT = " limit ?";
+
+	private final String[] linksToRecordSql = new String[4];
+	private final Map<Direction, String[]> traverseLinksSql = new EnumMap<>(Direction.class);
+	private final Map<Integer, String> projectionSql = new ConcurrentHashMap<>();
+	private final Map<Integer, String> listSql = new ConcurrentHashMap<>();
+	private final Map<Integer, String> countSql = new ConcurrentHashMap<>();
+	private final boolean readCompressedData;
+
+	/**
+	 * usingReadCompressedData creates a QueryTemplateCache where the projection templates also
+	 * read the compressed data column of the record if readCompressedData is true.
+	 */
+	static QueryTemplateCache usingReadCompressedData(boolean readCompressedData) {
+		return new QueryTemplateCache(readCompressedData);
+	}
+
+	private QueryTemplateCache(boolean readCompressedData) {
+		this.readCompressedData = readCompressedData;
+		createLinksToRecordTemplates();
+		createTraverseLinksTemplates();
+	}
+
+	private void createLinksToRecordTemplates() {
+		for (int shape = 0; shape < linksToRecordSql.length; shape++) {
+			linksToRecordSql[shape] = assembleLinksToRecordSql(hasFromType(shape),
+					hasCursor(shape));
+		}
+	}
+
+	private boolean hasFromType(int shape) {
+		return (shape & 1) != 0;
+	}
+
+	private boolean hasCursor(int shape) {
+		return (shape & 2) != 0;
+	}
+
+	private String assembleLinksToRecordSql(boolean hasFromType, boolean hasCursor) {
+		StringBuilder sql = new StringBuilder(SELECT_LINKS_TO_RECORD_SQL);
+		if (hasFromType) {
+			sql.append(LINKS_FROM_TYPE_CONDITION);
+		}
+		if (hasCursor) {
+			sql.append(LINKS_AFTER_CURSOR_CONDITION);
+		}
+		return sql.append(LINKS_ORDER_AND_LIMIT).toString();
+	}
+
+	private void createTraverseLinksTemplates() {
+		for (Direction direction : Direction.values()) {
+			traverseLinksSql.put(direction, new String[] {
+					assembleTraverseLinksSql(direction, false),
+					assembleTraverseLinksSql(direction, true) });
+		}
+	}
+
+	private String assembleTraverseLinksSql(Direction direction, boolean hasTypes) {
+		String next = "from";
+		String previous = "to";
+		if (direction == Direction.LINKS_FROM_RECORD) {
+			next = "to";
+			previous = "from";
+		}
+		String typesCondition = hasTypes ? String.format(TRAVERSE_TYPES_CONDITION, next) : "";
+		return String.format(TRAVERSE_LINKS_SQL, next, previous, typesCondition);
+	}
+
+	/**
+	 * getLinksToRecordSql returns the sql reading a page of links to a record, with the values
+	 * type, id, then fromType if hasFromType, then the type and id of the cursor if hasCursor and
+	 * last the limit.
+	 */
+	String getLinksToRecordSql(boolean hasFromType, boolean hasCursor) {
+		return linksToRecordSql[(hasFromType ? 1 : 0) | (hasCursor ? 2 : 0)];
+	}
+
+	/**
+	 * getTraverseLinksSql returns the sql following links in the direction from a start record, in
+	 * one recursive query. Each reachable record is returned once with the least depth it can be
+	 * reached at, ordered by depth, type and id. The values are type and id of the start record,
+	 * the max depth, then an array of types to visit if hasTypes, then type and id of the start
+	 * record again, to leave it out of the result, and last the limit.
+	 */
+	String getTraverseLinksSql(Direction direction, boolean hasTypes) {
+		return traverseLinksSql.get(direction)[hasTypes ? 1 : 0];
+	}
+
+	/**
+	 * getProjectionSql returns the sql reading a projection with numberOfPaths paths, with the
+	 * values the json path of each path followed by type and id. The path columns are named path0,
+	 * path1 and so on.
+	 */
+	String getProjectionSql(int numberOfPaths) {
+		if (numberOfPaths > MAX_CACHED_PROJECTION_PATHS) {
+			return assembleProjectionSql(numberOfPaths);
+		}
+		return projectionSql.computeIfAbsent(numberOfPaths, this::assembleProjectionSql);
+	}
+
+	private String assembleProjectionSql(int numberOfPaths) {
+		StringBuilder sql = new StringBuilder(SELECT_PROJECTION_SQL);
+		if (readCompressedData) {
+			sql.append(COMPRESSED_DATA_SQL);
+		}
+		for (int i = 0; i < numberOfPaths; i++) {
+			sql.append(SELECT_PROJECTION_PATH_SQL).append(i);
+		}
+		return sql.append(FROM_RECORD_WHERE_TYPE_AND_ID).toString();
+	}
+
+	/**
+	 * getReadListSql returns the sql reading a page of records from the recordstorageterm view,
+	 * ordered by id descending. The values are an array of types, a storage key and value for each
+	 * condition, then the offset if hasOffset and last the limit if hasLimit.
+	 */
+	String getReadListSql(int numberOfConditions, boolean hasOffset, boolean hasLimit) {
+		int shape = numberOfConditions << 2 | (hasOffset ? 1 : 0) | (hasLimit ? 2 : 0);
+		if (numberOfConditions > MAX_CACHED_LIST_CONDITIONS) {
+			return assembleReadListSql(shape);
+		}
+		return listSql.computeIfAbsent(shape, this::assembleReadListSql);
+	}
+
+	private String assembleReadListSql(int shape) {
+		StringBuilder sql = new StringBuilder(SELECT_LIST_SQL);
+		appendConditions(sql, shape >> 2);
+		sql.append(LIST_ORDER);
+		if ((shape & 1) != 0) {
+			sql.append(LIST_OFFSET);
+		}
+		if ((shape & 2) != 0) {
+			sql.append(LIST_LIMIT);
+		}
+		return sql.toString();
+	}
+
+	private void appendConditions(StringBuilder sql, int numberOfConditions) {
+		for (int i = 0; i < numberOfConditions; i++) {
+			sql.append(STORAGE_TERM_CONDITION);
+		}
+	}
+
+	/**
+	 * getCountSql returns the sql counting the records in the recordstorageterm view that a list
+	 * with numberOfConditions conditions matches, in the column count. The values are an array of
+	 * types followed by a storage key and value for each condition.
+	 */
+	String getCountSql(int numberOfConditions) {
+		if (numberOfConditions > MAX_CACHED_LIST_CONDITIONS) {
+			return assembleCountSql(numberOfConditions);
+		}
+		return countSql.computeIfAbsent(numberOfConditions, this::assembleCountSql);
+	}
+
+	private String assembleCountSql(int numberOfConditions) {
+		StringBuilder sql = new StringBuilder(COUNT_LIST_SQL);
+		appendConditions(sql, numberOfConditions);
+		return sql.toString();
+	}
+
+	int onlyForTestGetNumberOfCachedProjections() {
+		return projectionSql.size();
+	}
+
+	int onlyForTestGetNumberOfCachedLists() {
+		return listSql.size() + countSql.size();
+	}
+}
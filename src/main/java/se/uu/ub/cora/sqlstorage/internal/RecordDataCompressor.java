@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * RecordDataCompressor decides which records are stored compressed and compresses and
+ * decompresses them.
+ * <p>
+ * Records with a type in compressedTypes that take at least thresholdInBytes when encoded by
+ * {@link DataGroupBinaryCodec} are stored compressed in the compresseddata column of the record
+ * table, with the data column set to null. The compressed format starts with one byte telling the
+ * format, followed by the length of the uncompressed data as four bytes and the compressed data.
+ * Records are written as deflated binary encoded DataGroups. Records with content the binary
+ * encoding can not represent, such as resource links, are written as deflated json instead, and
+ * for them the threshold applies to the size of the json.
+ * <p>
+ * The Deflater, Inflater and buffers are borrowed from a {@link BoundedPool} and reused between
+ * records, those not kept by the pool are ended so that their native memory is released at once.
+ * <p>
+ * Compression requires the compresseddata column, in the record table and the recordstorageterm
+ * view, added by sql/cora06AddRecordCompressedData.sql.
+ */
+public final class RecordDataCompressor {
+	private static final String COMPRESSED_DATA_COLUMN = "compresseddata";
+	private static final String DATA_COLUMN = "data";
+	private static final byte FORMAT_DEFLATE_JSON = 1;
+	private static final byte FORMAT_DEFLATE_BINARY = 2;
+	private static final int HEADER_LENGTH = 5;
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+	private static final BoundedPool<CompressionBuffers> COMPRESSION_BUFFERS = BoundedPool
+			.usingFactoryAndDiscarderAndMaxIdle(CompressionBuffers::new, CompressionBuffers::end,
+					BoundedPool.DEFAULT_MAX_IDLE);
+	private Set<String> compressedTypes;
+	private int thresholdInBytes;
+
+	public static RecordDataCompressor usingCompressedTypesAndThreshold(Set<String> compressedTypes,
+			int thresholdInBytes) {
+		return new RecordDataCompressor(compressedTypes, thresholdInBytes);
+	}
+
+	public static RecordDataCompressor noCompression() {
+		return new RecordDataCompressor(Collections.emptySet(), Integer.MAX_VALUE);
+	}
+
+	private RecordDataCompressor(Set<String> compressedTypes, int thresholdInBytes) {
+		this.compressedTypes = compressedTypes;
+		this.thresholdInBytes = thresholdInBytes;
+	}
+
+	/**
+	 * isEnabled returns true if any record type is stored compressed, and the compresseddata
+	 * column therefore is written.
+	 */
+	public boolean isEnabled() {
+		return !compressedTypes.isEmpty();
+	}
+
+	/**
+	 * possiblyCompress returns the compressed dataRecord if records of the type are stored
+	 * compressed and the dataRecord is large enough, otherwise an empty Optional. A dataRecord that
+	 * can not be binary encoded is converted to json using dataGroupToJson and compressed as json.
+	 */
+	public Optional<byte[]> possiblyCompress(String type, DataGroup dataRecord,
+			Function<DataGroup, String> dataGroupToJson) {
+		if (!compressedTypes.contains(type)) {
+			return Optional.empty();
+		}
+		if (DataGroupBinaryCodec.canEncode(dataRecord)) {
+			return possiblyCompressAboveThreshold(FORMAT_DEFLATE_BINARY,
+					DataGroupBinaryCodec.encode(dataRecord));
+		}
+		byte[] json = dataGroupToJson.apply(dataRecord).getBytes(StandardCharsets.UTF_8);
+		return possiblyCompressAboveThreshold(FORMAT_DEFLATE_JSON, json);
+	}
+
+	private Optional<byte[]> possiblyCompressAboveThreshold(byte format, byte[] uncompressed) {
+		if (uncompressed.length < thresholdInBytes) {
+			return Optional.empty();
+		}
+		return Optional.of(compress(format, uncompressed));
+	}
+
+	static byte[] compress(byte format, byte[] uncompressed) {
+		CompressionBuffers buffers = COMPRESSION_BUFFERS.borrow();
+		Deflater deflater = buffers.deflater;
+		try {
+			deflater.setInput(uncompressed);
+			deflater.finish();
+			byte[] output = buffers.output;
+			ByteBuffer.wrap(output).put(format).putInt(uncompressed.length);
+			int length = HEADER_LENGTH;
+			while (!deflater.finished()) {
+				if (length == output.length) {
+					output = Arrays.copyOf(output, output.length * 2);
+				}
+				length += deflater.deflate(output, length, output.length - length);
+			}
+			buffers.possiblyKeepOutput(output);
+			return Arrays.copyOf(output, length);
+		} finally {
+			deflater.reset();
+			COMPRESSION_BUFFERS.giveBack(buffers);
+		}
+	}
+
+	/**
+	 * decompress returns the DataGroup from data created by
+	 * {@link #possiblyCompress(String, DataGroup)}. Data compressed as json is converted using
+	 * jsonToDataGroup.
+	 * 
+	 * @throws StorageException
+	 *             if the data has an unknown format or can not be decompressed
+	 */
+	public static DataGroup decompress(byte[] compressed,
+			Function<String, DataGroup> jsonToDataGroup) {
+		ByteBuffer header = ByteBuffer.wrap(compressed, 0, HEADER_LENGTH);
+		byte format = header.get();
+		if (format != FORMAT_DEFLATE_BINARY && format != FORMAT_DEFLATE_JSON) {
+			throw StorageException.withMessage(MessageFormat
+					.format("Unknown format of compressed record data: {0}.", format));
+		}
+		int length = header.getInt();
+		CompressionBuffers buffers = COMPRESSION_BUFFERS.borrow();
+		try {
+			byte[] uncompressed = inflate(buffers, compressed, length);
+			return decode(format, uncompressed, length, jsonToDataGroup);
+		} finally {
+			COMPRESSION_BUFFERS.giveBack(buffers);
+		}
+	}
+
+	private static DataGroup decode(byte format, byte[] uncompressed, int length,
+			Function<String, DataGroup> jsonToDataGroup) {
+		if (format == FORMAT_DEFLATE_BINARY) {
+			return DataGroupBinaryCodec.decode(uncompressed, length);
+		}
+		return jsonToDataGroup.apply(new String(uncompressed, 0, length, StandardCharsets.UTF_8));
+	}
+
+	private static byte[] inflate(CompressionBuffers buffers, byte[] compressed,
+			int uncompressedLength) {
+		Inflater inflater = buffers.inflater;
+		try {
+			inflater.setInput(compressed, HEADER_LENGTH, compressed.length - HEADER_LENGTH);
+			byte[] uncompressed = buffers.getInputOfAtLeastLength(uncompressedLength);
+			int inflatedLength = inflater.inflate(uncompressed, 0, uncompressedLength);
+			if (inflatedLength != uncompressedLength) {
+				throw StorageException.withMessage("Compressed record data is incomplete.");
+			}
+			return uncompressed;
+		} catch (DataFormatException e) {
+			throw StorageException.withMessageAndException("Compressed record data is corrupt.",
+					e);
+		} finally {
+			inflater.reset();
+		}
+	}
+
+	/**
+	 * readDataGroupFromRow returns the DataGroup of a record read from the record table,
+	 * decompressing it if the record is stored compressed. Json is converted using
+	 * jsonToDataGroup.
+	 */
+	public static DataGroup readDataGroupFromRow(Row row,
+			Function<String, DataGroup> jsonToDataGroup) {
+		Object data = row.getValueByColumn(DATA_COLUMN);
+		if (data == null) {
+			return decompress((byte[]) row.getValueByColumn(COMPRESSED_DATA_COLUMN),
+					jsonToDataGroup);
+		}
+		return jsonToDataGroup.apply(RecordDataType.readJsonFromColumnValue(data));
+	}
+
+	/**
+	 * CompressionBuffers holds the Deflater, Inflater and buffers reused between records. Buffers
+	 * that have grown larger than MAX_KEPT_BUFFER_SIZE are not kept, so that the pool does not hold
+	 * on to the memory used by the largest record.
+	 */
+	private static final class CompressionBuffers {
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		private final Inflater inflater = new Inflater(true);
+		private byte[] output = new byte[INITIAL_BUFFER_SIZE];
+		private byte[] input = new byte[INITIAL_BUFFER_SIZE];
+
+		void possiblyKeepOutput(byte[] grownOutput) {
+			if (grownOutput.length <= MAX_KEPT_BUFFER_SIZE) {
+				output = grownOutput;
+			}
+		}
+
+		void end() {
+			deflater.end();
+			inflater.end();
+		}
+
+		byte[] getInputOfAtLeastLength(int length) {
+			if (length <= input.length) {
+				return input;
+			}
+			byte[] largerInput = new byte[length];
+			if (length <= MAX_KEPT_BUFFER_SIZE) {
+				input = largerInput;
+			}
+			return largerInput;
+		}
+	}
+
+	public Set<String> onlyForTestGetCompressedTypes() {
+		return compressedTypes;
+	}
+
+	public int onlyForTestGetThresholdInBytes() {
+		return thresholdInBytes;
+	}
+}
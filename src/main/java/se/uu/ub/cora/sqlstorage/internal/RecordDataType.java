@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.text.MessageFormat;
+
+import org.postgresql.util.PGobject;
+
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * RecordDataType is the PostgreSQL type of the data column in the record table, which depends on
+ * the schema of the deployment. JSON is stored as text and parsed on every access, JSONB is stored
+ * in a decomposed binary format that can be indexed and queried in the database.
+ * <p>
+ * A database using JSON can be migrated to JSONB using sql/cora05ChangeRecordDataToJsonb.sql.
+ */
+public enum RecordDataType {
+	JSON("json"), JSONB("jsonb");
+
+	private final String typeName;
+
+	RecordDataType(String typeName) {
+		this.typeName = typeName;
+	}
+
+	public String typeName() {
+		return typeName;
+	}
+
+	/**
+	 * fromTypeName returns the RecordDataType with the specified PostgreSQL type name.
+	 * 
+	 * @throws StorageException
+	 *             if no RecordDataType has the type name
+	 */
+	public static RecordDataType fromTypeName(String typeName) {
+		for (RecordDataType recordDataType : values()) {
+			if (recordDataType.typeName.equals(typeName)) {
+				return recordDataType;
+			}
+		}
+		throw StorageException.withMessage(
+				MessageFormat.format("No RecordDataType exists for typeName: {0}.", typeName));
+	}
+
+	/**
+	 * readJsonFromColumnValue returns the json held by a value read from the data column. The
+	 * value is a String or, depending on the driver, a PGobject whose value is returned without
+	 * being copied.
+	 */
+	public static String readJsonFromColumnValue(Object columnValue) {
+		if (columnValue instanceof PGobject pgObject) {
+			return pgObject.getValue();
+		}
+		return (String) columnValue;
+	}
+}
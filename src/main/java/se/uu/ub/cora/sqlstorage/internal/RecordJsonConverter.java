@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import se.uu.ub.cora.data.DataGroup;
+
+/**
+ * RecordJsonConverter converts the json of a stored record into a DataGroup.
+ * <p>
+ * Implementations must be threadsafe.
+ */
+public interface RecordJsonConverter {
+
+	/**
+	 * convert returns a DataGroup created from the recordJson.
+	 * 
+	 * @param recordJson
+	 *            A String with a record in the Cora json format
+	 * @return A DataGroup with the content of the recordJson
+	 */
+	DataGroup convert(String recordJson);
+}
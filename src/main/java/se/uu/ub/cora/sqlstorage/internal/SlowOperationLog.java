@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.storage.Condition;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.Part;
+
+/**
+ * SlowOperationLog logs list operations against the database that take at least thresholdMillis,
+ * so that the filters behind slow queries can be found.
+ * <p>
+ * A slow operation is logged as a warning with the operation, the types, the shape of the filter,
+ * the number of rows and the elapsed time. The shape of the filter lists the storage keys and
+ * operators of the conditions with the values replaced by ?, so that operations using the same
+ * filter with different values are logged the same way and no record data ends up in the log.
+ * <p>
+ * A fraction explainSampleRate of the slow operations are also logged with the query plan of the
+ * query, read using EXPLAIN after the operation has released its connection. The plan is by default
+ * only the estimated plan, with {@link #withExplainAnalyze(boolean)} it is read using EXPLAIN
+ * (ANALYZE, BUFFERS), with actual times and buffer use. As EXPLAIN ANALYZE runs the query again,
+ * the sample rate should then be kept low in production.
+ */
+public final class SlowOperationLog {
+	private static final String NO_VALUE = "?";
+	private static final String EXPLAIN = "explain ";
+	private static final String EXPLAIN_ANALYZE = "explain (analyze, buffers) ";
+	private long thresholdNanos;
+	private long thresholdMillis;
+	private double explainSampleRate;
+	private boolean explainAnalyze = false;
+
+	public static SlowOperationLog usingThresholdMillisAndExplainSampleRate(long thresholdMillis,
+			double explainSampleRate) {
+		return new SlowOperationLog(thresholdMillis, explainSampleRate);
+	}
+
+	public static SlowOperationLog noLog() {
+		return new SlowOperationLog(Long.MAX_VALUE, 0);
+	}
+
+	private SlowOperationLog(long thresholdMillis, double explainSampleRate) {
+		this.thresholdMillis = thresholdMillis;
+		this.explainSampleRate = explainSampleRate;
+		thresholdNanos = thresholdMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+				: TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	/**
+	 * withExplainAnalyze returns a SlowOperationLog as this, that reads query plans using EXPLAIN
+	 * (ANALYZE, BUFFERS) if explainAnalyze is true.
+	 */
+	public SlowOperationLog withExplainAnalyze(boolean explainAnalyze) {
+		SlowOperationLog slowOperationLog = new SlowOperationLog(thresholdMillis,
+				explainSampleRate);
+		slowOperationLog.explainAnalyze = explainAnalyze;
+		return slowOperationLog;
+	}
+
+	/**
+	 * createExplainSql returns the sql reading the query plan of the query sql.
+	 */
+	public String createExplainSql(String sql) {
+		return (explainAnalyze ? EXPLAIN_ANALYZE : EXPLAIN) + sql;
+	}
+
+	/**
+	 * logIfSlow logs the operation if elapsedNanos is at least the threshold of this log.
+	 * <p>
+	 * queryPlanSupplier is only called for the slow operations sampled for a query plan, a
+	 * RuntimeException thrown while reading the query plan is logged and does not affect the
+	 * operation.
+	 */
+	public void logIfSlow(String operation, List<String> types, Filter filter, long numberOfRows,
+			long elapsedNanos, Supplier<String> queryPlanSupplier) {
+		if (elapsedNanos >= thresholdNanos) {
+			logSlowOperation(operation, types, filter, numberOfRows, elapsedNanos,
+					queryPlanSupplier);
+		}
+	}
+
+	/**
+	 * logIfSlow logs the operation if elapsedNanos is at least the threshold of this log, without a
+	 * query plan. It is used for operations running on a connection held by the caller, where
+	 * reading the plan would need a second connection.
+	 */
+	public void logIfSlow(String operation, List<String> types, Filter filter, long numberOfRows,
+			long elapsedNanos) {
+		logIfSlow(operation, types, filter, numberOfRows, elapsedNanos, null);
+	}
+
+	private void logSlowOperation(String operation, List<String> types, Filter filter,
+			long numberOfRows, long elapsedNanos, Supplier<String> queryPlanSupplier) {
+		Logger log = LoggerProvider.getLoggerForClass(SlowOperationLog.class);
+		String message = MessageFormat.format(
+				"Slow {0} for types: {1} with filter: {2}, rows: {3}, took: {4} ms", operation,
+				types, normalizeFilter(filter), String.valueOf(numberOfRows),
+				String.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+		if (queryPlanSupplier != null && shouldReadQueryPlan()) {
+			logWithQueryPlan(log, message, operation, queryPlanSupplier);
+		} else {
+			log.logWarnUsingMessage(message);
+		}
+	}
+
+	private boolean shouldReadQueryPlan() {
+		return explainSampleRate > 0
+				&& ThreadLocalRandom.current().nextDouble() < explainSampleRate;
+	}
+
+	private void logWithQueryPlan(Logger log, String message, String operation,
+			Supplier<String> queryPlanSupplier) {
+		try {
+			log.logWarnUsingMessage(message + ", query plan:\n" + queryPlanSupplier.get());
+		} catch (RuntimeException e) {
+			log.logWarnUsingMessage(message);
+			log.logWarnUsingMessageAndException(
+					"Could not read query plan for slow " + operation + ".", e);
+		}
+	}
+
+	/**
+	 * normalizeFilter returns the shape of the filter, with the storage keys and operators of the
+	 * conditions but without their values, such as "include: [title EQUAL_TO ?], exclude: [],
+	 * fromNo: ?, toNo: ?". fromNo and toNo are only part of the shape when set.
+	 */
+	static String normalizeFilter(Filter filter) {
+		StringBuilder shape = new StringBuilder();
+		shape.append("include: ").append(normalizeParts(filter.include));
+		shape.append(", exclude: ").append(normalizeParts(filter.exclude));
+		if (!filter.fromNoIsDefault()) {
+			shape.append(", fromNo: ").append(NO_VALUE);
+		}
+		if (!filter.toNoIsDefault()) {
+			shape.append(", toNo: ").append(NO_VALUE);
+		}
+		return shape.toString();
+	}
+
+	private static String normalizeParts(List<Part> parts) {
+		return parts.stream().map(SlowOperationLog::normalizePart)
+				.collect(Collectors.joining(", ", "[", "]"));
+	}
+
+	private static String normalizePart(Part part) {
+		return part.conditions.stream().map(SlowOperationLog::normalizeCondition)
+				.collect(Collectors.joining(" and "));
+	}
+
+	private static String normalizeCondition(Condition condition) {
+		return condition.key() + " " + condition.operator() + " " + NO_VALUE;
+	}
+
+	public long onlyForTestGetThresholdMillis() {
+		return thresholdMillis;
+	}
+
+	public double onlyForTestGetExplainSampleRate() {
+		return explainSampleRate;
+	}
+
+	public boolean onlyForTestGetExplainAnalyze() {
+		return explainAnalyze;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import se.uu.ub.cora.initialize.InitializationException;
+import se.uu.ub.cora.initialize.SettingsProvider;
+import se.uu.ub.cora.json.parser.JsonParser;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+
+/**
+ * StorageSettings reads the settings of the storage from the {@link SettingsProvider}, and creates
+ * the parts of a {@link DatabaseRecordStorage} that the settings describe, for the
+ * RecordStorageInstanceProviders. A setting that is not set gets its default value.
+ * <p>
+ * What the settings turn on is logged as info using the logger of the provider, prefixed with the
+ * name of the provider.
+ */
+public final class StorageSettings {
+	private static final String LOOKUP_NAME = "coraDatabaseLookupName";
+	private static final String RECORD_DATA_TYPE = "recordDataType";
+	private static final String RECORD_JSON_CONVERTER = "recordJsonConverter";
+	private static final String STREAMING_JSON_CONVERTER = "streaming";
+	private static final String COMPRESSED_RECORD_TYPES = "compressedRecordTypes";
+	private static final String COMPRESSION_THRESHOLD = "compressionThresholdBytes";
+	private static final int DEFAULT_COMPRESSION_THRESHOLD = 8192;
+	private static final String GROUP_COMMIT_MAX_BATCH_SIZE = "groupCommitMaxBatchSize";
+	private static final String GROUP_COMMIT_MAX_WAIT = "groupCommitMaxWaitMillis";
+	private static final long DEFAULT_GROUP_COMMIT_MAX_WAIT = 5;
+	private static final String SLOW_OPERATION_THRESHOLD = "slowOperationThresholdMillis";
+	private static final String EXPLAIN_SAMPLE_RATE = "slowOperationExplainSampleRate";
+	private static final String EXPLAIN_ANALYZE = "slowOperationExplainAnalyze";
+
+	private final Logger log;
+	private final String providerName;
+
+	public static StorageSettings usingLoggerAndProviderName(Logger log, String providerName) {
+		return new StorageSettings(log, providerName);
+	}
+
+	private StorageSettings(Logger log, String providerName) {
+		this.log = log;
+		this.providerName = providerName;
+	}
+
+	/**
+	 * readDatabaseLookupName returns the setting coraDatabaseLookupName, the name the database is
+	 * looked up with in the context.
+	 * 
+	 * @throws InitializationException
+	 *             if the setting is not set
+	 */
+	public String readDatabaseLookupName() {
+		return SettingsProvider.getSetting(LOOKUP_NAME);
+	}
+
+	public String getSettingOrDefault(String name, String defaultValue) {
+		try {
+			return SettingsProvider.getSetting(name);
+		} catch (InitializationException e) {
+			return defaultValue;
+		}
+	}
+
+	public int getIntSettingOrDefault(String name, int defaultValue) {
+		return Integer.parseInt(getSettingOrDefault(name, String.valueOf(defaultValue)));
+	}
+
+	public long getLongSettingOrDefault(String name, long defaultValue) {
+		return Long.parseLong(getSettingOrDefault(name, String.valueOf(defaultValue)));
+	}
+
+	/**
+	 * getTypesSetting returns the record types in the comma separated setting name, or an empty
+	 * set if the setting is not set.
+	 */
+	public Set<String> getTypesSetting(String name) {
+		String setting = getSettingOrDefault(name, "");
+		return Arrays.stream(setting.split(",")).map(String::strip)
+				.filter(type -> !type.isEmpty()).collect(Collectors.toUnmodifiableSet());
+	}
+
+	/**
+	 * readDatabaseRecordStorageOptions returns DatabaseRecordStorageOptions with the record data
+	 * type, the compression and the slow operation log from the settings.
+	 */
+	public DatabaseRecordStorageOptions readDatabaseRecordStorageOptions() {
+		return DatabaseRecordStorageOptions.defaults().withRecordDataType(readRecordDataType())
+				.withRecordDataCompressor(readRecordDataCompressor())
+				.withSlowOperationLog(readSlowOperationLog());
+	}
+
+	private RecordDataType readRecordDataType() {
+		String typeName = getSettingOrDefault(RECORD_DATA_TYPE, RecordDataType.JSON.typeName());
+		return RecordDataType.fromTypeName(typeName);
+	}
+
+	private RecordDataCompressor readRecordDataCompressor() {
+		Set<String> types = getTypesSetting(COMPRESSED_RECORD_TYPES);
+		if (types.isEmpty()) {
+			return RecordDataCompressor.noCompression();
+		}
+		int threshold = getIntSettingOrDefault(COMPRESSION_THRESHOLD,
+				DEFAULT_COMPRESSION_THRESHOLD);
+		log.logInfoUsingMessage(providerName + " compressing records of types: "
+				+ getSettingOrDefault(COMPRESSED_RECORD_TYPES, "") + " with at least " + threshold
+				+ " bytes");
+		return RecordDataCompressor.usingCompressedTypesAndThreshold(types, threshold);
+	}
+
+	private SlowOperationLog readSlowOperationLog() {
+		String thresholdMillis = getSettingOrDefault(SLOW_OPERATION_THRESHOLD, null);
+		if (thresholdMillis == null) {
+			return SlowOperationLog.noLog();
+		}
+		double explainSampleRate = Double
+				.parseDouble(getSettingOrDefault(EXPLAIN_SAMPLE_RATE, "0"));
+		boolean explainAnalyze = Boolean
+				.parseBoolean(getSettingOrDefault(EXPLAIN_ANALYZE, "false"));
+		log.logInfoUsingMessage(providerName + " logging operations slower than "
+				+ thresholdMillis + " ms with explainSampleRate: " + explainSampleRate
+				+ " and explainAnalyze: " + explainAnalyze);
+		return SlowOperationLog.usingThresholdMillisAndExplainSampleRate(
+				Long.parseLong(thresholdMillis), explainSampleRate)
+				.withExplainAnalyze(explainAnalyze);
+	}
+
+	/**
+	 * createRecordJsonConverter returns a {@link StreamingRecordJsonConverter} if the setting
+	 * recordJsonConverter is streaming, otherwise a {@link ParsingRecordJsonConverter}, both using
+	 * jsonParser.
+	 */
+	public RecordJsonConverter createRecordJsonConverter(JsonParser jsonParser) {
+		RecordJsonConverter parsingConverter = ParsingRecordJsonConverter
+				.usingJsonParser(jsonParser);
+		if (STREAMING_JSON_CONVERTER.equals(getSettingOrDefault(RECORD_JSON_CONVERTER, ""))) {
+			log.logInfoUsingMessage(providerName + " using streaming json converter");
+			return StreamingRecordJsonConverter.usingFallbackConverter(parsingConverter);
+		}
+		return parsingConverter;
+	}
+
+	/**
+	 * possiblyUseGroupCommit returns database wrapped in a {@link GroupCommitRecordStorage} if the
+	 * setting groupCommitMaxBatchSize is set, otherwise database. The {@link GroupCommitWriter} is
+	 * closed by a shutdown hook.
+	 */
+	public SqlRecordStorage possiblyUseGroupCommit(DatabaseRecordStorage database) {
+		String maxBatchSize = getSettingOrDefault(GROUP_COMMIT_MAX_BATCH_SIZE, null);
+		if (maxBatchSize == null) {
+			return database;
+		}
+		long maxWaitMillis = getLongSettingOrDefault(GROUP_COMMIT_MAX_WAIT,
+				DEFAULT_GROUP_COMMIT_MAX_WAIT);
+		GroupCommitWriter groupCommitWriter = GroupCommitWriter
+				.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(database,
+						Integer.parseInt(maxBatchSize), maxWaitMillis);
+		log.logInfoUsingMessage(providerName + " using group commit with maxBatchSize: "
+				+ maxBatchSize + " and maxWaitMillis: " + maxWaitMillis);
+		Runtime.getRuntime().addShutdownHook(
+				new Thread(groupCommitWriter::close, "sqlstorage-group-commit-shutdown"));
+		return GroupCommitRecordStorage.usingDatabaseAndGroupCommitWriter(database,
+				groupCommitWriter);
+	}
+}
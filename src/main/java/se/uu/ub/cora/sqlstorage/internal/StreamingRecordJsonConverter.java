@@ -0,0 +1,326 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+
+/**
+ * StreamingRecordJsonConverter converts json by reading it once from start to end, creating the
+ * data objects as their json is read, without first building a tree of JsonValues.
+ * <p>
+ * Groups, atomics and record links with only linkedRecordType and linkedRecordId are converted.
+ * Json with any other content, such as resource links, record links with more children, unknown
+ * keys or json that is not valid, is converted by the fallbackConverter instead, so that it is
+ * converted or reported as before.
+ */
+public final class StreamingRecordJsonConverter implements RecordJsonConverter {
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+	private static final String MIME_TYPE = "mimeType";
+	private static final UnsupportedJsonException UNSUPPORTED = new UnsupportedJsonException();
+	private RecordJsonConverter fallbackConverter;
+
+	public static StreamingRecordJsonConverter usingFallbackConverter(
+			RecordJsonConverter fallbackConverter) {
+		return new StreamingRecordJsonConverter(fallbackConverter);
+	}
+
+	private StreamingRecordJsonConverter(RecordJsonConverter fallbackConverter) {
+		this.fallbackConverter = fallbackConverter;
+	}
+
+	@Override
+	public DataGroup convert(String recordJson) {
+		try {
+			return new JsonReader(recordJson).readTopGroup();
+		} catch (UnsupportedJsonException e) {
+			return fallbackConverter.convert(recordJson);
+		}
+	}
+
+	public RecordJsonConverter onlyForTestGetFallbackConverter() {
+		return fallbackConverter;
+	}
+
+	private static final class JsonReader {
+		private final String json;
+		private int position = 0;
+
+		JsonReader(String json) {
+			this.json = json;
+		}
+
+		DataGroup readTopGroup() {
+			DataChild child = readElement().child;
+			skipWhitespace();
+			if (position != json.length() || !(child instanceof DataGroup)) {
+				throw UNSUPPORTED;
+			}
+			return (DataGroup) child;
+		}
+
+		private ElementParts readElement() {
+			ElementParts parts = new ElementParts();
+			expect('{');
+			if (!consumeIf('}')) {
+				do {
+					readKeyAndValue(parts);
+				} while (consumeIf(','));
+				expect('}');
+			}
+			parts.child = createChild(parts);
+			return parts;
+		}
+
+		private void readKeyAndValue(ElementParts parts) {
+			String key = readString();
+			expect(':');
+			switch (key) {
+				case "name" -> parts.name = readString();
+				case "value" -> parts.value = readString();
+				case "repeatId" -> parts.repeatId = readString();
+				case "attributes" -> parts.attributes = readAttributes();
+				case "children" -> parts.children = readChildren();
+				default -> throw UNSUPPORTED;
+			}
+		}
+
+		private List<String> readAttributes() {
+			List<String> attributes = new ArrayList<>();
+			expect('{');
+			if (consumeIf('}')) {
+				return attributes;
+			}
+			do {
+				attributes.add(readString());
+				expect(':');
+				attributes.add(readString());
+			} while (consumeIf(','));
+			expect('}');
+			return attributes;
+		}
+
+		private List<ElementParts> readChildren() {
+			expect('[');
+			if (consumeIf(']')) {
+				return Collections.emptyList();
+			}
+			List<ElementParts> children = new ArrayList<>();
+			do {
+				children.add(readElement());
+			} while (consumeIf(','));
+			expect(']');
+			return children;
+		}
+
+		private DataChild createChild(ElementParts parts) {
+			if (parts.name == null) {
+				throw UNSUPPORTED;
+			}
+			if (parts.value != null && parts.children == null) {
+				return parts.setRepeatIdAndAttributes(DataProvider
+						.createAtomicUsingNameInDataAndValue(parts.name, parts.value));
+			}
+			if (parts.value == null && parts.children != null) {
+				return createGroupOrRecordLink(parts);
+			}
+			throw UNSUPPORTED;
+		}
+
+		private DataChild createGroupOrRecordLink(ElementParts parts) {
+			if (isRecordLink(parts.children)) {
+				return parts.setRepeatIdAndAttributes(
+						DataProvider.createRecordLinkUsingNameInDataAndTypeAndId(parts.name,
+								getAtomicValue(parts.children, LINKED_RECORD_TYPE),
+								getAtomicValue(parts.children, LINKED_RECORD_ID)));
+			}
+			throwIfChildrenHaveLinkNames(parts.children);
+			DataGroup group = DataProvider.createGroupUsingNameInData(parts.name);
+			parts.setRepeatIdAndAttributes(group);
+			for (ElementParts childParts : parts.children) {
+				group.addChild(childParts.child);
+			}
+			return group;
+		}
+
+		private boolean isRecordLink(List<ElementParts> children) {
+			return children.size() == 2 && isPlainAtomic(children, LINKED_RECORD_TYPE)
+					&& isPlainAtomic(children, LINKED_RECORD_ID);
+		}
+
+		private boolean isPlainAtomic(List<ElementParts> children, String nameInData) {
+			for (ElementParts child : children) {
+				if (nameInData.equals(child.name)) {
+					return child.value != null && child.repeatId == null
+							&& child.attributes.isEmpty();
+				}
+			}
+			return false;
+		}
+
+		private String getAtomicValue(List<ElementParts> children, String nameInData) {
+			for (ElementParts child : children) {
+				if (nameInData.equals(child.name)) {
+					return child.value;
+				}
+			}
+			throw UNSUPPORTED;
+		}
+
+		private void throwIfChildrenHaveLinkNames(List<ElementParts> children) {
+			for (ElementParts child : children) {
+				if (LINKED_RECORD_TYPE.equals(child.name) || LINKED_RECORD_ID.equals(child.name)
+						|| MIME_TYPE.equals(child.name)) {
+					throw UNSUPPORTED;
+				}
+			}
+		}
+
+		private String readString() {
+			expect('"');
+			int start = position;
+			while (position < json.length()) {
+				char current = json.charAt(position);
+				if (current == '"') {
+					return json.substring(start, position++);
+				}
+				if (current == '\\') {
+					return readStringWithEscapes(start);
+				}
+				throwIfControlCharacter(current);
+				position++;
+			}
+			throw UNSUPPORTED;
+		}
+
+		private String readStringWithEscapes(int start) {
+			StringBuilder value = new StringBuilder(json.length() - start);
+			value.append(json, start, position);
+			while (position < json.length()) {
+				char current = json.charAt(position++);
+				if (current == '"') {
+					return value.toString();
+				}
+				if (current == '\\') {
+					value.append(readEscapedCharacter());
+				} else {
+					throwIfControlCharacter(current);
+					value.append(current);
+				}
+			}
+			throw UNSUPPORTED;
+		}
+
+		private void throwIfControlCharacter(char current) {
+			if (current < ' ') {
+				throw UNSUPPORTED;
+			}
+		}
+
+		private char readEscapedCharacter() {
+			if (position >= json.length()) {
+				throw UNSUPPORTED;
+			}
+			char escaped = json.charAt(position++);
+			return switch (escaped) {
+				case '"', '\\', '/' -> escaped;
+				case 'b' -> '\b';
+				case 'f' -> '\f';
+				case 'n' -> '\n';
+				case 'r' -> '\r';
+				case 't' -> '\t';
+				case 'u' -> readUnicodeEscape();
+				default -> throw UNSUPPORTED;
+			};
+		}
+
+		private char readUnicodeEscape() {
+			if (position + 4 > json.length()) {
+				throw UNSUPPORTED;
+			}
+			int codeUnit = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(json.charAt(position++), 16);
+				if (digit < 0) {
+					throw UNSUPPORTED;
+				}
+				codeUnit = codeUnit * 16 + digit;
+			}
+			return (char) codeUnit;
+		}
+
+		private void expect(char expected) {
+			if (!consumeIf(expected)) {
+				throw UNSUPPORTED;
+			}
+		}
+
+		private boolean consumeIf(char expected) {
+			skipWhitespace();
+			if (position < json.length() && json.charAt(position) == expected) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void skipWhitespace() {
+			while (position < json.length() && isWhitespace(json.charAt(position))) {
+				position++;
+			}
+		}
+
+		private boolean isWhitespace(char current) {
+			return current == ' ' || current == '\n' || current == '\r' || current == '\t';
+		}
+	}
+
+	private static final class ElementParts {
+		private String name;
+		private String value;
+		private String repeatId;
+		private List<String> attributes = Collections.emptyList();
+		private List<ElementParts> children;
+		private DataChild child;
+
+		<T extends DataChild> T setRepeatIdAndAttributes(T child) {
+			if (repeatId != null) {
+				child.setRepeatId(repeatId);
+			}
+			for (int i = 0; i < attributes.size(); i += 2) {
+				child.addAttributeByIdWithValue(attributes.get(i), attributes.get(i + 1));
+			}
+			return child;
+		}
+	}
+
+	private static final class UnsupportedJsonException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedJsonException() {
+			super(null, null, false, false);
+		}
+	}
+}
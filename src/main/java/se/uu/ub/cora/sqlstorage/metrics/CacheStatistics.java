@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * CacheStatistics keeps, for each record type in the cache, the number of entries, their
+ * estimated size on the heap and the number of reads, misses and writes. The statistics are
+ * recorded by a {@link CacheStatisticsRecordStorage} and exposed through JMX as a
+ * {@link CacheStatisticsMXBean} and, if started, in a summary logged with a fixed interval.
+ * <p>
+ * Entries and sizes are counted from the start, including the records added when the cache is
+ * populated. Reads, misses and writes are counted from {@link #markWarmedUp()}, so that the rates
+ * show how the cache is used after it is populated.
+ * <p>
+ * This class is threadsafe.
+ */
+public final class CacheStatistics implements CacheStatisticsMXBean {
+	public static final String OBJECT_NAME = "se.uu.ub.cora.sqlstorage:type=CacheStatistics";
+	private Logger log = LoggerProvider.getLoggerForClass(CacheStatistics.class);
+
+	private final Map<String, TypeCounters> countersByRecordType = new ConcurrentHashMap<>();
+	private final LongSupplier nanoClock;
+	private volatile long warmedUpAtNanos;
+	private ScheduledExecutorService summaryLogger;
+
+	private static final class TypeCounters {
+		private final AtomicLong entryCount = new AtomicLong();
+		private final AtomicLong estimatedRetainedBytes = new AtomicLong();
+		private final LongAdder reads = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder writes = new LongAdder();
+	}
+
+	public CacheStatistics() {
+		this(System::nanoTime);
+	}
+
+	CacheStatistics(LongSupplier nanoClock) {
+		this.nanoClock = nanoClock;
+		warmedUpAtNanos = nanoClock.getAsLong();
+	}
+
+	void recordRead(String recordType) {
+		getOrCreateCounters(recordType).reads.increment();
+	}
+
+	void recordMiss(String recordType) {
+		getOrCreateCounters(recordType).misses.increment();
+	}
+
+	void recordCreate(String recordType, long estimatedBytes) {
+		TypeCounters counters = getOrCreateCounters(recordType);
+		counters.entryCount.incrementAndGet();
+		counters.estimatedRetainedBytes.addAndGet(estimatedBytes);
+		counters.writes.increment();
+	}
+
+	void recordUpdate(String recordType, long previousEstimatedBytes, long estimatedBytes) {
+		TypeCounters counters = getOrCreateCounters(recordType);
+		counters.estimatedRetainedBytes.addAndGet(estimatedBytes - previousEstimatedBytes);
+		counters.writes.increment();
+	}
+
+	void recordDelete(String recordType, long previousEstimatedBytes) {
+		TypeCounters counters = getOrCreateCounters(recordType);
+		counters.entryCount.decrementAndGet();
+		counters.estimatedRetainedBytes.addAndGet(-previousEstimatedBytes);
+		counters.writes.increment();
+	}
+
+	private TypeCounters getOrCreateCounters(String recordType) {
+		TypeCounters counters = countersByRecordType.get(recordType);
+		if (counters == null) {
+			counters = countersByRecordType.computeIfAbsent(recordType, type -> new TypeCounters());
+		}
+		return counters;
+	}
+
+	/**
+	 * markWarmedUp is called when the cache is populated. It clears the counted reads, misses and
+	 * writes and starts measuring the time since warm-up.
+	 */
+	public void markWarmedUp() {
+		for (TypeCounters counters : countersByRecordType.values()) {
+			counters.reads.reset();
+			counters.misses.reset();
+			counters.writes.reset();
+		}
+		warmedUpAtNanos = nanoClock.getAsLong();
+	}
+
+	@Override
+	public List<CacheTypeStatistics> getTypeStatistics() {
+		long millisSinceWarmUp = getMillisSinceWarmUp();
+		List<CacheTypeStatistics> statistics = new ArrayList<>();
+		for (Map.Entry<String, TypeCounters> entry : new TreeMap<>(countersByRecordType)
+				.entrySet()) {
+			TypeCounters counters = entry.getValue();
+			statistics.add(new CacheTypeStatistics(entry.getKey(), counters.entryCount.get(),
+					counters.estimatedRetainedBytes.get(), counters.reads.sum(),
+					counters.misses.sum(), counters.writes.sum(), millisSinceWarmUp));
+		}
+		return statistics;
+	}
+
+	@Override
+	public long getTotalEstimatedRetainedBytes() {
+		long total = 0;
+		for (TypeCounters counters : countersByRecordType.values()) {
+			total += counters.estimatedRetainedBytes.get();
+		}
+		return total;
+	}
+
+	@Override
+	public long getMillisSinceWarmUp() {
+		return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - warmedUpAtNanos);
+	}
+
+	/**
+	 * logSummary logs the statistics of all record types as one info message, with one line for
+	 * each record type.
+	 */
+	public void logSummary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format(Locale.ROOT,
+				"Cache statistics %d s after warm-up, estimated bytes in total: %d",
+				TimeUnit.MILLISECONDS.toSeconds(getMillisSinceWarmUp()),
+				getTotalEstimatedRetainedBytes()));
+		for (CacheTypeStatistics typeStatistics : getTypeStatistics()) {
+			summary.append(String.format(Locale.ROOT,
+					"%n%s entries: %d, estimated bytes: %d, reads/s: %.2f, writes/s: %.2f, "
+							+ "misses: %d",
+					typeStatistics.getRecordType(), typeStatistics.getEntryCount(),
+					typeStatistics.getEstimatedRetainedBytes(),
+					typeStatistics.getReadsPerSecond(), typeStatistics.getWritesPerSecond(),
+					typeStatistics.getMisses()));
+		}
+		log.logInfoUsingMessage(summary.toString());
+	}
+
+	/**
+	 * startLoggingSummaryWithIntervalInMilliseconds starts a background thread that calls
+	 * {@link #logSummary()} with the specified interval.
+	 * 
+	 * @param interval
+	 *            A long with the number of milliseconds between two summaries
+	 */
+	public void startLoggingSummaryWithIntervalInMilliseconds(long interval) {
+		summaryLogger = Executors.newSingleThreadScheduledExecutor(this::createSummaryThread);
+		summaryLogger.scheduleAtFixedRate(this::logSummaryAndLogUnexpectedErrors, interval,
+				interval, TimeUnit.MILLISECONDS);
+	}
+
+	private Thread createSummaryThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, "sqlstorage-cache-statistics-logger");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private void logSummaryAndLogUnexpectedErrors() {
+		try {
+			logSummary();
+		} catch (Exception e) {
+			log.logErrorUsingMessageAndException("Unexpected error when logging cache statistics.",
+					e);
+		}
+	}
+
+	/**
+	 * stopLoggingSummary stops the background thread started by
+	 * {@link #startLoggingSummaryWithIntervalInMilliseconds(long)}, if any.
+	 */
+	public void stopLoggingSummary() {
+		if (summaryLogger != null) {
+			summaryLogger.shutdownNow();
+		}
+	}
+
+	/**
+	 * registerInPlatformMBeanServer registers these statistics in the platform MBeanServer with
+	 * the name {@value #OBJECT_NAME}, replacing any statistics previously registered with that
+	 * name.
+	 * 
+	 * @throws StorageException
+	 *             if the statistics can not be registered
+	 */
+	public void registerInPlatformMBeanServer() {
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+			mBeanServer.registerMBean(this, objectName);
+		} catch (JMException e) {
+			throw StorageException.withMessageAndException(
+					"Cache statistics could not be registered with name: " + OBJECT_NAME, e);
+		}
+	}
+
+	public ScheduledExecutorService onlyForTestGetSummaryLogger() {
+		return summaryLogger;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.List;
+
+/**
+ * CacheStatisticsMXBean exposes the statistics recorded by a {@link CacheStatistics} through JMX.
+ */
+public interface CacheStatisticsMXBean {
+
+	/**
+	 * getTypeStatistics returns the statistics of each record type in the cache, ordered by
+	 * record type.
+	 */
+	List<CacheTypeStatistics> getTypeStatistics();
+
+	/**
+	 * getTotalEstimatedRetainedBytes returns the estimated number of bytes taken by the records
+	 * of all types in the cache.
+	 */
+	long getTotalEstimatedRetainedBytes();
+
+	/**
+	 * getMillisSinceWarmUp returns the number of milliseconds since the cache was populated, or
+	 * since the statistics were created if the cache is not yet populated.
+	 */
+	long getMillisSinceWarmUp();
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.List;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordNotFoundException;
+import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * CacheStatisticsRecordStorage is a RecordStorage that records the use of the RecordStorage used
+ * as cache in a {@link CacheStatistics}. Calls are passed on to the cache unchanged.
+ * <p>
+ * Reads and list reads are counted as reads, reads of records not in the cache are also counted as
+ * misses. Creates, updates and deletes are counted as writes and keep the number of entries and
+ * their estimated size up to date. The size of a record before an update or delete is estimated
+ * from the record read from the cache. Storage terms and links kept by the cache are not part of
+ * the estimated size.
+ * <p>
+ * Calls for a list of record types are recorded for the record type if the list has one type, and
+ * for {@value StorageMetrics#MULTIPLE_TYPES} otherwise.
+ * <p>
+ * This class is threadsafe if the cache is threadsafe.
+ */
+public final class CacheStatisticsRecordStorage implements RecordStorage {
+	private final RecordStorage cache;
+	private final CacheStatistics cacheStatistics;
+
+	public static CacheStatisticsRecordStorage usingCacheAndCacheStatistics(RecordStorage cache,
+			CacheStatistics cacheStatistics) {
+		return new CacheStatisticsRecordStorage(cache, cacheStatistics);
+	}
+
+	private CacheStatisticsRecordStorage(RecordStorage cache, CacheStatistics cacheStatistics) {
+		this.cache = cache;
+		this.cacheStatistics = cacheStatistics;
+	}
+
+	@Override
+	public DataGroup read(List<String> types, String id) {
+		String type = typeOf(types);
+		cacheStatistics.recordRead(type);
+		try {
+			return cache.read(types, id);
+		} catch (RecordNotFoundException e) {
+			cacheStatistics.recordMiss(type);
+			throw e;
+		}
+	}
+
+	@Override
+	public DataRecordGroup read(String type, String id) {
+		cacheStatistics.recordRead(type);
+		try {
+			return cache.read(type, id);
+		} catch (RecordNotFoundException e) {
+			cacheStatistics.recordMiss(type);
+			throw e;
+		}
+	}
+
+	@Override
+	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		cache.create(type, id, dataRecord, storageTerms, links, dataDivider);
+		cacheStatistics.recordCreate(type, RecordSizeEstimator.estimateRetainedBytes(dataRecord));
+	}
+
+	@Override
+	public void deleteByTypeAndId(String type, String id) {
+		long previousBytes = estimateRecordInCache(type, id);
+		cache.deleteByTypeAndId(type, id);
+		cacheStatistics.recordDelete(type, previousBytes);
+	}
+
+	private long estimateRecordInCache(String type, String id) {
+		try {
+			return RecordSizeEstimator.estimateRetainedBytes(cache.read(List.of(type), id));
+		} catch (RecordNotFoundException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		long previousBytes = estimateRecordInCache(type, id);
+		cache.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		cacheStatistics.recordUpdate(type, previousBytes,
+				RecordSizeEstimator.estimateRetainedBytes(dataRecord));
+	}
+
+	@Override
+	public StorageReadResult readList(String type, Filter filter) {
+		cacheStatistics.recordRead(type);
+		return cache.readList(type, filter);
+	}
+
+	@Override
+	public StorageReadResult readList(List<String> types, Filter filter) {
+		cacheStatistics.recordRead(typeOf(types));
+		return cache.readList(types, filter);
+	}
+
+	@Override
+	public boolean recordExists(List<String> types, String id) {
+		return cache.recordExists(types, id);
+	}
+
+	@Override
+	public boolean linksExistForRecord(String type, String id) {
+		return cache.linksExistForRecord(type, id);
+	}
+
+	@Override
+	public Set<Link> getLinksToRecord(String type, String id) {
+		return cache.getLinksToRecord(type, id);
+	}
+
+	@Override
+	public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
+		return cache.getTotalNumberOfRecordsForTypes(types, filter);
+	}
+
+	private String typeOf(List<String> types) {
+		return types.size() == 1 ? types.get(0) : StorageMetrics.MULTIPLE_TYPES;
+	}
+
+	public RecordStorage onlyForTestGetCache() {
+		return cache;
+	}
+
+	public CacheStatistics onlyForTestGetCacheStatistics() {
+		return cacheStatistics;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * CacheTypeStatistics holds the statistics of the records of one record type in the cache, as
+ * exposed through {@link CacheStatisticsMXBean}. Reads, misses and writes are counted since the
+ * cache was populated, and the rates are per second over the same time.
+ */
+public final class CacheTypeStatistics {
+	private final String recordType;
+	private final long entryCount;
+	private final long estimatedRetainedBytes;
+	private final long reads;
+	private final long misses;
+	private final long writes;
+	private final double readsPerSecond;
+	private final double writesPerSecond;
+
+	CacheTypeStatistics(String recordType, long entryCount, long estimatedRetainedBytes,
+			long reads, long misses, long writes, long millisSinceWarmUp) {
+		this.recordType = recordType;
+		this.entryCount = entryCount;
+		this.estimatedRetainedBytes = estimatedRetainedBytes;
+		this.reads = reads;
+		this.misses = misses;
+		this.writes = writes;
+		this.readsPerSecond = perSecond(reads, millisSinceWarmUp);
+		this.writesPerSecond = perSecond(writes, millisSinceWarmUp);
+	}
+
+	private static double perSecond(long count, long millis) {
+		if (millis <= 0) {
+			return 0;
+		}
+		return count * 1000.0 / millis;
+	}
+
+	public String getRecordType() {
+		return recordType;
+	}
+
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	public long getEstimatedRetainedBytes() {
+		return estimatedRetainedBytes;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getWrites() {
+		return writes;
+	}
+
+	public double getReadsPerSecond() {
+		return readsPerSecond;
+	}
+
+	public double getWritesPerSecond() {
+		return writesPerSecond;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * HistogramStorageMetrics keeps a {@link LatencyHistogram} and an error count for each layer,
+ * operation and record type that has been recorded, and exposes them through JMX as a
+ * {@link StorageMetricsMXBean}.
+ * <p>
+ * The metrics of a layer, operation and record type are created the first time they are
+ * recorded, after that recording does not allocate memory or take locks, so that metrics can be
+ * kept on in production.
+ * <p>
+ * This class is threadsafe.
+ */
+public final class HistogramStorageMetrics implements StorageMetrics, StorageMetricsMXBean {
+	public static final String OBJECT_NAME = "se.uu.ub.cora.sqlstorage:type=StorageMetrics";
+	private static final StorageLayer[] LAYERS = StorageLayer.values();
+	private static final StorageOperation[] OPERATIONS = StorageOperation.values();
+
+	private final Map<String, AtomicReferenceArray<OperationMetrics>> metricsByRecordType =
+			new ConcurrentHashMap<>();
+
+	private static final class OperationMetrics {
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		private final LongAdder errorCount = new LongAdder();
+	}
+
+	@Override
+	public void recordLatency(StorageLayer layer, StorageOperation operation, String recordType,
+			long nanos) {
+		getOrCreateMetrics(layer, operation, recordType).histogram.recordNanos(nanos);
+	}
+
+	@Override
+	public void recordError(StorageLayer layer, StorageOperation operation, String recordType) {
+		getOrCreateMetrics(layer, operation, recordType).errorCount.increment();
+	}
+
+	private OperationMetrics getOrCreateMetrics(StorageLayer layer, StorageOperation operation,
+			String recordType) {
+		AtomicReferenceArray<OperationMetrics> metricsForType = getOrCreateMetricsForType(
+				recordType);
+		int index = layer.ordinal() * OPERATIONS.length + operation.ordinal();
+		OperationMetrics metrics = metricsForType.get(index);
+		if (metrics == null) {
+			metricsForType.compareAndSet(index, null, new OperationMetrics());
+			metrics = metricsForType.get(index);
+		}
+		return metrics;
+	}
+
+	private AtomicReferenceArray<OperationMetrics> getOrCreateMetricsForType(String recordType) {
+		AtomicReferenceArray<OperationMetrics> metricsForType = metricsByRecordType
+				.get(recordType);
+		if (metricsForType == null) {
+			metricsForType = metricsByRecordType.computeIfAbsent(recordType,
+					type -> new AtomicReferenceArray<>(LAYERS.length * OPERATIONS.length));
+		}
+		return metricsForType;
+	}
+
+	@Override
+	public List<OperationStatistics> getOperationStatistics() {
+		List<OperationStatistics> statistics = new ArrayList<>();
+		Map<String, AtomicReferenceArray<OperationMetrics>> sortedByType = new TreeMap<>(
+				metricsByRecordType);
+		for (Map.Entry<String, AtomicReferenceArray<OperationMetrics>> entry : sortedByType
+				.entrySet()) {
+			addStatisticsForType(statistics, entry.getKey(), entry.getValue());
+		}
+		return statistics;
+	}
+
+	private void addStatisticsForType(List<OperationStatistics> statistics, String recordType,
+			AtomicReferenceArray<OperationMetrics> metricsForType) {
+		for (int index = 0; index < metricsForType.length(); index++) {
+			OperationMetrics metrics = metricsForType.get(index);
+			if (metrics != null && hasBeenCalled(metrics)) {
+				statistics.add(new OperationStatistics(LAYERS[index / OPERATIONS.length],
+						OPERATIONS[index % OPERATIONS.length], recordType, metrics.histogram,
+						metrics.errorCount.sum()));
+			}
+		}
+	}
+
+	private boolean hasBeenCalled(OperationMetrics metrics) {
+		return metrics.histogram.getCount() > 0 || metrics.errorCount.sum() > 0;
+	}
+
+	@Override
+	public void reset() {
+		for (AtomicReferenceArray<OperationMetrics> metricsForType : metricsByRecordType
+				.values()) {
+			resetMetricsForType(metricsForType);
+		}
+	}
+
+	private void resetMetricsForType(AtomicReferenceArray<OperationMetrics> metricsForType) {
+		for (int index = 0; index < metricsForType.length(); index++) {
+			OperationMetrics metrics = metricsForType.get(index);
+			if (metrics != null) {
+				metrics.histogram.reset();
+				metrics.errorCount.reset();
+			}
+		}
+	}
+
+	/**
+	 * registerInPlatformMBeanServer registers these metrics in the platform MBeanServer with the
+	 * name {@value #OBJECT_NAME}, replacing any metrics previously registered with that name.
+	 * 
+	 * @throws StorageException
+	 *             if the metrics can not be registered
+	 */
+	public void registerInPlatformMBeanServer() {
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+			mBeanServer.registerMBean(this, objectName);
+		} catch (JMException e) {
+			throw StorageException.withMessageAndException(
+					"Storage metrics could not be registered with name: " + OBJECT_NAME, e);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * JsonConversionTime sums the time spent converting records between json and DataGroups on the
+ * current thread. Conversions are recorded in {@link StorageLayer#JSON_CONVERSION}, and
+ * {@link MeasuredRecordStorage} uses this sum to leave the conversions done during a call out of
+ * the time it records for {@link StorageLayer#DATABASE}.
+ * <p>
+ * Only a counter is kept for each thread, so nothing needs to be released when a thread ends.
+ */
+public final class JsonConversionTime {
+	private static final ThreadLocal<long[]> NANOS_ON_CURRENT_THREAD = ThreadLocal
+			.withInitial(() -> new long[1]);
+
+	private JsonConversionTime() {
+		// only static methods
+	}
+
+	/**
+	 * addOnCurrentThread adds nanos, the time of one conversion, to the sum for the current thread.
+	 */
+	public static void addOnCurrentThread(long nanos) {
+		NANOS_ON_CURRENT_THREAD.get()[0] += nanos;
+	}
+
+	/**
+	 * onCurrentThread returns the total time in nanoseconds spent converting on the current thread.
+	 * Only the difference between two calls is meaningful.
+	 */
+	public static long onCurrentThread() {
+		return NANOS_ON_CURRENT_THREAD.get()[0];
+	}
+}
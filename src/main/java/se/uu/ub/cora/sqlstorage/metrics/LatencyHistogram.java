@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records latencies in microseconds in log-linear buckets, in the same way as an
+ * HDR histogram. Latencies below {@value #SUB_BUCKETS} microseconds are recorded exactly, and each
+ * power of two above that is split into {@value #SUB_BUCKETS} buckets, so that the relative error
+ * of a reported percentile is at most 1/{@value #SUB_BUCKETS}. Latencies of more than 2^36
+ * microseconds, about 19 hours, are recorded in the last bucket.
+ * <p>
+ * Recording does not allocate memory or take locks. Reading percentiles while recording is going
+ * on gives a result that is consistent enough for monitoring, but not an exact snapshot.
+ * <p>
+ * This class is threadsafe.
+ */
+final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 35;
+	private static final int NUMBER_OF_BUCKETS = SUB_BUCKETS
+			+ (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	private static final int NANOS_PER_MICRO = 1000;
+
+	private final AtomicLongArray bucketCounts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	void recordNanos(long nanos) {
+		long micros = Math.max(0, nanos / NANOS_PER_MICRO);
+		bucketCounts.incrementAndGet(bucketIndex(micros));
+		count.increment();
+		totalMicros.add(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return NUMBER_OF_BUCKETS - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueInBucket(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowestValue = (long) (SUB_BUCKETS + subBucket) << shift;
+		return lowestValue + (1L << shift) - 1;
+	}
+
+	long getCount() {
+		return count.sum();
+	}
+
+	long getMaxMicros() {
+		return maxMicros.get();
+	}
+
+	double getMeanMicros() {
+		long numberOfValues = count.sum();
+		if (numberOfValues == 0) {
+			return 0;
+		}
+		return (double) totalMicros.sum() / numberOfValues;
+	}
+
+	/**
+	 * getValueAtPercentile returns the highest latency, in microseconds, that percentile percent
+	 * of the recorded latencies are less than or equal to, limited by the highest recorded
+	 * latency. It returns 0 if nothing is recorded.
+	 */
+	long getValueAtPercentile(double percentile) {
+		long numberOfValues = count.sum();
+		if (numberOfValues == 0) {
+			return 0;
+		}
+		long max = maxMicros.get();
+		long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * numberOfValues));
+		long cumulativeCount = 0;
+		for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+			cumulativeCount += bucketCounts.get(index);
+			if (cumulativeCount >= countAtPercentile) {
+				return Math.min(highestValueInBucket(index), max);
+			}
+		}
+		return max;
+	}
+
+	void reset() {
+		for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+			bucketCounts.set(index, 0);
+		}
+		count.reset();
+		totalMicros.reset();
+		maxMicros.set(0);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.sqlstorage.internal.RecordJsonConverter;
+
+/**
+ * MeasuredRecordJsonConverter is a RecordJsonConverter that measures every conversion done by
+ * another RecordJsonConverter, recording it as {@link StorageOperation#FROM_JSON} in the layer
+ * {@link StorageLayer#JSON_CONVERSION} for {@value StorageMetrics#ALL_TYPES}. The time is also
+ * added to {@link JsonConversionTime}.
+ */
+public final class MeasuredRecordJsonConverter implements RecordJsonConverter {
+	private final RecordJsonConverter recordJsonConverter;
+	private final StorageMetrics storageMetrics;
+
+	public static MeasuredRecordJsonConverter usingConverterAndMetrics(
+			RecordJsonConverter recordJsonConverter, StorageMetrics storageMetrics) {
+		return new MeasuredRecordJsonConverter(recordJsonConverter, storageMetrics);
+	}
+
+	private MeasuredRecordJsonConverter(RecordJsonConverter recordJsonConverter,
+			StorageMetrics storageMetrics) {
+		this.recordJsonConverter = recordJsonConverter;
+		this.storageMetrics = storageMetrics;
+	}
+
+	@Override
+	public DataGroup convert(String recordJson) {
+		long start = System.nanoTime();
+		try {
+			return recordJsonConverter.convert(recordJson);
+		} catch (RuntimeException e) {
+			storageMetrics.recordError(StorageLayer.JSON_CONVERSION, StorageOperation.FROM_JSON,
+					StorageMetrics.ALL_TYPES);
+			throw e;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			JsonConversionTime.addOnCurrentThread(nanos);
+			storageMetrics.recordLatency(StorageLayer.JSON_CONVERSION, StorageOperation.FROM_JSON,
+					StorageMetrics.ALL_TYPES, nanos);
+		}
+	}
+
+	public RecordJsonConverter onlyForTestGetRecordJsonConverter() {
+		return recordJsonConverter;
+	}
+
+	public StorageMetrics onlyForTestGetStorageMetrics() {
+		return storageMetrics;
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.List;
+import java.util.Set;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageReadResult;
+
+/**
+ * MeasuredRecordStorage is a RecordStorage that measures every call to another RecordStorage,
+ * recording the latency and any error in a {@link StorageMetrics} for a {@link StorageLayer}.
+ * Exceptions are rethrown unchanged.
+ * <p>
+ * Calls for a list of record types are recorded for the record type if the list has one type, and
+ * for {@value StorageMetrics#MULTIPLE_TYPES} otherwise.
+ * <p>
+ * In the layer {@link StorageLayer#DATABASE} the time spent converting records between json and
+ * DataGroups during a call, as summed by {@link JsonConversionTime}, is left out of the recorded
+ * latency, as it is recorded in {@link StorageLayer#JSON_CONVERSION}.
+ * <p>
+ * This class is threadsafe if the measured RecordStorage and the StorageMetrics are threadsafe.
+ */
+public class MeasuredRecordStorage implements RecordStorage {
+	private final RecordStorage recordStorage;
+	private final StorageMetrics storageMetrics;
+	private final StorageLayer layer;
+
+	public static MeasuredRecordStorage usingRecordStorageAndMetricsAndLayer(
+			RecordStorage recordStorage, StorageMetrics storageMetrics, StorageLayer layer) {
+		return new MeasuredRecordStorage(recordStorage, storageMetrics, layer);
+	}
+
+	protected MeasuredRecordStorage(RecordStorage recordStorage, StorageMetrics storageMetrics,
+			StorageLayer layer) {
+		this.recordStorage = recordStorage;
+		this.storageMetrics = storageMetrics;
+		this.layer = layer;
+	}
+
+	@Override
+	public DataGroup read(List<String> types, String id) {
+		long start = startTime();
+		try {
+			return recordStorage.read(types, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ, typeOf(types));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ, typeOf(types), start);
+		}
+	}
+
+	@Override
+	public DataRecordGroup read(String type, String id) {
+		long start = startTime();
+		try {
+			return recordStorage.read(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ, type, start);
+		}
+	}
+
+	@Override
+	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		long start = startTime();
+		try {
+			recordStorage.create(type, id, dataRecord, storageTerms, links, dataDivider);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.CREATE, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.CREATE, type, start);
+		}
+	}
+
+	@Override
+	public void deleteByTypeAndId(String type, String id) {
+		long start = startTime();
+		try {
+			recordStorage.deleteByTypeAndId(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.DELETE, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.DELETE, type, start);
+		}
+	}
+
+	@Override
+	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		long start = startTime();
+		try {
+			recordStorage.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.UPDATE, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.UPDATE, type, start);
+		}
+	}
+
+	@Override
+	public StorageReadResult readList(String type, Filter filter) {
+		long start = startTime();
+		try {
+			return recordStorage.readList(type, filter);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_LIST, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_LIST, type, start);
+		}
+	}
+
+	@Override
+	public StorageReadResult readList(List<String> types, Filter filter) {
+		long start = startTime();
+		try {
+			return recordStorage.readList(types, filter);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_LIST, typeOf(types));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_LIST, typeOf(types), start);
+		}
+	}
+
+	@Override
+	public boolean recordExists(List<String> types, String id) {
+		long start = startTime();
+		try {
+			return recordStorage.recordExists(types, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.RECORD_EXISTS, typeOf(types));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.RECORD_EXISTS, typeOf(types), start);
+		}
+	}
+
+	@Override
+	public boolean linksExistForRecord(String type, String id) {
+		long start = startTime();
+		try {
+			return recordStorage.linksExistForRecord(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.LINKS_EXIST_FOR_RECORD, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.LINKS_EXIST_FOR_RECORD, type, start);
+		}
+	}
+
+	@Override
+	public Set<Link> getLinksToRecord(String type, String id) {
+		long start = startTime();
+		try {
+			return recordStorage.getLinksToRecord(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.GET_LINKS_TO_RECORD, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.GET_LINKS_TO_RECORD, type, start);
+		}
+	}
+
+	@Override
+	public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
+		long start = startTime();
+		try {
+			return recordStorage.getTotalNumberOfRecordsForTypes(types, filter);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.GET_TOTAL_NUMBER_OF_RECORDS, typeOf(types));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.GET_TOTAL_NUMBER_OF_RECORDS, typeOf(types), start);
+		}
+	}
+
+	protected final String typeOf(List<String> types) {
+		return types.size() == 1 ? types.get(0) : StorageMetrics.MULTIPLE_TYPES;
+	}
+
+	protected final void recordError(StorageOperation operation, String recordType) {
+		storageMetrics.recordError(layer, operation, recordType);
+	}
+
+	protected final long startTime() {
+		return currentTime();
+	}
+
+	private long currentTime() {
+		long now = System.nanoTime();
+		if (layer == StorageLayer.DATABASE) {
+			return now - JsonConversionTime.onCurrentThread();
+		}
+		return now;
+	}
+
+	protected final void recordLatency(StorageOperation operation, String recordType, long start) {
+		storageMetrics.recordLatency(layer, operation, recordType, currentTime() - start);
+	}
+
+	public RecordStorage onlyForTestGetRecordStorage() {
+		return recordStorage;
+	}
+
+	public StorageMetrics onlyForTestGetStorageMetrics() {
+		return storageMetrics;
+	}
+
+	public StorageLayer onlyForTestGetLayer() {
+		return layer;
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+
+/**
+ * MeasuredSqlRecordStorage is a {@link MeasuredRecordStorage} for a SqlRecordStorage, also
+ * measuring the methods added by SqlRecordStorage.
+ * <p>
+ * A writeInOneTransaction or writeInOneTransactionUsingSavepoints is recorded for the record type
+ * of the writes if all writes are for the same type, and for {@value StorageMetrics#MULTIPLE_TYPES}
+ * otherwise.
+ */
+public final class MeasuredSqlRecordStorage extends MeasuredRecordStorage
+		implements SqlRecordStorage {
+	private final SqlRecordStorage database;
+
+	public static MeasuredSqlRecordStorage usingDatabaseAndMetricsAndLayer(
+			SqlRecordStorage database, StorageMetrics storageMetrics, StorageLayer layer) {
+		return new MeasuredSqlRecordStorage(database, storageMetrics, layer);
+	}
+
+	private MeasuredSqlRecordStorage(SqlRecordStorage database, StorageMetrics storageMetrics,
+			StorageLayer layer) {
+		super(database, storageMetrics, layer);
+		this.database = database;
+	}
+
+	@Override
+	public void writeInOneTransaction(List<RecordWrite> writes) {
+		long start = startTime();
+		try {
+			database.writeInOneTransaction(writes);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.WRITE_IN_ONE_TRANSACTION, typeOfWrites(writes));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.WRITE_IN_ONE_TRANSACTION, typeOfWrites(writes), start);
+		}
+	}
+
+	@Override
+	public List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes) {
+		long start = startTime();
+		try {
+			return database.writeInOneTransactionUsingSavepoints(writes);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.WRITE_IN_ONE_TRANSACTION_USING_SAVEPOINTS,
+					typeOfWrites(writes));
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.WRITE_IN_ONE_TRANSACTION_USING_SAVEPOINTS,
+					typeOfWrites(writes), start);
+		}
+	}
+
+	@Override
+	public List<String> deleteByTypeAndIds(String type, List<String> ids) {
+		long start = startTime();
+		try {
+			return database.deleteByTypeAndIds(type, ids);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.DELETE_BY_TYPE_AND_IDS, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.DELETE_BY_TYPE_AND_IDS, type, start);
+		}
+	}
+
+	@Override
+	public List<String> deleteAllOfType(String type) {
+		long start = startTime();
+		try {
+			return database.deleteAllOfType(type);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.DELETE_ALL_OF_TYPE, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.DELETE_ALL_OF_TYPE, type, start);
+		}
+	}
+
+	@Override
+	public void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		long start = startTime();
+		try {
+			database.upsert(type, id, dataRecord, storageTerms, links, dataDivider);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.UPSERT, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.UPSERT, type, start);
+		}
+	}
+
+	@Override
+	public void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion) {
+		long start = startTime();
+		try {
+			database.updateUsingExpectedVersion(type, id, dataRecord, storageTerms, links,
+					dataDivider, expectedVersion);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.UPDATE_USING_EXPECTED_VERSION, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.UPDATE_USING_EXPECTED_VERSION, type, start);
+		}
+	}
+
+	@Override
+	public long readVersion(String type, String id) {
+		long start = startTime();
+		try {
+			return database.readVersion(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_VERSION, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_VERSION, type, start);
+		}
+	}
+
+	@Override
+	public VersionedRecordGroup readWithVersion(String type, String id) {
+		long start = startTime();
+		try {
+			return database.readWithVersion(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_WITH_VERSION, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_WITH_VERSION, type, start);
+		}
+	}
+
+	@Override
+	public DataGroup readProjection(String type, String id, RecordProjection projection) {
+		long start = startTime();
+		try {
+			return database.readProjection(type, id, projection);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_PROJECTION, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_PROJECTION, type, start);
+		}
+	}
+
+	@Override
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		long start = startTime();
+		try {
+			return database.readLinksToRecord(type, id, pageRequest);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.READ_LINKS_TO_RECORD, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.READ_LINKS_TO_RECORD, type, start);
+		}
+	}
+
+	@Override
+	public long countLinksToRecord(String type, String id) {
+		long start = startTime();
+		try {
+			return database.countLinksToRecord(type, id);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.COUNT_LINKS_TO_RECORD, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.COUNT_LINKS_TO_RECORD, type, start);
+		}
+	}
+
+	@Override
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		long start = startTime();
+		try {
+			return database.traverseLinks(type, id, traversalRequest);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.TRAVERSE_LINKS, type);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.TRAVERSE_LINKS, type, start);
+		}
+	}
+
+	@Override
+	public <T> T runInUnitOfWork(Function<UnitOfWork, T> work) {
+		long start = startTime();
+		try {
+			return database.runInUnitOfWork(work);
+		} catch (RuntimeException e) {
+			recordError(StorageOperation.RUN_IN_UNIT_OF_WORK, StorageMetrics.MULTIPLE_TYPES);
+			throw e;
+		} finally {
+			recordLatency(StorageOperation.RUN_IN_UNIT_OF_WORK, StorageMetrics.MULTIPLE_TYPES,
+					start);
+		}
+	}
+
+	private String typeOfWrites(List<RecordWrite> writes) {
+		if (writes.isEmpty()) {
+			return StorageMetrics.MULTIPLE_TYPES;
+		}
+		String type = writes.get(0).type();
+		for (int i = 1; i < writes.size(); i++) {
+			if (!type.equals(writes.get(i).type())) {
+				return StorageMetrics.MULTIPLE_TYPES;
+			}
+		}
+		return type;
+	}
+}
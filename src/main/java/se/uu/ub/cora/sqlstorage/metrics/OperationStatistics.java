@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * OperationStatistics holds the statistics of one operation in one layer for one record type, as
+ * exposed through {@link StorageMetricsMXBean}. Latencies are in microseconds.
+ */
+public final class OperationStatistics {
+	private final String layer;
+	private final String operation;
+	private final String recordType;
+	private final long count;
+	private final long errorCount;
+	private final double meanMicros;
+	private final long p50Micros;
+	private final long p90Micros;
+	private final long p99Micros;
+	private final long p999Micros;
+	private final long maxMicros;
+
+	OperationStatistics(StorageLayer layer, StorageOperation operation, String recordType,
+			LatencyHistogram histogram, long errorCount) {
+		this.layer = layer.name();
+		this.operation = operation.name();
+		this.recordType = recordType;
+		this.count = histogram.getCount();
+		this.errorCount = errorCount;
+		this.meanMicros = histogram.getMeanMicros();
+		this.p50Micros = histogram.getValueAtPercentile(50);
+		this.p90Micros = histogram.getValueAtPercentile(90);
+		this.p99Micros = histogram.getValueAtPercentile(99);
+		this.p999Micros = histogram.getValueAtPercentile(99.9);
+		this.maxMicros = histogram.getMaxMicros();
+	}
+
+	public String getLayer() {
+		return layer;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public String getRecordType() {
+		return recordType;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public long getP90Micros() {
+		return p90Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public long getP999Micros() {
+		return p999Micros;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * PopulationPhase is the phase the population of the cache from the database is in, as reported
+ * by {@link PopulationProgress}.
+ */
+public enum PopulationPhase {
+	/**
+	 * The storage is not yet being started.
+	 */
+	NOT_STARTED,
+	/**
+	 * The storage terms of all records are read.
+	 */
+	STORAGE_TERMS,
+	/**
+	 * The links of all records are read.
+	 */
+	LINKS,
+	/**
+	 * All records are read and put in the cache.
+	 */
+	RECORDS,
+	/**
+	 * The storage is started and ready to use.
+	 */
+	READY,
+	/**
+	 * The start of the storage failed, the failure can be read from
+	 * {@link PopulationProgress#getFailure()}.
+	 */
+	FAILED
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.storage.StorageException;
+
+/**
+ * PopulationProgress follows the population of the cache from the database, phase by phase, and
+ * logs the progress with a fixed interval so that a slow warm-up can be told from a hung one.
+ * <p>
+ * For each phase the number of rows to process is first the estimate from the database
+ * statistics, and then the number of rows read from the database. The progress logged holds the
+ * rows processed, the rows processed per second, the estimated time remaining of the phase and the
+ * heap in use. The same values are exposed through JMX as a {@link PopulationProgressMXBean}, and
+ * {@link StorageReadiness} lets other components ask if the storage is ready.
+ * <p>
+ * Progress is reported by the one thread populating the cache, and can be read by any thread.
+ */
+public final class PopulationProgress implements PopulationProgressMXBean {
+	public static final String OBJECT_NAME = "se.uu.ub.cora.sqlstorage:type=PopulationProgress";
+	private static final long UNKNOWN = -1;
+	private static final long BYTES_IN_MEGABYTE = 1024L * 1024L;
+
+	private final long logIntervalNanos;
+	private final boolean reported;
+	private final LongSupplier nanoClock;
+	private volatile PopulationPhase phase = PopulationPhase.NOT_STARTED;
+	private volatile long rowsToProcess = UNKNOWN;
+	private volatile long rowsProcessed;
+	private volatile long phaseStartNanos;
+	private volatile long processingStartNanos;
+	private volatile long lastProgressNanos;
+	private volatile Throwable failure;
+	private long lastLogNanos;
+
+	public static PopulationProgress usingLogIntervalMillis(long logIntervalMillis) {
+		return new PopulationProgress(logIntervalMillis, true, System::nanoTime);
+	}
+
+	/**
+	 * notReported returns a PopulationProgress that logs nothing, for populations where no
+	 * progress is to be reported.
+	 */
+	public static PopulationProgress notReported() {
+		return new PopulationProgress(Long.MAX_VALUE, false, System::nanoTime);
+	}
+
+	PopulationProgress(long logIntervalMillis, boolean reported, LongSupplier nanoClock) {
+		this.logIntervalNanos = logIntervalMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+				: TimeUnit.MILLISECONDS.toNanos(logIntervalMillis);
+		this.reported = reported;
+		this.nanoClock = nanoClock;
+		phaseStartNanos = nanoClock.getAsLong();
+		lastProgressNanos = phaseStartNanos;
+	}
+
+	/**
+	 * isReported returns true if the progress is reported, so that the populator knows if it is
+	 * worth reading the estimated number of rows from the database.
+	 */
+	public boolean isReported() {
+		return reported;
+	}
+
+	/**
+	 * startPhase starts a new phase, before its rows are read from the database.
+	 * 
+	 * @param estimatedRows
+	 *            A long with the estimated number of rows in the phase, or -1 if unknown
+	 */
+	public void startPhase(PopulationPhase phase, long estimatedRows) {
+		long now = nanoClock.getAsLong();
+		this.phase = phase;
+		rowsToProcess = estimatedRows;
+		rowsProcessed = 0;
+		phaseStartNanos = now;
+		processingStartNanos = now;
+		lastProgressNanos = now;
+		lastLogNanos = now;
+		logIfReported(String.format(Locale.ROOT,
+				"Populating cache, starting phase: %s, estimated rows: %s", phase,
+				formatUnknown(estimatedRows)));
+	}
+
+	/**
+	 * rowsRead sets the number of rows of the current phase to the number of rows read from the
+	 * database, and starts measuring the processing of them.
+	 */
+	public void rowsRead(long numberOfRows) {
+		long now = nanoClock.getAsLong();
+		rowsToProcess = numberOfRows;
+		processingStartNanos = now;
+		lastProgressNanos = now;
+		logIfReported(String.format(Locale.ROOT,
+				"Populating cache, phase: %s, read %d rows from database in %d ms", phase,
+				numberOfRows, TimeUnit.NANOSECONDS.toMillis(now - phaseStartNanos)));
+	}
+
+	/**
+	 * rowProcessed counts one processed row, and logs the progress if the log interval has passed
+	 * since the progress was last logged.
+	 */
+	public void rowProcessed() {
+		long now = nanoClock.getAsLong();
+		rowsProcessed++;
+		lastProgressNanos = now;
+		if (now - lastLogNanos >= logIntervalNanos) {
+			lastLogNanos = now;
+			logIfReported(createProgressMessage());
+		}
+	}
+
+	private String createProgressMessage() {
+		return String.format(Locale.ROOT,
+				"Populating cache, phase: %s, rows: %d of %s, rows/s: %.1f, "
+						+ "estimated time remaining: %s s, heap used: %d MB",
+				phase, rowsProcessed, formatUnknown(rowsToProcess), getRowsPerSecond(),
+				formatUnknown(getEstimatedSecondsRemaining()),
+				getHeapUsedBytes() / BYTES_IN_MEGABYTE);
+	}
+
+	private String formatUnknown(long value) {
+		return value < 0 ? "unknown" : String.valueOf(value);
+	}
+
+	/**
+	 * finishPhase logs the number of rows processed in the current phase and the time it took.
+	 */
+	public void finishPhase() {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - phaseStartNanos);
+		logIfReported(String.format(Locale.ROOT,
+				"Populating cache, finished phase: %s, rows: %d in %d ms, rows/s: %.1f, "
+						+ "heap used: %d MB",
+				phase, rowsProcessed, millis, getRowsPerSecond(),
+				getHeapUsedBytes() / BYTES_IN_MEGABYTE));
+	}
+
+	/**
+	 * markReady is called when the storage is started and ready to use.
+	 */
+	public void markReady() {
+		phase = PopulationPhase.READY;
+	}
+
+	/**
+	 * markFailed is called when the start of the storage fails, with the exception or error it
+	 * failed with. The failure is logged together with the phase it happened in.
+	 */
+	public void markFailed(Throwable failure) {
+		PopulationPhase failedPhase = phase;
+		this.failure = failure;
+		phase = PopulationPhase.FAILED;
+		if (reported) {
+			LoggerProvider.getLoggerForClass(PopulationProgress.class)
+					.logErrorUsingMessage(String.format(Locale.ROOT,
+							"Populating cache failed in phase: %s, rows: %d of %s, with: %s",
+							failedPhase, rowsProcessed, formatUnknown(rowsToProcess), failure));
+		}
+	}
+
+	private void logIfReported(String message) {
+		if (reported) {
+			LoggerProvider.getLoggerForClass(PopulationProgress.class)
+					.logInfoUsingMessage(message);
+		}
+	}
+
+	/**
+	 * getFailure returns the exception or error the start of the storage failed with, or an empty
+	 * Optional if the start has not failed.
+	 */
+	public Optional<Throwable> getFailure() {
+		return Optional.ofNullable(failure);
+	}
+
+	@Override
+	public boolean isReady() {
+		return phase == PopulationPhase.READY;
+	}
+
+	@Override
+	public boolean isFailed() {
+		return phase == PopulationPhase.FAILED;
+	}
+
+	@Override
+	public String getFailureDescription() {
+		Throwable currentFailure = failure;
+		return currentFailure == null ? "" : currentFailure.toString();
+	}
+
+	@Override
+	public String getPhase() {
+		return phase.name();
+	}
+
+	@Override
+	public long getRowsProcessed() {
+		return rowsProcessed;
+	}
+
+	@Override
+	public long getRowsToProcess() {
+		return rowsToProcess;
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		long nanos = lastProgressNanos - processingStartNanos;
+		if (nanos <= 0) {
+			return 0;
+		}
+		return rowsProcessed * 1_000_000_000.0 / nanos;
+	}
+
+	@Override
+	public long getEstimatedSecondsRemaining() {
+		double rowsPerSecond = getRowsPerSecond();
+		if (rowsToProcess < 0 || rowsPerSecond == 0) {
+			return UNKNOWN;
+		}
+		return (long) Math.ceil(Math.max(0, rowsToProcess - rowsProcessed) / rowsPerSecond);
+	}
+
+	@Override
+	public long getMillisSinceLastProgress() {
+		return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - lastProgressNanos);
+	}
+
+	@Override
+	public long getHeapUsedBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * registerInPlatformMBeanServer registers this progress in the platform MBeanServer with the
+	 * name {@value #OBJECT_NAME}, replacing any progress previously registered with that name.
+	 * 
+	 * @throws StorageException
+	 *             if the progress can not be registered
+	 */
+	public void registerInPlatformMBeanServer() {
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+			mBeanServer.registerMBean(this, objectName);
+		} catch (JMException e) {
+			throw StorageException.withMessageAndException(
+					"Population progress could not be registered with name: " + OBJECT_NAME, e);
+		}
+	}
+
+	public long onlyForTestGetLogIntervalMillis() {
+		return logIntervalNanos == Long.MAX_VALUE ? Long.MAX_VALUE
+				: TimeUnit.NANOSECONDS.toMillis(logIntervalNanos);
+	}
+}
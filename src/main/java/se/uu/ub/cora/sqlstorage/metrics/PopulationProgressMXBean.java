@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * PopulationProgressMXBean exposes the progress of the population of the cache reported to a
+ * {@link PopulationProgress} through JMX.
+ */
+public interface PopulationProgressMXBean {
+
+	/**
+	 * isReady returns true when the storage is started and ready to use.
+	 */
+	boolean isReady();
+
+	/**
+	 * isFailed returns true if the start of the storage failed.
+	 */
+	boolean isFailed();
+
+	/**
+	 * getFailureDescription returns the class and message of the exception the start of the
+	 * storage failed with, or an empty String if the start has not failed.
+	 */
+	String getFailureDescription();
+
+	/**
+	 * getPhase returns the name of the current {@link PopulationPhase}.
+	 */
+	String getPhase();
+
+	/**
+	 * getRowsProcessed returns the number of rows processed in the current phase.
+	 */
+	long getRowsProcessed();
+
+	/**
+	 * getRowsToProcess returns the number of rows in the current phase. Until the rows are read
+	 * from the database this is the estimate from the database statistics, or -1 if there is no
+	 * estimate.
+	 */
+	long getRowsToProcess();
+
+	/**
+	 * getRowsPerSecond returns the number of rows processed per second in the current phase.
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * getEstimatedSecondsRemaining returns the estimated number of seconds until the current
+	 * phase is done, or -1 if it can not be estimated yet.
+	 */
+	long getEstimatedSecondsRemaining();
+
+	/**
+	 * getMillisSinceLastProgress returns the number of milliseconds since the last row was
+	 * processed or the current phase started. A value that keeps growing while the storage is
+	 * not ready tells a hung population from a slow one.
+	 */
+	long getMillisSinceLastProgress();
+
+	/**
+	 * getHeapUsedBytes returns the number of bytes of heap in use.
+	 */
+	long getHeapUsedBytes();
+}
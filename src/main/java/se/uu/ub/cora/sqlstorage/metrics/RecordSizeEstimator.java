@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.Collection;
+import java.util.List;
+
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataAttribute;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordLink;
+
+/**
+ * RecordSizeEstimator estimates the number of bytes a record takes on the heap, by walking the
+ * DataGroup and adding up the sizes of the objects, lists and strings it is made of.
+ * <p>
+ * The sizes are those of a 64-bit JVM with compressed references and strings with one byte per
+ * character. Strings shared between records, such as names in data, are counted once for each
+ * use, so the estimate is an upper bound rather than an exact size.
+ */
+final class RecordSizeEstimator {
+	private static final int OBJECT_ALIGNMENT = 8;
+	private static final int CHILD_OBJECT_BYTES = 24;
+	private static final int LIST_OBJECT_BYTES = 24;
+	private static final int ARRAY_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = 4;
+	private static final int STRING_OBJECT_BYTES = 24;
+
+	private RecordSizeEstimator() {
+		// prevent instantiation
+	}
+
+	static long estimateRetainedBytes(DataGroup dataRecord) {
+		return estimateChild(dataRecord);
+	}
+
+	private static long estimateChild(DataChild child) {
+		long bytes = CHILD_OBJECT_BYTES + estimateString(child.getNameInData())
+				+ estimateString(child.getRepeatId()) + estimateAttributes(child);
+		if (child instanceof DataRecordLink recordLink) {
+			return bytes + estimateString(recordLink.getLinkedRecordType())
+					+ estimateString(recordLink.getLinkedRecordId());
+		}
+		if (child instanceof DataGroup group) {
+			return bytes + estimateChildren(group.getChildren());
+		}
+		if (child instanceof DataAtomic atomic) {
+			return bytes + estimateString(atomic.getValue());
+		}
+		return bytes;
+	}
+
+	private static long estimateAttributes(DataChild child) {
+		if (!child.hasAttributes()) {
+			return 0;
+		}
+		Collection<DataAttribute> attributes = child.getAttributes();
+		long bytes = estimateList(attributes.size());
+		for (DataAttribute attribute : attributes) {
+			bytes += CHILD_OBJECT_BYTES + estimateString(attribute.getNameInData())
+					+ estimateString(attribute.getValue());
+		}
+		return bytes;
+	}
+
+	private static long estimateChildren(List<DataChild> children) {
+		long bytes = estimateList(children.size());
+		for (DataChild child : children) {
+			bytes += estimateChild(child);
+		}
+		return bytes;
+	}
+
+	private static long estimateList(int size) {
+		return LIST_OBJECT_BYTES + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * size);
+	}
+
+	private static long estimateString(String value) {
+		if (value == null) {
+			return 0;
+		}
+		return STRING_OBJECT_BYTES + align(ARRAY_HEADER_BYTES + (long) value.length());
+	}
+
+	private static long align(long bytes) {
+		return (bytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * StorageLayer is the part of the storage an operation is measured in, making it possible to see
+ * how much of the time of a storage call is spent in the database, in json conversion and in the
+ * cache.
+ */
+public enum StorageLayer {
+	/**
+	 * The storage as seen by its users, the total time of each call.
+	 */
+	STORAGE,
+	/**
+	 * The in memory storage used as cache.
+	 */
+	CACHE,
+	/**
+	 * The database storage, not including json conversion of the records read and written, which
+	 * is recorded in JSON_CONVERSION.
+	 */
+	DATABASE,
+	/**
+	 * Conversion of records between json and DataGroups.
+	 */
+	JSON_CONVERSION
+}
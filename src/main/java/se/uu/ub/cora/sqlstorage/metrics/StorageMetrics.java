@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * StorageMetrics receives the latency and errors of measured storage operations, per
+ * {@link StorageLayer}, {@link StorageOperation} and record type.
+ * <p>
+ * Operations on more than one record type are recorded with the record type
+ * {@value #MULTIPLE_TYPES}, and json conversions, where the record type is not known, with the
+ * record type {@value #ALL_TYPES}.
+ * <p>
+ * Implementations are called on every storage call and must be threadsafe. They should avoid
+ * allocating memory and taking locks when recording, as recording is done on the calling thread.
+ * {@link HistogramStorageMetrics} is the implementation used by
+ * CachedDatabaseStorageInstanceProvider, other registries can be plugged in by implementing this
+ * interface.
+ */
+public interface StorageMetrics {
+	String MULTIPLE_TYPES = "multipleTypes";
+	String ALL_TYPES = "allTypes";
+
+	/**
+	 * noMetrics returns a StorageMetrics that ignores everything recorded.
+	 */
+	static StorageMetrics noMetrics() {
+		return NoStorageMetrics.INSTANCE;
+	}
+
+	/**
+	 * recordLatency records that a call to the operation in the layer for the recordType took
+	 * nanos nanoseconds. Latency is recorded for all calls, including failed calls.
+	 */
+	void recordLatency(StorageLayer layer, StorageOperation operation, String recordType,
+			long nanos);
+
+	/**
+	 * recordError records that a call to the operation in the layer for the recordType failed
+	 * with an exception.
+	 */
+	void recordError(StorageLayer layer, StorageOperation operation, String recordType);
+}
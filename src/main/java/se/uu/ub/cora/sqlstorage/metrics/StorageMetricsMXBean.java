@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.List;
+
+/**
+ * StorageMetricsMXBean exposes the metrics recorded by a {@link HistogramStorageMetrics} through
+ * JMX.
+ */
+public interface StorageMetricsMXBean {
+
+	/**
+	 * getOperationStatistics returns the statistics of all operations that have been called since
+	 * start or the last reset, ordered by record type, layer and operation.
+	 */
+	List<OperationStatistics> getOperationStatistics();
+
+	/**
+	 * reset clears all recorded metrics.
+	 */
+	void reset();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+/**
+ * StorageOperation is the measured operation, one for each method of RecordStorage and
+ * SqlRecordStorage, where overloaded methods share an operation, and one for each direction of
+ * json conversion.
+ */
+public enum StorageOperation {
+	READ, READ_LIST, CREATE, UPDATE, DELETE, RECORD_EXISTS, LINKS_EXIST_FOR_RECORD,
+	GET_LINKS_TO_RECORD, GET_TOTAL_NUMBER_OF_RECORDS, WRITE_IN_ONE_TRANSACTION,
+	WRITE_IN_ONE_TRANSACTION_USING_SAVEPOINTS, DELETE_BY_TYPE_AND_IDS, DELETE_ALL_OF_TYPE, UPSERT,
+	UPDATE_USING_EXPECTED_VERSION, READ_VERSION, READ_WITH_VERSION, READ_PROJECTION,
+	READ_LINKS_TO_RECORD, COUNT_LINKS_TO_RECORD, TRAVERSE_LINKS, RUN_IN_UNIT_OF_WORK, FROM_JSON,
+	TO_JSON
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import java.util.Optional;
+
+/**
+ * StorageReadiness is a readiness probe for the storage, that other components can ask if the
+ * storage is started and ready to use without waiting for it to start. While the cache is
+ * populated the progress of the population can be read using
+ * {@link #getPopulationProgress()}, and if the start fails the failure can be read using
+ * {@link #getFailure()}.
+ */
+public final class StorageReadiness {
+	private static volatile PopulationProgress populationProgress;
+
+	private StorageReadiness() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * setPopulationProgress is called by the provider starting the storage, with the progress of
+	 * the start.
+	 */
+	public static void setPopulationProgress(PopulationProgress progress) {
+		populationProgress = progress;
+	}
+
+	/**
+	 * isReady returns true if the storage is started and ready to use, false if the storage is
+	 * not yet started or still being started.
+	 */
+	public static boolean isReady() {
+		PopulationProgressMXBean progress = populationProgress;
+		return progress != null && progress.isReady();
+	}
+
+	/**
+	 * isFailed returns true if the start of the storage failed.
+	 */
+	public static boolean isFailed() {
+		PopulationProgress progress = populationProgress;
+		return progress != null && progress.isFailed();
+	}
+
+	/**
+	 * getFailure returns the exception or error the start of the storage failed with, or an empty
+	 * Optional if the storage is not started, still being started or started without failure.
+	 */
+	public static Optional<Throwable> getFailure() {
+		PopulationProgress progress = populationProgress;
+		return progress == null ? Optional.empty() : progress.getFailure();
+	}
+
+	/**
+	 * getPopulationProgress returns the progress of the start of the storage, or an empty Optional
+	 * if the storage is not yet being started.
+	 */
+	public static Optional<PopulationProgressMXBean> getPopulationProgress() {
+		return Optional.ofNullable(populationProgress);
+	}
+}
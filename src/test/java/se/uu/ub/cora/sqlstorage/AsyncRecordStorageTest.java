@@ -0,0 +1,277 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.StorageException;
+import se.uu.ub.cora.storage.spies.RecordStorageSpy;
+
+public class AsyncRecordStorageTest {
+	private RecordStorageSpy recordStorage;
+	private List<Thread> threads;
+	private Executor threadPerCallExecutor;
+	private AsyncRecordStorage asyncStorage;
+	private List<String> types = List.of("someType", "otherType");
+	private Filter filter = new Filter();
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+	private Set<StorageTerm> storageTerms = Set.of();
+	private Set<Link> links = Set.of();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		recordStorage = new RecordStorageSpy();
+		threads = new ArrayList<>();
+		threadPerCallExecutor = command -> {
+			Thread thread = new Thread(command);
+			threads.add(thread);
+			thread.start();
+		};
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, Runnable::run, 2);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		Executor executor = Runnable::run;
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, executor, 5);
+
+		assertSame(asyncStorage.onlyForTestGetRecordStorage(), recordStorage);
+		assertSame(asyncStorage.onlyForTestGetExecutor(), executor);
+		assertEquals(asyncStorage.onlyForTestGetMaxConcurrentCalls(), 5);
+		assertEquals(asyncStorage.onlyForTestGetNumberOfWaitingCalls(), 0);
+	}
+
+	@Test
+	public void testMaxConcurrentCallsMustBeAtLeastOne() throws Exception {
+		try {
+			AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(recordStorage,
+					Runnable::run, 0);
+			fail("create should fail");
+		} catch (Exception e) {
+			assertTrue(e instanceof IllegalArgumentException);
+			assertEquals(e.getMessage(), "MaxConcurrentCalls must be at least 1, was: 0.");
+		}
+	}
+
+	@Test
+	public void testCallIsRunOnExecutor() throws Exception {
+		List<Runnable> commands = new ArrayList<>();
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, commands::add, 2);
+
+		CompletableFuture<DataRecordGroup> result = asyncStorage.read("someType", "someId");
+
+		assertFalse(result.isDone());
+		recordStorage.MCR.assertMethodNotCalled("read");
+		commands.get(0).run();
+		recordStorage.MCR.assertReturn("read", 0, result.join());
+	}
+
+	@Test
+	public void testReadUsingType() throws Exception {
+		var result = asyncStorage.read("someType", "someId").join();
+
+		recordStorage.MCR.assertParameters("read", 0, "someType", "someId");
+		recordStorage.MCR.assertReturn("read", 0, result);
+	}
+
+	@Test
+	public void testReadUsingTypes() throws Exception {
+		recordStorage.MRV.setDefaultReturnValuesSupplier("read", DataGroupSpy::new);
+
+		var result = asyncStorage.read(types, "someId").join();
+
+		recordStorage.MCR.assertParameters("read", 0, types, "someId");
+		recordStorage.MCR.assertReturn("read", 0, result);
+	}
+
+	@Test
+	public void testReadListUsingType() throws Exception {
+		var result = asyncStorage.readList("someType", filter).join();
+
+		recordStorage.MCR.assertParameters("readList", 0, "someType", filter);
+		recordStorage.MCR.assertReturn("readList", 0, result);
+	}
+
+	@Test
+	public void testReadListUsingTypes() throws Exception {
+		var result = asyncStorage.readList(types, filter).join();
+
+		recordStorage.MCR.assertParameters("readList", 0, types, filter);
+		recordStorage.MCR.assertReturn("readList", 0, result);
+	}
+
+	@Test
+	public void testCreate() throws Exception {
+		asyncStorage.create("someType", "someId", dataRecord, storageTerms, links,
+				"someDataDivider").join();
+
+		recordStorage.MCR.assertParameters("create", 0, "someType", "someId", dataRecord,
+				storageTerms, links, "someDataDivider");
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		asyncStorage.update("someType", "someId", dataRecord, storageTerms, links,
+				"someDataDivider").join();
+
+		recordStorage.MCR.assertParameters("update", 0, "someType", "someId", dataRecord,
+				storageTerms, links, "someDataDivider");
+	}
+
+	@Test
+	public void testDeleteByTypeAndId() throws Exception {
+		asyncStorage.deleteByTypeAndId("someType", "someId").join();
+
+		recordStorage.MCR.assertParameters("deleteByTypeAndId", 0, "someType", "someId");
+	}
+
+	@Test
+	public void testExceptionFromRecordStorageCompletesFutureExceptionally() throws Exception {
+		StorageException storageException = StorageException.withMessage("someError");
+		recordStorage.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			throw storageException;
+		});
+
+		CompletableFuture<DataRecordGroup> result = asyncStorage.read("someType", "someId");
+
+		try {
+			result.join();
+			fail("read should fail");
+		} catch (CompletionException e) {
+			assertSame(e.getCause(), storageException);
+		}
+		assertEquals(asyncStorage.onlyForTestGetNumberOfWaitingCalls(), 0);
+	}
+
+	@Test
+	public void testPermitIsReleasedAfterException() throws Exception {
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, Runnable::run, 1);
+		recordStorage.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			throw StorageException.withMessage("someError");
+		});
+		asyncStorage.read("someType", "someId");
+		recordStorage.MRV.setDefaultReturnValuesSupplier("read", DataRecordGroupSpy::new);
+
+		CompletableFuture<DataRecordGroup> result = asyncStorage.read("someType", "someId");
+
+		assertTrue(result.isDone());
+		assertTrue(result.join() instanceof DataRecordGroupSpy);
+	}
+
+	@Test
+	public void testCallsAboveMaxConcurrentCallsWaitForPermit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		setUpReadBlockingUntilReleased(started, release);
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, threadPerCallExecutor, 1);
+
+		CompletableFuture<DataRecordGroup> first = asyncStorage.read("someType", "id1");
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<DataRecordGroup> second = asyncStorage.read("someType", "id2");
+		waitUntilNumberOfWaitingCallsIs(1);
+
+		recordStorage.MCR.assertNumberOfCallsToMethod("read", 1);
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+		recordStorage.MCR.assertNumberOfCallsToMethod("read", 2);
+	}
+
+	private void setUpReadBlockingUntilReleased(CountDownLatch started,
+			CountDownLatch release) {
+		recordStorage.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			started.countDown();
+			awaitLatch(release);
+			return new DataRecordGroupSpy();
+		});
+	}
+
+	private void awaitLatch(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void waitUntilNumberOfWaitingCallsIs(int expected) throws InterruptedException {
+		long giveUpAt = System.currentTimeMillis() + 5000;
+		while (asyncStorage.onlyForTestGetNumberOfWaitingCalls() != expected
+				&& System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(1);
+		}
+		assertEquals(asyncStorage.onlyForTestGetNumberOfWaitingCalls(), expected);
+	}
+
+	@Test
+	public void testInterruptedWhileWaitingForPermit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		setUpReadBlockingUntilReleased(started, release);
+		asyncStorage = AsyncRecordStorage.usingRecordStorageAndExecutorAndMaxConcurrentCalls(
+				recordStorage, threadPerCallExecutor, 1);
+		asyncStorage.read("someType", "id1");
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<DataRecordGroup> waiting = asyncStorage.read("someType", "id2");
+		waitUntilNumberOfWaitingCallsIs(1);
+
+		threads.get(1).interrupt();
+
+		try {
+			waiting.get(5, TimeUnit.SECONDS);
+			fail("read should fail");
+		} catch (Exception e) {
+			Throwable cause = e.getCause();
+			assertTrue(cause instanceof StorageException);
+			assertEquals(cause.getMessage(),
+					"Interrupted while waiting to call the record storage.");
+			assertTrue(cause.getCause() instanceof InterruptedException);
+		} finally {
+			release.countDown();
+		}
+		recordStorage.MCR.assertNumberOfCallsToMethod("read", 1);
+	}
+}
@@ -19,7 +19,9 @@
 package se.uu.ub.cora.sqlstorage;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
@@ -27,6 +29,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -41,6 +45,13 @@ import se.uu.ub.cora.logger.spies.LoggerSpy;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactoryImp;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseStorageInstance;
+import se.uu.ub.cora.sqlstorage.internal.GroupCommitRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.ParsingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataCompressor;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataType;
+import se.uu.ub.cora.sqlstorage.internal.SlowOperationLog;
+import se.uu.ub.cora.sqlstorage.internal.StreamingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.StorageReadiness;
 import se.uu.ub.cora.storage.RecordStorage;
 
 public class DatabaseStorageProviderTest {
@@ -79,6 +90,14 @@ public class DatabaseStorageProviderTest {
 		assertTrue(recordStorage instanceof DatabaseRecordStorage);
 	}
 
+	@Test
+	public void testGetSqlRecordStorageStartsAndReturnsSameStorage() {
+		SqlRecordStorage sqlRecordStorage = provider.getSqlRecordStorage();
+
+		assertTrue(sqlRecordStorage instanceof DatabaseRecordStorage);
+		assertSame(provider.getRecordStorage(), sqlRecordStorage);
+	}
+
 	@Test
 	public void testDatabaseRecordStorageStartedWithSqlDatabaseFactory() throws Exception {
 		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
@@ -132,7 +151,52 @@ public class DatabaseStorageProviderTest {
 		Class<?>[] methodParameters = {};
 		Method declaredMethod = DatabaseStorageInstanceProvider.class
 				.getDeclaredMethod("possiblyStartStorage", methodParameters);
-		assertTrue(Modifier.isSynchronized(declaredMethod.getModifiers()));
+		assertFalse(Modifier.isSynchronized(declaredMethod.getModifiers()));
+	}
+
+	@Test
+	public void testStartWaitsForStartLock() throws Exception {
+		ReentrantLock startLock = provider.onlyForTestGetStartLock();
+		startLock.lock();
+		Thread starter = new Thread(provider::getRecordStorage);
+		try {
+			starter.start();
+			waitUntilQueuedOnLock(startLock, starter);
+			assertNull(DatabaseStorageInstance.getInstance());
+		} finally {
+			startLock.unlock();
+		}
+		starter.join(5000);
+
+		assertTrue(DatabaseStorageInstance.getInstance() instanceof DatabaseRecordStorage);
+		assertFalse(startLock.isLocked());
+	}
+
+	@Test
+	public void testStartedStorageIsReturnedWithoutWaitingForStartLock() throws Exception {
+		RecordStorage recordStorage = provider.getRecordStorage();
+		ReentrantLock startLock = provider.onlyForTestGetStartLock();
+		startLock.lock();
+		try {
+			RecordStorage[] returned = new RecordStorage[1];
+			Thread reader = new Thread(() -> returned[0] = provider.getRecordStorage());
+			reader.start();
+			reader.join(5000);
+
+			assertFalse(reader.isAlive());
+			assertSame(returned[0], recordStorage);
+		} finally {
+			startLock.unlock();
+		}
+	}
+
+	private void waitUntilQueuedOnLock(ReentrantLock lock, Thread thread)
+			throws InterruptedException {
+		long giveUpAt = System.currentTimeMillis() + 5000;
+		while (!lock.hasQueuedThread(thread) && System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(1);
+		}
+		assertTrue(lock.hasQueuedThread(thread));
 	}
 
 	@Test
@@ -142,4 +206,133 @@ public class DatabaseStorageProviderTest {
 		DatabaseRecordStorage recordStorage2 = (DatabaseRecordStorage) provider.getRecordStorage();
 		assertSame(recordStorage2, recordStorage);
 	}
+
+	@Test
+	public void testGroupCommitUsedWhenMaxBatchSizeIsSet() throws Exception {
+		initInfo.put("groupCommitMaxBatchSize", "50");
+
+		GroupCommitRecordStorage recordStorage = (GroupCommitRecordStorage) provider
+				.getRecordStorage();
+
+		assertTrue(recordStorage.onlyForTestGetDatabase() instanceof DatabaseRecordStorage);
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"DatabaseStorageInstanceProvider using group commit with maxBatchSize: 50 "
+						+ "and maxWaitMillis: 5");
+		recordStorage.onlyForTestGetGroupCommitWriter().close();
+	}
+
+	@Test
+	public void testRecordDataTypeIsJsonByDefault() throws Exception {
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		assertEquals(recordStorage.onlyForTestGetRecordDataType(), RecordDataType.JSON);
+	}
+
+	@Test
+	public void testRecordDataTypeFromSetting() throws Exception {
+		initInfo.put("recordDataType", "jsonb");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		assertEquals(recordStorage.onlyForTestGetRecordDataType(), RecordDataType.JSONB);
+	}
+
+	@Test
+	public void testNoCompressionByDefault() throws Exception {
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		assertFalse(recordStorage.onlyForTestGetRecordDataCompressor().isEnabled());
+	}
+
+	@Test
+	public void testCompressionFromSettings() throws Exception {
+		initInfo.put("compressedRecordTypes", "someType, someOtherType");
+		initInfo.put("compressionThresholdBytes", "100");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		RecordDataCompressor compressor = recordStorage.onlyForTestGetRecordDataCompressor();
+		assertEquals(compressor.onlyForTestGetCompressedTypes(),
+				Set.of("someType", "someOtherType"));
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 100);
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"DatabaseStorageInstanceProvider compressing records of types: "
+						+ "someType, someOtherType with at least 100 bytes");
+	}
+
+	@Test
+	public void testCompressionThresholdDefault() throws Exception {
+		initInfo.put("compressedRecordTypes", "someType");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		RecordDataCompressor compressor = recordStorage.onlyForTestGetRecordDataCompressor();
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 8192);
+	}
+
+	@Test
+	public void testNoSlowOperationLogByDefault() throws Exception {
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		SlowOperationLog slowOperationLog = recordStorage.onlyForTestGetSlowOperationLog();
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testSlowOperationLogFromSettings() throws Exception {
+		initInfo.put("slowOperationThresholdMillis", "200");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		SlowOperationLog slowOperationLog = recordStorage.onlyForTestGetSlowOperationLog();
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), 200);
+		assertEquals(slowOperationLog.onlyForTestGetExplainSampleRate(), 0.0);
+		assertFalse(slowOperationLog.onlyForTestGetExplainAnalyze());
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"DatabaseStorageInstanceProvider logging operations slower than 200 ms"
+						+ " with explainSampleRate: 0.0 and explainAnalyze: false");
+	}
+
+	@Test
+	public void testSlowOperationLogWithExplainAnalyzeFromSettings() throws Exception {
+		initInfo.put("slowOperationThresholdMillis", "200");
+		initInfo.put("slowOperationExplainAnalyze", "true");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		SlowOperationLog slowOperationLog = recordStorage.onlyForTestGetSlowOperationLog();
+		assertTrue(slowOperationLog.onlyForTestGetExplainAnalyze());
+	}
+
+	@Test
+	public void testParsingJsonConverterUsedByDefault() throws Exception {
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		ParsingRecordJsonConverter converter = (ParsingRecordJsonConverter) recordStorage
+				.onlyForTestGetRecordJsonConverter();
+		assertSame(converter.onlyForTestGetJsonParser(), recordStorage.onlyForTestGetJsonParser());
+	}
+
+	@Test
+	public void testStreamingJsonConverterFromSetting() throws Exception {
+		initInfo.put("recordJsonConverter", "streaming");
+
+		DatabaseRecordStorage recordStorage = (DatabaseRecordStorage) provider.getRecordStorage();
+
+		StreamingRecordJsonConverter converter = (StreamingRecordJsonConverter) recordStorage
+				.onlyForTestGetRecordJsonConverter();
+		assertTrue(converter
+				.onlyForTestGetFallbackConverter() instanceof ParsingRecordJsonConverter);
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"DatabaseStorageInstanceProvider using streaming json converter");
+	}
+
+	@Test
+	public void testStorageReadyWhenStarted() throws Exception {
+		StorageReadiness.setPopulationProgress(null);
+
+		provider.getRecordStorage();
+
+		assertTrue(StorageReadiness.isReady());
+	}
 }
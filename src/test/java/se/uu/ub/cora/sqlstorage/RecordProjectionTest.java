@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+
+public class RecordProjectionTest {
+	private DataFactorySpy dataFactory;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		dataFactory = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactory);
+	}
+
+	@Test
+	public void testUsingPaths() throws Exception {
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo", "title/main");
+
+		assertEquals(projection.paths(), List.of("recordInfo", "title/main"));
+	}
+
+	@Test
+	public void testNoPaths() throws Exception {
+		assertProjectionFails("Projection must have at least one path.");
+	}
+
+	private void assertProjectionFails(String message, String... paths) {
+		try {
+			RecordProjection.usingPaths(paths);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof IllegalArgumentException);
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
+	@Test
+	public void testInvalidPaths() throws Exception {
+		assertProjectionFails("Projection path is not valid: .", "");
+		assertProjectionFails("Projection path is not valid: recordInfo/.", "recordInfo/");
+		assertProjectionFails("Projection path is not valid: a//b.", "a//b");
+		assertProjectionFails("Projection path is not valid: a\"b.", "a\"b");
+	}
+
+	@Test
+	public void testOverlappingPaths() throws Exception {
+		assertProjectionFails("Projection path: recordInfo/id overlaps path: recordInfo.",
+				"recordInfo/id", "recordInfo");
+	}
+
+	@Test
+	public void testPathsWithSameStartDoNotOverlap() throws Exception {
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo",
+				"recordInfoExtra/id");
+
+		assertEquals(projection.paths().size(), 2);
+	}
+
+	@Test
+	public void testToJsonPath() throws Exception {
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo", "title/main");
+
+		assertEquals(projection.toJsonPath(0), "$.children[*] ? (@.name == \"recordInfo\")");
+		assertEquals(projection.toJsonPath(1), "$.children[*] ? (@.name == \"title\")"
+				+ ".children[*] ? (@.name == \"main\")");
+	}
+
+	@Test
+	public void testAssembleTopLevelPath() throws Exception {
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo");
+		List<DataChild> children = List.of(new DataGroupSpy());
+
+		DataGroup projected = projection.assembleUsingNameAndChildrenForPaths("book",
+				List.of(children));
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, projected);
+		((DataGroupSpy) projected).MCR.assertParameters("addChildren", 0, children);
+	}
+
+	@Test
+	public void testAssembleNestedPathsShareCreatedGroups() throws Exception {
+		RecordProjection projection = RecordProjection.usingPaths("title/main", "title/sub",
+				"recordInfo/id");
+		List<DataChild> mainChildren = List.of(new DataAtomicSpy());
+		List<DataChild> subChildren = List.of(new DataAtomicSpy());
+
+		DataGroup projected = projection.assembleUsingNameAndChildrenForPaths("book",
+				List.of(mainChildren, subChildren, List.of()));
+
+		dataFactory.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 2);
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 1, "title");
+		DataGroupSpy title = (DataGroupSpy) dataFactory.MCR
+				.getReturnValue("factorGroupUsingNameInData", 1);
+		DataGroupSpy top = (DataGroupSpy) projected;
+		top.MCR.assertParameters("addChild", 0, title);
+		top.MCR.assertMethodNotCalled("addChildren");
+		title.MCR.assertParameters("addChildren", 0, mainChildren);
+		title.MCR.assertParameters("addChildren", 1, subChildren);
+	}
+
+	@Test
+	public void testProject() throws Exception {
+		DataGroupSpy record = new DataGroupSpy();
+		record.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "book");
+		DataGroupSpy title = new DataGroupSpy();
+		DataAtomicSpy main = new DataAtomicSpy();
+		DataGroupSpy recordInfo = new DataGroupSpy();
+		record.MRV.setSpecificReturnValuesSupplier("getAllChildrenWithNameInData",
+				() -> List.of(title, new DataAtomicSpy()), "title");
+		record.MRV.setSpecificReturnValuesSupplier("getAllChildrenWithNameInData",
+				() -> List.of(recordInfo), "recordInfo");
+		title.MRV.setSpecificReturnValuesSupplier("getAllChildrenWithNameInData",
+				() -> List.of(main), "main");
+
+		DataGroup projected = RecordProjection.usingPaths("title/main", "recordInfo")
+				.project(record);
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, projected);
+		DataGroupSpy projectedTitle = (DataGroupSpy) dataFactory.MCR
+				.getReturnValue("factorGroupUsingNameInData", 1);
+		projectedTitle.MCR.assertParameterAsEqual("addChildren", 0, "dataElements",
+				List.of(main));
+		((DataGroupSpy) projected).MCR.assertParameterAsEqual("addChildren", 0, "dataElements",
+				List.of(recordInfo));
+	}
+}
@@ -18,27 +18,57 @@
  */
 package se.uu.ub.cora.sqlstorage.cache;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.DataRecordGroup;
 import se.uu.ub.cora.data.collected.Link;
 import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
 import se.uu.ub.cora.data.spies.DataGroupSpy;
 import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+import se.uu.ub.cora.sqlstorage.NotImplementedException;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.RecordWrite.Action;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
 import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordConflictException;
 import se.uu.ub.cora.storage.RecordStorage;
+import se.uu.ub.cora.storage.StorageException;
 import se.uu.ub.cora.storage.StorageReadResult;
 import se.uu.ub.cora.storage.spies.RecordStorageSpy;
 
 public class CachedDatabaseRecordStorageTest {
 
-	private RecordStorageSpy database;
+	private SqlRecordStorageSpy database;
 	private RecordStorageSpy memory;
+	private ReverseLinkIndex reverseLinkIndex;
+	private RecordVersions recordVersions;
+	private SqlRecordStorageSpy sqlDatabase;
 	private RecordStorage db;
 	private List<String> types;
 	private String id = "someId";
@@ -51,9 +81,12 @@ public class CachedDatabaseRecordStorageTest {
 
 	@BeforeMethod
 	public void beforeMethod() {
-		database = new RecordStorageSpy();
+		database = new SqlRecordStorageSpy();
 		memory = new RecordStorageSpy();
-		db = CachedDatabaseRecordStorage.usingDatabaseAndMemory(database, memory);
+		reverseLinkIndex = new ReverseLinkIndex();
+		recordVersions = new RecordVersions();
+		db = CachedDatabaseRecordStorage.usingDatabaseAndCache(database,
+				new RecordCache(memory, reverseLinkIndex, recordVersions));
 
 		types = List.of("someType");
 	}
@@ -145,22 +178,130 @@ public class CachedDatabaseRecordStorageTest {
 	}
 
 	@Test
-	public void testLinksExistsSentToMemory() throws Exception {
-		boolean result = db.linksExistForRecord(type, id);
+	public void testLinksExistsAnsweredFromReverseLinkIndex() throws Exception {
+		assertFalse(db.linksExistForRecord("toType", "toId"));
 
-		memory.MCR.assertParameters("linksExistForRecord", 0, type, id);
-		memory.MCR.assertReturn("linksExistForRecord", 0, result);
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
 
-		database.MCR.assertMethodNotCalled("recordExists");
+		assertTrue(db.linksExistForRecord("toType", "toId"));
+		memory.MCR.assertMethodNotCalled("linksExistForRecord");
+		database.MCR.assertMethodNotCalled("linksExistForRecord");
 	}
 
 	@Test
-	public void testGetLinksToRecordSentToMemory() throws Exception {
-		Set<Link> result = db.getLinksToRecord(type, id);
+	public void testReadAndCountLinksToRecordAnsweredFromReverseLinkIndex() throws Exception {
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) db;
 
-		memory.MCR.assertParameters("getLinksToRecord", 0, type, id);
-		memory.MCR.assertReturn("getLinksToRecord", 0, result);
+		LinkPage page = storage.readLinksToRecord("toType", "toId",
+				LinkPageRequest.usingLimit(10));
+
+		assertEquals(page.links(), List.of(new Link(type, id)));
+		assertEquals(storage.countLinksToRecord("toType", "toId"), 1L);
+		database.MCR.assertMethodNotCalled("readLinksToRecord");
+		database.MCR.assertMethodNotCalled("countLinksToRecord");
+	}
+
+	@Test
+	public void testTraverseLinksAnsweredFromReverseLinkIndex() throws Exception {
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+
+		List<ReachableRecord> result = ((CachedDatabaseRecordStorage) db).traverseLinks("toType",
+				"toId", LinkTraversalRequest
+						.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 2, 10));
+
+		assertEquals(result, List.of(new ReachableRecord(type, id, 1)));
+		database.MCR.assertMethodNotCalled("traverseLinks");
+	}
+
+	@Test
+	public void testRunInUnitOfWorkNotImplemented() throws Exception {
+		try {
+			((CachedDatabaseRecordStorage) db).runInUnitOfWork(unitOfWork -> null);
+			fail();
+		} catch (NotImplementedException e) {
+			assertEquals(e.getMessage(),
+					"runInUnitOfWork is not implemented for a cached storage.");
+		}
+
+		database.MCR.assertMethodNotCalled("runInUnitOfWork");
+	}
 
+	@Test
+	public void testReadProjectionAnsweredFromMemory() throws Exception {
+		DataFactorySpy dataFactory = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactory);
+		DataGroupSpy readGroup = new DataGroupSpy();
+		DataGroupSpy recordInfo = new DataGroupSpy();
+		readGroup.MRV.setSpecificReturnValuesSupplier("getAllChildrenWithNameInData",
+				() -> List.of(recordInfo), "recordInfo");
+		memory.MRV.setDefaultReturnValuesSupplier("read", () -> readGroup);
+
+		DataGroup result = ((CachedDatabaseRecordStorage) db).readProjection(type, id,
+				RecordProjection.usingPaths("recordInfo"));
+
+		memory.MCR.assertParameterAsEqual("read", 0, "types", types);
+		memory.MCR.assertParameter("read", 0, "id", id);
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, result);
+		((DataGroupSpy) result).MCR.assertParameterAsEqual("addChildren", 0, "dataElements",
+				List.of(recordInfo));
+		database.MCR.assertMethodNotCalled("readProjection");
+	}
+
+	@Test
+	public void testReverseLinkIndexUpdatedOnUpdate() throws Exception {
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+
+		db.update(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "otherId")),
+				dataDivider);
+
+		assertFalse(db.linksExistForRecord("toType", "toId"));
+		assertTrue(db.linksExistForRecord("toType", "otherId"));
+	}
+
+	@Test
+	public void testReverseLinkIndexUpdatedOnDelete() throws Exception {
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+
+		db.deleteByTypeAndId(type, id);
+
+		assertFalse(db.linksExistForRecord("toType", "toId"));
+	}
+
+	@Test
+	public void testReverseLinkIndexUpdatedOnWriteBehindAndBulkWrites() throws Exception {
+		setUpWriteBehind();
+		db.create(type, "id1", dataRecord, storageTerms, Set.of(new Link("toType", "toId1")),
+				dataDivider);
+		((CachedDatabaseRecordStorage) db).writeInOneTransaction(List.of(RecordWrite.forCreate(type, "id2",
+				dataRecord, storageTerms, Set.of(new Link("toType", "toId2")), dataDivider)));
+		assertTrue(db.linksExistForRecord("toType", "toId1"));
+		assertTrue(db.linksExistForRecord("toType", "toId2"));
+
+		database.MRV.setDefaultReturnValuesSupplier("deleteByTypeAndIds",
+				() -> List.of("id1", "id2"));
+		((CachedDatabaseRecordStorage) db).deleteByTypeAndIds(type, List.of("id1", "id2"));
+
+		assertFalse(db.linksExistForRecord("toType", "toId1"));
+		assertFalse(db.linksExistForRecord("toType", "toId2"));
+	}
+
+	@Test
+	public void testGetLinksToRecordAnsweredFromReverseLinkIndex() throws Exception {
+		db.create(type, "id2", dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+		db.create(type, "id1", dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+
+		Set<Link> result = db.getLinksToRecord("toType", "toId");
+
+		assertEquals(List.copyOf(result), List.of(new Link(type, "id1"), new Link(type, "id2")));
+		memory.MCR.assertMethodNotCalled("getLinksToRecord");
 		database.MCR.assertMethodNotCalled("getLinksToRecord");
 	}
 
@@ -173,4 +314,504 @@ public class CachedDatabaseRecordStorageTest {
 
 		database.MCR.assertMethodNotCalled("getTotalNumberOfRecordsForTypes");
 	}
+
+	@Test
+	public void testWriteBehindTypeCreateOnlyWrittenToMemoryAndQueued() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+
+		db.create(type, id, dataRecord, storageTerms, links, dataDivider);
+
+		memory.MCR.assertParameters("create", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		database.MCR.assertMethodNotCalled("create");
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testDeadLetterOfWriteBehindTypeIsRemovedFromMemory() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		sqlDatabase.throwExceptionOnWriteInOneTransaction = true;
+		sqlDatabase.idsToThrowConflictForOnWrite.add(id);
+		memory.MRV.setSpecificReturnValuesSupplier("recordExists", () -> true, List.of(type), id);
+		db.create(type, id, dataRecord, storageTerms, Set.of(new Link("toType", "toId")),
+				dataDivider);
+
+		queue.flush();
+
+		memory.MCR.assertParameters("deleteByTypeAndId", 0, type, id);
+		assertFalse(db.linksExistForRecord("toType", "toId"));
+		assertEquals(recordVersions.getVersion(type, id), OptionalLong.empty());
+	}
+
+	@Test
+	public void testDeadLetterOfWriteBehindTypeNotInMemoryIsNotRemoved() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		sqlDatabase.throwExceptionOnWriteInOneTransaction = true;
+		sqlDatabase.idsToThrowConflictForOnWrite.add(id);
+		memory.MRV.setSpecificReturnValuesSupplier("recordExists", () -> false, List.of(type), id);
+		db.deleteByTypeAndId(type, id);
+
+		queue.flush();
+
+		memory.MCR.assertNumberOfCallsToMethod("deleteByTypeAndId", 1);
+	}
+
+	private WriteBehindQueue setUpWriteBehind() {
+		sqlDatabase = new SqlRecordStorageSpy();
+		WriteBehindQueue queue = WriteBehindQueue.usingDatabaseAndOptions(sqlDatabase,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 10));
+		db = CachedDatabaseRecordStorage.usingDatabaseAndCacheAndWriteBehind(database,
+				new RecordCache(memory, reverseLinkIndex, recordVersions), queue, Set.of(type));
+		return queue;
+	}
+
+	@Test
+	public void testWriteBehindTypeUpdateAndDeleteOnlyWrittenToMemoryAndQueued()
+			throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+
+		db.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		db.deleteByTypeAndId(type, "someOtherId");
+
+		memory.MCR.assertParameters("update", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertParameters("deleteByTypeAndId", 0, type, "someOtherId");
+		database.MCR.assertMethodNotCalled("update");
+		database.MCR.assertMethodNotCalled("deleteByTypeAndId");
+		assertEquals(queue.getNumberOfPendingWrites(), 2);
+	}
+
+	@Test
+	public void testOtherTypesWrittenToDatabaseWhenUsingWriteBehind() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+
+		db.create("otherType", id, dataRecord, storageTerms, links, dataDivider);
+		db.update("otherType", id, dataRecord, storageTerms, links, dataDivider);
+		db.deleteByTypeAndId("otherType", id);
+
+		database.MCR.assertParameters("create", 0, "otherType", id, dataRecord, storageTerms,
+				links, dataDivider);
+		database.MCR.assertParameters("update", 0, "otherType", id, dataRecord, storageTerms,
+				links, dataDivider);
+		database.MCR.assertParameters("deleteByTypeAndId", 0, "otherType", id);
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+	}
+
+	@Test
+	public void testWriteBehindQueuedWriteHasAction() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+
+		db.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		queue.flush();
+
+		List<?> writes = (List<?>) sqlDatabase.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("writeInOneTransaction", 0,
+						"writes");
+		RecordWrite write = (RecordWrite) writes.get(0);
+		assertEquals(write.action(), Action.UPDATE);
+		assertEquals(write.id(), id);
+		assertSame(write.dataRecord(), dataRecord);
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionSentToDatabaseAndMemory() throws Exception {
+		((CachedDatabaseRecordStorage) db).updateUsingExpectedVersion(type, id, dataRecord,
+				storageTerms, links, dataDivider, 3L);
+
+		database.MCR.assertParameters("updateUsingExpectedVersion", 0, type, id, dataRecord,
+				storageTerms, links, dataDivider, 3L);
+		memory.MCR.assertParameters("update", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+	}
+
+	@Test
+	public void testWriteBehindTypeUpdateUsingExpectedVersionWritesPendingWriteFirst()
+			throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		db.create(type, id, dataRecord, storageTerms, links, dataDivider);
+		DataGroupSpy otherDataRecord = new DataGroupSpy();
+
+		((CachedDatabaseRecordStorage) db).updateUsingExpectedVersion(type, id, otherDataRecord,
+				storageTerms, links, dataDivider, 1L);
+
+		sqlDatabase.MCR.assertParameters("create", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		database.MCR.assertParameters("updateUsingExpectedVersion", 0, type, id,
+				otherDataRecord, storageTerms, links, dataDivider, 1L);
+		memory.MCR.assertParameters("update", 0, type, id, otherDataRecord, storageTerms, links,
+				dataDivider);
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		queue.flush();
+		sqlDatabase.MCR.assertMethodNotCalled("writeInOneTransaction");
+	}
+
+	@Test
+	public void testWriteBehindTypeUpdateUsingExpectedVersionNotDoneWhenPendingWriteFails()
+			throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		sqlDatabase.idsToThrowExceptionForOnWrite.add(id);
+		db.create(type, id, dataRecord, storageTerms, links, dataDivider);
+
+		try {
+			((CachedDatabaseRecordStorage) db).updateUsingExpectedVersion(type, id, dataRecord,
+					storageTerms, links, dataDivider, 1L);
+			fail();
+		} catch (StorageException e) {
+			assertEquals(e.getMessage(), "Error from SqlRecordStorageSpy for id: someId");
+		}
+
+		database.MCR.assertMethodNotCalled("updateUsingExpectedVersion");
+		memory.MCR.assertMethodNotCalled("update");
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testReadVersionWithoutKnownVersionSentToDatabase() throws Exception {
+		long version = ((CachedDatabaseRecordStorage) db).readVersion(type, id);
+
+		database.MCR.assertParameters("readVersion", 0, type, id);
+		database.MCR.assertReturn("readVersion", 0, version);
+	}
+
+	@Test
+	public void testReadWithVersionWithoutKnownVersionSentToDatabase() throws Exception {
+		VersionedRecordGroup result = ((CachedDatabaseRecordStorage) db).readWithVersion(type,
+				id);
+
+		database.MCR.assertParameters("readWithVersion", 0, type, id);
+		database.MCR.assertReturn("readWithVersion", 0, result);
+		memory.MCR.assertMethodNotCalled("read");
+	}
+
+	@Test
+	public void testReadVersionAnsweredFromMemory() throws Exception {
+		recordVersions.setVersion(type, id, 5);
+
+		long version = ((CachedDatabaseRecordStorage) db).readVersion(type, id);
+
+		assertEquals(version, 5);
+		database.MCR.assertMethodNotCalled("readVersion");
+	}
+
+	@Test
+	public void testCreatedRecordGetsVersionOne() throws Exception {
+		db.create(type, id, dataRecord, storageTerms, links, dataDivider);
+
+		assertEquals(((CachedDatabaseRecordStorage) db).readVersion(type, id), 1);
+		database.MCR.assertMethodNotCalled("readVersion");
+	}
+
+	@Test
+	public void testUpdateIncreasesVersion() throws Exception {
+		recordVersions.setVersion(type, id, 5);
+
+		db.update(type, id, dataRecord, storageTerms, links, dataDivider);
+		((CachedDatabaseRecordStorage) db).updateUsingExpectedVersion(type, id, dataRecord,
+				storageTerms, links, dataDivider, 6L);
+
+		assertEquals(((CachedDatabaseRecordStorage) db).readVersion(type, id), 7);
+	}
+
+	@Test
+	public void testUpsertSetsAndIncreasesVersion() throws Exception {
+		memory.MRV.setReturnValues("recordExists", List.of(false, true), List.of(type), id);
+
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+
+		assertEquals(((CachedDatabaseRecordStorage) db).readVersion(type, id), 2);
+	}
+
+	@Test
+	public void testDeleteRemovesVersion() throws Exception {
+		recordVersions.setVersion(type, id, 5);
+
+		db.deleteByTypeAndId(type, id);
+		((CachedDatabaseRecordStorage) db).readVersion(type, id);
+
+		database.MCR.assertParameters("readVersion", 0, type, id);
+	}
+
+	@Test
+	public void testWriteInOneTransactionKeepsVersions() throws Exception {
+		recordVersions.setVersion(type, "someOtherId", 5);
+		recordVersions.setVersion(type, "someThirdId", 5);
+		List<RecordWrite> writes = List.of(
+				RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider),
+				RecordWrite.forUpdate(type, "someOtherId", dataRecord, storageTerms, links,
+						dataDivider),
+				RecordWrite.forDelete(type, "someThirdId"));
+
+		((CachedDatabaseRecordStorage) db).writeInOneTransaction(writes);
+
+		assertEquals(recordVersions.getVersion(type, id), OptionalLong.of(1));
+		assertEquals(recordVersions.getVersion(type, "someOtherId"), OptionalLong.of(6));
+		assertEquals(recordVersions.getVersion(type, "someThirdId"), OptionalLong.empty());
+	}
+
+	@Test
+	public void testReadWithVersionAnsweredFromMemory() throws Exception {
+		recordVersions.setVersion(type, id, 5);
+		memory.MRV.setDefaultReturnValuesSupplier("read", DataRecordGroupSpy::new);
+
+		VersionedRecordGroup result = ((CachedDatabaseRecordStorage) db).readWithVersion(type,
+				id);
+
+		memory.MCR.assertParameters("read", 0, type, id);
+		memory.MCR.assertReturn("read", 0, result.dataRecordGroup());
+		assertEquals(result.version(), 5);
+		database.MCR.assertMethodNotCalled("readWithVersion");
+	}
+
+	@Test
+	public void testReadWithVersionSentToDatabaseWhenVersionChangesDuringRead()
+			throws Exception {
+		recordVersions.setVersion(type, id, 5);
+		memory.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			recordVersions.increaseVersion(type, id);
+			return new DataRecordGroupSpy();
+		});
+
+		VersionedRecordGroup result = ((CachedDatabaseRecordStorage) db).readWithVersion(type,
+				id);
+
+		database.MCR.assertParameters("readWithVersion", 0, type, id);
+		database.MCR.assertReturn("readWithVersion", 0, result);
+	}
+
+	@Test
+	public void testWriteBehindTypeReadVersionAndReadWithVersionSentToDatabase()
+			throws Exception {
+		setUpWriteBehind();
+		recordVersions.setVersion(type, id, 5);
+
+		((CachedDatabaseRecordStorage) db).readVersion(type, id);
+		((CachedDatabaseRecordStorage) db).readWithVersion(type, id);
+
+		database.MCR.assertParameters("readVersion", 0, type, id);
+		database.MCR.assertParameters("readWithVersion", 0, type, id);
+		memory.MCR.assertMethodNotCalled("read");
+	}
+
+	@Test
+	public void testWriteInOneTransactionSentToDatabaseThenAppliedToMemory() throws Exception {
+		List<RecordWrite> writes = List.of(
+				RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider),
+				RecordWrite.forDelete(type, "someOtherId"));
+
+		((CachedDatabaseRecordStorage) db).writeInOneTransaction(writes);
+
+		database.MCR.assertParameterAsEqual("writeInOneTransaction", 0, "writes", writes);
+		memory.MCR.assertParameters("create", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertParameters("deleteByTypeAndId", 0, type, "someOtherId");
+	}
+
+	@Test
+	public void testWriteUsingSavepointsAppliesOnlySuccessfulWritesToMemory() throws Exception {
+		database.idsToThrowConflictForOnWrite.add("someOtherId");
+		List<RecordWrite> writes = List.of(
+				RecordWrite.forCreate(type, id, dataRecord, storageTerms, links, dataDivider),
+				RecordWrite.forDelete(type, "someOtherId"));
+
+		List<Optional<RuntimeException>> outcomes = ((CachedDatabaseRecordStorage) db)
+				.writeInOneTransactionUsingSavepoints(writes);
+
+		database.MCR.assertParameterAsEqual("writeInOneTransactionUsingSavepoints", 0, "writes",
+				writes);
+		database.MCR.assertReturn("writeInOneTransactionUsingSavepoints", 0, outcomes);
+		assertTrue(outcomes.get(1).get() instanceof RecordConflictException);
+		memory.MCR.assertParameters("create", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertMethodNotCalled("deleteByTypeAndId");
+	}
+
+	@Test
+	public void testUpsertNewRecordSentToDatabaseAndCreatedInMemory() throws Exception {
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+
+		memory.MCR.assertParameterAsEqual("recordExists", 0, "types", List.of(type));
+		memory.MCR.assertParameter("recordExists", 0, "id", id);
+		database.MCR.assertParameters("upsert", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertParameters("create", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertMethodNotCalled("update");
+	}
+
+	@Test
+	public void testUpsertExistingRecordSentToDatabaseAndUpdatedInMemory() throws Exception {
+		memory.MRV.setDefaultReturnValuesSupplier("recordExists", () -> true);
+
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+
+		database.MCR.assertParameters("upsert", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertParameters("update", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		memory.MCR.assertMethodNotCalled("create");
+	}
+
+	@Test
+	public void testUpsertWriteBehindTypeQueuedAsCreateOrUpdate() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		memory.MRV.setSpecificReturnValuesSupplier("recordExists", () -> true, List.of(type),
+				"existingId");
+
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		((CachedDatabaseRecordStorage) db).upsert(type, "existingId", dataRecord, storageTerms,
+				links, dataDivider);
+		queue.flush();
+
+		database.MCR.assertMethodNotCalled("upsert");
+		List<?> writes = (List<?>) sqlDatabase.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("writeInOneTransaction", 0,
+						"writes");
+		assertEquals(((RecordWrite) writes.get(0)).action(), Action.CREATE);
+		assertEquals(((RecordWrite) writes.get(1)).action(), Action.UPDATE);
+	}
+
+	@Test
+	public void testUpsertRecordCreatedConcurrentlyInMemoryIsUpdated() throws Exception {
+		memory = new RecordStorageCreatedConcurrentlySpy();
+		db = CachedDatabaseRecordStorage.usingDatabaseAndCache(database,
+				new RecordCache(memory, reverseLinkIndex, recordVersions));
+
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+
+		database.MCR.assertNumberOfCallsToMethod("upsert", 1);
+		memory.MCR.assertNumberOfCallsToMethod("create", 1);
+		memory.MCR.assertParameters("update", 0, type, id, dataRecord, storageTerms, links,
+				dataDivider);
+	}
+
+	private class RecordStorageCreatedConcurrentlySpy extends RecordStorageSpy {
+		@Override
+		public void create(String type, String id, DataGroup dataRecord,
+				Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+			super.create(type, id, dataRecord, storageTerms, links, dataDivider);
+			throw RecordConflictException.withMessage("Record created concurrently");
+		}
+	}
+
+	@Test
+	public void testUpsertWriteBehindTypeCreatedConcurrentlyIsQueuedAsUpdate() throws Exception {
+		memory = new RecordStorageCreatedConcurrentlySpy();
+		WriteBehindQueue queue = setUpWriteBehind();
+
+		((CachedDatabaseRecordStorage) db).upsert(type, id, dataRecord, storageTerms, links,
+				dataDivider);
+		queue.flush();
+
+		memory.MCR.assertNumberOfCallsToMethod("update", 1);
+		List<?> writes = (List<?>) sqlDatabase.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("writeInOneTransaction", 0,
+						"writes");
+		assertEquals(((RecordWrite) writes.get(0)).action(), Action.UPDATE);
+	}
+
+	@Test
+	public void testConcurrentUpsertsOfNewWriteBehindRecordCreateItOnce() throws Exception {
+		memory = new RecordStorageCreatingOnceSpy();
+		WriteBehindQueue queue = setUpWriteBehind();
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			threads.add(startUpsertThread(errors));
+		}
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+
+		assertEquals(errors, List.of());
+		assertEquals(((RecordStorageCreatingOnceSpy) memory).numberOfCreates.get(), 1);
+		assertEquals(((RecordStorageCreatingOnceSpy) memory).numberOfUpdates.get(), 7);
+		queue.flush();
+		List<?> writes = (List<?>) sqlDatabase.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("writeInOneTransaction", 0,
+						"writes");
+		assertEquals(writes.size(), 1);
+		assertEquals(((RecordWrite) writes.get(0)).action(), Action.CREATE);
+	}
+
+	private Thread startUpsertThread(List<Throwable> errors) {
+		Thread thread = new Thread(() -> ((CachedDatabaseRecordStorage) db).upsert(type, id,
+				dataRecord, storageTerms, links, dataDivider));
+		thread.setUncaughtExceptionHandler((t, e) -> errors.add(e));
+		thread.start();
+		return thread;
+	}
+
+	private class RecordStorageCreatingOnceSpy extends RecordStorageSpy {
+		private Set<String> created = ConcurrentHashMap.newKeySet();
+		AtomicInteger numberOfCreates = new AtomicInteger();
+		AtomicInteger numberOfUpdates = new AtomicInteger();
+
+		@Override
+		public boolean recordExists(List<String> types, String id) {
+			Thread.yield();
+			return created.contains(id);
+		}
+
+		@Override
+		public void create(String type, String id, DataGroup dataRecord,
+				Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+			Thread.yield();
+			if (!created.add(id)) {
+				throw RecordConflictException.withMessage("Record already exists");
+			}
+			numberOfCreates.incrementAndGet();
+		}
+
+		@Override
+		public void update(String type, String id, DataGroup dataRecord,
+				Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+			numberOfUpdates.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testDeleteByTypeAndIdsSentToDatabaseAndDeletedIdsRemovedFromMemory()
+			throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("deleteByTypeAndIds",
+				() -> List.of("id1", "id3"));
+		List<String> ids = List.of("id1", "id2", "id3");
+
+		List<String> deletedIds = ((CachedDatabaseRecordStorage) db).deleteByTypeAndIds(type, ids);
+
+		database.MCR.assertParameters("deleteByTypeAndIds", 0, type, ids);
+		database.MCR.assertReturn("deleteByTypeAndIds", 0, deletedIds);
+		memory.MCR.assertNumberOfCallsToMethod("deleteByTypeAndId", 2);
+		memory.MCR.assertParameters("deleteByTypeAndId", 0, type, "id1");
+		memory.MCR.assertParameters("deleteByTypeAndId", 1, type, "id3");
+	}
+
+	@Test
+	public void testDeleteAllOfTypeSentToDatabaseAndDeletedIdsRemovedFromMemory()
+			throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("deleteAllOfType", () -> List.of("id1"));
+
+		List<String> deletedIds = ((CachedDatabaseRecordStorage) db).deleteAllOfType(type);
+
+		database.MCR.assertParameters("deleteAllOfType", 0, type);
+		database.MCR.assertReturn("deleteAllOfType", 0, deletedIds);
+		memory.MCR.assertParameters("deleteByTypeAndId", 0, type, "id1");
+	}
+
+	@Test
+	public void testBulkDeleteOfWriteBehindTypeFlushesQueueFirst() throws Exception {
+		WriteBehindQueue queue = setUpWriteBehind();
+		db.create(type, id, dataRecord, storageTerms, links, dataDivider);
+
+		((CachedDatabaseRecordStorage) db).deleteAllOfType(type);
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		sqlDatabase.MCR.assertMethodWasCalled("writeInOneTransaction");
+	}
 }
@@ -19,14 +19,23 @@
 package se.uu.ub.cora.sqlstorage.cache;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.ObjectName;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -41,10 +50,29 @@ import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
 import se.uu.ub.cora.logger.spies.LoggerSpy;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactoryImp;
-import se.uu.ub.cora.sqlstorage.DatabaseStorageInstanceProvider;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseRecordStorage;
 import se.uu.ub.cora.sqlstorage.internal.DatabaseStorageInstance;
+import se.uu.ub.cora.sqlstorage.internal.GroupCommitRecordStorage;
+import se.uu.ub.cora.sqlstorage.internal.GroupCommitWriter;
+import se.uu.ub.cora.sqlstorage.internal.ParsingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataCompressor;
+import se.uu.ub.cora.sqlstorage.internal.RecordDataType;
+import se.uu.ub.cora.sqlstorage.internal.RecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.internal.SlowOperationLog;
+import se.uu.ub.cora.sqlstorage.internal.StreamingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.CacheStatistics;
+import se.uu.ub.cora.sqlstorage.metrics.CacheStatisticsRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.HistogramStorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.MeasuredSqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationProgress;
+import se.uu.ub.cora.sqlstorage.metrics.StorageLayer;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.StorageReadiness;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
 import se.uu.ub.cora.sqlstorage.spy.sql.SqlDatabaseFactorySpy;
 import se.uu.ub.cora.storage.RecordStorage;
 import se.uu.ub.cora.testutils.mcr.MethodCallRecorder;
@@ -88,6 +116,14 @@ public class CachedDatabaseStorageProviderTest {
 		assertTrue(recordStorage instanceof CachedDatabaseRecordStorage);
 	}
 
+	@Test
+	public void testGetSqlRecordStorageStartsAndReturnsSameStorage() {
+		SqlRecordStorage sqlRecordStorage = provider.getSqlRecordStorage();
+
+		assertTrue(sqlRecordStorage instanceof CachedDatabaseRecordStorage);
+		assertSame(provider.getRecordStorage(), sqlRecordStorage);
+	}
+
 	@Test
 	public void testDatabaseRecordStorageStartedWithSqlDatabaseFactory() throws Exception {
 		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
@@ -111,6 +147,64 @@ public class CachedDatabaseStorageProviderTest {
 		assertTrue(jsonParser instanceof OrgJsonParser);
 	}
 
+	@Test
+	public void testDatabaseRecordStorageStartedWithRecordDataTypeFromSetting() throws Exception {
+		initInfo.put("recordDataType", "jsonb");
+
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		assertEquals(database.onlyForTestGetRecordDataType(), RecordDataType.JSONB);
+	}
+
+	@Test
+	public void testDatabaseRecordStorageStartedWithCompressionFromSettings() throws Exception {
+		initInfo.put("compressedRecordTypes", "someType");
+		initInfo.put("compressionThresholdBytes", "100");
+
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		RecordDataCompressor compressor = database.onlyForTestGetRecordDataCompressor();
+		assertEquals(compressor.onlyForTestGetCompressedTypes(), Set.of("someType"));
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 100);
+	}
+
+	@Test
+	public void testNoSlowOperationLogByDefault() throws Exception {
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		SlowOperationLog slowOperationLog = database.onlyForTestGetSlowOperationLog();
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testSlowOperationLogFromSettings() throws Exception {
+		initInfo.put("slowOperationThresholdMillis", "200");
+		initInfo.put("slowOperationExplainSampleRate", "0.01");
+		initInfo.put("slowOperationExplainAnalyze", "true");
+
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		SlowOperationLog slowOperationLog = database.onlyForTestGetSlowOperationLog();
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), 200);
+		assertEquals(slowOperationLog.onlyForTestGetExplainSampleRate(), 0.01);
+		assertTrue(slowOperationLog.onlyForTestGetExplainAnalyze());
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider logging operations slower than 200 ms"
+						+ " with explainSampleRate: 0.01 and explainAnalyze: true");
+	}
+
 	@Test
 	public void testLoggingNormalStartup() {
 		provider.getRecordStorage();
@@ -147,9 +241,54 @@ public class CachedDatabaseStorageProviderTest {
 	@Test
 	public void testThreadsWhenCreatingConnectionProvider() throws Exception {
 		Class<?>[] methodParameters = {};
-		Method declaredMethod = DatabaseStorageInstanceProvider.class
+		Method declaredMethod = CachedDatabaseStorageInstanceProvider.class
 				.getDeclaredMethod("possiblyStartStorage", methodParameters);
-		assertTrue(Modifier.isSynchronized(declaredMethod.getModifiers()));
+		assertFalse(Modifier.isSynchronized(declaredMethod.getModifiers()));
+	}
+
+	@Test
+	public void testStartWaitsForStartLock() throws Exception {
+		ReentrantLock startLock = provider.onlyForTestGetStartLock();
+		startLock.lock();
+		Thread starter = new Thread(provider::getRecordStorage);
+		try {
+			starter.start();
+			waitUntilQueuedOnLock(startLock, starter);
+			assertNull(DatabaseStorageInstance.getInstance());
+		} finally {
+			startLock.unlock();
+		}
+		starter.join(5000);
+
+		assertTrue(DatabaseStorageInstance.getInstance() instanceof CachedDatabaseRecordStorage);
+		assertFalse(startLock.isLocked());
+	}
+
+	@Test
+	public void testStartedStorageIsReturnedWithoutWaitingForStartLock() throws Exception {
+		RecordStorage recordStorage = provider.getRecordStorage();
+		ReentrantLock startLock = provider.onlyForTestGetStartLock();
+		startLock.lock();
+		try {
+			RecordStorage[] returned = new RecordStorage[1];
+			Thread reader = new Thread(() -> returned[0] = provider.getRecordStorage());
+			reader.start();
+			reader.join(5000);
+
+			assertFalse(reader.isAlive());
+			assertSame(returned[0], recordStorage);
+		} finally {
+			startLock.unlock();
+		}
+	}
+
+	private void waitUntilQueuedOnLock(ReentrantLock lock, Thread thread)
+			throws InterruptedException {
+		long giveUpAt = System.currentTimeMillis() + 5000;
+		while (!lock.hasQueuedThread(thread) && System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(1);
+		}
+		assertTrue(lock.hasQueuedThread(thread));
 	}
 
 	@Test
@@ -180,18 +319,64 @@ public class CachedDatabaseStorageProviderTest {
 		var memory = populatorSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
 				"populateStorageFromDatabase", 0, "recordStorageInMemory");
 		assertTrue(memory instanceof RecordStorageInMemory);
+		var reverseLinkIndex = populatorSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"populateStorageFromDatabase", 0, "reverseLinkIndex");
+		assertTrue(reverseLinkIndex instanceof ReverseLinkIndex);
+		var recordVersions = populatorSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"populateStorageFromDatabase", 0, "recordVersions");
+		assertTrue(recordVersions instanceof RecordVersions);
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+		assertSame(storage.onlyForTestGetReverseLinkIndex(), reverseLinkIndex);
+		assertSame(storage.onlyForTestGetRecordVersions(), recordVersions);
 	}
 
 	@Test
 	public void testCreatePopulaterMethod() throws Exception {
 		SqlDatabaseFactorySpy sqlDatabaseFactory = new SqlDatabaseFactorySpy();
 		JsonParserSpy jsonParser = new JsonParserSpy();
+		RecordJsonConverter recordJsonConverter = ParsingRecordJsonConverter
+				.usingJsonParser(jsonParser);
 		FromDbStoragePopulatorImp populator = (FromDbStoragePopulatorImp) provider
-				.callSuperCreatePopulaterAndReturnResult(sqlDatabaseFactory, jsonParser);
+				.callSuperCreatePopulaterAndReturnResult(sqlDatabaseFactory, jsonParser,
+						recordJsonConverter);
 
 		assertSame(sqlDatabaseFactory.MCR.getReturnValue("factorDatabaseFacade", 0),
 				populator.onlyForTestGetDatabaseFacade());
 		assertSame(jsonParser, populator.onlyForTestGetJsonParser());
+		assertSame(recordJsonConverter, populator.onlyForTestGetRecordJsonConverter());
+		assertFalse(populator.onlyForTestGetPopulationProgress().isReported());
+	}
+
+	@Test
+	public void testParsingJsonConverterUsedByDefault() throws Exception {
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		ParsingRecordJsonConverter converter = (ParsingRecordJsonConverter) database
+				.onlyForTestGetRecordJsonConverter();
+		assertSame(converter.onlyForTestGetJsonParser(), database.onlyForTestGetJsonParser());
+		provider.MCR.assertParameter("createPopulater", 0, "recordJsonConverter", converter);
+	}
+
+	@Test
+	public void testStreamingJsonConverterFromSetting() throws Exception {
+		initInfo.put("recordJsonConverter", "streaming");
+
+		CachedDatabaseRecordStorage recordStorage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) recordStorage
+				.onlyForTestGetDatabase();
+		StreamingRecordJsonConverter converter = (StreamingRecordJsonConverter) database
+				.onlyForTestGetRecordJsonConverter();
+		assertTrue(converter
+				.onlyForTestGetFallbackConverter() instanceof ParsingRecordJsonConverter);
+		provider.MCR.assertParameter("createPopulater", 0, "recordJsonConverter", converter);
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider using streaming json converter");
 	}
 
 	@Test
@@ -216,6 +401,230 @@ public class CachedDatabaseStorageProviderTest {
 		assertTrue(storage instanceof CachedDatabaseRecordStorage);
 	}
 
+	@Test
+	public void testNoWriteBehindByDefault() throws Exception {
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		assertNull(storage.onlyForTestGetWriteBehindQueue());
+		assertEquals(storage.onlyForTestGetWriteBehindTypes(), Set.of());
+	}
+
+	@Test
+	public void testWriteBehindStartedWithDefaultSettings() throws Exception {
+		initInfo.put("writeBehindRecordTypes", "someType, otherType,");
+
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		assertEquals(storage.onlyForTestGetWriteBehindTypes(), Set.of("someType", "otherType"));
+		WriteBehindQueue queue = storage.onlyForTestGetWriteBehindQueue();
+		assertSame(queue.onlyForTestGetDatabase(), storage.onlyForTestGetDatabase());
+		assertEquals(queue.onlyForTestGetMaxPendingWrites(), 10000);
+		assertEquals(queue.onlyForTestGetBatchSize(), 500);
+		assertEquals(queue.onlyForTestGetMaxAttempts(), 10);
+		assertEquals(queue.onlyForTestGetMaxEnqueueWaitMillis(), 30000);
+	}
+
+	@Test
+	public void testWriteBehindStartedWithSettings() throws Exception {
+		initInfo.put("writeBehindRecordTypes", "someType");
+		initInfo.put("writeBehindMaxPendingWrites", "17");
+		initInfo.put("writeBehindBatchSize", "7");
+		initInfo.put("writeBehindFlushIntervalMillis", "200");
+		initInfo.put("writeBehindMaxAttempts", "3");
+		initInfo.put("writeBehindMaxEnqueueWaitMillis", "500");
+
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		WriteBehindQueue queue = storage.onlyForTestGetWriteBehindQueue();
+		assertEquals(queue.onlyForTestGetMaxPendingWrites(), 17);
+		assertEquals(queue.onlyForTestGetBatchSize(), 7);
+		assertEquals(queue.onlyForTestGetMaxAttempts(), 3);
+		assertEquals(queue.onlyForTestGetMaxEnqueueWaitMillis(), 500);
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider using write behind for recordTypes: "
+						+ "[someType]");
+	}
+
+	@Test
+	public void testGroupCommitUsedWhenMaxBatchSizeIsSet() throws Exception {
+		initInfo.put("groupCommitMaxBatchSize", "50");
+		initInfo.put("groupCommitMaxWaitMillis", "3");
+
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		GroupCommitRecordStorage database = (GroupCommitRecordStorage) storage
+				.onlyForTestGetDatabase();
+		GroupCommitWriter writer = database.onlyForTestGetGroupCommitWriter();
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider using group commit with maxBatchSize: 50 "
+						+ "and maxWaitMillis: 3");
+		writer.close();
+	}
+
+	@Test
+	public void testNoStorageMetricsByDefault() throws Exception {
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		DatabaseRecordStorage database = (DatabaseRecordStorage) storage.onlyForTestGetDatabase();
+		assertSame(database.onlyForTestGetStorageMetrics(), StorageMetrics.noMetrics());
+		assertTrue(storage.onlyForTestGetMemory() instanceof RecordStorageInMemory);
+	}
+
+	@Test
+	public void testStorageMetricsUsingJmxFromSetting() throws Exception {
+		initInfo.put("storageMetrics", "jmx");
+
+		MeasuredSqlRecordStorage measuredStorage = (MeasuredSqlRecordStorage) provider
+				.getRecordStorage();
+
+		HistogramStorageMetrics storageMetrics = (HistogramStorageMetrics) measuredStorage
+				.onlyForTestGetStorageMetrics();
+		assertEquals(measuredStorage.onlyForTestGetLayer(), StorageLayer.STORAGE);
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) measuredStorage
+				.onlyForTestGetRecordStorage();
+		MeasuredRecordStorage memory = (MeasuredRecordStorage) storage.onlyForTestGetMemory();
+		assertMeasuredWithMetricsInLayer(memory, storageMetrics, StorageLayer.CACHE);
+		assertTrue(memory.onlyForTestGetRecordStorage() instanceof RecordStorageInMemory);
+		MeasuredSqlRecordStorage measuredDatabase = (MeasuredSqlRecordStorage) storage
+				.onlyForTestGetDatabase();
+		assertMeasuredWithMetricsInLayer(measuredDatabase, storageMetrics, StorageLayer.DATABASE);
+		DatabaseRecordStorage database = (DatabaseRecordStorage) measuredDatabase
+				.onlyForTestGetRecordStorage();
+		assertSame(database.onlyForTestGetStorageMetrics(), storageMetrics);
+		MeasuredRecordJsonConverter converter = (MeasuredRecordJsonConverter) database
+				.onlyForTestGetRecordJsonConverter();
+		assertSame(converter.onlyForTestGetStorageMetrics(), storageMetrics);
+		provider.MCR.assertParameter("createPopulater", 0, "recordJsonConverter", converter);
+		assertTrue(ManagementFactory.getPlatformMBeanServer()
+				.isRegistered(new ObjectName(HistogramStorageMetrics.OBJECT_NAME)));
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider exposing storage metrics through JMX "
+						+ "with name: se.uu.ub.cora.sqlstorage:type=StorageMetrics");
+	}
+
+	private void assertMeasuredWithMetricsInLayer(MeasuredRecordStorage measuredStorage,
+			StorageMetrics storageMetrics, StorageLayer layer) {
+		assertSame(measuredStorage.onlyForTestGetStorageMetrics(), storageMetrics);
+		assertEquals(measuredStorage.onlyForTestGetLayer(), layer);
+	}
+
+	@Test
+	public void testStorageMetricsWithoutCache() throws Exception {
+		initInfo.put("storageMetrics", "jmx");
+		initInfo.put("doNotCache", "true");
+
+		MeasuredSqlRecordStorage measuredDatabase = (MeasuredSqlRecordStorage) provider
+				.getRecordStorage();
+
+		assertEquals(measuredDatabase.onlyForTestGetLayer(), StorageLayer.DATABASE);
+		assertTrue(measuredDatabase.onlyForTestGetRecordStorage() instanceof DatabaseRecordStorage);
+	}
+
+	@Test
+	public void testNoCacheStatisticsByDefault() throws Exception {
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		assertTrue(storage.onlyForTestGetMemory() instanceof RecordStorageInMemory);
+	}
+
+	@Test
+	public void testCacheStatisticsUsingJmxFromSetting() throws Exception {
+		initInfo.put("cacheStatistics", "jmx");
+		initInfo.put("cacheStatisticsLogIntervalMillis", "0");
+
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		CacheStatisticsRecordStorage cache = (CacheStatisticsRecordStorage) storage
+				.onlyForTestGetMemory();
+		assertTrue(cache.onlyForTestGetCache() instanceof RecordStorageInMemory);
+		populatorSpy.MCR.assertParameter("populateStorageFromDatabase", 0,
+				"recordStorageInMemory", cache);
+		CacheStatistics cacheStatistics = cache.onlyForTestGetCacheStatistics();
+		assertNull(cacheStatistics.onlyForTestGetSummaryLogger());
+		assertTrue(ManagementFactory.getPlatformMBeanServer()
+				.isRegistered(new ObjectName(CacheStatistics.OBJECT_NAME)));
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 1,
+				"CachedDatabaseStorageInstanceProvider exposing cache statistics through JMX "
+						+ "with name: se.uu.ub.cora.sqlstorage:type=CacheStatistics");
+	}
+
+	@Test
+	public void testCacheStatisticsSummaryLoggedByDefault() throws Exception {
+		initInfo.put("cacheStatistics", "jmx");
+
+		CachedDatabaseRecordStorage storage = (CachedDatabaseRecordStorage) provider
+				.getRecordStorage();
+
+		CacheStatisticsRecordStorage cache = (CacheStatisticsRecordStorage) storage
+				.onlyForTestGetMemory();
+		CacheStatistics cacheStatistics = cache.onlyForTestGetCacheStatistics();
+		ScheduledExecutorService summaryLogger = cacheStatistics.onlyForTestGetSummaryLogger();
+		assertFalse(summaryLogger.isShutdown());
+		cacheStatistics.stopLoggingSummary();
+		assertTrue(summaryLogger.isShutdown());
+	}
+
+	@Test
+	public void testStorageReadyWhenStarted() throws Exception {
+		StorageReadiness.setPopulationProgress(null);
+
+		provider.getRecordStorage();
+
+		assertTrue(StorageReadiness.isReady());
+		PopulationProgress progress = (PopulationProgress) StorageReadiness
+				.getPopulationProgress().get();
+		assertTrue(progress.isReported());
+		assertEquals(progress.onlyForTestGetLogIntervalMillis(), 10000);
+		assertTrue(ManagementFactory.getPlatformMBeanServer()
+				.isRegistered(new ObjectName(PopulationProgress.OBJECT_NAME)));
+	}
+
+	@Test
+	public void testStorageNotReadyIfStartFails() throws Exception {
+		StorageReadiness.setPopulationProgress(null);
+		initInfo.remove("coraDatabaseLookupName");
+
+		try {
+			provider.getRecordStorage();
+			fail("start should fail");
+		} catch (InitializationException e) {
+			assertFalse(StorageReadiness.isReady());
+			assertTrue(StorageReadiness.isFailed());
+			assertSame(StorageReadiness.getFailure().get(), e);
+			assertTrue(StorageReadiness.getPopulationProgress().isPresent());
+		}
+	}
+
+	@Test
+	public void testPopulationProgressLogIntervalFromSetting() throws Exception {
+		initInfo.put("populationProgressLogIntervalMillis", "500");
+
+		provider.getRecordStorage();
+
+		PopulationProgress progress = (PopulationProgress) StorageReadiness
+				.getPopulationProgress().get();
+		assertEquals(progress.onlyForTestGetLogIntervalMillis(), 500);
+	}
+
+	@Test
+	public void testPopulaterReportsPopulationProgress() throws Exception {
+		provider.getRecordStorage();
+
+		FromDbStoragePopulatorImp populator = (FromDbStoragePopulatorImp) provider
+				.callSuperCreatePopulaterAndReturnResult(new SqlDatabaseFactorySpy(),
+						new JsonParserSpy(), new RecordJsonConverterSpy());
+
+		assertSame(populator.onlyForTestGetPopulationProgress(),
+				StorageReadiness.getPopulationProgress().get());
+	}
+
 	private class OnlyForTestCachedDatabaseStorageInstanceProvider
 			extends CachedDatabaseStorageInstanceProvider {
 
@@ -223,15 +632,17 @@ public class CachedDatabaseStorageProviderTest {
 
 		@Override
 		protected FromDbStoragePopulator createPopulater(SqlDatabaseFactory sqlDatabaseFactory,
-				JsonParser jsonParser) {
-			MCR.addCall("sqlDatabaseFactory", sqlDatabaseFactory, "jsonParser", jsonParser);
+				JsonParser jsonParser, RecordJsonConverter recordJsonConverter) {
+			MCR.addCall("sqlDatabaseFactory", sqlDatabaseFactory, "jsonParser", jsonParser,
+					"recordJsonConverter", recordJsonConverter);
 
 			return populatorSpy;
 		}
 
 		protected FromDbStoragePopulator callSuperCreatePopulaterAndReturnResult(
-				SqlDatabaseFactory sqlDatabaseFactory, JsonParser jsonParser) {
-			return super.createPopulater(sqlDatabaseFactory, jsonParser);
+				SqlDatabaseFactory sqlDatabaseFactory, JsonParser jsonParser,
+				RecordJsonConverter recordJsonConverter) {
+			return super.createPopulater(sqlDatabaseFactory, jsonParser, recordJsonConverter);
 		}
 
 	}
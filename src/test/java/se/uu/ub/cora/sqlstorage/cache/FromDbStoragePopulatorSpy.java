@@ -8,8 +8,10 @@ public class FromDbStoragePopulatorSpy implements FromDbStoragePopulator {
 	public MethodCallRecorder MCR = new MethodCallRecorder();
 
 	@Override
-	public void populateStorageFromDatabase(RecordStorage recordStorageInMemory) {
-		MCR.addCall("recordStorageInMemory", recordStorageInMemory);
+	public void populateStorageFromDatabase(RecordStorage recordStorageInMemory,
+			ReverseLinkIndex reverseLinkIndex, RecordVersions recordVersions) {
+		MCR.addCall("recordStorageInMemory", recordStorageInMemory, "reverseLinkIndex",
+				reverseLinkIndex, "recordVersions", recordVersions);
 
 	}
 
@@ -18,9 +18,14 @@
  */
 package se.uu.ub.cora.sqlstorage.cache;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import org.testng.annotations.BeforeMethod;
@@ -29,10 +34,17 @@ import org.testng.annotations.Test;
 import se.uu.ub.cora.data.collected.Link;
 import se.uu.ub.cora.data.collected.StorageTerm;
 import se.uu.ub.cora.data.converter.JsonToDataConverterProvider;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
+import se.uu.ub.cora.sqlstorage.internal.ParsingRecordJsonConverter;
+import se.uu.ub.cora.sqlstorage.metrics.PopulationProgress;
 import se.uu.ub.cora.sqlstorage.spy.data.DatabaseFacadeSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterFactorySpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
 import se.uu.ub.cora.sqlstorage.spy.sql.RowSpy;
 import se.uu.ub.cora.storage.spies.RecordStorageSpy;
 
@@ -42,6 +54,11 @@ public class FromDbStoragePopulatorTest {
 	private JsonToDataConverterFactorySpy factoryCreatorSpy;
 	private DatabaseFacadeSpy dbFacadeSpy;
 	private RecordStorageSpy recordStorageInMemory;
+	private ReverseLinkIndex reverseLinkIndex;
+	private RecordVersions recordVersions;
+	private static final String ESTIMATED_ROWS_SQL = "select relname, reltuples::bigint"
+			+ " as estimatedrows from pg_class where relname in ('storageterm', 'link', 'record')"
+			+ " and relkind = 'r'";
 	private int callNo = 0;
 
 	@BeforeMethod
@@ -51,6 +68,8 @@ public class FromDbStoragePopulatorTest {
 		factoryCreatorSpy = new JsonToDataConverterFactorySpy();
 		JsonToDataConverterProvider.setJsonToDataConverterFactory(factoryCreatorSpy);
 		recordStorageInMemory = new RecordStorageSpy();
+		reverseLinkIndex = new ReverseLinkIndex();
+		recordVersions = new RecordVersions();
 
 		callNo = 0;
 
@@ -59,7 +78,8 @@ public class FromDbStoragePopulatorTest {
 
 	@Test
 	public void testPopulateReadsRecordsFromDb() throws Exception {
-		populator.populateStorageFromDatabase(recordStorageInMemory);
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
 
 		dbFacadeSpy.MCR.assertMethodWasCalled("readUsingSqlAndValues");
 		String sql = "select * from storageterm";
@@ -82,7 +102,8 @@ public class FromDbStoragePopulatorTest {
 		Set<Link> links1 = createLinks();
 		Set<StorageTerm> storageTermsRow1 = createStorageTerms();
 
-		populator.populateStorageFromDatabase(recordStorageInMemory);
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
 
 		String typeRow1 = assertAndGetReturnForColumn(row1, "type");
 		String idRow1 = assertAndGetReturnForColumn(row1, "id");
@@ -108,6 +129,59 @@ public class FromDbStoragePopulatorTest {
 		recordStorageInMemory.MCR.assertNumberOfCallsToMethod("create", 2);
 	}
 
+	@Test
+	public void testDefaultRecordJsonConverterUsesJsonParser() throws Exception {
+		FromDbStoragePopulatorImp populatorImp = (FromDbStoragePopulatorImp) populator;
+		ParsingRecordJsonConverter converter = (ParsingRecordJsonConverter) populatorImp
+				.onlyForTestGetRecordJsonConverter();
+
+		assertSame(converter.onlyForTestGetJsonParser(), jsonParserSpy);
+	}
+
+	@Test
+	public void testPopulateUsingRecordJsonConverter() throws Exception {
+		RecordJsonConverterSpy recordJsonConverter = new RecordJsonConverterSpy();
+		populator = new FromDbStoragePopulatorImp(dbFacadeSpy, jsonParserSpy,
+				recordJsonConverter);
+		RowSpy row1 = createRecords();
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		callNo = 2;
+		String dataRow1 = assertAndGetReturnForColumn(row1, "data");
+		recordJsonConverter.MCR.assertParameters("convert", 0, dataRow1);
+		var dataGroupRow1 = recordJsonConverter.MCR.getReturnValue("convert", 0);
+		recordStorageInMemory.MCR.assertParameter("create", 0, "dataRecord", dataGroupRow1);
+		jsonParserSpy.MCR.assertMethodNotCalled("parseString");
+	}
+
+	@Test
+	public void testPopulateAddsLinksToReverseLinkIndex() throws Exception {
+		createRecords();
+		createLinks();
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		assertEquals(reverseLinkIndex.countLinksToRecord("toType2", "toId2"), 1);
+		assertEquals(reverseLinkIndex.onlyForTestGetLinksFromRecord("type1", "id1"),
+				Set.of(new Link("toType2", "toId2")));
+	}
+
+	@Test
+	public void testPopulateSetsVersionsOfRecords() throws Exception {
+		RowSpy record1 = createRecords();
+		record1.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> 7L, "version");
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		assertEquals(recordVersions.getVersion("type1", "id1"), OptionalLong.of(7));
+		assertEquals(recordVersions.getVersion("some value from getValueByColumn in rowSpy",
+				"some value from getValueByColumn in rowSpy"), OptionalLong.of(1));
+	}
+
 	private RowSpy createRecords() {
 		RowSpy record1 = new RowSpy();
 		record1.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> "type1", "type");
@@ -167,7 +241,8 @@ public class FromDbStoragePopulatorTest {
 		createRecords();
 		createLinks();
 
-		populator.populateStorageFromDatabase(recordStorageInMemory);
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
 
 		recordStorageInMemory.MCR.assertParameter("create", 1, "storageTerms",
 				Collections.emptySet());
@@ -178,9 +253,102 @@ public class FromDbStoragePopulatorTest {
 		createRecords();
 		createStorageTerms();
 
-		populator.populateStorageFromDatabase(recordStorageInMemory);
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
 
 		recordStorageInMemory.MCR.assertParameter("create", 1, "links", Collections.emptySet());
 	}
 
+	@Test
+	public void testNotReportedByDefault() throws Exception {
+		FromDbStoragePopulatorImp populatorImp = (FromDbStoragePopulatorImp) populator;
+
+		assertFalse(populatorImp.onlyForTestGetPopulationProgress().isReported());
+	}
+
+	@Test
+	public void testReportedPopulationReadsEstimatedRowsFirst() throws Exception {
+		PopulationProgress progress = PopulationProgress.usingLogIntervalMillis(1000);
+		populator = new FromDbStoragePopulatorImp(dbFacadeSpy, jsonParserSpy,
+				new RecordJsonConverterSpy(), progress);
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		dbFacadeSpy.MCR.assertParameters("readUsingSqlAndValues", 0, ESTIMATED_ROWS_SQL,
+				Collections.emptyList());
+		dbFacadeSpy.MCR.assertParameters("readUsingSqlAndValues", 1, "select * from storageterm",
+				Collections.emptyList());
+		dbFacadeSpy.MCR.assertParameters("readUsingSqlAndValues", 2, "select * from link",
+				Collections.emptyList());
+		dbFacadeSpy.MCR.assertParameters("readUsingSqlAndValues", 3, "select * from record",
+				Collections.emptyList());
+	}
+
+	@Test
+	public void testReportedPopulationProgress() throws Exception {
+		LoggerFactorySpy loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		PopulationProgress progress = PopulationProgress.usingLogIntervalMillis(Long.MAX_VALUE);
+		populator = new FromDbStoragePopulatorImp(dbFacadeSpy, jsonParserSpy,
+				new RecordJsonConverterSpy(), progress);
+		createEstimatedRows();
+		createRecords();
+		createLinks();
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		assertEquals(progress.getPhase(), "RECORDS");
+		assertEquals(progress.getRowsProcessed(), 2);
+		assertEquals(progress.getRowsToProcess(), 2);
+		assertLogged(loggerFactorySpy, 0,
+				"Populating cache, starting phase: STORAGE_TERMS, estimated rows: unknown");
+		assertLogged(loggerFactorySpy, 3,
+				"Populating cache, starting phase: LINKS, estimated rows: 5");
+		assertLogged(loggerFactorySpy, 6,
+				"Populating cache, starting phase: RECORDS, estimated rows: 7");
+		loggerFactorySpy.MCR.assertNumberOfCallsToMethod("factorForClass", 9);
+	}
+
+	private void createEstimatedRows() {
+		RowSpy linkEstimate = createEstimateRow("link", 5L);
+		RowSpy recordEstimate = createEstimateRow("record", 7L);
+		dbFacadeSpy.MRV.setSpecificReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(linkEstimate, recordEstimate), ESTIMATED_ROWS_SQL,
+				Collections.emptyList());
+	}
+
+	private RowSpy createEstimateRow(String table, long estimatedRows) {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> table, "relname");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> estimatedRows,
+				"estimatedrows");
+		return row;
+	}
+
+	private void assertLogged(LoggerFactorySpy loggerFactorySpy, int callNumber,
+			String message) {
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass",
+				callNumber);
+		logger.MCR.assertParameters("logInfoUsingMessage", 0, message);
+	}
+
+	@Test
+	public void testPopulationReportedWithoutEstimatesIfEstimatesCanNotBeRead() throws Exception {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		PopulationProgress progress = PopulationProgress.usingLogIntervalMillis(Long.MAX_VALUE);
+		populator = new FromDbStoragePopulatorImp(dbFacadeSpy, jsonParserSpy,
+				new RecordJsonConverterSpy(), progress);
+		dbFacadeSpy.MRV.setSpecificReturnValuesSupplier("readUsingSqlAndValues", () -> {
+			throw SqlDatabaseException.withMessage("no pg_class");
+		}, ESTIMATED_ROWS_SQL, Collections.emptyList());
+		createRecords();
+
+		populator.populateStorageFromDatabase(recordStorageInMemory, reverseLinkIndex,
+				recordVersions);
+
+		assertEquals(progress.getRowsProcessed(), 2);
+		recordStorageInMemory.MCR.assertNumberOfCallsToMethod("create", 2);
+	}
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RecordCodesTest {
+	private RecordTypeCodes typeCodes;
+	private RecordCodes recordCodes;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		typeCodes = new RecordTypeCodes();
+		recordCodes = new RecordCodes(typeCodes);
+	}
+
+	@Test
+	public void testGetOrCreateCode() throws Exception {
+		int code = recordCodes.getOrCreateCode("someType", "someId");
+
+		assertEquals(recordCodes.getOrCreateCode("someType", "someId"), code);
+		assertEquals(recordCodes.getCode("someType", "someId"), code);
+		assertEquals(recordCodes.getType(code), "someType");
+		assertEquals(recordCodes.getTypeCode(code), typeCodes.getCode("someType"));
+		assertEquals(recordCodes.getId(code), "someId");
+		assertEquals(recordCodes.getNumberOfRecords(), 1);
+	}
+
+	@Test
+	public void testSameIdInOtherTypeGetsOtherCode() throws Exception {
+		int code = recordCodes.getOrCreateCode("someType", "someId");
+
+		assertNotEquals(recordCodes.getOrCreateCode("otherType", "someId"), code);
+	}
+
+	@Test
+	public void testGetCodeForUnknownRecord() throws Exception {
+		recordCodes.getOrCreateCode("someType", "someId");
+
+		assertEquals(recordCodes.getCode("someType", "otherId"), RecordCodes.UNKNOWN_RECORD);
+		assertEquals(recordCodes.getCode("unknownType", "someId"), RecordCodes.UNKNOWN_RECORD);
+	}
+
+	@Test
+	public void testReleasedCodeIsReused() throws Exception {
+		int code = recordCodes.getOrCreateCode("someType", "someId");
+
+		recordCodes.release(code);
+
+		assertEquals(recordCodes.getCode("someType", "someId"), RecordCodes.UNKNOWN_RECORD);
+		assertEquals(recordCodes.getNumberOfRecords(), 0);
+		assertEquals(recordCodes.getOrCreateCode("someType", "otherId"), code);
+		assertEquals(recordCodes.getId(code), "otherId");
+	}
+
+	@Test
+	public void testManyRecordsCanBeAddedReleasedAndFound() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			recordCodes.getOrCreateCode("type" + (i % 7), "id" + i);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			recordCodes.release(recordCodes.getCode("type" + (i % 7), "id" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			recordCodes.getOrCreateCode("otherType", "id" + i);
+		}
+
+		assertEquals(recordCodes.getNumberOfRecords(), 1500);
+		for (int i = 1; i < 1000; i += 2) {
+			int code = recordCodes.getCode("type" + (i % 7), "id" + i);
+			assertEquals(recordCodes.getId(code), "id" + i);
+		}
+		assertEquals(recordCodes.getCode("type0", "id0"), RecordCodes.UNKNOWN_RECORD);
+		assertEquals(recordCodes.getId(recordCodes.getCode("otherType", "id999")), "id999");
+	}
+
+	@Test
+	public void testCompareOrdersByTypeThenId() throws Exception {
+		int typeBId1 = recordCodes.getOrCreateCode("typeB", "id1");
+		int typeAId2 = recordCodes.getOrCreateCode("typeA", "id2");
+
+		assertTrue(recordCodes.compare(typeAId2, typeBId1) < 0);
+		assertTrue(recordCodes.compare(typeBId1, "typeB", "id0") > 0);
+		assertEquals(recordCodes.compare(typeBId1, "typeB", "id1"), 0);
+	}
+
+	@Test
+	public void testCompareCodePoints() throws Exception {
+		assertTrue(RecordCodes.compareCodePoints("B", "a") < 0);
+		assertTrue(RecordCodes.compareCodePoints("a", "ab") < 0);
+		assertEquals(RecordCodes.compareCodePoints("ab", "ab"), 0);
+		assertTrue(RecordCodes.compareCodePoints("\uE000", "\uD83D\uDE00") < 0);
+		assertTrue(RecordCodes.compareCodePoints("\uD83D\uDE00", "\uE000") > 0);
+		assertTrue(RecordCodes.compareCodePoints("\uD83D\uDE00", "\uD83D\uDE01") < 0);
+	}
+}
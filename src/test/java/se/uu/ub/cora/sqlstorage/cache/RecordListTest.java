@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RecordListTest {
+	private RecordTypeCodes typeCodes;
+	private RecordCodes recordCodes;
+	private RecordList list;
+	private int typeAId1;
+	private int typeAId2;
+	private int typeAId3;
+	private int typeBId1;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		typeCodes = new RecordTypeCodes();
+		recordCodes = new RecordCodes(typeCodes);
+		typeBId1 = recordCodes.getOrCreateCode("typeB", "id1");
+		typeAId2 = recordCodes.getOrCreateCode("typeA", "id2");
+		typeAId1 = recordCodes.getOrCreateCode("typeA", "id1");
+		typeAId3 = recordCodes.getOrCreateCode("typeA", "id3");
+		list = new RecordList(recordCodes);
+	}
+
+	@Test
+	public void testTypeCodes() throws Exception {
+		int typeB = typeCodes.getCode("typeB");
+
+		assertEquals(typeCodes.getOrCreateCode("typeB"), typeB);
+		assertEquals(typeCodes.getType(typeCodes.getCode("typeA")), "typeA");
+		assertEquals(typeCodes.getCode("unknownType"), RecordTypeCodes.UNKNOWN_TYPE);
+	}
+
+	@Test
+	public void testAddKeepsOrderByTypeNameAndId() throws Exception {
+		list.add(typeBId1);
+		list.add(typeAId2);
+		list.add(typeAId1);
+		list.add(typeAId3);
+
+		assertContent("typeA:id1", "typeA:id2", "typeA:id3", "typeB:id1");
+	}
+
+	private void assertContent(String... expected) {
+		assertEquals(list.size(), expected.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(list.getType(i) + ":" + list.getId(i), expected[i]);
+		}
+	}
+
+	@Test
+	public void testAddExistingIsIgnored() throws Exception {
+		list.add(typeAId1);
+		list.add(typeAId1);
+
+		assertContent("typeA:id1");
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		list.add(typeAId1);
+		list.add(typeAId2);
+		list.add(typeBId1);
+
+		list.remove(typeAId2);
+		list.remove(typeAId3);
+
+		assertContent("typeA:id1", "typeB:id1");
+	}
+
+	@Test
+	public void testFindPosition() throws Exception {
+		list.add(typeAId1);
+		list.add(typeBId1);
+
+		assertEquals(list.findPosition("typeB", "id1"), 1);
+		assertEquals(list.findPosition("typeA", "id0"), -1);
+		assertEquals(list.findPosition("typeA", "id2"), -2);
+		assertEquals(list.findPosition("typeC", "id1"), -3);
+	}
+
+	@Test
+	public void testOrderComparesCodePoints() throws Exception {
+		int upperCase = recordCodes.getOrCreateCode("typeA", "B");
+		int lowerCase = recordCodes.getOrCreateCode("typeA", "a");
+		int outsideBasicPlane = recordCodes.getOrCreateCode("typeA", "\uD83D\uDE00");
+		int privateUse = recordCodes.getOrCreateCode("typeA", "\uE000");
+
+		list.add(outsideBasicPlane);
+		list.add(lowerCase);
+		list.add(privateUse);
+		list.add(upperCase);
+
+		assertEquals(list.getRecordCode(0), upperCase);
+		assertEquals(list.getRecordCode(1), lowerCase);
+		assertEquals(list.getRecordCode(2), privateUse);
+		assertEquals(list.getRecordCode(3), outsideBasicPlane);
+	}
+
+	@Test
+	public void testAppendThenSortAndRemoveDuplicates() throws Exception {
+		list.append(typeBId1);
+		list.append(typeAId2);
+		list.append(typeBId1);
+		list.append(typeAId1);
+
+		list.sortAndRemoveDuplicates();
+
+		assertContent("typeA:id1", "typeA:id2", "typeB:id1");
+		assertEquals(list.getRecordCode(2), typeBId1);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.OptionalLong;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RecordVersionsTest {
+	private RecordVersions versions;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		versions = new RecordVersions();
+	}
+
+	@Test
+	public void testNoVersionForUnknownRecord() throws Exception {
+		assertEquals(versions.getVersion("someType", "someId"), OptionalLong.empty());
+	}
+
+	@Test
+	public void testSetVersion() throws Exception {
+		versions.setVersion("someType", "someId", 3);
+		versions.setVersion("someType", "otherId", 5);
+		versions.setVersion("otherType", "someId", 7);
+
+		assertEquals(versions.getVersion("someType", "someId"), OptionalLong.of(3));
+		assertEquals(versions.getVersion("someType", "otherId"), OptionalLong.of(5));
+		assertEquals(versions.getVersion("otherType", "someId"), OptionalLong.of(7));
+	}
+
+	@Test
+	public void testIncreaseVersion() throws Exception {
+		versions.setVersion("someType", "someId", 3);
+
+		versions.increaseVersion("someType", "someId");
+
+		assertEquals(versions.getVersion("someType", "someId"), OptionalLong.of(4));
+	}
+
+	@Test
+	public void testIncreaseVersionOfUnknownRecordDoesNotSetVersion() throws Exception {
+		versions.setVersion("someType", "otherId", 3);
+
+		versions.increaseVersion("someType", "someId");
+		versions.increaseVersion("otherType", "someId");
+
+		assertEquals(versions.getVersion("someType", "someId"), OptionalLong.empty());
+		assertEquals(versions.getVersion("otherType", "someId"), OptionalLong.empty());
+	}
+
+	@Test
+	public void testRemoveVersion() throws Exception {
+		versions.setVersion("someType", "someId", 3);
+		versions.setVersion("someType", "otherId", 5);
+
+		versions.removeVersion("someType", "someId");
+		versions.removeVersion("otherType", "someId");
+
+		assertEquals(versions.getVersion("someType", "someId"), OptionalLong.empty());
+		assertEquals(versions.getVersion("someType", "otherId"), OptionalLong.of(5));
+	}
+}
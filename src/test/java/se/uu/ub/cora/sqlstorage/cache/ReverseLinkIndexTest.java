@@ -0,0 +1,322 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.internal.LinkCursor;
+
+public class ReverseLinkIndexTest {
+	private ReverseLinkIndex index;
+	private Link toRecord1 = new Link("toType", "toId1");
+	private Link toRecord2 = new Link("toType", "toId2");
+
+	@BeforeMethod
+	public void beforeMethod() {
+		index = new ReverseLinkIndex();
+	}
+
+	@Test
+	public void testNoLinksToUnknownRecord() throws Exception {
+		assertFalse(index.linksExistToRecord("toType", "toId1"));
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 0);
+	}
+
+	@Test
+	public void testLinksFromOneRecord() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord1, toRecord2));
+
+		assertTrue(index.linksExistToRecord("toType", "toId1"));
+		assertTrue(index.linksExistToRecord("toType", "toId2"));
+		assertFalse(index.linksExistToRecord("fromType", "fromId"));
+	}
+
+	@Test
+	public void testLinksFromSeveralRecordsAreCounted() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId1", Set.of(toRecord1));
+		index.replaceLinksFromRecord("fromType", "fromId2", Set.of(toRecord1, toRecord2));
+
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 2);
+		assertEquals(index.countLinksToRecord("toType", "toId2"), 1);
+	}
+
+	@Test
+	public void testReplaceLinksRemovesOldLinks() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord1));
+
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord2));
+
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 0);
+		assertEquals(index.countLinksToRecord("toType", "toId2"), 1);
+		assertEquals(index.onlyForTestGetLinksFromRecord("fromType", "fromId"),
+				Set.of(toRecord2));
+	}
+
+	@Test
+	public void testReplaceWithSameLinksKeepsCount() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord1));
+
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord1));
+
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 1);
+	}
+
+	@Test
+	public void testReplaceWithNoLinks() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(toRecord1));
+
+		index.replaceLinksFromRecord("fromType", "fromId", Collections.emptySet());
+
+		assertFalse(index.linksExistToRecord("toType", "toId1"));
+		assertEquals(index.onlyForTestGetLinksFromRecord("fromType", "fromId"), Set.of());
+	}
+
+	@Test
+	public void testRemoveLinksFromRecord() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId1", Set.of(toRecord1));
+		index.replaceLinksFromRecord("fromType", "fromId2", Set.of(toRecord1));
+
+		index.removeLinksFromRecord("fromType", "fromId1");
+
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 1);
+		index.removeLinksFromRecord("fromType", "fromId2");
+		assertFalse(index.linksExistToRecord("toType", "toId1"));
+	}
+
+	@Test
+	public void testRecordsNoLongerLinkedAreForgotten() throws Exception {
+		index.replaceLinksFromRecord("fromType", "fromId1", Set.of(toRecord1, toRecord2));
+		index.replaceLinksFromRecord("fromType", "fromId2", Set.of(toRecord1));
+		assertEquals(index.onlyForTestGetNumberOfRecords(), 4);
+
+		index.replaceLinksFromRecord("fromType", "fromId1", Set.of(toRecord1));
+		assertEquals(index.onlyForTestGetNumberOfRecords(), 3);
+
+		index.removeLinksFromRecord("fromType", "fromId1");
+		index.replaceLinksFromRecord("fromType", "fromId2", Collections.emptySet());
+		assertEquals(index.onlyForTestGetNumberOfRecords(), 0);
+	}
+
+	@Test
+	public void testRecordLinkingToItself() throws Exception {
+		Link self = new Link("fromType", "fromId");
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(self));
+
+		index.replaceLinksFromRecord("fromType", "fromId", Set.of(self, toRecord1));
+
+		assertEquals(index.getLinksToRecord("fromType", "fromId"), Set.of(self));
+		assertEquals(index.countLinksToRecord("toType", "toId1"), 1);
+		index.removeLinksFromRecord("fromType", "fromId");
+		assertEquals(index.onlyForTestGetNumberOfRecords(), 0);
+	}
+
+	@Test
+	public void testLinksAreOrderedByCodePoint() throws Exception {
+		index.replaceLinksFromRecord("fromType", "a", Set.of(toRecord1));
+		index.replaceLinksFromRecord("fromType", "\uD83D\uDE00", Set.of(toRecord1));
+		index.replaceLinksFromRecord("fromType", "\uE000", Set.of(toRecord1));
+		index.replaceLinksFromRecord("fromType", "B", Set.of(toRecord1));
+
+		LinkPage page = index.readLinksToRecord("toType", "toId1", LinkPageRequest.usingLimit(10));
+
+		assertEquals(page.links(), List.of(new Link("fromType", "B"), new Link("fromType", "a"),
+				new Link("fromType", "\uE000"), new Link("fromType", "\uD83D\uDE00")));
+	}
+
+	@Test
+	public void testRemoveLinksFromUnknownRecord() throws Exception {
+		index.removeLinksFromRecord("fromType", "unknownId");
+
+		assertFalse(index.linksExistToRecord("toType", "toId1"));
+	}
+
+	@Test
+	public void testReadLinksToUnknownRecord() throws Exception {
+		LinkPage page = index.readLinksToRecord("toType", "toId1", LinkPageRequest.usingLimit(2));
+
+		assertEquals(page.links(), List.of());
+		assertFalse(page.hasNextPage());
+	}
+
+	@Test
+	public void testReadLinksToRecordInPages() throws Exception {
+		addLinksToRecord1From("typeB:id1", "typeA:id2", "typeA:id1");
+
+		LinkPage page1 = index.readLinksToRecord("toType", "toId1", LinkPageRequest.usingLimit(2));
+		LinkPage page2 = index.readLinksToRecord("toType", "toId1",
+				LinkPageRequest.usingLimit(2).withCursor(page1.nextCursor()));
+
+		assertEquals(page1.links(), List.of(new Link("typeA", "id1"), new Link("typeA", "id2")));
+		assertEquals(page2.links(), List.of(new Link("typeB", "id1")));
+		assertFalse(page2.hasNextPage());
+	}
+
+	@Test
+	public void testReadLinksToRecordExactlyLimitHasNoNextPage() throws Exception {
+		addLinksToRecord1From("typeA:id1", "typeA:id2");
+
+		LinkPage page = index.readLinksToRecord("toType", "toId1", LinkPageRequest.usingLimit(2));
+
+		assertEquals(page.links().size(), 2);
+		assertFalse(page.hasNextPage());
+	}
+
+	@Test
+	public void testReadLinksToRecordFromType() throws Exception {
+		addLinksToRecord1From("typeA:id1", "typeB:id1", "typeB:id2", "typeB:id3", "typeC:id1");
+
+		LinkPageRequest request = LinkPageRequest.usingLimit(2).withFromType("typeB");
+		LinkPage page1 = index.readLinksToRecord("toType", "toId1", request);
+		LinkPage page2 = index.readLinksToRecord("toType", "toId1",
+				request.withCursor(page1.nextCursor()));
+
+		assertEquals(page1.links(), List.of(new Link("typeB", "id1"), new Link("typeB", "id2")));
+		assertEquals(page2.links(), List.of(new Link("typeB", "id3")));
+		assertFalse(page2.hasNextPage());
+	}
+
+	@Test
+	public void testReadLinksToRecordFromTypeWithCursorBeforeType() throws Exception {
+		addLinksToRecord1From("typeA:id1", "typeB:id1");
+		String cursor = new LinkCursor("typeA", "id1").encode();
+
+		LinkPage page = index.readLinksToRecord("toType", "toId1",
+				LinkPageRequest.usingLimit(2).withFromType("typeB").withCursor(cursor));
+
+		assertEquals(page.links(), List.of(new Link("typeB", "id1")));
+	}
+
+	private void addLinksToRecord1From(String... fromRecords) {
+		for (String fromRecord : fromRecords) {
+			String[] typeAndId = fromRecord.split(":");
+			index.replaceLinksFromRecord(typeAndId[0], typeAndId[1], Set.of(toRecord1));
+		}
+	}
+
+	@Test
+	public void testGetLinksToRecord() throws Exception {
+		addLinksToRecord1From("typeB:id1", "typeA:id2", "typeA:id1");
+
+		Set<Link> links = index.getLinksToRecord("toType", "toId1");
+
+		assertEquals(List.copyOf(links), List.of(new Link("typeA", "id1"),
+				new Link("typeA", "id2"), new Link("typeB", "id1")));
+		assertEquals(index.getLinksToRecord("unknownType", "toId1"), Set.of());
+	}
+
+	@Test
+	public void testAddLinksInBulk() throws Exception {
+		index.addLinkInBulk("typeB", "id1", "toType", "toId1");
+		index.addLinkInBulk("typeA", "id1", "toType", "toId1");
+		index.addLinkInBulk("typeA", "id1", "toType", "toId2");
+		index.addLinkInBulk("typeB", "id1", "toType", "toId1");
+
+		index.finishAddingLinksInBulk();
+
+		assertEquals(List.copyOf(index.getLinksToRecord("toType", "toId1")),
+				List.of(new Link("typeA", "id1"), new Link("typeB", "id1")));
+		assertEquals(index.onlyForTestGetLinksFromRecord("typeA", "id1"),
+				Set.of(toRecord1, toRecord2));
+		assertEquals(index.onlyForTestGetLinksFromRecord("typeB", "id1"), Set.of(toRecord1));
+	}
+
+	@Test
+	public void testLinksAddedInBulkCanBeReplacedAndRemoved() throws Exception {
+		index.addLinkInBulk("typeA", "id1", "toType", "toId1");
+		index.addLinkInBulk("typeA", "id2", "toType", "toId1");
+		index.finishAddingLinksInBulk();
+
+		index.replaceLinksFromRecord("typeA", "id1", Set.of(toRecord2));
+		index.removeLinksFromRecord("typeA", "id2");
+
+		assertFalse(index.linksExistToRecord("toType", "toId1"));
+		assertEquals(index.getLinksToRecord("toType", "toId2"), Set.of(new Link("typeA", "id1")));
+	}
+
+	@Test
+	public void testTraverseLinksToRecord() throws Exception {
+		index.replaceLinksFromRecord("typeA", "a1", Set.of(new Link("start", "s")));
+		index.replaceLinksFromRecord("typeB", "b1", Set.of(new Link("typeA", "a1")));
+		index.replaceLinksFromRecord("typeA", "a2",
+				Set.of(new Link("start", "s"), new Link("typeB", "b1")));
+		index.replaceLinksFromRecord("typeC", "c1", Set.of(new Link("typeB", "b1")));
+		index.replaceLinksFromRecord("typeD", "d1", Set.of(new Link("typeC", "c1")));
+
+		List<ReachableRecord> result = index.traverseLinks("start", "s", LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 3, 100));
+
+		assertEquals(result,
+				List.of(new ReachableRecord("typeA", "a1", 1),
+						new ReachableRecord("typeA", "a2", 1),
+						new ReachableRecord("typeB", "b1", 2),
+						new ReachableRecord("typeC", "c1", 3)));
+	}
+
+	@Test
+	public void testTraverseLinksHandlesCyclesAndExcludesStart() throws Exception {
+		index.replaceLinksFromRecord("typeA", "a1", Set.of(new Link("typeA", "a2")));
+		index.replaceLinksFromRecord("typeA", "a2", Set.of(new Link("typeA", "a1")));
+
+		List<ReachableRecord> result = index.traverseLinks("typeA", "a1", LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_FROM_RECORD, 10, 100));
+
+		assertEquals(result, List.of(new ReachableRecord("typeA", "a2", 1)));
+	}
+
+	@Test
+	public void testTraverseLinksFromRecordWithTypesAndLimit() throws Exception {
+		index.replaceLinksFromRecord("start", "s", Set.of(new Link("typeA", "a1"),
+				new Link("typeB", "b1"), new Link("typeA", "a2")));
+		index.replaceLinksFromRecord("typeB", "b1", Set.of(new Link("typeA", "a3")));
+		index.replaceLinksFromRecord("typeA", "a1", Set.of(new Link("typeA", "a4")));
+
+		List<ReachableRecord> result = index.traverseLinks("start", "s",
+				LinkTraversalRequest
+						.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_FROM_RECORD, 5, 2)
+						.withTypes(Set.of("typeA")));
+
+		assertEquals(result, List.of(new ReachableRecord("typeA", "a1", 1),
+				new ReachableRecord("typeA", "a2", 1)));
+	}
+
+	@Test
+	public void testTraverseLinksFromUnknownRecord() throws Exception {
+		List<ReachableRecord> result = index.traverseLinks("unknownType", "id",
+				LinkTraversalRequest.usingDirectionAndMaxDepthAndLimit(
+						Direction.LINKS_TO_RECORD, 5, 2));
+
+		assertEquals(result, List.of());
+		assertEquals(index.onlyForTestGetTypeCode("unknownType"), RecordTypeCodes.UNKNOWN_TYPE);
+	}
+}
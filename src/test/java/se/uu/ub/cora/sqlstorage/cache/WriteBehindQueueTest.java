@@ -0,0 +1,638 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.RecordWrite.Action;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
+import se.uu.ub.cora.storage.StorageException;
+
+public class WriteBehindQueueTest {
+	private static final String SOME_TYPE = "someType";
+	private LoggerFactorySpy loggerFactorySpy;
+	private SqlRecordStorageSpy database;
+	private WriteBehindQueue queue;
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+	private DataGroupSpy otherDataRecord = new DataGroupSpy();
+	private Set<StorageTerm> storageTerms = Set.of();
+	private Set<Link> links = Set.of();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		database = new SqlRecordStorageSpy();
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2));
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(queue.onlyForTestGetDatabase(), database);
+		assertEquals(queue.onlyForTestGetMaxPendingWrites(), 10);
+		assertEquals(queue.onlyForTestGetBatchSize(), 2);
+		assertEquals(queue.onlyForTestGetMaxAttempts(), 10);
+		assertEquals(queue.onlyForTestGetMaxEnqueueWaitMillis(), 30_000);
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		assertEquals(queue.getDeadLetters(), List.of());
+	}
+
+	@Test
+	public void testInitWithMaxAttemptsAndMaxEnqueueWait() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2)
+						.withMaxAttempts(3).withMaxEnqueueWaitMillis(100));
+
+		assertEquals(queue.onlyForTestGetMaxAttempts(), 3);
+		assertEquals(queue.onlyForTestGetMaxEnqueueWaitMillis(), 100);
+	}
+
+	@Test
+	public void testNothingWrittenBeforeFlush() throws Exception {
+		queue.enqueue(createWrite("id1"));
+
+		database.MCR.assertMethodNotCalled("writeInOneTransaction");
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	private RecordWrite createWrite(String id) {
+		return RecordWrite.forCreate(SOME_TYPE, id, dataRecord, storageTerms, links,
+				"someDataDivider");
+	}
+
+	private RecordWrite updateWrite(String id, DataGroupSpy data) {
+		return RecordWrite.forUpdate(SOME_TYPE, id, data, storageTerms, links, "someDataDivider");
+	}
+
+	@Test
+	public void testFlushWritesInBatchesOfBatchSize() throws Exception {
+		RecordWrite write1 = createWrite("id1");
+		RecordWrite write2 = createWrite("id2");
+		RecordWrite write3 = createWrite("id3");
+		queue.enqueue(write1);
+		queue.enqueue(write2);
+		queue.enqueue(write3);
+
+		queue.flush();
+
+		database.MCR.assertNumberOfCallsToMethod("writeInOneTransaction", 2);
+		assertWrittenInTransaction(0, List.of(write1, write2));
+		assertWrittenInTransaction(1, List.of(write3));
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+	}
+
+	private void assertWrittenInTransaction(int callNumber, List<RecordWrite> expectedWrites) {
+		Object writes = database.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"writeInOneTransaction", callNumber, "writes");
+		assertEquals(writes, expectedWrites);
+	}
+
+	@Test
+	public void testWritesToRecordsWithSameTypeAndIdJoinedAreNotCoalesced() throws Exception {
+		RecordWrite write1 = RecordWrite.forCreate("a_b", "c", dataRecord, storageTerms, links,
+				"someDataDivider");
+		RecordWrite write2 = RecordWrite.forDelete("a", "b_c");
+		queue.enqueue(write1);
+		queue.enqueue(write2);
+
+		queue.flush();
+
+		assertWrittenInTransaction(0, List.of(write1, write2));
+	}
+
+	@Test
+	public void testWriteThroughWritesPendingWriteToRecordFirst() throws Exception {
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(createWrite("id2"));
+		List<String> calls = new ArrayList<>();
+
+		queue.writeThrough(SOME_TYPE, "id1", () -> {
+			database.MCR.assertParameter("create", 0, "id", "id1");
+			calls.add("writeToDatabase");
+		});
+
+		assertEquals(calls, List.of("writeToDatabase"));
+		database.MCR.assertNumberOfCallsToMethod("create", 1);
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		queue.flush();
+		assertWrittenInTransaction(0, List.of(createWrite("id2")));
+	}
+
+	@Test
+	public void testWriteThroughWithoutPendingWrite() throws Exception {
+		List<String> calls = new ArrayList<>();
+
+		queue.writeThrough(SOME_TYPE, "id1", () -> calls.add("writeToDatabase"));
+
+		assertEquals(calls, List.of("writeToDatabase"));
+		database.MCR.assertMethodNotCalled("create");
+	}
+
+	@Test
+	public void testWriteThroughKeepsPendingWriteAndDoesNotWriteWhenPendingWriteFails()
+			throws Exception {
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		List<String> calls = new ArrayList<>();
+
+		try {
+			queue.writeThrough(SOME_TYPE, "id1", () -> calls.add("writeToDatabase"));
+			fail();
+		} catch (StorageException e) {
+			assertEquals(e.getMessage(), "Error from SqlRecordStorageSpy for id: id1");
+		}
+
+		assertEquals(calls, List.of());
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testFlushEmptyQueueDoesNothing() throws Exception {
+		queue.flush();
+
+		database.MCR.assertMethodNotCalled("writeInOneTransaction");
+	}
+
+	@Test
+	public void testCreateThenUpdateIsCoalescedToCreateWithNewData() throws Exception {
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+
+		RecordWrite write = flushAndGetOnlyWrittenWrite();
+
+		assertEquals(write.action(), Action.CREATE);
+		assertSame(write.dataRecord(), otherDataRecord);
+	}
+
+	private RecordWrite flushAndGetOnlyWrittenWrite() {
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		queue.flush();
+		List<?> writes = (List<?>) database.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"writeInOneTransaction", 0, "writes");
+		assertEquals(writes.size(), 1);
+		return (RecordWrite) writes.get(0);
+	}
+
+	@Test
+	public void testCreateThenDeleteIsRemoved() throws Exception {
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(RecordWrite.forDelete(SOME_TYPE, "id1"));
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		queue.flush();
+		database.MCR.assertMethodNotCalled("writeInOneTransaction");
+	}
+
+	@Test
+	public void testDeleteThenCreateIsCoalescedToUpdate() throws Exception {
+		queue.enqueue(RecordWrite.forDelete(SOME_TYPE, "id1"));
+		queue.enqueue(createWrite("id1"));
+
+		RecordWrite write = flushAndGetOnlyWrittenWrite();
+
+		assertEquals(write.action(), Action.UPDATE);
+		assertSame(write.dataRecord(), dataRecord);
+	}
+
+	@Test
+	public void testUpdateThenUpdateKeepsLatest() throws Exception {
+		queue.enqueue(updateWrite("id1", dataRecord));
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+
+		RecordWrite write = flushAndGetOnlyWrittenWrite();
+
+		assertEquals(write.action(), Action.UPDATE);
+		assertSame(write.dataRecord(), otherDataRecord);
+	}
+
+	@Test
+	public void testUpdateThenDeleteIsDelete() throws Exception {
+		queue.enqueue(updateWrite("id1", dataRecord));
+		queue.enqueue(RecordWrite.forDelete(SOME_TYPE, "id1"));
+
+		RecordWrite write = flushAndGetOnlyWrittenWrite();
+
+		assertEquals(write.action(), Action.DELETE);
+	}
+
+	@Test
+	public void testFailedTransactionIsRetriedOneByOne() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(updateWrite("id2", dataRecord));
+
+		queue.flush();
+
+		database.MCR.assertParameters("create", 0, SOME_TYPE, "id1", dataRecord, storageTerms,
+				links, "someDataDivider");
+		database.MCR.assertParameters("update", 0, SOME_TYPE, "id2", dataRecord, storageTerms,
+				links, "someDataDivider");
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		LoggerSpy logger = getLoggerSpy();
+		logger.MCR.assertParameters("logWarnUsingMessage", 0,
+				"Writing 2 records in one transaction failed, retrying them one by one.");
+	}
+
+	private LoggerSpy getLoggerSpy() {
+		loggerFactorySpy.MCR.assertParameters("factorForClass", 0, WriteBehindQueue.class);
+		return (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 0);
+	}
+
+	@Test
+	public void testFailedWriteIsKeptForRetry() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(createWrite("id2"));
+
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		LoggerSpy logger = getLoggerSpy();
+		logger.MCR.assertParameter("logErrorUsingMessageAndException", 0, "message",
+				"Write behind failed when CREATE record with type: someType and id: id1, "
+						+ "keeping it for retry.");
+
+		database.idsToThrowExceptionForOnWrite.clear();
+		database.throwExceptionOnWriteInOneTransaction = false;
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		assertWrittenInTransaction(1, List.of(createWrite("id1")));
+	}
+
+	@Test
+	public void testConflictingWriteIsMovedToDeadLetters() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(createWrite("id2"));
+
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		assertEquals(queue.getDeadLetters(), List.of(createWrite("id1")));
+		LoggerSpy logger = getLoggerSpy();
+		logger.MCR.assertParameter("logErrorUsingMessageAndException", 0, "message",
+				"Write behind failed when CREATE record with type: someType and id: id1, "
+						+ "moving it to dead letters.");
+	}
+
+	@Test
+	public void testDeadLetterListenerToldAboutDeadLetter() throws Exception {
+		List<RecordWrite> toldAbout = new ArrayList<>();
+		queue.setDeadLetterListener(toldAbout::add);
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(createWrite("id2"));
+
+		queue.flush();
+
+		assertEquals(toldAbout, List.of(createWrite("id1")));
+	}
+
+	@Test
+	public void testDeadLetterListenerNotToldWhenNewerWriteToRecordIsPending() throws Exception {
+		database = new SqlRecordStorageSpy() {
+			@Override
+			public void create(String type, String id, DataGroup dataRecord,
+					Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider) {
+				queue.enqueue(updateWrite("id1", otherDataRecord));
+				super.create(type, id, dataRecord, storageTerms, links, dataDivider);
+			}
+		};
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2));
+		List<RecordWrite> toldAbout = new ArrayList<>();
+		queue.setDeadLetterListener(toldAbout::add);
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+
+		queue.flush();
+
+		assertEquals(queue.getDeadLetters(), List.of(createWrite("id1")));
+		assertEquals(toldAbout, List.of());
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testFailingDeadLetterListenerIsLogged() throws Exception {
+		queue.setDeadLetterListener(write -> {
+			throw new RuntimeException("some error");
+		});
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+
+		queue.flush();
+
+		assertEquals(queue.getDeadLetters(), List.of(createWrite("id1")));
+		LoggerSpy logger = getLoggerSpy();
+		logger.MCR.assertParameter("logErrorUsingMessageAndException", 0, "message",
+				"Dead letter listener failed for record with type: someType and id: id1.");
+	}
+
+	@Test
+	public void testOldestDeadLetterDroppedWhenMaxDeadLettersReached() throws Exception {
+		queue.onlyForTestSetMaxDeadLetters(2);
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.addAll(List.of("id1", "id2", "id3"));
+		queue.enqueue(createWrite("id1"));
+		queue.enqueue(createWrite("id2"));
+		queue.enqueue(createWrite("id3"));
+
+		queue.flush();
+
+		assertEquals(queue.getDeadLetters(), List.of(createWrite("id2"), createWrite("id3")));
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 0);
+		logger.MCR.assertParameter("logWarnUsingMessage", 2, "message",
+				"Write behind has more than 2 dead letters, dropping CREATE of record with "
+						+ "type: someType and id: id1.");
+	}
+
+	@Test
+	public void testDrainDeadLetters() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowConflictForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.flush();
+
+		List<RecordWrite> drained = queue.drainDeadLetters();
+
+		assertEquals(drained, List.of(createWrite("id1")));
+		assertEquals(queue.getDeadLetters(), List.of());
+		assertEquals(queue.drainDeadLetters(), List.of());
+	}
+
+	@Test
+	public void testFailedWriteIsMovedToDeadLettersAfterMaxAttempts() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2)
+						.withMaxAttempts(3).withMaxEnqueueWaitMillis(100));
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+
+		queue.flush();
+		queue.flush();
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		assertEquals(queue.getDeadLetters(), List.of());
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		assertEquals(queue.getDeadLetters(), List.of(createWrite("id1")));
+		database.MCR.assertNumberOfCallsToMethod("create", 3);
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 1);
+		logger.MCR.assertParameter("logErrorUsingMessageAndException", 2, "message",
+				"Write behind failed when CREATE record with type: someType and id: id1, "
+						+ "moving it to dead letters.");
+	}
+
+	@Test
+	public void testFailedAttemptsAreResetByNewerWrite() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2)
+						.withMaxAttempts(2).withMaxEnqueueWaitMillis(100));
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.flush();
+
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		assertEquals(queue.getDeadLetters(), List.of());
+	}
+
+	@Test
+	public void testFailedAttemptsAreResetBySuccessfulWrite() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(10, 2)
+						.withMaxAttempts(2).withMaxEnqueueWaitMillis(100));
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.flush();
+		database.idsToThrowExceptionForOnWrite.clear();
+		queue.flush();
+
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+		queue.flush();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+		assertEquals(queue.getDeadLetters(), List.of());
+	}
+
+	@Test
+	public void testFailedWriteIsCoalescedWithNewerWrite() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+		queue.flush();
+		database.throwExceptionOnWriteInOneTransaction = false;
+		database.idsToThrowExceptionForOnWrite.clear();
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+
+		queue.flush();
+
+		List<?> writes = (List<?>) database.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"writeInOneTransaction", 1, "writes");
+		RecordWrite write = (RecordWrite) writes.get(0);
+		assertEquals(write.action(), Action.CREATE);
+		assertSame(write.dataRecord(), otherDataRecord);
+	}
+
+	@Test
+	public void testEnqueueBlocksWhenQueueIsFull() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(1, 1));
+		queue.enqueue(createWrite("id1"));
+		CountDownLatch enqueued = new CountDownLatch(1);
+		Thread writer = new Thread(() -> {
+			queue.enqueue(createWrite("id2"));
+			enqueued.countDown();
+		});
+		writer.start();
+
+		assertEquals(enqueued.await(100, TimeUnit.MILLISECONDS), false);
+		queue.flush();
+		assertTrue(enqueued.await(1, TimeUnit.SECONDS));
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testEnqueueFailsWhenNoRoomWithinMaxEnqueueWait() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(1, 1)
+						.withMaxAttempts(10).withMaxEnqueueWaitMillis(20));
+		queue.enqueue(createWrite("id1"));
+
+		try {
+			queue.enqueue(createWrite("id2"));
+			fail();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Write behind queue is full, no room for write to "
+					+ "record with type: someType and id: id2 within 20 milliseconds.");
+		}
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testEnqueueFailsWhenInterruptedWhileWaiting() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(1, 1));
+		queue.enqueue(createWrite("id1"));
+		Thread.currentThread().interrupt();
+
+		try {
+			queue.enqueue(createWrite("id2"));
+			fail();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Interrupted while waiting for room in write behind "
+					+ "queue for record with type: someType and id: id2");
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	public void testEnqueueWithWriteInMemory() throws Exception {
+		queue.enqueue(SOME_TYPE, "id1", () -> createWrite("id1"));
+
+		queue.flush();
+
+		assertWrittenInTransaction(0, List.of(createWrite("id1")));
+	}
+
+	@Test
+	public void testWriteInMemoryIsNotCalledWhenNoRoom() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(1, 1)
+						.withMaxAttempts(10).withMaxEnqueueWaitMillis(1));
+		queue.enqueue(createWrite("id1"));
+		boolean[] writtenInMemory = { false };
+
+		try {
+			queue.enqueue(SOME_TYPE, "id2", () -> {
+				writtenInMemory[0] = true;
+				return createWrite("id2");
+			});
+			fail();
+		} catch (StorageException e) {
+			assertFalse(writtenInMemory[0]);
+		}
+	}
+
+	@Test
+	public void testNothingIsQueuedWhenWriteInMemoryFails() throws Exception {
+		try {
+			queue.enqueue(SOME_TYPE, "id1", () -> {
+				throw StorageException.withMessage("Error writing in memory");
+			});
+			fail();
+		} catch (StorageException e) {
+			assertEquals(e.getMessage(), "Error writing in memory");
+		}
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+	}
+
+	@Test
+	public void testEnqueueToAlreadyPendingRecordDoesNotBlockWhenFull() throws Exception {
+		queue = WriteBehindQueue.usingDatabaseAndOptions(database,
+				WriteBehindOptions.usingMaxPendingWritesAndBatchSize(1, 1));
+		queue.enqueue(createWrite("id1"));
+
+		queue.enqueue(updateWrite("id1", otherDataRecord));
+
+		assertEquals(queue.getNumberOfPendingWrites(), 1);
+	}
+
+	@Test
+	public void testStartedFlusherWritesInBackground() throws Exception {
+		queue.startFlushingWithIntervalInMilliseconds(10);
+		queue.enqueue(createWrite("id1"));
+
+		waitUntilWrittenToDatabase();
+
+		assertWrittenInTransaction(0, List.of(createWrite("id1")));
+		queue.shutdown();
+	}
+
+	private void waitUntilWrittenToDatabase() throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (!database.MCR.methodWasCalled("writeInOneTransaction")
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+	}
+
+	@Test
+	public void testShutdownFlushesPendingWrites() throws Exception {
+		queue.startFlushingWithIntervalInMilliseconds(60_000);
+		queue.enqueue(createWrite("id1"));
+
+		queue.shutdown();
+
+		assertEquals(queue.getNumberOfPendingWrites(), 0);
+		assertWrittenInTransaction(0, List.of(createWrite("id1")));
+	}
+
+	@Test
+	public void testShutdownLogsWritesThatCouldNotBeWritten() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+		database.idsToThrowExceptionForOnWrite.add("id1");
+		queue.enqueue(createWrite("id1"));
+
+		queue.shutdown();
+
+		LoggerSpy logger = getLoggerSpy();
+		logger.MCR.assertParameters("logFatalUsingMessage", 0,
+				"Write behind could not write CREATE of record with type: someType and id: id1 "
+						+ "to database before shutdown.");
+	}
+}
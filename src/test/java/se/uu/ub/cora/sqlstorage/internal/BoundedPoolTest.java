@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BoundedPoolTest {
+	private List<Object> created;
+	private List<Object> discarded;
+	private BoundedPool<Object> pool;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		created = new ArrayList<>();
+		discarded = new ArrayList<>();
+		pool = BoundedPool.usingFactoryAndDiscarderAndMaxIdle(this::createObject, discarded::add,
+				2);
+	}
+
+	private Object createObject() {
+		Object object = new Object();
+		created.add(object);
+		return object;
+	}
+
+	@Test
+	public void testDefaultMaxIdleIsNumberOfProcessors() throws Exception {
+		assertEquals(BoundedPool.DEFAULT_MAX_IDLE, Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void testBorrowFromEmptyPoolCreatesObject() throws Exception {
+		Object object = pool.borrow();
+
+		assertEquals(created, List.of(object));
+		assertEquals(pool.onlyForTestGetNumberOfIdle(), 0);
+	}
+
+	@Test
+	public void testObjectGivenBackIsBorrowedAgain() throws Exception {
+		Object object = pool.borrow();
+		pool.giveBack(object);
+
+		assertSame(pool.borrow(), object);
+		assertEquals(created.size(), 1);
+		assertTrue(discarded.isEmpty());
+	}
+
+	@Test
+	public void testBorrowWhileAllAreBorrowedCreatesNewObject() throws Exception {
+		Object first = pool.borrow();
+		Object second = pool.borrow();
+
+		assertNotSame(first, second);
+		assertEquals(created.size(), 2);
+	}
+
+	@Test
+	public void testObjectsGivenBackAboveMaxIdleAreDiscarded() throws Exception {
+		Object first = pool.borrow();
+		Object second = pool.borrow();
+		Object third = pool.borrow();
+
+		pool.giveBack(first);
+		pool.giveBack(second);
+		pool.giveBack(third);
+
+		assertEquals(pool.onlyForTestGetNumberOfIdle(), 2);
+		assertEquals(discarded, List.of(third));
+	}
+}
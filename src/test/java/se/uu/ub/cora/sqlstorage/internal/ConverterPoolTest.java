@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.converter.DataToJsonConverterFactory;
+import se.uu.ub.cora.data.converter.DataToJsonConverterFactoryCreator;
+import se.uu.ub.cora.data.converter.DataToJsonConverterProvider;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.sqlstorage.metrics.JsonConversionTime;
+import se.uu.ub.cora.sqlstorage.metrics.StorageLayer;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.StorageOperation;
+import se.uu.ub.cora.sqlstorage.spy.json.DataToJsonConverterFactorySpy;
+import se.uu.ub.cora.sqlstorage.spy.metrics.StorageMetricsSpy;
+import se.uu.ub.cora.testutils.mcr.MethodCallRecorder;
+
+public class ConverterPoolTest {
+	private FactoryCreatorSpy factoryCreator;
+	private ConverterPool converterPool;
+	private DataGroup dataGroup = new DataGroupSpy();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		factoryCreator = new FactoryCreatorSpy();
+		DataToJsonConverterProvider.setDataToJsonConverterFactoryCreator(factoryCreator);
+		converterPool = new ConverterPool();
+	}
+
+	@Test
+	public void testConvertToJson() throws Exception {
+		String json = converterPool.convertToJson(dataGroup);
+
+		DataToJsonConverterFactorySpy factory = (DataToJsonConverterFactorySpy) factoryCreator.MCR
+				.getReturnValue("createFactory", 0);
+		factory.MCR.assertParameters("factorUsingConvertible", 0, dataGroup);
+		assertEquals(json, "Some json string from spy");
+	}
+
+	@Test
+	public void testFactoryIsReusedBetweenConversions() throws Exception {
+		converterPool.convertToJson(dataGroup);
+		converterPool.convertToJson(dataGroup);
+
+		factoryCreator.MCR.assertNumberOfCallsToMethod("createFactory", 1);
+		DataToJsonConverterFactorySpy factory = (DataToJsonConverterFactorySpy) factoryCreator.MCR
+				.getReturnValue("createFactory", 0);
+		factory.MCR.assertNumberOfCallsToMethod("factorUsingConvertible", 2);
+	}
+
+	@Test
+	public void testFactoryGivenBackIsReusedByOtherThread() throws Exception {
+		converterPool.convertToJson(dataGroup);
+
+		Thread otherThread = new Thread(() -> converterPool.convertToJson(dataGroup));
+		otherThread.start();
+		otherThread.join();
+
+		factoryCreator.MCR.assertNumberOfCallsToMethod("createFactory", 1);
+	}
+
+	@Test
+	public void testFactoryIsGivenBackWhenConversionFails() throws Exception {
+		converterPool.convertToJson(dataGroup);
+		DataToJsonConverterFactorySpy factory = (DataToJsonConverterFactorySpy) factoryCreator.MCR
+				.getReturnValue("createFactory", 0);
+		factory.throwException = true;
+
+		try {
+			converterPool.convertToJson(dataGroup);
+			fail("conversion should fail");
+		} catch (RuntimeException e) {
+			factory.throwException = false;
+			converterPool.convertToJson(dataGroup);
+			factoryCreator.MCR.assertNumberOfCallsToMethod("createFactory", 1);
+		}
+	}
+
+	@Test
+	public void testDefaultIsNoMetrics() throws Exception {
+		assertSame(converterPool.onlyForTestGetStorageMetrics(), StorageMetrics.noMetrics());
+	}
+
+	@Test
+	public void testConversionIsRecordedInStorageMetrics() throws Exception {
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+		converterPool = new ConverterPool(storageMetrics);
+
+		converterPool.convertToJson(dataGroup);
+
+		storageMetrics.MCR.assertNumberOfCallsToMethod("recordLatency", 1);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "layer",
+				StorageLayer.JSON_CONVERSION);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "operation",
+				StorageOperation.TO_JSON);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "recordType", "allTypes");
+		storageMetrics.MCR.assertMethodNotCalled("recordError");
+	}
+
+	@Test
+	public void testConversionTimeIsAddedToJsonConversionTime() throws Exception {
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+		converterPool = new ConverterPool(storageMetrics);
+		long before = JsonConversionTime.onCurrentThread();
+
+		converterPool.convertToJson(dataGroup);
+
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "nanos",
+				JsonConversionTime.onCurrentThread() - before);
+	}
+
+	@Test
+	public void testFailedConversionIsRecordedAsError() throws Exception {
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+		converterPool = new ConverterPool(storageMetrics);
+		factoryCreator.throwException = true;
+
+		try {
+			converterPool.convertToJson(dataGroup);
+			fail("conversion should fail");
+		} catch (RuntimeException e) {
+			storageMetrics.MCR.assertParameters("recordError", 0, StorageLayer.JSON_CONVERSION,
+					StorageOperation.TO_JSON, "allTypes");
+			storageMetrics.MCR.assertNumberOfCallsToMethod("recordLatency", 1);
+		}
+	}
+
+	private static class FactoryCreatorSpy implements DataToJsonConverterFactoryCreator {
+		MethodCallRecorder MCR = new MethodCallRecorder();
+		boolean throwException = false;
+
+		@Override
+		public synchronized DataToJsonConverterFactory createFactory() {
+			MCR.addCall();
+			if (throwException) {
+				throw new RuntimeException("Error from FactoryCreatorSpy");
+			}
+			DataToJsonConverterFactory factory = new DataToJsonConverterFactorySpy();
+			MCR.addReturned(factory);
+			return factory;
+		}
+	}
+}
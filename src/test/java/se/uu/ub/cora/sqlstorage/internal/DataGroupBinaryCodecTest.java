@@ -0,0 +1,368 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataAttribute;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataLink;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.DataRecordLink;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+import se.uu.ub.cora.storage.StorageException;
+
+public class DataGroupBinaryCodecTest {
+	private DataFactorySpy dataFactory;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		dataFactory = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactory);
+	}
+
+	@Test
+	public void testEncodeInternsNames() throws Exception {
+		DataGroupSpy book = createGroup("book", createAtomic("title", "x"),
+				createAtomic("title", "y"));
+
+		byte[] encoded = DataGroupBinaryCodec.encode(book);
+
+		byte[] expected = { 1, 1, 0, 4, 'b', 'o', 'o', 'k', 0, 0, 2, 2, 0, 5, 't', 'i', 't', 'l',
+				'e', 0, 0, 1, 'x', 2, 2, 0, 0, 1, 'y' };
+		assertEquals(encoded, expected);
+	}
+
+	private DataGroupSpy createGroup(String nameInData, DataChild... children) {
+		DataGroupSpy group = new DataGroupSpy();
+		group.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> nameInData);
+		group.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> new ArrayList<>(List.of(children)));
+		return group;
+	}
+
+	private DataAtomicSpy createAtomic(String nameInData, String value) {
+		DataAtomicSpy atomic = new DataAtomicSpy();
+		atomic.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> nameInData);
+		atomic.MRV.setDefaultReturnValuesSupplier("getValue", () -> value);
+		return atomic;
+	}
+
+	@Test
+	public void testDecodeGroupWithAtomics() throws Exception {
+		DataGroupSpy book = createGroup("book", createAtomic("title", "x"),
+				createAtomic("title", "y"));
+
+		DataGroup decoded = DataGroupBinaryCodec.decode(DataGroupBinaryCodec.encode(book));
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, decoded);
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "title", "x");
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 1, "title", "y");
+		DataGroupSpy decodedSpy = (DataGroupSpy) decoded;
+		decodedSpy.MCR.assertParameters("addChild", 0,
+				dataFactory.MCR.getReturnValue("factorAtomicUsingNameInDataAndValue", 0));
+		decodedSpy.MCR.assertParameters("addChild", 1,
+				dataFactory.MCR.getReturnValue("factorAtomicUsingNameInDataAndValue", 1));
+		decodedSpy.MCR.assertMethodNotCalled("setRepeatId");
+		decodedSpy.MCR.assertMethodNotCalled("addAttributeByIdWithValue");
+	}
+
+	@Test
+	public void testDecodeRepeatIdsAndAttributes() throws Exception {
+		DataAtomicSpy title = createAtomic("title", "x");
+		setRepeatIdAndAttribute(title, "1", "language", "sv");
+		DataGroupSpy part = createGroup("part");
+		setRepeatIdAndAttribute(part, "2", "type", "chapter");
+		DataGroupSpy book = createGroup("book", title, part);
+		setRepeatIdAndAttribute(book, "0", "language", "en");
+
+		DataGroupBinaryCodec.decode(DataGroupBinaryCodec.encode(book));
+
+		assertRepeatIdAndAttribute("factorGroupUsingNameInData", 0, "0", "language", "en");
+		assertRepeatIdAndAttribute("factorAtomicUsingNameInDataAndValue", 0, "1", "language",
+				"sv");
+		assertRepeatIdAndAttribute("factorGroupUsingNameInData", 1, "2", "type", "chapter");
+	}
+
+	private void setRepeatIdAndAttribute(DataChild child, String repeatId, String name,
+			String value) {
+		DataAttribute attribute = createAttribute(name, value);
+		if (child instanceof DataGroupSpy group) {
+			setRepeatIdAndAttribute(group.MRV, repeatId, attribute);
+		} else {
+			setRepeatIdAndAttribute(((DataAtomicSpy) child).MRV, repeatId, attribute);
+		}
+	}
+
+	private void setRepeatIdAndAttribute(se.uu.ub.cora.testutils.mrv.MethodReturnValues mrv,
+			String repeatId, DataAttribute attribute) {
+		mrv.setDefaultReturnValuesSupplier("hasRepeatId", () -> true);
+		mrv.setDefaultReturnValuesSupplier("getRepeatId", () -> repeatId);
+		mrv.setDefaultReturnValuesSupplier("hasAttributes", () -> true);
+		mrv.setDefaultReturnValuesSupplier("getAttributes", () -> List.of(attribute));
+	}
+
+	private DataAttribute createAttribute(String name, String value) {
+		return new DataAttribute() {
+			@Override
+			public String getNameInData() {
+				return name;
+			}
+
+			@Override
+			public String getValue() {
+				return value;
+			}
+		};
+	}
+
+	private void assertRepeatIdAndAttribute(String factorMethod, int callNumber,
+			String repeatId, String name, String value) {
+		Object decoded = dataFactory.MCR.getReturnValue(factorMethod, callNumber);
+		var mcr = decoded instanceof DataGroupSpy group ? group.MCR
+				: ((DataAtomicSpy) decoded).MCR;
+		mcr.assertParameters("setRepeatId", 0, repeatId);
+		mcr.assertParameters("addAttributeByIdWithValue", 0, name, value);
+	}
+
+	@Test
+	public void testDecodeRecordLink() throws Exception {
+		DataRecordLinkSpy link = new DataRecordLinkSpy();
+		link.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "author");
+		link.MRV.setDefaultReturnValuesSupplier("getLinkedRecordType", () -> "person");
+		link.MRV.setDefaultReturnValuesSupplier("getLinkedRecordId", () -> "person:1");
+		DataGroupSpy book = createGroup("book", link);
+
+		DataGroup decoded = DataGroupBinaryCodec.decode(DataGroupBinaryCodec.encode(book));
+
+		dataFactory.MCR.assertParameters("factorRecordLinkUsingNameInDataAndTypeAndId", 0,
+				"author", "person", "person:1");
+		((DataGroupSpy) decoded).MCR.assertParameters("addChild", 0,
+				dataFactory.MCR.getReturnValue("factorRecordLinkUsingNameInDataAndTypeAndId", 0));
+	}
+
+	@Test
+	public void testDecodeLongAndNonAsciiValues() throws Exception {
+		String longValue = "v\u00e5rde ".repeat(100);
+		DataGroupSpy book = createGroup("book", createAtomic("title", longValue));
+
+		DataGroupBinaryCodec.decode(DataGroupBinaryCodec.encode(book));
+
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "title",
+				longValue);
+	}
+
+	@Test
+	public void testCanEncodeGroupsAtomicsAndRecordLinks() throws Exception {
+		DataGroupSpy book = createGroup("book", createAtomic("title", "x"),
+				createGroup("part", new DataRecordLinkSpy()));
+
+		assertTrue(DataGroupBinaryCodec.canEncode(book));
+	}
+
+	@Test
+	public void testCanNotEncodeResourceLink() throws Exception {
+		DataLink resourceLink = new DataLink() {
+		};
+		DataGroupSpy book = createGroup("book", createGroup("part", resourceLink));
+
+		assertFalse(DataGroupBinaryCodec.canEncode(book));
+	}
+
+	@Test
+	public void testCanEncodeRecordLinkWithOnlyLinkedTypeAndId() throws Exception {
+		RecordLinkGroupSpy link = new RecordLinkGroupSpy();
+		link.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(createAtomic("linkedRecordType", "person"),
+						createAtomic("linkedRecordId", "person:1")));
+
+		assertTrue(DataGroupBinaryCodec.canEncode(createGroup("book", link)));
+	}
+
+	@Test
+	public void testCanNotEncodeRecordLinkWithOtherChildren() throws Exception {
+		RecordLinkGroupSpy link = new RecordLinkGroupSpy();
+		link.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(createAtomic("linkedRecordType", "person"),
+						createAtomic("linkedRecordId", "person:1"),
+						createAtomic("linkedRepeatId", "1")));
+
+		assertFalse(DataGroupBinaryCodec.canEncode(createGroup("book", link)));
+	}
+
+	@Test
+	public void testCanNotEncodeRecordLinkWithOtherChildThanLinkedTypeOrId() throws Exception {
+		RecordLinkGroupSpy link = new RecordLinkGroupSpy();
+		link.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(createAtomic("linkedRecordType", "person"),
+						createGroup("linkedRecordId")));
+
+		assertFalse(DataGroupBinaryCodec.canEncode(createGroup("book", link)));
+	}
+
+	private static class RecordLinkGroupSpy extends DataGroupSpy implements DataRecordLink {
+	}
+
+	@Test
+	public void testEncodeUnsupportedChild() throws Exception {
+		DataChild unsupportedChild = new DataChild() {
+		};
+		DataGroupSpy book = createGroup("book", unsupportedChild);
+		try {
+			DataGroupBinaryCodec.encode(book);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertTrue(e.getMessage().startsWith("Can not encode data child of class: "));
+		}
+	}
+
+	@Test
+	public void testDecodeUnknownVersion() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec.encode(createGroup("book"));
+		encoded[0] = 9;
+
+		assertDecodeFails(encoded, "Unknown version of binary encoded data: 9.");
+	}
+
+	private void assertDecodeFails(byte[] encoded, String message) {
+		try {
+			DataGroupBinaryCodec.decode(encoded);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
+	@Test
+	public void testDecodeEmpty() throws Exception {
+		assertDecodeFails(new byte[0], "Binary encoded data is corrupt.");
+	}
+
+	@Test
+	public void testDecodeTruncated() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec
+				.encode(createGroup("book", createAtomic("title", "x")));
+
+		assertDecodeFails(Arrays.copyOf(encoded, encoded.length - 1),
+				"Binary encoded data is corrupt.");
+	}
+
+	@Test
+	public void testDecodeUnknownTag() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec.encode(createGroup("book"));
+		encoded[1] = 9;
+
+		assertDecodeFails(encoded, "Binary encoded data is corrupt.");
+	}
+
+	@Test
+	public void testDecodeTopChildNotGroup() throws Exception {
+		byte[] encoded = { 1, 2, 0, 1, 'a', 0, 0, 1, 'x' };
+
+		assertDecodeFails(encoded, "Binary encoded data is corrupt.");
+	}
+
+	@Test
+	public void testDecodeTrailingBytes() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec.encode(createGroup("book"));
+
+		assertDecodeFails(Arrays.copyOf(encoded, encoded.length + 1),
+				"Binary encoded data is corrupt.");
+	}
+
+	@Test
+	public void testEncodeTwiceOnSameThreadGivesSameResult() throws Exception {
+		DataGroupSpy book = createGroup("book", createAtomic("title", "x"));
+
+		byte[] first = DataGroupBinaryCodec.encode(book);
+		byte[] second = DataGroupBinaryCodec.encode(book);
+
+		assertEquals(second, first);
+	}
+
+	@Test
+	public void testEncodeSmallGroupAfterLargeGroup() throws Exception {
+		String largeValue = "x".repeat(2 * 1024 * 1024);
+		DataGroupSpy small = createGroup("book", createAtomic("title", "x"));
+		byte[] expected = DataGroupBinaryCodec.encode(small);
+
+		byte[] large = DataGroupBinaryCodec.encode(createGroup("book",
+				createAtomic("title", largeValue)));
+		byte[] afterLarge = DataGroupBinaryCodec.encode(small);
+
+		assertTrue(large.length > largeValue.length());
+		assertEquals(afterLarge, expected);
+	}
+
+	@Test
+	public void testDecodeUsingLengthIgnoresBytesAfterLength() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec.encode(createGroup("book"));
+		byte[] buffer = Arrays.copyOf(encoded, encoded.length + 10);
+
+		DataGroup decoded = DataGroupBinaryCodec.decode(buffer, encoded.length);
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, decoded);
+	}
+
+	@Test
+	public void testDecodeUsingLengthDoesNotReadPastLength() throws Exception {
+		byte[] encoded = DataGroupBinaryCodec.encode(createGroup("book"));
+
+		try {
+			DataGroupBinaryCodec.decode(encoded, encoded.length - 1);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Binary encoded data is corrupt.");
+		}
+	}
+
+	@Test
+	public void testEncodedIsSmallerThanJsonForRepeatedNames() throws Exception {
+		List<DataChild> children = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			children.add(createAtomic("someLongNameInData", "value" + i));
+		}
+		DataGroupSpy group = createGroup("group", children.toArray(DataChild[]::new));
+
+		byte[] encoded = DataGroupBinaryCodec.encode(group);
+
+		int jsonLength = "{\"name\":\"someLongNameInData\",\"value\":\"value00\"},"
+				.getBytes(StandardCharsets.UTF_8).length * 100;
+		assertTrue(encoded.length < jsonLength / 3);
+	}
+}
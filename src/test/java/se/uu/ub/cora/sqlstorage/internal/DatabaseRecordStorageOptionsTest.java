@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
+import se.uu.ub.cora.sqlstorage.spy.metrics.StorageMetricsSpy;
+
+public class DatabaseRecordStorageOptionsTest {
+	private DatabaseRecordStorageOptions defaults = DatabaseRecordStorageOptions.defaults();
+
+	@Test
+	public void testDefaults() throws Exception {
+		assertEquals(defaults.recordDataType(), RecordDataType.JSON);
+		assertFalse(defaults.recordDataCompressor().isEnabled());
+		assertSame(defaults.storageMetrics(), StorageMetrics.noMetrics());
+		assertEquals(defaults.slowOperationLog().onlyForTestGetThresholdMillis(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testDefaultConverterIsParsingUsingJsonParser() throws Exception {
+		JsonParserSpy jsonParser = new JsonParserSpy();
+
+		ParsingRecordJsonConverter converter = (ParsingRecordJsonConverter) defaults
+				.recordJsonConverterOrParsingUsing(jsonParser);
+
+		assertSame(converter.onlyForTestGetJsonParser(), jsonParser);
+	}
+
+	@Test
+	public void testWithRecordDataType() throws Exception {
+		DatabaseRecordStorageOptions options = defaults.withRecordDataType(RecordDataType.JSONB);
+
+		assertEquals(options.recordDataType(), RecordDataType.JSONB);
+		assertEquals(defaults.recordDataType(), RecordDataType.JSON);
+	}
+
+	@Test
+	public void testWithRecordDataCompressor() throws Exception {
+		RecordDataCompressor compressor = RecordDataCompressor
+				.usingCompressedTypesAndThreshold(Set.of("someType"), 1);
+
+		DatabaseRecordStorageOptions options = defaults.withRecordDataCompressor(compressor);
+
+		assertSame(options.recordDataCompressor(), compressor);
+		assertFalse(defaults.recordDataCompressor().isEnabled());
+	}
+
+	@Test
+	public void testWithRecordJsonConverter() throws Exception {
+		RecordJsonConverterSpy converter = new RecordJsonConverterSpy();
+
+		DatabaseRecordStorageOptions options = defaults.withRecordJsonConverter(converter);
+
+		assertSame(options.recordJsonConverterOrParsingUsing(new JsonParserSpy()), converter);
+		assertTrue(defaults.recordJsonConverterOrParsingUsing(
+				new JsonParserSpy()) instanceof ParsingRecordJsonConverter);
+	}
+
+	@Test
+	public void testWithStorageMetrics() throws Exception {
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+
+		DatabaseRecordStorageOptions options = defaults.withStorageMetrics(storageMetrics);
+
+		assertSame(options.storageMetrics(), storageMetrics);
+		assertSame(defaults.storageMetrics(), StorageMetrics.noMetrics());
+	}
+
+	@Test
+	public void testWithSlowOperationLog() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(200, 0);
+
+		DatabaseRecordStorageOptions options = defaults.withSlowOperationLog(slowOperationLog);
+
+		assertSame(options.slowOperationLog(), slowOperationLog);
+	}
+
+	@Test
+	public void testWithKeepsOtherParts() throws Exception {
+		RecordJsonConverterSpy converter = new RecordJsonConverterSpy();
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+
+		DatabaseRecordStorageOptions options = defaults.withRecordJsonConverter(converter)
+				.withStorageMetrics(storageMetrics).withRecordDataType(RecordDataType.JSONB);
+
+		assertSame(options.recordJsonConverterOrParsingUsing(new JsonParserSpy()), converter);
+		assertSame(options.storageMetrics(), storageMetrics);
+		assertEquals(options.recordDataType(), RecordDataType.JSONB);
+	}
+}
@@ -21,18 +21,26 @@ package se.uu.ub.cora.sqlstorage.internal;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.postgresql.util.PGobject;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import se.uu.ub.cora.data.DataChild;
 import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataLink;
 import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.DataRecordGroup;
 import se.uu.ub.cora.data.collected.Link;
@@ -43,17 +51,35 @@ import se.uu.ub.cora.data.spies.DataFactorySpy;
 import se.uu.ub.cora.data.spies.DataGroupSpy;
 import se.uu.ub.cora.json.parser.JsonParser;
 import se.uu.ub.cora.json.parser.JsonValue;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlDataException;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
 import se.uu.ub.cora.sqldatabase.SqlDatabaseFactory;
+import se.uu.ub.cora.sqldatabase.SqlNotFoundException;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+import se.uu.ub.cora.sqlstorage.metrics.StorageMetrics;
+import se.uu.ub.cora.sqlstorage.metrics.StorageOperation;
+import se.uu.ub.cora.sqlstorage.spy.data.DatabaseFacadeSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.DataToJsonConverterFactoryCreatorSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.DataToJsonConverterFactorySpy;
 import se.uu.ub.cora.sqlstorage.spy.json.DataToJsonConverterSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterFactorySpy;
 import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
+import se.uu.ub.cora.sqlstorage.spy.metrics.StorageMetricsSpy;
 import se.uu.ub.cora.sqlstorage.spy.sql.RowSpy;
 import se.uu.ub.cora.sqlstorage.spy.sql.SqlDatabaseFactorySpy;
-import se.uu.ub.cora.sqlstorage.spy.sql.TableFacadeSpy;
-import se.uu.ub.cora.sqlstorage.spy.sql.TableQuerySpy;
 import se.uu.ub.cora.storage.Condition;
 import se.uu.ub.cora.storage.Filter;
 import se.uu.ub.cora.storage.Part;
@@ -97,7 +123,6 @@ public class DatabaseRecordStorageTest {
 		emptyStorageTerms = new LinkedHashSet<>();
 		emptyLinkSet = new LinkedHashSet<>();
 		sqlDatabaseFactorySpy = new SqlDatabaseFactorySpy();
-		sqlDatabaseFactorySpy.numberOfAffectedRows = 1;
 		jsonParserSpy = new JsonParserSpy();
 		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy);
 
@@ -109,29 +134,40 @@ public class DatabaseRecordStorageTest {
 	}
 
 	@Test
-	public void testReadTableFacadeFactoredAndCloseCalled() throws Exception {
+	public void testReadDatabaseFacadeFactoredAndCloseCalled() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyReadingOneRow(new RowSpy());
+
 		storage.read("someType", "someId");
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
-	public void testReadParametersAddedToTableQueryAndPassedOn() throws Exception {
-		storage.read("someType", "someId");
+	public void testReadUsesFixedSqlWithTypeAndIdAsValues() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyReadingOneRow(new RowSpy());
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+		storage.read("someType", "someId");
 
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", "someType");
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", "someId");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql",
+				"select * from record where type = ? and id = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readOneRowOrFailUsingSqlAndValues", 0,
+				"values", List.of("someType", "someId"));
+	}
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readOneRowForQuery", 0, tableQuerySpy);
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyReadingOneRow(Row row) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> row);
+		return databaseFacadeSpy;
 	}
 
 	@Test
 	public void testReadTypeNotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwNotFoundExceptionFromTableFacadeOnRead = true;
+		SqlNotFoundException notFound = SqlNotFoundException
+				.withMessage("Not found error from spy");
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(notFound);
 		try {
 			storage.read("someType", "someId");
 			makeSureErrorIsThrownFromAboveStatements();
@@ -140,14 +176,14 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof RecordNotFoundException);
 			assertEquals(e.getMessage(),
 					"No record found for recordType(s): someType, with id: someId.");
-			assertEquals(e.getCause().getMessage(),
-					"Not found error from readOneRowForQuery in tablespy");
+			assertSame(e.getCause(), notFound);
 		}
 	}
 
 	@Test
 	public void testReadTypeOtherError() throws Exception {
-		sqlDatabaseFactorySpy.throwDataExceptionFromTableFacadeOnRead = true;
+		SqlDataException dataError = SqlDataException.withMessage("Data error from spy");
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(dataError);
 		try {
 			storage.read("someType", "someId");
 			makeSureErrorIsThrownFromAboveStatements();
@@ -156,19 +192,17 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(), "Read did not generate a single result for recordType(s): "
 					+ "someType, with id: someId.");
-			assertEquals(e.getCause().getMessage(),
-					"Data error from readOneRowForQuery in tablespy");
+			assertSame(e.getCause(), dataError);
 		}
 	}
 
 	@Test
 	public void testReadOkReadJsonConvertedToDataGroup() throws Exception {
-		DataRecordGroup readValueFromStorage = storage.read("someType", "someId");
+		RowSpy rowSpy = new RowSpy();
+		setUpDatabaseFacadeSpyReadingOneRow(rowSpy);
 
-		TableFacadeSpy tableFacade = (TableFacadeSpy) sqlDatabaseFactorySpy.MCR
-				.getReturnValue("factorTableFacade", 0);
+		DataRecordGroup readValueFromStorage = storage.read("someType", "someId");
 
-		RowSpy rowSpy = (RowSpy) tableFacade.MCR.getReturnValue("readOneRowForQuery", 0);
 		rowSpy.MCR.assertParameters("getValueByColumn", 0, "data");
 		var jsonRecord = rowSpy.MCR.getReturnValue("getValueByColumn", 0);
 
@@ -187,39 +221,42 @@ public class DatabaseRecordStorageTest {
 	}
 
 	@Test
-	public void testOldReadTableFacadeFactoredAndCloseCalled() throws Exception {
+	public void testOldReadDatabaseFacadeFactoredAndCloseCalled() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyReadingOneRow(new RowSpy());
+
 		storage.read(List.of("someType", "someOtherType"), "someId");
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
-	public void testOldReadParametersAddedToTableQueryAndPassedOn() throws Exception {
-		List<String> types = List.of("someType", "someOtherType");
-		storage.read(types, "someId");
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+	public void testOldReadUsesOneQueryForAllTypes() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyReadingOneRow(new RowSpy());
 
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", types);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", "someId");
-
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readOneRowForQuery", 0, tableQuerySpy);
-	}
+		storage.read(List.of("someType", "someOtherType"), "someId");
 
-	private TableQuerySpy getFactoredTableQueryUsingCallNumber(int callNumber) {
-		return (TableQuerySpy) sqlDatabaseFactorySpy.MCR.getReturnValue("factorTableQuery",
-				callNumber);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql",
+				"select * from record where type = any(?) and id = ?");
+		List<?> values = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName(
+						"readOneRowOrFailUsingSqlAndValues", 0, "values");
+		assertEquals((String[]) values.get(0), new String[] { "someType", "someOtherType" });
+		assertEquals(values.get(1), "someId");
 	}
 
-	private TableFacadeSpy getFirstFactoredTableFacadeSpy() {
-		return (TableFacadeSpy) sqlDatabaseFactorySpy.MCR.getReturnValue("factorTableFacade", 0);
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyWithRecordRows(Row... rows) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(rows));
+		return databaseFacadeSpy;
 	}
 
 	@Test
 	public void testOldReadTypeNotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwNotFoundExceptionFromTableFacadeOnRead = true;
+		SqlNotFoundException notFound = SqlNotFoundException
+				.withMessage("Not found error from spy");
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(notFound);
 		try {
 			storage.read(List.of("someType", "someOtherType"), "someId");
 			makeSureErrorIsThrownFromAboveStatements();
@@ -228,14 +265,14 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof RecordNotFoundException);
 			assertEquals(e.getMessage(),
 					"No record found for recordType(s): [someType, someOtherType], with id: someId.");
-			assertEquals(e.getCause().getMessage(),
-					"Not found error from readOneRowForQuery in tablespy");
+			assertSame(e.getCause(), notFound);
 		}
 	}
 
 	@Test
-	public void testOldReadTypeOtherError() throws Exception {
-		sqlDatabaseFactorySpy.throwDataExceptionFromTableFacadeOnRead = true;
+	public void testOldReadMoreThanOneRecordFound() throws Exception {
+		SqlDataException dataError = SqlDataException.withMessage("Data error from spy");
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(dataError);
 		try {
 			storage.read(List.of("someType", "someOtherType"), "someId");
 			makeSureErrorIsThrownFromAboveStatements();
@@ -244,18 +281,31 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(), "Read did not generate a single result for recordType(s): "
 					+ "[someType, someOtherType], with id: someId.");
-			assertEquals(e.getCause().getMessage(),
-					"Data error from readOneRowForQuery in tablespy");
+			assertSame(e.getCause(), dataError);
+		}
+	}
+
+	@Test
+	public void testOldReadTypeOtherError() throws Exception {
+		SqlDatabaseException otherError = SqlDatabaseException.withMessage("Error from spy");
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(otherError);
+		try {
+			storage.read(List.of("someType", "someOtherType"), "someId");
+			makeSureErrorIsThrownFromAboveStatements();
+
+		} catch (Exception e) {
+			assertSame(e, otherError);
 		}
 	}
 
 	@Test
 	public void testOldReadOkReadJsonConvertedToDataGroup() throws Exception {
+		RowSpy readRow = new RowSpy();
+		setUpDatabaseFacadeSpyReadingOneRow(readRow);
+
 		DataGroup readValueFromStorage = storage.read(List.of("someType", "someOtherType"),
 				"someId");
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		RowSpy readRow = (RowSpy) tableFacadeSpy.MCR.getReturnValue("readOneRowForQuery", 0);
 		assertRowToDataGroupConvertion(0, readRow, readValueFromStorage);
 	}
 
@@ -317,16 +367,30 @@ public class DatabaseRecordStorageTest {
 	}
 
 	@Test
-	public void testReadListTableFacadeFactoredAndCloseCalled() throws Exception {
+	public void testReadListDatabaseFacadeFactoredAndCloseCalled() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+
 		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyForList(long totalNumberOfMatches,
+			Row... rows) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordRows(rows);
+		RowSpy countRow = new RowSpy();
+		countRow.MRV.setSpecificReturnValuesSupplier("getValueByColumn",
+				() -> totalNumberOfMatches, "count");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> countRow);
+		return databaseFacadeSpy;
 	}
 
 	@Test
 	public void testReadListTypeNotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnRead = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
 		try {
 			storage.readList(LIST_OF_TYPES, filter);
 			makeSureErrorIsThrownFromAboveStatements();
@@ -334,8 +398,9 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof RecordNotFoundException);
 			assertEquals(e.getMessage(),
 					"RecordType: [someType1, someType2] not found in storage.");
-			assertEquals(e.getCause().getMessage(), "Error from readRowsForQuery in tablespy");
+			assertEquals(e.getCause().getMessage(), "Error from readUsingSqlAndValues in spy");
 		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	private void makeSureErrorIsThrownFromAboveStatements() {
@@ -343,44 +408,72 @@ public class DatabaseRecordStorageTest {
 	}
 
 	@Test
-	public void testReadListTableQueryFactoredAndTableFacadeCalled() throws Exception {
+	public void testReadListUsesListTemplateAndCountTemplate() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+
 		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "recordstorageterm");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc",
+				new String[] { "someType" });
+		assertCountSqlAndValues(databaseFacadeSpy,
+				"select count(*) as count from recordstorageterm where type = any(?)",
+				new String[] { "someType" });
+	}
+
+	private void assertReadListSqlAndValues(DatabaseFacadeSpy databaseFacadeSpy, String sql,
+			String[] types, Object... otherValues) {
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql", sql);
+		assertTypesAndOtherValues(databaseFacadeSpy, "readUsingSqlAndValues", types,
+				otherValues);
+	}
+
+	private void assertTypesAndOtherValues(DatabaseFacadeSpy databaseFacadeSpy,
+			String methodName, String[] types, Object... otherValues) {
+		List<?> values = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName(methodName, 0, "values");
+		assertEquals((String[]) values.get(0), types);
+		assertEquals(values.subList(1, values.size()), List.of(otherValues));
+	}
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readRowsForQuery", 0, tableQuerySpy);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", LIST_WITH_ONE_TYPE);
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
+	private void assertCountSqlAndValues(DatabaseFacadeSpy databaseFacadeSpy, String sql,
+			String[] types, Object... otherValues) {
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql", sql);
+		assertTypesAndOtherValues(databaseFacadeSpy, "readOneRowOrFailUsingSqlAndValues", types,
+				otherValues);
 	}
 
 	@Test
-	public void testReadListTableQueryFactoredAndTableFacadeCalledTypes() throws Exception {
+	public void testReadListSendsAllTypesAsOneArray() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+
 		storage.readList(LIST_OF_TYPES, filter);
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", LIST_OF_TYPES);
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc",
+				new String[] { "someType1", "someType2" });
 	}
 
 	@Test
 	public void testReadListReturnsAStorageReadResult() throws Exception {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 3;
+		setUpDatabaseFacadeSpyForList(747, new RowSpy(), new RowSpy(), new RowSpy());
 
 		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
 
 		assertNotNull(result);
 		assertEquals(result.start, 0);
-		assertEquals(result.totalNumberOfMatches, 3);
+		assertEquals(result.totalNumberOfMatches, 747);
 		assertEquals(result.listOfDataGroups.size(), 3);
 	}
 
 	@Test
 	public void testRealListRowToDataConvertion() throws Exception {
-		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
+		List<RowSpy> readRows = List.of(new RowSpy(), new RowSpy(), new RowSpy());
+		setUpDatabaseFacadeSpyForList(3, readRows.toArray(new RowSpy[0]));
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		List<?> readRows = (List<?>) tableFacadeSpy.MCR.getReturnValue("readRowsForQuery", 0);
+		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
 
 		for (int i = 0; i < readRows.size(); i++) {
 			assertRowToDataGroupConvertionForOneRow(result, readRows, i);
@@ -429,42 +522,57 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testReadListWithFromNoAndToNoInFilter() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
 		filter.fromNo = 1;
 		filter.toNo = 10;
-		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		tableQuerySpy.MCR.assertMethodNotCalled("setFromNo");
-		tableQuerySpy.MCR.assertParameters("setToNo", 0, 10L);
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc limit ?",
+				new String[] { "someType" }, 10L);
 	}
 
 	@Test
 	public void testReadListWithFromNoAndToNoInFilterHigher() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
 		filter.fromNo = 10;
 		filter.toNo = 100;
+
 		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+		assertReadListSqlAndValues(databaseFacadeSpy, "select * from recordstorageterm"
+				+ " where type = any(?) order by id desc offset ? limit ?",
+				new String[] { "someType" }, 9L, 91L);
+	}
+
+	@Test
+	public void testReadListWithToNoLowerThanFromNoInFilter() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+		filter.fromNo = 10;
+		filter.toNo = 5;
+
+		storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		tableQuerySpy.MCR.assertParameters("setFromNo", 0, 10L);
-		tableQuerySpy.MCR.assertParameters("setToNo", 0, 100L);
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
+		assertReadListSqlAndValues(databaseFacadeSpy, "select * from recordstorageterm"
+				+ " where type = any(?) order by id desc offset ? limit ?",
+				new String[] { "someType" }, 9L, 0L);
 	}
 
 	@Test
 	public void testReadListWithFromNoInFilter() throws Exception {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 747;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(747, new RowSpy(),
+				new RowSpy(), new RowSpy());
 		filter.fromNo = 10;
-		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
-
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
 
-		tableQuerySpy.MCR.assertParameters("setFromNo", 0, 10L);
-		tableQuerySpy.MCR.assertMethodNotCalled("setToNo");
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
+		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
 
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc offset ?",
+				new String[] { "someType" }, 9L);
+		assertCountSqlAndValues(databaseFacadeSpy,
+				"select count(*) as count from recordstorageterm where type = any(?)",
+				new String[] { "someType" });
 		assertEquals(result.start, 0);
 		assertEquals(result.totalNumberOfMatches, 747);
 		assertEquals(result.listOfDataGroups.size(), 3);
@@ -472,36 +580,31 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testReadListWithToNoInFilter() throws Exception {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 747;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(747);
 		filter.toNo = 3;
-		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
+		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filter);
 
-		tableQuerySpy.MCR.assertMethodNotCalled("setFromNo");
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc limit ?",
+				new String[] { "someType" }, 3L);
 		assertEquals(result.totalNumberOfMatches, 747);
-		tableQuerySpy.MCR.assertParameters("setToNo", 0, 3L);
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
 	}
 
 	@Test
 	public void testReadListWithFilterHasOneIncludePartAndOneCondition() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(747);
 		Filter filterWithIncludePart = createFilterWithOneIncludePartAndOneCondition();
 
 		StorageReadResult result = storage.readList(LIST_WITH_ONE_TYPE, filterWithIncludePart);
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "recordstorageterm");
-
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readRowsForQuery", 0, tableQuerySpy);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", LIST_WITH_ONE_TYPE);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "storageKey", "someKey");
-		tableQuerySpy.MCR.assertParameters("addCondition", 2, "value", "someValue");
-		tableQuerySpy.MCR.assertParameter("addOrderByDesc", 0, "column", "id");
-		tableQuerySpy.MCR.assertNumberOfCallsToMethod("addCondition", 3);
-
-		assertTotalNumberOfRowsWithFilter(result.totalNumberOfMatches, tableFacadeSpy, 1);
+		assertReadListSqlAndValues(databaseFacadeSpy, "select * from recordstorageterm"
+				+ " where type = any(?) and storagekey = ? and value = ? order by id desc",
+				new String[] { "someType" }, "someKey", "someValue");
+		assertCountSqlAndValues(databaseFacadeSpy, "select count(*) as count"
+				+ " from recordstorageterm where type = any(?) and storagekey = ? and value = ?",
+				new String[] { "someType" }, "someKey", "someValue");
+		assertEquals(result.totalNumberOfMatches, 747);
 	}
 
 	private Filter createFilterWithOneIncludePartAndOneCondition() {
@@ -515,34 +618,39 @@ public class DatabaseRecordStorageTest {
 		return filterWithIncludePart;
 	}
 
-	private void assertTotalNumberOfRowsWithFilter(long totalNumberOfMatches,
-			TableFacadeSpy tableFacadeSpy, int factorTableQueryCallNum) {
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", factorTableQueryCallNum,
-				"recordstorageterm");
-		TableQuerySpy tableQueryNumberOfRows = (TableQuerySpy) sqlDatabaseFactorySpy.MCR
-				.getReturnValue("factorTableQuery", factorTableQueryCallNum);
-		tableQueryNumberOfRows.MCR.assertParameters("addCondition", 0, "type", LIST_WITH_ONE_TYPE);
-		tableQueryNumberOfRows.MCR.assertParameters("addCondition", 1, "storageKey", "someKey");
-		tableQueryNumberOfRows.MCR.assertParameters("addCondition", 2, "value", "someValue");
-		tableFacadeSpy.MCR.assertParameters("readNumberOfRows", 0, tableQueryNumberOfRows);
-		tableFacadeSpy.MCR.assertReturn("readNumberOfRows", 0, totalNumberOfMatches);
+	@Test
+	public void testReadListWithFilterHasTwoConditions() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+		Filter filterWithIncludePart = createFilterWithOneIncludePartAndOneCondition();
+		filterWithIncludePart.include.get(0).conditions
+				.add(new Condition("someKey2", RelationalOperator.EQUAL_TO, "someValue2"));
+		filterWithIncludePart.toNo = 5;
+
+		storage.readList(LIST_WITH_ONE_TYPE, filterWithIncludePart);
+
+		assertReadListSqlAndValues(databaseFacadeSpy, "select * from recordstorageterm"
+				+ " where type = any(?) and storagekey = ? and value = ?"
+				+ " and storagekey = ? and value = ? order by id desc limit ?",
+				new String[] { "someType" }, "someKey", "someValue", "someKey2", "someValue2",
+				5L);
 	}
 
 	@Test
-	public void testGetTotalNumberOfRecordsForTypeTableFacadeFactoredAndCloseCalled()
+	public void testGetTotalNumberOfRecordsForTypeDatabaseFacadeFactoredAndCloseCalled()
 			throws Exception {
-		storage.getTotalNumberOfRecordsForTypes(LIST_OF_TYPES, filter);
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+		storage.getTotalNumberOfRecordsForTypes(LIST_OF_TYPES, filter);
 
-		TableQuerySpy tableQuerySpy0 = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy0.MCR.assertParameters("addCondition", 0, "type", LIST_OF_TYPES);
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+		assertCountSqlAndValues(databaseFacadeSpy,
+				"select count(*) as count from recordstorageterm where type = any(?)",
+				new String[] { "someType1", "someType2" });
 	}
 
 	@Test
 	public void testGetTotalNumberOfRecordsForTypeNotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnRead = true;
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow();
 		try {
 			storage.getTotalNumberOfRecordsForTypes(LIST_OF_TYPES, filter);
 			makeSureErrorIsThrownFromAboveStatements();
@@ -551,80 +659,315 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof RecordNotFoundException);
 			assertEquals(e.getMessage(),
 					"RecordType: [someType1, someType2] not found in storage.");
-			assertEquals(e.getCause().getMessage(), "Error from readNumberOfRows in tablespy");
+			assertEquals(e.getCause().getMessage(), "Error from spy");
 		}
 	}
 
 	@Test
 	public void testGetTotalNumberOfRecordsForType() throws Exception {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 747;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(747);
 
 		long count = storage.getTotalNumberOfRecordsForTypes(LIST_WITH_ONE_TYPE, filter);
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-
-		sqlDatabaseFactorySpy.MCR.assertParameter("factorTableQuery", 0, "tableName",
-				"recordstorageterm");
-
-		tableFacadeSpy.MCR.assertParameters("readNumberOfRows", 0, tableQuerySpy);
-		tableFacadeSpy.MCR.assertReturn("readNumberOfRows", 0, count);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readOneRowOrFailUsingSqlAndValues", 1);
 		assertEquals(count, 747);
 	}
 
 	@Test
 	public void testGetTotalNumberOfRowsForTypesWithFilter() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForList(747);
 		Filter filterWithIncludePart = createFilterWithOneIncludePartAndOneCondition();
 
 		long count = storage.getTotalNumberOfRecordsForTypes(LIST_WITH_ONE_TYPE,
 				filterWithIncludePart);
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
+		assertCountSqlAndValues(databaseFacadeSpy, "select count(*) as count"
+				+ " from recordstorageterm where type = any(?) and storagekey = ? and value = ?",
+				new String[] { "someType" }, "someKey", "someValue");
+		assertEquals(count, 747);
+	}
+
+	@Test
+
+	public void testCreateDatabaseFacadeFactoredAndTransactionAndCloseCalled() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		assertTotalNumberOfRowsWithFilter(count, tableFacadeSpy, 0);
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
 
+	@Test
+	public void testDefaultRecordDataTypeIsJson() throws Exception {
+		assertEquals(storage.onlyForTestGetRecordDataType(), RecordDataType.JSON);
 	}
 
 	@Test
+	public void testCreateUsingJsonb() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults().withRecordDataType(RecordDataType.JSONB));
 
-	public void testCreateTableFacadeFactoredAndTransactionAndCloseCalled() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-		DataGroup dataRecord = new DataGroupSpy();
-		String someDataDivider = "someDataDivider";
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		storage.create("someType", "someId", dataRecord, emptyStorageTerms, emptyLinkSet,
-				someDataDivider);
+		PGobject jsonObject = (PGobject) getExecutedValues(databaseFacadeSpy, 0).get(3);
+		assertEquals(jsonObject.getType(), "jsonb");
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
+	}
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("startTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+	@Test
+	public void testDefaultIsNoMetrics() throws Exception {
+		assertSame(storage.onlyForTestGetStorageMetrics(), StorageMetrics.noMetrics());
 	}
 
 	@Test
-	public void testCreateParametersPassedOnForRecord() throws Exception {
+	public void testToJsonConversionIsRecordedInStorageMetrics() throws Exception {
+		StorageMetricsSpy storageMetrics = new StorageMetricsSpy();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults()
+						.withRecordJsonConverter(new RecordJsonConverterSpy())
+						.withStorageMetrics(storageMetrics));
+
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
+
+		assertSame(storage.onlyForTestGetStorageMetrics(), storageMetrics);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "operation",
+				StorageOperation.TO_JSON);
+	}
+
+	@Test
+	public void testDefaultIsNoSlowOperationLog() throws Exception {
+		SlowOperationLog slowOperationLog = storage.onlyForTestGetSlowOperationLog();
+
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testSlowReadListIsLoggedWithQueryPlan() throws Exception {
+		LoggerFactorySpy loggerFactorySpy = setUpStorageLoggingAllOperationsWithQueryPlan();
+		DatabaseFacadeSpy planDatabaseFacadeSpy = setUpDatabaseFacadesForListAndQueryPlan(0);
+		Filter filterWithIncludePart = createFilterWithOneIncludePartAndOneCondition();
+
+		storage.readList(LIST_WITH_ONE_TYPE, filterWithIncludePart);
+
+		assertReadListSqlAndValues(planDatabaseFacadeSpy,
+				"explain select * from recordstorageterm where type = any(?)"
+						+ " and storagekey = ? and value = ? order by id desc",
+				new String[] { "someType" }, "someKey", "someValue");
+		planDatabaseFacadeSpy.MCR.assertMethodWasCalled("close");
+		String message = getLoggedSlowOperationMessage(loggerFactorySpy);
+		assertTrue(message.startsWith("Slow readList for types: [someType] with filter: "
+				+ "include: [someKey EQUAL_TO ?], exclude: [], rows: 0, took: "));
+		assertTrue(message.endsWith(" ms, query plan:\nsomePlanLine1\nsomePlanLine2"));
+	}
+
+	private LoggerFactorySpy setUpStorageLoggingAllOperationsWithQueryPlan() {
+		return setUpStorageLoggingAllOperationsUsingSlowOperationLog(
+				SlowOperationLog.usingThresholdMillisAndExplainSampleRate(0, 1));
+	}
+
+	private LoggerFactorySpy setUpStorageLoggingAllOperationsUsingSlowOperationLog(
+			SlowOperationLog slowOperationLog) {
+		LoggerFactorySpy loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults()
+						.withRecordJsonConverter(new RecordJsonConverterSpy())
+						.withSlowOperationLog(slowOperationLog));
+		return loggerFactorySpy;
+	}
+
+	@Test
+	public void testSlowReadListQueryPlanIsReadAfterDatabaseFacadeIsClosed() throws Exception {
+		setUpStorageLoggingAllOperationsWithQueryPlan();
+		DatabaseFacadeSpy listDatabaseFacadeSpy = setUpDatabaseFacadeSpyForList(0);
+		Iterator<DatabaseFacadeSpy> databaseFacades = List
+				.of(listDatabaseFacadeSpy, new DatabaseFacadeSpy()).iterator();
+		List<Integer> listDatabaseFacadeClosedWhenFactoring = new ArrayList<>();
+		sqlDatabaseFactorySpy.MRV.setDefaultReturnValuesSupplier("factorDatabaseFacade", () -> {
+			listDatabaseFacadeClosedWhenFactoring
+					.add(listDatabaseFacadeSpy.MCR.getNumberOfCallsToMethod("close"));
+			return databaseFacades.next();
+		});
+
+		storage.readList(LIST_WITH_ONE_TYPE, filter);
+
+		assertEquals(listDatabaseFacadeClosedWhenFactoring, List.of(0, 1));
+	}
+
+	@Test
+	public void testSlowReadListIsLoggedWithQueryPlanUsingExplainAnalyze() throws Exception {
+		setUpStorageLoggingAllOperationsUsingSlowOperationLog(SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(0, 1).withExplainAnalyze(true));
+		DatabaseFacadeSpy planDatabaseFacadeSpy = setUpDatabaseFacadesForListAndQueryPlan(0);
+
+		storage.readList(LIST_WITH_ONE_TYPE, filter);
+
+		planDatabaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"explain (analyze, buffers) select * from recordstorageterm"
+						+ " where type = any(?) order by id desc");
+	}
+
+	@Test
+	public void testSlowOperationsInUnitOfWorkAreLoggedWithoutQueryPlan() throws Exception {
+		LoggerFactorySpy loggerFactorySpy = setUpStorageLoggingAllOperationsWithQueryPlan();
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForUnitOfWork();
+
+		storage.runInUnitOfWork(unitOfWork -> {
+			unitOfWork.readList(LIST_WITH_ONE_TYPE, filter);
+			return unitOfWork.getTotalNumberOfRecordsForTypes(LIST_WITH_ONE_TYPE, filter);
+		});
+
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readUsingSqlAndValues", 1);
+		String readListMessage = getLoggedSlowOperationMessage(loggerFactorySpy, 0);
+		assertTrue(readListMessage.startsWith("Slow readList for types: [someType]"));
+		assertTrue(readListMessage.endsWith(" ms"));
+		String countMessage = getLoggedSlowOperationMessage(loggerFactorySpy, 1);
+		assertTrue(countMessage.startsWith("Slow getTotalNumberOfRecordsForTypes"));
+		assertTrue(countMessage.endsWith(" ms"));
+	}
+
+	private String getLoggedSlowOperationMessage(LoggerFactorySpy loggerFactorySpy,
+			int callNumber) {
+		LoggerSpy loggerSpy = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass",
+				callNumber);
+		return (String) loggerSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"logWarnUsingMessage", 0, "message");
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadesForListAndQueryPlan(long totalNumberOfMatches) {
+		DatabaseFacadeSpy listDatabaseFacadeSpy = setUpDatabaseFacadeSpyForList(
+				totalNumberOfMatches);
+		DatabaseFacadeSpy planDatabaseFacadeSpy = new DatabaseFacadeSpy();
+		RowSpy planRow1 = new RowSpy();
+		planRow1.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> "somePlanLine1",
+				"QUERY PLAN");
+		RowSpy planRow2 = new RowSpy();
+		planRow2.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> "somePlanLine2",
+				"QUERY PLAN");
+		planDatabaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(planRow1, planRow2));
+		Iterator<DatabaseFacadeSpy> databaseFacades = List
+				.of(listDatabaseFacadeSpy, planDatabaseFacadeSpy).iterator();
+		sqlDatabaseFactorySpy.MRV.setDefaultReturnValuesSupplier("factorDatabaseFacade",
+				databaseFacades::next);
+		return planDatabaseFacadeSpy;
+	}
+
+	private String getLoggedSlowOperationMessage(LoggerFactorySpy loggerFactorySpy) {
+		loggerFactorySpy.MCR.assertParameters("factorForClass", 0, SlowOperationLog.class);
+		LoggerSpy loggerSpy = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass",
+				0);
+		return (String) loggerSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"logWarnUsingMessage", 0, "message");
+	}
+
+	@Test
+	public void testSlowGetTotalNumberOfRecordsForTypesIsLoggedWithQueryPlan()
+			throws Exception {
+		LoggerFactorySpy loggerFactorySpy = setUpStorageLoggingAllOperationsWithQueryPlan();
+		DatabaseFacadeSpy planDatabaseFacadeSpy = setUpDatabaseFacadesForListAndQueryPlan(747);
+
+		storage.getTotalNumberOfRecordsForTypes(LIST_OF_TYPES, filter);
+
+		assertReadListSqlAndValues(planDatabaseFacadeSpy,
+				"explain select count(*) as count from recordstorageterm where type = any(?)",
+				new String[] { "someType1", "someType2" });
+		String message = getLoggedSlowOperationMessage(loggerFactorySpy);
+		assertTrue(message.startsWith("Slow getTotalNumberOfRecordsForTypes for types: "
+				+ "[someType1, someType2] with filter: include: [], exclude: [], rows: 747, "
+				+ "took: "));
+	}
+
+	@Test
+	public void testDefaultIsNoCompression() throws Exception {
+		assertFalse(storage.onlyForTestGetRecordDataCompressor().isEnabled());
+	}
+
+	@Test
+	public void testCreateCompressedRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
+
+		assertExecutedSql(databaseFacadeSpy, 0,
+				"insert into record (type, id, datadivider, data, compresseddata)"
+						+ " values (?, ?, ?, ?, ?) on conflict (type, id) do nothing");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.get(3), null);
+		assertDecompressesToDataRecord((byte[]) recordValues.get(4));
+	}
+
+	private DatabaseRecordStorage createStorageCompressingType(String type) {
+		RecordDataCompressor compressor = RecordDataCompressor
+				.usingCompressedTypesAndThreshold(Set.of(type), 1);
+		return new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults().withRecordDataCompressor(compressor));
+	}
+
+	private void assertDecompressesToDataRecord(byte[] compressed) {
+		RecordDataCompressor.decompress(compressed, json -> null);
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0,
+				"fakeNameInDataFromSpy");
+		dataToJsonConverterFactoryCreatorSpy.MCR.assertMethodNotCalled("createFactory");
+	}
+
+	@Test
+	public void testCreateCompressedRecordWithResourceLinkIsCompressedAsJson() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+		DataLink resourceLink = new DataLink() {
+		};
+		((DataGroupSpy) dataRecord).MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(resourceLink));
+
 		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		String dataRecordJson = getConvertedJson(dataRecord);
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.get(3), null);
+		byte[] compressed = (byte[]) recordValues.get(4);
+		assertEquals(compressed[0], 1);
+		List<String> decompressedJson = new ArrayList<>();
+		RecordDataCompressor.decompress(compressed, json -> {
+			decompressedJson.add(json);
+			return null;
+		});
+		assertEquals(decompressedJson, List.of(getConvertedJson(dataRecord)));
+	}
+
+	@Test
+	public void testCreateRecordOfTypeNotCompressed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType("someOtherType");
+
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy.MCR.assertParameters("addParameter", 0, "type", someType);
-		tableQuerySpy.MCR.assertParameters("addParameter", 1, "id", someId);
-		tableQuerySpy.MCR.assertParameters("addParameter", 2, "datadivider", dataDivider);
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		PGobject jsonObject = (PGobject) recordValues.get(3);
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
+		assertEquals(recordValues.get(4), null);
+	}
 
-		PGobject jsonObject = new PGobject();
-		jsonObject.setType("json");
-		jsonObject.setValue(dataRecordJson);
+	@Test
+	public void testCreateParametersPassedOnForRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
-		PGobject jsonObject2 = (PGobject) tableQuerySpy.MCR
-				.getValueForMethodNameAndCallNumberAndParameterName("addParameter", 3, "value");
-		assertEquals(jsonObject2.getType(), "json");
-		assertEquals(jsonObject2.getValue(), dataRecordJson);
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 0, tableQuerySpy);
-		firstFactoredTableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 1);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 1);
+		assertExecutedSql(databaseFacadeSpy, 0, "insert into record (type, id, datadivider, data)"
+				+ " values (?, ?, ?, ?) on conflict (type, id) do nothing");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.subList(0, 3), List.of(someType, someId, dataDivider));
+		PGobject jsonObject = (PGobject) recordValues.get(3);
+		assertEquals(jsonObject.getType(), "json");
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
 	}
 
 	private String getConvertedJson(DataGroup dataRecord) {
@@ -642,25 +985,14 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testCreateParametersPassedOnForStorageTerm() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-		Set<StorageTerm> storageTerms = createStorageTerms();
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
-		storage.create(someType, someId, dataRecord, storageTerms, emptyLinkSet, dataDivider);
+		storage.create(someType, someId, dataRecord, createStorageTerms(), emptyLinkSet,
+				dataDivider);
 
-		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorTableQuery", 3);
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 1, "storageterm");
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "storageterm");
-		TableQuerySpy tableQuery1 = getFactoredTableQueryUsingCallNumber(1);
-		Object[] storageTermsArray = storageTerms.toArray();
-		assertStorageTermAsTableQuery((StorageTerm) storageTermsArray[0], tableQuery1);
-
-		TableQuerySpy tableQuery2 = getFactoredTableQueryUsingCallNumber(2);
-		assertStorageTermAsTableQuery((StorageTerm) storageTermsArray[1], tableQuery2);
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 3);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 1, tableQuery1);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 2, tableQuery2);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 2);
+		assertStorageTermsInsertedInOneStatement(databaseFacadeSpy, 1);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
 	}
 
 	private Set<StorageTerm> createStorageTerms() {
@@ -670,37 +1002,25 @@ public class DatabaseRecordStorageTest {
 		return storageTerms;
 	}
 
-	private void assertStorageTermAsTableQuery(StorageTerm storageTerm1,
-			TableQuerySpy tableQuery1) {
-		tableQuery1.MCR.assertParameters("addParameter", 0, "recordtype", someType);
-		tableQuery1.MCR.assertParameters("addParameter", 1, "recordid", someId);
-		tableQuery1.MCR.assertParameters("addParameter", 2, "storagetermid",
-				storageTerm1.storageTermId());
-		tableQuery1.MCR.assertParameters("addParameter", 3, "value", storageTerm1.value());
-		tableQuery1.MCR.assertParameters("addParameter", 4, "storagekey",
-				storageTerm1.storageKey());
+	private void assertStorageTermsInsertedInOneStatement(DatabaseFacadeSpy databaseFacadeSpy,
+			int callNumber) {
+		assertExecutedSqlAndValues(databaseFacadeSpy, callNumber, "insert into storageterm"
+				+ " (recordtype, recordid, storagetermid, value, storagekey)"
+				+ " values (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)",
+				List.of(someType, someId, "someStorageTermId", "someValue", "someStorageKey",
+						someType, someId, "someStorageTermId", "someValue2", "someStorageKey2"));
 	}
 
 	@Test
 	public void testCreateParametersPassedOnForLink() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-		Set<Link> links = createLinks();
-
-		storage.create(someType, someId, dataRecord, emptyStorageTerms, links, dataDivider);
-
-		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorTableQuery", 3);
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 1, "link");
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "link");
-		TableQuerySpy tableQuery1 = getFactoredTableQueryUsingCallNumber(1);
-		assertLinkAsTableQuery((Link) links.toArray()[0], tableQuery1);
-		TableQuerySpy tableQuery2 = getFactoredTableQueryUsingCallNumber(2);
-		assertLinkAsTableQuery((Link) links.toArray()[1], tableQuery2);
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 3);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 1, tableQuery1);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 2, tableQuery2);
+		storage.create(someType, someId, dataRecord, emptyStorageTerms, createLinks(),
+				dataDivider);
 
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 2);
+		assertLinksInsertedInOneStatement(databaseFacadeSpy, 1);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
 	}
 
 	private Set<Link> createLinks() {
@@ -710,33 +1030,36 @@ public class DatabaseRecordStorageTest {
 		return links;
 	}
 
-	private void assertLinkAsTableQuery(Link link, TableQuerySpy tableQuery) {
-		tableQuery.MCR.assertParameters("addParameter", 0, "fromtype", someType);
-		tableQuery.MCR.assertParameters("addParameter", 1, "fromid", someId);
-		tableQuery.MCR.assertParameters("addParameter", 2, "totype", link.type());
-		tableQuery.MCR.assertParameters("addParameter", 3, "toid", link.id());
+	private void assertLinksInsertedInOneStatement(DatabaseFacadeSpy databaseFacadeSpy,
+			int callNumber) {
+		assertExecutedSqlAndValues(databaseFacadeSpy, callNumber, "insert into link"
+				+ " (fromtype, fromid, totype, toid) values (?, ?, ?, ?), (?, ?, ?, ?)",
+				List.of(someType, someId, "toType1", "toId1", someType, someId, "toType2",
+						"toId2"));
 	}
 
 	@Test
 	public void testCreateThrowsRecordConflictException() throws Exception {
-		sqlDatabaseFactorySpy.throwDuplicateExceptionFromTableFacade = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
 
 		try {
-			storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+			storage.create(someType, someId, dataRecord, createStorageTerms(), emptyLinkSet,
 					dataDivider);
 			makeSureErrorIsThrownFromAboveStatements();
 		} catch (Exception e) {
 			assertTrue(e instanceof RecordConflictException);
 			assertEquals(e.getMessage(),
 					"Record with type: someType, and id: someId already exists in storage.");
-			assertEquals(e.getCause().getMessage(), "Error from insertRowUsingQuery in tablespy");
-
 		}
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 1);
+		assertRolledBackAndClosed(databaseFacadeSpy);
 	}
 
 	@Test
 	public void testCreateThrowsSQlDatabaseException() throws Exception {
-		sqlDatabaseFactorySpy.throwSqlExceptionFromTableFacade = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
 
 		try {
 			storage.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
@@ -746,140 +1069,109 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(),
 					"Storage exception when creating record with recordType: someType and id: someId.");
-			assertEquals(e.getCause().getMessage(), "Error from spy");
-
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
 		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
 	}
 
 	@Test
 	public void testUpdateClosed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
 		storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
 
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
 	}
 
 	@Test
 	public void testUpdateParametersAssertRecord() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
 		storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		String dataRecordJson = getConvertedJson(dataRecord);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 3);
+		assertUpdatedRecordAsJson(databaseFacadeSpy);
+		assertStorageTermsAndLinksDeleted(databaseFacadeSpy);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(2);
-		tableQuerySpy.MCR.assertParameters("addParameter", 0, "datadivider", dataDivider);
-		PGobject jsonObject = new PGobject();
-		jsonObject.setType("json");
-		jsonObject.setValue(dataRecordJson);
+	private void assertUpdatedRecordAsJson(DatabaseFacadeSpy databaseFacadeSpy) {
+		assertExecutedSql(databaseFacadeSpy, 0,
+				"update record set datadivider = ?, data = ? where type = ? and id = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.get(0), dataDivider);
+		PGobject jsonObject = (PGobject) recordValues.get(1);
+		assertEquals(jsonObject.getType(), "json");
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
+		assertEquals(recordValues.subList(2, 4), List.of(someType, someId));
+	}
 
-		PGobject jsonObject2 = (PGobject) tableQuerySpy.MCR
-				.getValueForMethodNameAndCallNumberAndParameterName("addParameter", 1, "value");
-		assertEquals(jsonObject2.getType(), "json");
-		assertEquals(jsonObject2.getValue(), dataRecordJson);
+	private void assertStorageTermsAndLinksDeleted(DatabaseFacadeSpy databaseFacadeSpy) {
+		assertExecutedSqlAndValues(databaseFacadeSpy, 1,
+				"delete from storageterm where recordtype = ? and recordid = ?",
+				List.of(someType, someId));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 2,
+				"delete from link where fromtype = ? and fromid = ?", List.of(someType, someId));
+	}
 
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", someType);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", someId);
+	@Test
+	public void testUpdateCompressedRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("startTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+		storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		tableFacadeSpy.MCR.assertParameters("updateRowsUsingQuery", 0, tableQuerySpy);
-		tableFacadeSpy.MCR.assertNumberOfCallsToMethod("deleteRowsForQuery", 2);
-		tableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 0);
+		assertExecutedSql(databaseFacadeSpy, 0, "update record set datadivider = ?, data = ?,"
+				+ " compresseddata = ? where type = ? and id = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.get(1), null);
+		assertDecompressesToDataRecord((byte[]) recordValues.get(2));
+		assertEquals(recordValues.subList(3, 5), List.of(someType, someId));
 	}
 
 	@Test
 	public void testUpdateAssertStoragTerm() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-		Set<StorageTerm> storageTerms = createStorageTerms();
-
-		storage.update(someType, someId, dataRecord, storageTerms, emptyLinkSet, dataDivider);
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "storageterm");
-		TableQuerySpy deleteTableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		deleteTableQuerySpy.MCR.assertParameters("addCondition", 0, "recordtype", "someType");
-		deleteTableQuerySpy.MCR.assertParameters("addCondition", 1, "recordid", "someId");
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("deleteRowsForQuery", 0,
-				deleteTableQuerySpy);
+		storage.update(someType, someId, dataRecord, createStorageTerms(), emptyLinkSet,
+				dataDivider);
 
-		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorTableQuery", 5);
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "storageterm");
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 3, "storageterm");
-		TableQuerySpy tableQuery1 = getFactoredTableQueryUsingCallNumber(2);
-		Object[] storageTermsArray = storageTerms.toArray();
-		assertStorageTermAsTableQuery((StorageTerm) storageTermsArray[0], tableQuery1);
-
-		TableQuerySpy tableQuery2 = getFactoredTableQueryUsingCallNumber(3);
-		assertStorageTermAsTableQuery((StorageTerm) storageTermsArray[1], tableQuery2);
-
-		firstFactoredTableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 2);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 0, tableQuery1);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 1, tableQuery2);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 4);
+		assertStorageTermsAndLinksDeleted(databaseFacadeSpy);
+		assertStorageTermsInsertedInOneStatement(databaseFacadeSpy, 3);
 	}
 
 	@Test
 	public void testUpdateAssertLink() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-		Set<Link> links = createLinks();
-		storage.update(someType, someId, dataRecord, emptyStorageTerms, links, dataDivider);
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 1, "link");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(1);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "fromtype", "someType");
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "fromid", "someId");
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("deleteRowsForQuery", 1, tableQuerySpy);
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
-		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorTableQuery", 5);
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "link");
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 3, "link");
-		TableQuerySpy tableQuery1 = getFactoredTableQueryUsingCallNumber(2);
-		assertLinkAsTableQuery((Link) links.toArray()[0], tableQuery1);
-		TableQuerySpy tableQuery2 = getFactoredTableQueryUsingCallNumber(3);
-		assertLinkAsTableQuery((Link) links.toArray()[1], tableQuery2);
+		storage.update(someType, someId, dataRecord, emptyStorageTerms, createLinks(),
+				dataDivider);
 
-		firstFactoredTableFacadeSpy.MCR.assertNumberOfCallsToMethod("insertRowUsingQuery", 2);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 0, tableQuery1);
-		firstFactoredTableFacadeSpy.MCR.assertParameters("insertRowUsingQuery", 1, tableQuery2);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 4);
+		assertStorageTermsAndLinksDeleted(databaseFacadeSpy);
+		assertLinksInsertedInOneStatement(databaseFacadeSpy, 3);
 	}
 
 	@Test
-	public void testUpdateParameterRecordNotValidJson() throws Exception {
+	public void testUpdateUsingJsonb() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults().withRecordDataType(RecordDataType.JSONB));
 
 		storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider);
 
-		String dataRecordJson = getConvertedJson(dataRecord);
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(2);
-		tableQuerySpy.MCR.assertParameters("addParameter", 0, "datadivider", dataDivider);
-		PGobject jsonObject = new PGobject();
-		jsonObject.setType("json");
-		jsonObject.setValue(dataRecordJson);
-
-		PGobject jsonObject2 = (PGobject) tableQuerySpy.MCR
-				.getValueForMethodNameAndCallNumberAndParameterName("addParameter", 1, "value");
-		assertEquals(jsonObject2.getType(), "json");
-		assertEquals(jsonObject2.getValue(), dataRecordJson);
-
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", someType);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", someId);
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-
-		firstFactoredTableFacadeSpy.MCR.assertParameters("updateRowsUsingQuery", 0, tableQuerySpy);
+		PGobject jsonObject = (PGobject) getExecutedValues(databaseFacadeSpy, 0).get(1);
+		assertEquals(jsonObject.getType(), "jsonb");
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
 	}
 
 	@Test
 	public void testUpdateTypeOrIdNotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnUpdate = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
 		try {
 			storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
 					dataDivider);
@@ -889,13 +1181,15 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(),
 					"Storage exception when updating record with recordType: someType and id: someId.");
-			assertEquals(e.getCause().getMessage(), "Error from updateRowsUsingQuery in tablespy");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
 		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
 	}
 
 	@Test
 	public void testUpdateNoRecordUpdated() throws Exception {
-		sqlDatabaseFactorySpy.numberOfAffectedRows = 0;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
 
 		try {
 			storage.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
@@ -907,62 +1201,29 @@ public class DatabaseRecordStorageTest {
 			assertEquals(e.getMessage(),
 					"Record not found when updating record with recordType: someType and id: someId.");
 		}
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 1);
+		assertRolledBackAndClosed(databaseFacadeSpy);
 	}
 
 	@Test
-	public void testDeleteAssertRecord() {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-
-		storage.deleteByTypeAndId("someType", "someId");
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 2, "record");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(2);
-
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", someType);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", someId);
-
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("startTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("deleteRowsForQuery", 2, tableQuerySpy);
-	}
-
-	@Test
-	public void testDeleteAssertStoragTerm() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
-
-		storage.deleteByTypeAndId("someType", "someId");
-
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "storageterm");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "recordtype", "someType");
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "recordid", "someId");
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("deleteRowsForQuery", 0, tableQuerySpy);
-	}
-
-	@Test
-	public void testDeleteAssertLinks() throws Exception {
-		sqlDatabaseFactorySpy.usingTransaction = true;
+	public void testDeleteRecordStorageTermsAndLinksInOneStatement() {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
 		storage.deleteByTypeAndId("someType", "someId");
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 1, "link");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(1);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "fromtype", "someType");
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "fromid", "someId");
-
-		TableFacadeSpy firstFactoredTableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		firstFactoredTableFacadeSpy.MCR.assertParameters("deleteRowsForQuery", 1, tableQuerySpy);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 1);
+		assertExecutedSqlAndValues(databaseFacadeSpy, 0, "with deletedstorageterms as"
+				+ " (delete from storageterm where recordtype = ? and recordid = ?),"
+				+ " deletedlinks as (delete from link where fromtype = ? and fromid = ?)"
+				+ " delete from record where type = ? and id = ?",
+				List.of(someType, someId, someType, someId, someType, someId));
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
 	}
 
 	@Test
 	public void testDeleteThrowsSQlDatabaseException() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnDelete = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
 
 		try {
 			storage.deleteByTypeAndId("someType", "someId");
@@ -971,21 +1232,24 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(),
 					"Storage exception when deleting record with recordType: someType and id: someId.");
-			assertEquals(e.getCause().getMessage(), "Error from deleteRowsUsingQuery in tablespy");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
 
 		}
 	}
 
 	@Test
 	public void testDeletedClosed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
 		storage.deleteByTypeAndId("someType", "someId");
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
 	public void testDeleteNoRecordUpdated() throws Exception {
-		sqlDatabaseFactorySpy.numberOfAffectedRows = 0;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
 
 		try {
 			storage.deleteByTypeAndId("someType", "someId");
@@ -998,32 +1262,105 @@ public class DatabaseRecordStorageTest {
 		}
 	}
 
+	@Test
+	public void testDeleteByTypeAndIdsInOneStatement() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(createRowWithId("id1"), createRowWithId("id3")));
+
+		List<String> deletedIds = storage.deleteByTypeAndIds(someType,
+				List.of("id1", "id2", "id3"));
+
+		assertEquals(deletedIds, List.of("id1", "id3"));
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"with deletedstorageterms as (delete from storageterm where recordtype = ?"
+						+ " and recordid = any(?)), deletedlinks as (delete from link"
+						+ " where fromtype = ? and fromid = any(?)) delete from record"
+						+ " where type = ? and id = any(?) returning id");
+		List<?> values = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("readUsingSqlAndValues", 0,
+						"values");
+		assertEquals(values.size(), 6);
+		assertEquals(values.get(0), someType);
+		assertEquals((String[]) values.get(1), new String[] { "id1", "id2", "id3" });
+		assertSame(values.get(3), values.get(1));
+		assertSame(values.get(5), values.get(1));
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	private RowSpy createRowWithId(String id) {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> id, "id");
+		return row;
+	}
+
+	@Test
+	public void testDeleteByTypeAndIdsNoIds() throws Exception {
+		List<String> deletedIds = storage.deleteByTypeAndIds(someType, List.of());
+
+		assertEquals(deletedIds, List.of());
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorDatabaseFacade");
+	}
+
+	@Test
+	public void testDeleteAllOfTypeInOneStatement() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(createRowWithId("id1")));
+
+		List<String> deletedIds = storage.deleteAllOfType(someType);
+
+		assertEquals(deletedIds, List.of("id1"));
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"with deletedstorageterms as (delete from storageterm where recordtype = ?),"
+						+ " deletedlinks as (delete from link where fromtype = ?)"
+						+ " delete from record where type = ? returning id");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someType, someType));
+	}
+
+	@Test
+	public void testDeleteAllOfTypeError() throws Exception {
+		sqlDatabaseFactorySpy.MRV.setDefaultReturnValuesSupplier("factorDatabaseFacade", () -> {
+			throw SqlDatabaseException.withMessage("Error from factorDatabaseFacade");
+		});
+
+		try {
+			storage.deleteAllOfType(someType);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when deleting records with recordType: someType.");
+		}
+	}
+
 	@Test
 	public void testLinksExistForRecordUsesDependencies() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 0;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
 
 		storage.linksExistForRecord(someType, someId);
 
-		sqlDatabaseFactorySpy.MCR.assertMethodWasCalled("factorTableFacade");
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "link");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "totype", someType);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "toid", someId);
-
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readNumberOfRows", 0, tableQuerySpy);
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select 1 from link where totype = ? and toid = ? limit 2");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId));
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
 	}
 
 	@Test
 	public void testLinksExistForRecordDatabaseIsClosed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
 		storage.linksExistForRecord("someType", "someId");
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
 	public void testLinksExistForRecordError() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnRead = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
 
 		try {
 			storage.linksExistForRecord("someType", "someId");
@@ -1033,13 +1370,23 @@ public class DatabaseRecordStorageTest {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(),
 					"Could not determine if links exist for type: someType and id: someId.");
-			assertTrue(e.getCause() instanceof Exception);
+			assertEquals(e.getCause().getMessage(), "Error from readUsingSqlAndValues in spy");
 		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
 	public void testLinksExistForRecordNoLinksFound() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 0;
+		setUpDatabaseFacadeSpy();
+
+		boolean exists = storage.linksExistForRecord("someType", "someId");
+
+		assertFalse(exists);
+	}
+
+	@Test
+	public void testLinksExistForRecordOneLinkFound() {
+		setUpLinksExistProbeReturningNumberOfRows(1);
 
 		boolean exists = storage.linksExistForRecord("someType", "someId");
 
@@ -1048,16 +1395,26 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testLinksExistForRecordLinksFound() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 3;
+		setUpLinksExistProbeReturningNumberOfRows(2);
 
 		boolean exists = storage.linksExistForRecord("someType", "someId");
 
 		assertTrue(exists);
 	}
 
+	private void setUpLinksExistProbeReturningNumberOfRows(int numberOfRows) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		List<Row> rows = new ArrayList<>();
+		for (int i = 0; i < numberOfRows; i++) {
+			rows.add(new RowSpy());
+		}
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> rows);
+	}
+
 	@Test
 	public void testGetLinksToRecordNoLinksFound() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 0;
+		setUpDatabaseFacadeSpy();
 
 		Collection<Link> links = storage.getLinksToRecord("someType", "someId");
 
@@ -1066,20 +1423,19 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testGetLinksToRecordWithLinks() {
-
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 3;
+		List<RowSpy> rows = List.of(createLinkRow("type1", "id1"), createLinkRow("type1", "id2"),
+				createLinkRow("type2", "id3"));
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordRows(
+				rows.toArray(new RowSpy[0]));
 
 		Set<Link> links = storage.getLinksToRecord(someType, someId);
 
-		sqlDatabaseFactorySpy.MCR.assertParameters("factorTableQuery", 0, "link");
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "totype", someType);
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "toid", someId);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select fromtype, fromid from link where totype = ? and toid = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId));
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertParameters("readRowsForQuery", 0, tableQuerySpy);
-
-		List<RowSpy> rows = (List<RowSpy>) tableFacadeSpy.MCR.getReturnValue("readRowsForQuery", 0);
 		Object[] linksArray = links.toArray();
 		Link link1 = (Link) linksArray[0];
 		Link link2 = (Link) linksArray[1];
@@ -1102,14 +1458,17 @@ public class DatabaseRecordStorageTest {
 
 	@Test
 	public void testGetLinksToRecordDatabaseIsClosed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
 		storage.getLinksToRecord("someType", "someId");
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
 	public void testGetLinksToRecordError() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnRead = true;
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
 
 		try {
 			storage.getLinksToRecord("someType", "someId");
@@ -1118,60 +1477,1263 @@ public class DatabaseRecordStorageTest {
 		} catch (Exception e) {
 			assertTrue(e instanceof StorageException);
 			assertEquals(e.getMessage(), "Could not get links for type: someType and id: someId.");
-			assertTrue(e.getCause() instanceof Exception);
+			assertEquals(e.getCause().getMessage(), "Error from readUsingSqlAndValues in spy");
 		}
 	}
 
 	@Test
-	public void testRecordExists_notFound0() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 0;
-		assertFalse(storage.recordExists(LIST_WITH_ONE_TYPE, "someId"));
+	public void testReadLinksToRecordFirstPage() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		LinkPage page = storage.readLinksToRecord(someType, someId, LinkPageRequest.usingLimit(2));
+
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select fromtype, fromid from link where totype = ? and toid = ?"
+						+ " order by fromtype collate \"C\", fromid collate \"C\" limit ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId, 3));
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+		assertEquals(page.links(), List.of());
+		assertFalse(page.hasNextPage());
 	}
 
 	@Test
-	public void testRecordExists_TableFacadeFactoredAndCloseCalled() throws Exception {
-		assertFalse(storage.recordExists(LIST_WITH_ONE_TYPE, "someId"));
+	public void testReadLinksToRecordUsingFromTypeAndCursor() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		String cursor = new LinkCursor("fromType", "fromId").encode();
+
+		storage.readLinksToRecord(someType, someId,
+				LinkPageRequest.usingLimit(2).withFromType("fromType").withCursor(cursor));
 
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
-		tableFacadeSpy.MCR.assertMethodWasCalled("close");
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select fromtype, fromid from link where totype = ? and toid = ?"
+						+ " and fromtype = ?"
+						+ " and (fromtype collate \"C\", fromid collate \"C\") > (?, ?)"
+						+ " order by fromtype collate \"C\", fromid collate \"C\" limit ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId, "fromType", "fromType", "fromId", 3));
 	}
 
 	@Test
-	public void testRecordExists_NotFound() throws Exception {
-		sqlDatabaseFactorySpy.throwExceptionFromTableFacadeOnRead = true;
-		try {
-			assertFalse(storage.recordExists(LIST_OF_TYPES, "someId"));
-			makeSureErrorIsThrownFromAboveStatements();
+	public void testReadLinksToRecordNoMoreRowsThanLimit() throws Exception {
+		setUpLinkRows(createLinkRow("type1", "id1"), createLinkRow("type1", "id2"));
 
-		} catch (Exception e) {
-			assertTrue(e instanceof RecordNotFoundException);
-			assertEquals(e.getMessage(),
-					"RecordType: [someType1, someType2] with id: someId, not found in storage.");
-			assertEquals(e.getCause().getMessage(), "Error from readNumberOfRows in tablespy");
-		}
+		LinkPage page = storage.readLinksToRecord(someType, someId, LinkPageRequest.usingLimit(2));
+
+		assertEquals(page.links(), List.of(new Link("type1", "id1"), new Link("type1", "id2")));
+		assertFalse(page.hasNextPage());
 	}
 
 	@Test
-	public void testRecordExists() throws Exception {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 1;
+	public void testReadLinksToRecordMoreRowsThanLimit() throws Exception {
+		setUpLinkRows(createLinkRow("type1", "id1"), createLinkRow("type1", "id2"),
+				createLinkRow("type2", "id3"));
+
+		LinkPage page = storage.readLinksToRecord(someType, someId, LinkPageRequest.usingLimit(2));
 
-		boolean recordExists = storage.recordExists(LIST_WITH_ONE_TYPE, "someId");
+		assertEquals(page.links(), List.of(new Link("type1", "id1"), new Link("type1", "id2")));
+		assertEquals(LinkCursor.decode(page.nextCursor()), new LinkCursor("type1", "id2"));
+	}
 
-		TableQuerySpy tableQuerySpy = getFactoredTableQueryUsingCallNumber(0);
-		TableFacadeSpy tableFacadeSpy = getFirstFactoredTableFacadeSpy();
+	private void setUpLinkRows(Row... rows) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(rows));
+	}
 
-		sqlDatabaseFactorySpy.MCR.assertParameter("factorTableQuery", 0, "tableName", "record");
+	private RowSpy createLinkRow(String fromType, String fromId) {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> fromType, "fromtype");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> fromId, "fromid");
+		return row;
+	}
 
-		tableQuerySpy.MCR.assertParameters("addCondition", 0, "type", "someType");
-		tableQuerySpy.MCR.assertParameters("addCondition", 1, "id", "someId");
+	@Test
+	public void testReadLinksToRecordError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
 
-		tableFacadeSpy.MCR.assertParameters("readNumberOfRows", 0, tableQuerySpy);
-		assertTrue(recordExists);
+		try {
+			storage.readLinksToRecord(someType, someId, LinkPageRequest.usingLimit(2));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Could not get links for type: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "Error from readUsingSqlAndValues in spy");
+		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
 	}
 
 	@Test
-	public void testRecordExists_Found747() {
-		sqlDatabaseFactorySpy.totalNumberOfRecordsForType = 747;
-		assertTrue(storage.recordExists(LIST_OF_TYPES, "someId"));
+	public void testCountLinksToRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> 17L, "numberoflinks");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> row);
+
+		long numberOfLinks = storage.countLinksToRecord(someType, someId);
+
+		assertEquals(numberOfLinks, 17L);
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql",
+				"select count(*) as numberoflinks from link where totype = ? and toid = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readOneRowOrFailUsingSqlAndValues", 0,
+				"values", List.of(someType, someId));
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testCountLinksToRecordError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> {
+					throw SqlDatabaseException.withMessage("someError");
+				});
+
+		try {
+			storage.countLinksToRecord(someType, someId);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Could not count links for type: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "someError");
+		}
+	}
+
+	@Test
+	public void testTraverseLinksToRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.traverseLinks(someType, someId, LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 3, 100));
+
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				getTraverseLinksSql(Direction.LINKS_TO_RECORD, false));
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId, 3, someType, someId, 100));
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readUsingSqlAndValues", 1);
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	private String getTraverseLinksSql(Direction direction, boolean hasTypes) {
+		return QueryTemplateCache.usingReadCompressedData(false).getTraverseLinksSql(direction,
+				hasTypes);
+	}
+
+	@Test
+	public void testTraverseLinksFromRecordWithTypes() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.traverseLinks(someType, someId,
+				LinkTraversalRequest
+						.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_FROM_RECORD, 3, 100)
+						.withTypes(Set.of("typeB", "typeA")));
+
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				getTraverseLinksSql(Direction.LINKS_FROM_RECORD, true));
+		List<?> values = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("readUsingSqlAndValues", 0,
+						"values");
+		assertEquals(values.size(), 7);
+		assertEquals(values.subList(0, 3), List.of(someType, someId, 3));
+		assertEquals((String[]) values.get(3), new String[] { "typeA", "typeB" });
+		assertEquals(values.subList(4, 7), List.of(someType, someId, 100));
+	}
+
+	@Test
+	public void testTraverseLinksReturnsReadRecordsWithDepth() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(createReachableRow("typeA", "a1", 1),
+						createReachableRow("typeB", "b1", 2)));
+
+		List<ReachableRecord> result = storage.traverseLinks(someType, someId, LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 5, 100));
+
+		assertEquals(result, List.of(new ReachableRecord("typeA", "a1", 1),
+				new ReachableRecord("typeB", "b1", 2)));
+	}
+
+	private RowSpy createReachableRow(String type, String id, int depth) {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> type, "type");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> id, "id");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> depth, "depth");
+		return row;
+	}
+
+	@Test
+	public void testTraverseLinksError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
+
+		try {
+			storage.traverseLinks(someType, someId, LinkTraversalRequest
+					.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 3, 100));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Could not traverse links for type: someType and id: someId.");
+		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testRecordExists_notFound() {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordExists(false);
+
+		assertFalse(storage.recordExists(LIST_WITH_ONE_TYPE, "someId"));
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyWithRecordExists(boolean recordExists) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> recordExists,
+				"recordexists");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> row);
+		return databaseFacadeSpy;
+	}
+
+	@Test
+	public void testRecordExists_Error() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> {
+					throw SqlDatabaseException.withMessage("Error from spy");
+				});
+		try {
+			assertFalse(storage.recordExists(LIST_OF_TYPES, "someId"));
+			makeSureErrorIsThrownFromAboveStatements();
+
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"RecordType: [someType1, someType2] with id: someId, not found in storage.");
+			assertEquals(e.getCause().getMessage(), "Error from spy");
+		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testRecordExistsUsesOneExistsQueryForAllTypes() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordExists(true);
+
+		boolean recordExists = storage.recordExists(LIST_OF_TYPES, "someId");
+
+		assertTrue(recordExists);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readOneRowOrFailUsingSqlAndValues", 1);
+		assertRecordExistsQueryForTypesAndId(databaseFacadeSpy, 0,
+				new String[] { "someType1", "someType2" }, "someId");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+	}
+
+	@Test
+	public void testRecordExistsInUnitOfWorkUsesOneExistsQueryForAllTypes() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordExists(true);
+
+		boolean recordExists = storage
+				.runInUnitOfWork(unitOfWork -> unitOfWork.recordExists(LIST_OF_TYPES, "someId"));
+
+		assertTrue(recordExists);
+		assertRecordExistsQueryForTypesAndId(databaseFacadeSpy, 0,
+				new String[] { "someType1", "someType2" }, "someId");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableQuery");
+	}
+
+	private void assertRecordExistsQueryForTypesAndId(DatabaseFacadeSpy databaseFacadeSpy,
+			int callNumber, String[] types, String id) {
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", callNumber,
+				"sql", "select exists(select 1 from record where type = any(?) and id = ?)"
+						+ " as recordexists");
+		List<?> values = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName(
+						"readOneRowOrFailUsingSqlAndValues", callNumber, "values");
+		assertEquals((String[]) values.get(0), types);
+		assertEquals(values.get(1), id);
+	}
+
+	@Test
+	public void testWriteInOneTransactionUsesOneDatabaseFacadeAndOneTransaction()
+			throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.writeInOneTransaction(List.of(
+				RecordWrite.forCreate(someType, "id1", dataRecord, emptyStorageTerms,
+						emptyLinkSet, dataDivider),
+				RecordWrite.forUpdate(someType, "id2", dataRecord, emptyStorageTerms,
+						emptyLinkSet, dataDivider),
+				RecordWrite.forDelete(someType, "id3")));
+
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("startTransaction", 1);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("endTransaction", 1);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 5);
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testWriteInOneTransactionWritesInOrder() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.writeInOneTransaction(List.of(
+				RecordWrite.forCreate(someType, "id1", dataRecord, emptyStorageTerms,
+						emptyLinkSet, dataDivider),
+				RecordWrite.forDelete(someType, "id2")));
+
+		assertExecutedSql(databaseFacadeSpy, 0, "insert into record (type, id, datadivider, data)"
+				+ " values (?, ?, ?, ?) on conflict (type, id) do nothing");
+		assertEquals(getExecutedValues(databaseFacadeSpy, 0).get(1), "id1");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("executeSqlWithValues", 1, "values",
+				List.of(someType, "id2", someType, "id2", someType, "id2"));
+	}
+
+	@Test
+	public void testWriteInOneTransactionRecordNotFoundRollsBack() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.writeInOneTransaction(List.of(RecordWrite.forDelete(someType, someId)));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when writing 1 records in one transaction.");
+			assertTrue(e.getCause() instanceof RecordNotFoundException);
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testWriteInOneTransactionErrorFromDatabaseRollsBack() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.writeInOneTransaction(List.of(RecordWrite.forCreate(someType, someId,
+					dataRecord, emptyStorageTerms, emptyLinkSet, dataDivider)));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionUpdatesRecordFirstWithVersionCondition()
+			throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+				emptyLinkSet, dataDivider, 7L);
+
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 3);
+		assertExecutedSql(databaseFacadeSpy, 0, "update record set datadivider = ?, data = ?"
+				+ " where type = ? and id = ? and version = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertEquals(recordValues.get(0), dataDivider);
+		assertEquals(recordValues.subList(2, 5), List.of(someType, someId, 7L));
+		assertStorageTermsAndLinksDeleted(databaseFacadeSpy);
+		databaseFacadeSpy.MCR.assertMethodNotCalled("readOneRowOrFailUsingSqlAndValues");
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionCompressedRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+
+		storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+				emptyLinkSet, dataDivider, 7L);
+
+		assertExecutedSql(databaseFacadeSpy, 0, "update record set datadivider = ?, data = ?,"
+				+ " compresseddata = ? where type = ? and id = ? and version = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 0);
+		assertDecompressesToDataRecord((byte[]) recordValues.get(2));
+		assertEquals(recordValues.subList(3, 6), List.of(someType, someId, 7L));
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionOtherVersionInStorage() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordExists(true);
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+					emptyLinkSet, dataDivider, 7L);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordConflictException);
+			assertEquals(e.getMessage(), "Record with type: someType, and id: someId has been "
+					+ "updated since version: 7 was read.");
+		}
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 1);
+		assertRolledBackAndClosed(databaseFacadeSpy);
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		assertRecordExistsQueryForTypesAndId(databaseFacadeSpy, 0, new String[] { someType },
+				someId);
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionRecordNotFound() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordExists(false);
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+					emptyLinkSet, dataDivider, 7L);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"Record not found when updating record with recordType: someType and id: someId.");
+		}
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionErrorFromRecordExists() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyThrowingOnReadOneRow(
+				SqlDatabaseException.withMessage("Error from spy"));
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+					emptyLinkSet, dataDivider, 7L);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when updating record with recordType: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "Error from spy");
+		}
+	}
+
+	@Test
+	public void testUpdateUsingExpectedVersionErrorFromDatabase() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.updateUsingExpectedVersion(someType, someId, dataRecord, emptyStorageTerms,
+					emptyLinkSet, dataDivider, 7L);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when updating record with recordType: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testReadVersion() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = new DatabaseFacadeSpy();
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> 5L, "version");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(row));
+		sqlDatabaseFactorySpy.MRV.setDefaultReturnValuesSupplier("factorDatabaseFacade",
+				() -> databaseFacadeSpy);
+
+		long version = storage.readVersion(someType, someId);
+
+		assertEquals(version, 5L);
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select version from record where type = ? and id = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(someType, someId));
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testReadVersionRecordNotFound() throws Exception {
+		try {
+			storage.readVersion(someType, someId);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"No record found for recordType(s): someType, with id: someId.");
+		}
+	}
+
+	@Test
+	public void testReadWithVersion() throws Exception {
+		RowSpy row = new RowSpy();
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyReadingOneRow(row);
+
+		VersionedRecordGroup result = storage.readWithVersion(someType, someId);
+
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql",
+				"select * from record where type = ? and id = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readOneRowOrFailUsingSqlAndValues", 0,
+				"values", List.of(someType, someId));
+		row.MCR.assertParameters("getValueByColumn", 0, "data");
+		row.MCR.assertParameters("getValueByColumn", 1, "version");
+		assertEquals(result.version(), 1L);
+		dataFactorySpy.MCR.assertReturn("factorRecordGroupFromDataGroup", 0,
+				result.dataRecordGroup());
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testReadWithVersionNotFound() throws Exception {
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(
+				SqlNotFoundException.withMessage("Not found error from spy"));
+
+		try {
+			storage.readWithVersion(someType, someId);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"No record found for recordType(s): someType, with id: someId.");
+		}
+	}
+
+	@Test
+	public void testReadProjection() throws Exception {
+		RecordJsonConverterSpy recordJsonConverter = new RecordJsonConverterSpy();
+		DataGroupSpy converted = new DataGroupSpy();
+		List<DataChild> convertedChildren = List.of(new DataGroupSpy());
+		converted.MRV.setDefaultReturnValuesSupplier("getChildren", () -> convertedChildren);
+		recordJsonConverter.MRV.setDefaultReturnValuesSupplier("convert", () -> converted);
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults()
+						.withRecordJsonConverter(recordJsonConverter));
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RowSpy row = createProjectionRow("[{\"name\":\"recordInfo\"}]", "[]");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(row));
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo", "title/main");
+
+		DataGroup result = storage.readProjection(someType, someId, projection);
+
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select data->>'name' as name"
+						+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path0"
+						+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path1"
+						+ " from record where type = ? and id = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("readUsingSqlAndValues", 0, "values",
+				List.of(projection.toJsonPath(0), projection.toJsonPath(1), someType, someId));
+		recordJsonConverter.MCR.assertNumberOfCallsToMethod("convert", 1);
+		recordJsonConverter.MCR.assertParameters("convert", 0,
+				"{\"name\":\"projection\",\"children\":[{\"name\":\"recordInfo\"}]}");
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactorySpy.MCR.assertReturn("factorGroupUsingNameInData", 0, result);
+		((DataGroupSpy) result).MCR.assertParameters("addChildren", 0, convertedChildren);
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	private RowSpy createProjectionRow(String path0, String path1) {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> "book", "name");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> path0, "path0");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> path1, "path1");
+		return row;
+	}
+
+	@Test
+	public void testReadProjectionFromCompressedRecord() throws Exception {
+		RecordJsonConverterSpy recordJsonConverter = new RecordJsonConverterSpy();
+		storage = new DatabaseRecordStorage(sqlDatabaseFactorySpy, jsonParserSpy,
+				DatabaseRecordStorageOptions.defaults()
+						.withRecordDataCompressor(RecordDataCompressor
+								.usingCompressedTypesAndThreshold(Set.of(someType), 1))
+						.withRecordJsonConverter(recordJsonConverter));
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RowSpy row = createProjectionRow(null, null);
+		byte[] compressed = RecordDataCompressor.compress((byte) 1,
+				"{}".getBytes(StandardCharsets.UTF_8));
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> compressed,
+				"compresseddata");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(row));
+
+		DataGroup result = storage.readProjection(someType, someId,
+				RecordProjection.usingPaths("recordInfo"));
+
+		databaseFacadeSpy.MCR.assertParameter("readUsingSqlAndValues", 0, "sql",
+				"select data->>'name' as name, compresseddata"
+						+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path0"
+						+ " from record where type = ? and id = ?");
+		recordJsonConverter.MCR.assertParameters("convert", 0, "{}");
+		DataGroupSpy decompressed = (DataGroupSpy) recordJsonConverter.MCR
+				.getReturnValue("convert", 0);
+		decompressed.MCR.assertParameters("getAllChildrenWithNameInData", 0, "recordInfo");
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0,
+				"fakeNameInDataFromSpy");
+		dataFactorySpy.MCR.assertReturn("factorGroupUsingNameInData", 0, result);
+	}
+
+	@Test
+	public void testReadProjectionFromUncompressedRecordWhenCompressionEnabled()
+			throws Exception {
+		storage = createStorageCompressingType(someType);
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RowSpy row = createProjectionRow("[]", null);
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> null,
+				"compresseddata");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues",
+				() -> List.of(row));
+
+		DataGroup result = storage.readProjection(someType, someId,
+				RecordProjection.usingPaths("recordInfo"));
+
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactorySpy.MCR.assertReturn("factorGroupUsingNameInData", 0, result);
+		((DataGroupSpy) result).MCR.assertMethodNotCalled("addChildren");
+	}
+
+	@Test
+	public void testReadProjectionRecordNotFound() throws Exception {
+		setUpDatabaseFacadeSpy();
+
+		try {
+			storage.readProjection(someType, someId, RecordProjection.usingPaths("recordInfo"));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"No record found for recordType(s): someType, with id: someId.");
+		}
+	}
+
+	@Test
+	public void testReadProjectionError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues", () -> {
+			throw SqlDatabaseException.withMessage("someError");
+		});
+
+		try {
+			storage.readProjection(someType, someId, RecordProjection.usingPaths("recordInfo"));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Storage exception when reading projection of record"
+					+ " with recordType: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "someError");
+		}
+	}
+
+	@Test
+	public void testUpsertRecordStorageTermsAndLinksInOneTransaction() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.upsert(someType, someId, dataRecord, createStorageTerms(), createLinks(),
+				dataDivider);
+
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 5);
+		assertExecutedSql(databaseFacadeSpy, 0, "insert into record (type, id, datadivider, data)"
+				+ " values (?, ?, ?, ?) on conflict (type, id) do update set"
+				+ " datadivider = excluded.datadivider, data = excluded.data");
+		List<?> recordValues = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("executeSqlWithValues", 0,
+						"values");
+		assertEquals(recordValues.subList(0, 3), List.of(someType, someId, dataDivider));
+		PGobject jsonObject = (PGobject) recordValues.get(3);
+		assertEquals(jsonObject.getType(), "json");
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
+
+		assertExecutedSqlAndValues(databaseFacadeSpy, 1,
+				"delete from storageterm where recordtype = ? and recordid = ?",
+				List.of(someType, someId));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 2,
+				"delete from link where fromtype = ? and fromid = ?", List.of(someType, someId));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 3,
+				"insert into storageterm (recordtype, recordid, storagetermid, value, storagekey)"
+						+ " values (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)",
+				List.of(someType, someId, "someStorageTermId", "someValue", "someStorageKey",
+						someType, someId, "someStorageTermId", "someValue2", "someStorageKey2"));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 4,
+				"insert into link (fromtype, fromid, totype, toid) values (?, ?, ?, ?), "
+						+ "(?, ?, ?, ?)",
+				List.of(someType, someId, "toType1", "toId1", someType, someId, "toType2",
+						"toId2"));
+
+		databaseFacadeSpy.MCR.assertMethodWasCalled("startTransaction");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
+		databaseFacadeSpy.MCR.assertMethodNotCalled("rollback");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+	}
+
+	@Test
+	public void testUpsertCompressedRecord() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+
+		storage.upsert(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+				dataDivider);
+
+		assertExecutedSql(databaseFacadeSpy, 0,
+				"insert into record (type, id, datadivider, data, compresseddata)"
+						+ " values (?, ?, ?, ?, ?) on conflict (type, id) do update set"
+						+ " datadivider = excluded.datadivider, data = excluded.data,"
+						+ " compresseddata = excluded.compresseddata");
+		List<?> recordValues = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("executeSqlWithValues", 0,
+						"values");
+		assertEquals(recordValues.subList(0, 4),
+				Arrays.asList(someType, someId, dataDivider, null));
+		assertDecompressesToDataRecord((byte[]) recordValues.get(4));
+	}
+
+	@Test
+	public void testUpsertRecordOfTypeNotCompressed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType("someOtherType");
+
+		storage.upsert(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+				dataDivider);
+
+		List<?> recordValues = (List<?>) databaseFacadeSpy.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("executeSqlWithValues", 0,
+						"values");
+		PGobject jsonObject = (PGobject) recordValues.get(3);
+		assertEquals(jsonObject.getValue(), getConvertedJson(dataRecord));
+		assertEquals(recordValues.get(4), null);
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpy() {
+		DatabaseFacadeSpy databaseFacadeSpy = new DatabaseFacadeSpy();
+		sqlDatabaseFactorySpy.MRV.setDefaultReturnValuesSupplier("factorDatabaseFacade",
+				() -> databaseFacadeSpy);
+		return databaseFacadeSpy;
+	}
+
+	private void assertExecutedSql(DatabaseFacadeSpy databaseFacadeSpy, int callNumber,
+			String sql) {
+		databaseFacadeSpy.MCR.assertParameter("executeSqlWithValues", callNumber, "sql", sql);
+	}
+
+	private void assertExecutedSqlAndValues(DatabaseFacadeSpy databaseFacadeSpy, int callNumber,
+			String sql, List<Object> values) {
+		assertExecutedSql(databaseFacadeSpy, callNumber, sql);
+		databaseFacadeSpy.MCR.assertParameterAsEqual("executeSqlWithValues", callNumber,
+				"values", values);
+	}
+
+	@Test
+	public void testUpsertWithoutStorageTermsAndLinks() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		storage.upsert(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+				dataDivider);
+
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 3);
+		databaseFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
+	}
+
+	@Test
+	public void testUpsertErrorRollsBack() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.upsert(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+					dataDivider);
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when upserting record with recordType: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
+		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("rollback");
+		databaseFacadeSpy.MCR.assertMethodNotCalled("endTransaction");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testWriteUsingSavepointsCreate() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RecordWrite write = RecordWrite.forCreate(someType, someId, dataRecord,
+				createStorageTerms(), createLinks(), dataDivider);
+
+		List<Optional<RuntimeException>> outcomes = storage
+				.writeInOneTransactionUsingSavepoints(List.of(write));
+
+		assertEquals(outcomes, List.of(Optional.empty()));
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 5);
+		assertExecutedSqlAndValues(databaseFacadeSpy, 0, "savepoint recordwrite", List.of());
+		assertExecutedSql(databaseFacadeSpy, 1, "insert into record (type, id, datadivider, data)"
+				+ " values (?, ?, ?, ?) on conflict (type, id) do nothing");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 1);
+		assertEquals(recordValues.subList(0, 3), List.of(someType, someId, dataDivider));
+		assertEquals(((PGobject) recordValues.get(3)).getValue(), getConvertedJson(dataRecord));
+		assertExecutedSql(databaseFacadeSpy, 2, "insert into storageterm (recordtype, recordid,"
+				+ " storagetermid, value, storagekey) values (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)");
+		assertExecutedSql(databaseFacadeSpy, 3, "insert into link (fromtype, fromid, totype, toid)"
+				+ " values (?, ?, ?, ?), (?, ?, ?, ?)");
+		assertExecutedSqlAndValues(databaseFacadeSpy, 4, "release savepoint recordwrite",
+				List.of());
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	private List<?> getExecutedValues(DatabaseFacadeSpy databaseFacadeSpy, int callNumber) {
+		return (List<?>) databaseFacadeSpy.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"executeSqlWithValues", callNumber, "values");
+	}
+
+	private void assertTransactionEndedAndClosed(DatabaseFacadeSpy databaseFacadeSpy) {
+		databaseFacadeSpy.MCR.assertMethodWasCalled("startTransaction");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("endTransaction");
+		databaseFacadeSpy.MCR.assertMethodNotCalled("rollback");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testWriteUsingSavepointsCreateCompressed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+		RecordWrite write = RecordWrite.forCreate(someType, someId, dataRecord,
+				emptyStorageTerms, emptyLinkSet, dataDivider);
+
+		storage.writeInOneTransactionUsingSavepoints(List.of(write));
+
+		assertExecutedSql(databaseFacadeSpy, 1,
+				"insert into record (type, id, datadivider, data, compresseddata)"
+						+ " values (?, ?, ?, ?, ?) on conflict (type, id) do nothing");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 1);
+		assertEquals(recordValues.subList(0, 4),
+				Arrays.asList(someType, someId, dataDivider, null));
+		assertDecompressesToDataRecord((byte[]) recordValues.get(4));
+	}
+
+	@Test
+	public void testWriteUsingSavepointsUpdate() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		RecordWrite write = RecordWrite.forUpdate(someType, someId, dataRecord,
+				emptyStorageTerms, emptyLinkSet, dataDivider);
+
+		List<Optional<RuntimeException>> outcomes = storage
+				.writeInOneTransactionUsingSavepoints(List.of(write));
+
+		assertEquals(outcomes, List.of(Optional.empty()));
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 5);
+		assertExecutedSql(databaseFacadeSpy, 1,
+				"update record set datadivider = ?, data = ? where type = ? and id = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 1);
+		assertEquals(recordValues.get(0), dataDivider);
+		assertEquals(((PGobject) recordValues.get(1)).getValue(), getConvertedJson(dataRecord));
+		assertEquals(recordValues.subList(2, 4), List.of(someType, someId));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 2,
+				"delete from storageterm where recordtype = ? and recordid = ?",
+				List.of(someType, someId));
+		assertExecutedSqlAndValues(databaseFacadeSpy, 3,
+				"delete from link where fromtype = ? and fromid = ?", List.of(someType, someId));
+		assertExecutedSql(databaseFacadeSpy, 4, "release savepoint recordwrite");
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testWriteUsingSavepointsUpdateCompressed() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		storage = createStorageCompressingType(someType);
+		RecordWrite write = RecordWrite.forUpdate(someType, someId, dataRecord,
+				emptyStorageTerms, emptyLinkSet, dataDivider);
+
+		storage.writeInOneTransactionUsingSavepoints(List.of(write));
+
+		assertExecutedSql(databaseFacadeSpy, 1, "update record set datadivider = ?, data = ?,"
+				+ " compresseddata = ? where type = ? and id = ?");
+		List<?> recordValues = getExecutedValues(databaseFacadeSpy, 1);
+		assertEquals(recordValues.subList(0, 2), Arrays.asList(dataDivider, null));
+		assertDecompressesToDataRecord((byte[]) recordValues.get(2));
+		assertEquals(recordValues.subList(3, 5), List.of(someType, someId));
+	}
+
+	@Test
+	public void testWriteUsingSavepointsDelete() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+
+		List<Optional<RuntimeException>> outcomes = storage.writeInOneTransactionUsingSavepoints(
+				List.of(RecordWrite.forDelete(someType, someId)));
+
+		assertEquals(outcomes, List.of(Optional.empty()));
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 3);
+		assertExecutedSqlAndValues(databaseFacadeSpy, 1, "with deletedstorageterms as"
+				+ " (delete from storageterm where recordtype = ? and recordid = ?),"
+				+ " deletedlinks as (delete from link where fromtype = ? and fromid = ?)"
+				+ " delete from record where type = ? and id = ?",
+				List.of(someType, someId, someType, someId, someType, someId));
+		assertExecutedSql(databaseFacadeSpy, 2, "release savepoint recordwrite");
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testWriteUsingSavepointsNoRowsAffectedGivesOutcomePerWrite() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+		List<RecordWrite> writes = List.of(
+				RecordWrite.forCreate(someType, "id1", dataRecord, emptyStorageTerms,
+						emptyLinkSet, dataDivider),
+				RecordWrite.forUpdate(someType, "id2", dataRecord, emptyStorageTerms,
+						emptyLinkSet, dataDivider),
+				RecordWrite.forDelete(someType, "id3"));
+
+		List<Optional<RuntimeException>> outcomes = storage
+				.writeInOneTransactionUsingSavepoints(writes);
+
+		assertOutcome(outcomes.get(0), RecordConflictException.class,
+				"Record with type: someType, and id: id1 already exists in storage.");
+		assertOutcome(outcomes.get(1), RecordNotFoundException.class,
+				"Record not found when updating record with recordType: someType and id: id2.");
+		assertOutcome(outcomes.get(2), RecordNotFoundException.class,
+				"Record not found when deleting record with recordType: someType and id: id3.");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("executeSqlWithValues", 9);
+		assertExecutedSql(databaseFacadeSpy, 2, "rollback to savepoint recordwrite");
+		assertExecutedSql(databaseFacadeSpy, 5, "rollback to savepoint recordwrite");
+		assertExecutedSql(databaseFacadeSpy, 8, "rollback to savepoint recordwrite");
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	private void assertOutcome(Optional<RuntimeException> outcome,
+			Class<? extends RuntimeException> exceptionClass, String message) {
+		assertTrue(exceptionClass.isInstance(outcome.get()));
+		assertEquals(outcome.get().getMessage(), message);
+	}
+
+	@Test
+	public void testWriteUsingSavepointsErrorInWriteGivesStorageExceptionOutcome()
+			throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		int[] calls = { 0 };
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> {
+			if (calls[0]++ == 1) {
+				throw SqlDatabaseException.withMessage("Error from executeSqlWithValues");
+			}
+			return 1;
+		});
+
+		List<Optional<RuntimeException>> outcomes = storage.writeInOneTransactionUsingSavepoints(
+				List.of(RecordWrite.forDelete(someType, someId),
+						RecordWrite.forDelete(someType, "id2")));
+
+		assertOutcome(outcomes.get(0), StorageException.class,
+				"Storage exception when deleting record with recordType: someType and id: someId.");
+		assertEquals(outcomes.get(0).get().getCause().getMessage(),
+				"Error from executeSqlWithValues");
+		assertEquals(outcomes.get(1), Optional.empty());
+		assertExecutedSql(databaseFacadeSpy, 2, "rollback to savepoint recordwrite");
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testWriteUsingSavepointsTransactionErrorRollsBack() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.writeInOneTransactionUsingSavepoints(
+					List.of(RecordWrite.forDelete(someType, someId)));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(),
+					"Storage exception when writing 1 records in one transaction.");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
+		}
+		databaseFacadeSpy.MCR.assertMethodWasCalled("rollback");
+		databaseFacadeSpy.MCR.assertMethodNotCalled("endTransaction");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testRunInUnitOfWorkUsesOneDatabaseFacadeAndTransaction() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForUnitOfWork(new RowSpy());
+
+		String result = storage.runInUnitOfWork(unitOfWork -> {
+			assertTrue(unitOfWork.recordExists(LIST_WITH_ONE_TYPE, someId));
+			unitOfWork.read(someType, someId);
+			unitOfWork.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+					dataDivider);
+			unitOfWork.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+					dataDivider);
+			unitOfWork.deleteByTypeAndId(someType, someId);
+			return "someResult";
+		});
+
+		assertEquals(result, "someResult");
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("startTransaction", 1);
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 0, "sql",
+				"select exists(select 1 from record where type = any(?) and id = ?)"
+						+ " as recordexists");
+		databaseFacadeSpy.MCR.assertParameter("readOneRowOrFailUsingSqlAndValues", 1, "sql",
+				"select * from record where type = ? and id = ?");
+		assertExecutedSql(databaseFacadeSpy, 0, "insert into record"
+				+ " (type, id, datadivider, data) values (?, ?, ?, ?) on conflict (type, id)"
+				+ " do nothing");
+		assertExecutedSql(databaseFacadeSpy, 1,
+				"update record set datadivider = ?, data = ? where type = ? and id = ?");
+		assertExecutedSql(databaseFacadeSpy, 2,
+				"delete from storageterm where recordtype = ? and recordid = ?");
+		assertExecutedSql(databaseFacadeSpy, 3,
+				"delete from link where fromtype = ? and fromid = ?");
+		databaseFacadeSpy.MCR.assertParameterAsEqual("executeSqlWithValues", 4, "values",
+				List.of(someType, someId, someType, someId, someType, someId));
+		assertTransactionEndedAndClosed(databaseFacadeSpy);
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyForUnitOfWork(Row... recordRows) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyWithRecordRows(recordRows);
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> true, "recordexists");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> 1L, "count");
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> row);
+		return databaseFacadeSpy;
+	}
+
+	@Test
+	public void testRunInUnitOfWorkReadListUsesOneDatabaseFacade() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyForUnitOfWork(new RowSpy(),
+				new RowSpy(), new RowSpy());
+
+		StorageReadResult readResult = storage.runInUnitOfWork(unitOfWork -> {
+			assertEquals(unitOfWork.getTotalNumberOfRecordsForTypes(LIST_WITH_ONE_TYPE, filter),
+					1);
+			return unitOfWork.readList(LIST_WITH_ONE_TYPE, filter);
+		});
+
+		assertEquals(readResult.listOfDataGroups.size(), 3);
+		assertEquals(readResult.totalNumberOfMatches, 1);
+		sqlDatabaseFactorySpy.MCR.assertNumberOfCallsToMethod("factorDatabaseFacade", 1);
+		sqlDatabaseFactorySpy.MCR.assertMethodNotCalled("factorTableFacade");
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readOneRowOrFailUsingSqlAndValues", 2);
+		databaseFacadeSpy.MCR.assertNumberOfCallsToMethod("readUsingSqlAndValues", 1);
+		assertCountSqlAndValues(databaseFacadeSpy,
+				"select count(*) as count from recordstorageterm where type = any(?)",
+				new String[] { "someType" });
+		assertReadListSqlAndValues(databaseFacadeSpy,
+				"select * from recordstorageterm where type = any(?) order by id desc",
+				new String[] { "someType" });
+	}
+
+	@Test
+	public void testRunInUnitOfWorkRollsBackWhenWorkFails() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+						dataDivider);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(), "Record not found when updating record with "
+					+ "recordType: someType and id: someId.");
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	private void assertRolledBackAndClosed(DatabaseFacadeSpy databaseFacadeSpy) {
+		databaseFacadeSpy.MCR.assertMethodWasCalled("rollback");
+		databaseFacadeSpy.MCR.assertMethodNotCalled("endTransaction");
+		databaseFacadeSpy.MCR.assertMethodWasCalled("close");
+	}
+
+	@Test
+	public void testRunInUnitOfWorkDatabaseErrorIsWrapped() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		SqlDatabaseException databaseException = SqlDatabaseException.withMessage("someError");
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				throw databaseException;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Storage exception when running unit of work.");
+			assertSame(e.getCause(), databaseException);
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testRunInUnitOfWorkReadNotFound() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpyThrowingOnReadOneRow(
+				SqlNotFoundException.withMessage("Not found error from spy"));
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> unitOfWork.read(someType, someId));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"No record found for recordType(s): someType, with id: someId.");
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testRunInUnitOfWorkReadListError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnReadSql = true;
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> unitOfWork.readList(LIST_WITH_ONE_TYPE, filter));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(), "RecordType: [someType] not found in storage.");
+		}
+	}
+
+	@Test
+	public void testRunInUnitOfWorkCountError() throws Exception {
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow();
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> unitOfWork
+					.getTotalNumberOfRecordsForTypes(LIST_WITH_ONE_TYPE, filter));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(), "RecordType: [someType] not found in storage.");
+		}
+	}
+
+	private void setUpDatabaseFacadeSpyThrowingOnReadOneRow() {
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow(
+				SqlDatabaseException.withMessage("Error from spy"));
+	}
+
+	private DatabaseFacadeSpy setUpDatabaseFacadeSpyThrowingOnReadOneRow(
+			SqlDatabaseException exception) {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("readOneRowOrFailUsingSqlAndValues",
+				() -> {
+					throw exception;
+				});
+		return databaseFacadeSpy;
+	}
+
+	@Test
+	public void testRunInUnitOfWorkRecordExistsError() throws Exception {
+		setUpDatabaseFacadeSpyThrowingOnReadOneRow();
+
+		try {
+			storage.runInUnitOfWork(
+					unitOfWork -> unitOfWork.recordExists(LIST_WITH_ONE_TYPE, someId));
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(),
+					"RecordType: [someType] with id: someId, not found in storage.");
+		}
+	}
+
+	@Test
+	public void testRunInUnitOfWorkCreateConflict() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+						dataDivider);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordConflictException);
+			assertEquals(e.getMessage(),
+					"Record with type: someType, and id: someId already exists in storage.");
+		}
+		assertRolledBackAndClosed(databaseFacadeSpy);
+	}
+
+	@Test
+	public void testRunInUnitOfWorkCreateError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.create(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+						dataDivider);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Storage exception when creating record with "
+					+ "recordType: someType and id: someId.");
+			assertEquals(e.getCause().getMessage(), "Error from executeSqlWithValues in spy");
+		}
+	}
+
+	@Test
+	public void testRunInUnitOfWorkUpdateError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.update(someType, someId, dataRecord, emptyStorageTerms, emptyLinkSet,
+						dataDivider);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Storage exception when updating record with "
+					+ "recordType: someType and id: someId.");
+		}
+	}
+
+	@Test
+	public void testRunInUnitOfWorkDeleteNotFound() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 0);
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.deleteByTypeAndId(someType, someId);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof RecordNotFoundException);
+			assertEquals(e.getMessage(), "Record not found when deleting record with "
+					+ "recordType: someType and id: someId.");
+		}
+	}
+
+	@Test
+	public void testRunInUnitOfWorkDeleteError() throws Exception {
+		DatabaseFacadeSpy databaseFacadeSpy = setUpDatabaseFacadeSpy();
+		databaseFacadeSpy.throwExceptionOnExecuteSql = true;
+
+		try {
+			storage.runInUnitOfWork(unitOfWork -> {
+				unitOfWork.deleteByTypeAndId(someType, someId);
+				return null;
+			});
+			makeSureErrorIsThrownFromAboveStatements();
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Storage exception when deleting record with "
+					+ "recordType: someType and id: someId.");
+		}
 	}
 }
@@ -27,8 +27,8 @@ import java.lang.reflect.Modifier;
 
 import org.testng.annotations.Test;
 
-import se.uu.ub.cora.storage.RecordStorage;
-import se.uu.ub.cora.storage.spies.RecordStorageSpy;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
 
 public class DatabaseStorageInstanceTest {
 
@@ -50,7 +50,7 @@ public class DatabaseStorageInstanceTest {
 
 	@Test
 	public void testSetInstance() {
-		RecordStorage storage = new RecordStorageSpy();
+		SqlRecordStorage storage = new SqlRecordStorageSpy();
 		DatabaseStorageInstance.setInstance(storage);
 		assertSame(DatabaseStorageInstance.getInstance(), storage);
 	}
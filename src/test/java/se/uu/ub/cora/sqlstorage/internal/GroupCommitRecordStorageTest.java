@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.StorageException;
+
+public class GroupCommitRecordStorageTest {
+	private SqlRecordStorageSpy database;
+	private GroupCommitWriter writer;
+	private GroupCommitRecordStorage storage;
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+	private Set<StorageTerm> storageTerms = Set.of();
+	private Set<Link> links = Set.of();
+	private List<String> types = List.of("someType");
+	private Filter filter = new Filter();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		database = new SqlRecordStorageSpy();
+		writer = GroupCommitWriter.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(database, 10, 1);
+		storage = GroupCommitRecordStorage.usingDatabaseAndGroupCommitWriter(database, writer);
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		writer.close();
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(storage.onlyForTestGetDatabase(), database);
+		assertSame(storage.onlyForTestGetGroupCommitWriter(), writer);
+	}
+
+	@Test
+	public void testCreateIsGroupCommitted() throws Exception {
+		storage.create("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+
+		assertWritten(RecordWrite.forCreate("someType", "someId", dataRecord, storageTerms, links,
+				"someDataDivider"));
+	}
+
+	private void assertWritten(RecordWrite expectedWrite) {
+		assertWrittenUsing("writeInOneTransactionUsingSavepoints", expectedWrite);
+	}
+
+	private void assertWrittenUsing(String methodName, RecordWrite expectedWrite) {
+		Object writes = database.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				methodName, 0, "writes");
+		assertEquals(writes, List.of(expectedWrite));
+	}
+
+	@Test
+	public void testUpdateIsGroupCommitted() throws Exception {
+		storage.update("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+
+		assertWritten(RecordWrite.forUpdate("someType", "someId", dataRecord, storageTerms, links,
+				"someDataDivider"));
+	}
+
+	@Test
+	public void testDeleteIsGroupCommitted() throws Exception {
+		storage.deleteByTypeAndId("someType", "someId");
+
+		assertWritten(RecordWrite.forDelete("someType", "someId"));
+	}
+
+	@Test
+	public void testExceptionForWriteIsThrownToCaller() throws Exception {
+		database.idsToThrowExceptionForOnWrite.add("someId");
+
+		try {
+			storage.deleteByTypeAndId("someType", "someId");
+			fail("delete should fail");
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Error from SqlRecordStorageSpy for id: someId");
+		}
+	}
+
+	@Test
+	public void testReadsSentToDatabase() throws Exception {
+		storage.read("someType", "someId");
+		storage.read(types, "someId");
+		storage.readList("someType", filter);
+		storage.readList(types, filter);
+		storage.recordExists(types, "someId");
+		storage.linksExistForRecord("someType", "someId");
+		storage.getLinksToRecord("someType", "someId");
+		storage.getTotalNumberOfRecordsForTypes(types, filter);
+		LinkPageRequest pageRequest = LinkPageRequest.usingLimit(10);
+		storage.readLinksToRecord("someType", "someId", pageRequest);
+		storage.countLinksToRecord("someType", "someId");
+		LinkTraversalRequest traversalRequest = LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 2, 10);
+		storage.traverseLinks("someType", "someId", traversalRequest);
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo");
+		storage.readProjection("someType", "someId", projection);
+
+		database.MCR.assertParameters("read", 0, "someType", "someId");
+		database.MCR.assertParameters("read", 1, types, "someId");
+		database.MCR.assertParameters("readList", 0, "someType", filter);
+		database.MCR.assertParameters("readList", 1, types, filter);
+		database.MCR.assertParameters("recordExists", 0, types, "someId");
+		database.MCR.assertParameters("linksExistForRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("getLinksToRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("getTotalNumberOfRecordsForTypes", 0, types, filter);
+		database.MCR.assertParameters("readLinksToRecord", 0, "someType", "someId", pageRequest);
+		database.MCR.assertParameters("countLinksToRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("traverseLinks", 0, "someType", "someId",
+				traversalRequest);
+		database.MCR.assertParameters("readProjection", 0, "someType", "someId", projection);
+	}
+
+	@Test
+	public void testWriteInOneTransactionSentToDatabase() throws Exception {
+		List<RecordWrite> writes = List.of(RecordWrite.forDelete("someType", "someId"));
+
+		storage.writeInOneTransaction(writes);
+
+		assertWrittenUsing("writeInOneTransaction", RecordWrite.forDelete("someType", "someId"));
+	}
+
+	@Test
+	public void testWriteInOneTransactionUsingSavepointsSentToDatabase() throws Exception {
+		List<RecordWrite> writes = List.of(RecordWrite.forDelete("someType", "someId"));
+
+		List<Optional<RuntimeException>> outcomes = storage
+				.writeInOneTransactionUsingSavepoints(writes);
+
+		assertWritten(RecordWrite.forDelete("someType", "someId"));
+		database.MCR.assertReturn("writeInOneTransactionUsingSavepoints", 0, outcomes);
+	}
+
+	@Test
+	public void testRunInUnitOfWorkSentToDatabase() throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("runInUnitOfWork", () -> "someResult");
+		Function<UnitOfWork, String> work = unitOfWork -> "notCalledBySpy";
+
+		String result = storage.runInUnitOfWork(work);
+
+		database.MCR.assertParameters("runInUnitOfWork", 0, work);
+		assertEquals(result, "someResult");
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
+import se.uu.ub.cora.storage.RecordConflictException;
+
+public class GroupCommitWriterTest {
+	private SqlRecordStorageSpy database;
+	private GroupCommitWriter writer;
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		database = new SqlRecordStorageSpy();
+		writer = GroupCommitWriter.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(database, 3,
+				200);
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		writer.close();
+	}
+
+	private RecordWrite createWrite(String id) {
+		return RecordWrite.forCreate("someType", id, dataRecord, Set.of(), Set.of(),
+				"someDataDivider");
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(writer.onlyForTestGetDatabase(), database);
+		assertEquals(writer.onlyForTestGetMaxBatchSize(), 3);
+		assertEquals(writer.onlyForTestGetMaxWaitMillis(), 200L);
+	}
+
+	@Test
+	public void testSubmittedWriteIsCommittedAndFutureCompleted() throws Exception {
+		CompletableFuture<Void> result = writer.submit(createWrite("id1"));
+
+		result.get(5, TimeUnit.SECONDS);
+
+		assertWritesInTransaction(0, List.of(createWrite("id1")));
+	}
+
+	private void assertWritesInTransaction(int callNumber, List<RecordWrite> expectedWrites) {
+		Object writes = database.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"writeInOneTransactionUsingSavepoints", callNumber, "writes");
+		assertEquals(writes, expectedWrites);
+	}
+
+	@Test
+	public void testWritesSubmittedWithinWindowAreCommittedTogether() throws Exception {
+		List<CompletableFuture<Void>> results = submitWritesForIds("id1", "id2", "id3");
+
+		waitForAll(results);
+
+		database.MCR.assertNumberOfCallsToMethod("writeInOneTransactionUsingSavepoints",
+				1);
+		assertWritesInTransaction(0,
+				List.of(createWrite("id1"), createWrite("id2"), createWrite("id3")));
+	}
+
+	private List<CompletableFuture<Void>> submitWritesForIds(String... ids) {
+		List<CompletableFuture<Void>> results = new ArrayList<>();
+		for (String id : ids) {
+			results.add(writer.submit(createWrite(id)));
+		}
+		return results;
+	}
+
+	private void waitForAll(List<CompletableFuture<Void>> results) throws Exception {
+		CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5,
+				TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testBatchIsNotLargerThanMaxBatchSize() throws Exception {
+		List<CompletableFuture<Void>> results = submitWritesForIds("id1", "id2", "id3", "id4");
+
+		waitForAll(results);
+
+		database.MCR.assertNumberOfCallsToMethod("writeInOneTransactionUsingSavepoints",
+				2);
+		assertWritesInTransaction(1, List.of(createWrite("id4")));
+	}
+
+	@Test
+	public void testFailedWriteGetsItsOwnOutcomeInSameTransaction() throws Exception {
+		database.idsToThrowConflictForOnWrite.add("id2");
+
+		List<CompletableFuture<Void>> results = submitWritesForIds("id1", "id2", "id3");
+
+		results.get(0).get(5, TimeUnit.SECONDS);
+		results.get(2).get(5, TimeUnit.SECONDS);
+		try {
+			results.get(1).get(5, TimeUnit.SECONDS);
+			fail("write for id2 should fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RecordConflictException);
+			assertEquals(e.getCause().getMessage(),
+					"Conflict from SqlRecordStorageSpy for id: id2");
+		}
+		database.MCR.assertNumberOfCallsToMethod("writeInOneTransactionUsingSavepoints", 1);
+		database.MCR.assertMethodNotCalled("create");
+	}
+
+	@Test
+	public void testFailedTransactionFailsAllWritesInBatch() throws Exception {
+		database.throwExceptionOnWriteInOneTransaction = true;
+
+		List<CompletableFuture<Void>> results = submitWritesForIds("id1", "id2");
+
+		for (CompletableFuture<Void> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				fail("write should fail");
+			} catch (ExecutionException e) {
+				assertEquals(e.getCause().getMessage(), "Error from SqlRecordStorageSpy");
+			}
+		}
+		database.MCR.assertMethodNotCalled("create");
+	}
+
+	@Test
+	public void testPendingWritesFailWhenCommitterIsInterrupted() throws Exception {
+		writer.close();
+		writer = GroupCommitWriter.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(database, 10,
+				60_000);
+		CompletableFuture<Void> result = writer.submit(createWrite("id1"));
+		Thread committer = writer.onlyForTestGetCommitter();
+
+		committer.interrupt();
+		committer.join(5000);
+
+		assertFalse(committer.isAlive());
+		assertTrue(result.isDone());
+		assertFailsAsClosed(writer.submit(createWrite("id2")));
+	}
+
+	private void assertFailsAsClosed(CompletableFuture<Void> result) throws Exception {
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			fail("write should fail");
+		} catch (ExecutionException e) {
+			assertEquals(e.getCause().getMessage(), "GroupCommitWriter is closed.");
+		}
+	}
+
+	@Test
+	public void testCloseCommitsSubmittedWrites() throws Exception {
+		writer.close();
+		writer = GroupCommitWriter.usingDatabaseAndMaxBatchSizeAndMaxWaitMillis(database, 10,
+				1000);
+		CompletableFuture<Void> result = writer.submit(createWrite("id1"));
+
+		writer.close();
+
+		assertTrue(result.isDone());
+		assertWritesInTransaction(0, List.of(createWrite("id1")));
+	}
+
+	@Test
+	public void testSubmitAfterCloseFails() throws Exception {
+		writer.close();
+
+		CompletableFuture<Void> result = writer.submit(createWrite("id1"));
+
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			fail("submit after close should fail");
+		} catch (ExecutionException e) {
+			assertEquals(e.getCause().getMessage(), "GroupCommitWriter is closed.");
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.storage.StorageException;
+
+public class LinkCursorTest {
+
+	@Test
+	public void testEncodeAndDecode() throws Exception {
+		LinkCursor cursor = new LinkCursor("someType", "someId");
+
+		String encoded = cursor.encode();
+
+		assertEquals(LinkCursor.decode(encoded), cursor);
+	}
+
+	@Test
+	public void testEncodedCursorIsUrlSafe() throws Exception {
+		String encoded = new LinkCursor("type/?", "id+with spaces \u00e5\u00e4\u00f6").encode();
+
+		assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+		assertEquals(LinkCursor.decode(encoded), new LinkCursor("type/?", "id+with spaces \u00e5\u00e4\u00f6"));
+	}
+
+	@Test
+	public void testDecodeNotBase64() throws Exception {
+		try {
+			LinkCursor.decode("not a cursor!");
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Invalid link cursor: not a cursor!.");
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test
+	public void testDecodeWrongNumberOfParts() throws Exception {
+		try {
+			LinkCursor.decode("c29tZVR5cGU");
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Invalid link cursor: c29tZVR5cGU.");
+		}
+	}
+
+	@Test
+	public void testLinkPageHasNextPage() throws Exception {
+		assertTrue(new LinkPage(List.of(), "someCursor").hasNextPage());
+		assertFalse(new LinkPage(List.of(), null).hasNextPage());
+	}
+
+	@Test
+	public void testLinkPageRequestLimitMustBePositive() throws Exception {
+		try {
+			LinkPageRequest.usingLimit(0);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof IllegalArgumentException);
+			assertEquals(e.getMessage(), "Limit must be at least 1, was: 0.");
+		}
+	}
+
+	@Test
+	public void testLinkTraversalRequestMaxDepthAndLimitMustBePositive() throws Exception {
+		try {
+			LinkTraversalRequest.usingDirectionAndMaxDepthAndLimit(
+					LinkTraversalRequest.Direction.LINKS_TO_RECORD, 0, 10);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof IllegalArgumentException);
+			assertEquals(e.getMessage(), "MaxDepth and limit must be at least 1, was: 0 and 10.");
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.converter.JsonToDataConverterProvider;
+import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterFactorySpy;
+import se.uu.ub.cora.sqlstorage.spy.json.JsonToDataConverterSpy;
+
+public class ParsingRecordJsonConverterTest {
+	private JsonParserSpy jsonParser;
+	private JsonToDataConverterFactorySpy jsonToDataConverterFactory;
+	private ParsingRecordJsonConverter converter;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		jsonToDataConverterFactory = new JsonToDataConverterFactorySpy();
+		JsonToDataConverterProvider.setJsonToDataConverterFactory(jsonToDataConverterFactory);
+		jsonParser = new JsonParserSpy();
+		converter = ParsingRecordJsonConverter.usingJsonParser(jsonParser);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(converter.onlyForTestGetJsonParser(), jsonParser);
+	}
+
+	@Test
+	public void testConvertParsesAndConvertsJson() throws Exception {
+		DataGroup dataGroup = converter.convert("someJson");
+
+		jsonParser.MCR.assertParameters("parseString", 0, "someJson");
+		var jsonValue = jsonParser.MCR.getReturnValue("parseString", 0);
+		jsonToDataConverterFactory.MCR.assertParameters("createForJsonObject", 0, jsonValue);
+		JsonToDataConverterSpy jsonToDataConverter = (JsonToDataConverterSpy) jsonToDataConverterFactory.MCR
+				.getReturnValue("createForJsonObject", 0);
+		jsonToDataConverter.MCR.assertReturn("toInstance", 0, dataGroup);
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+
+public class QueryTemplateCacheTest {
+	private QueryTemplateCache cache;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		cache = QueryTemplateCache.usingReadCompressedData(false);
+	}
+
+	@Test
+	public void testLinksToRecordSql() throws Exception {
+		String start = "select fromtype, fromid from link where totype = ? and toid = ?";
+		String cursor = " and (fromtype collate \"C\", fromid collate \"C\") > (?, ?)";
+		String end = " order by fromtype collate \"C\", fromid collate \"C\" limit ?";
+
+		assertEquals(cache.getLinksToRecordSql(false, false), start + end);
+		assertEquals(cache.getLinksToRecordSql(true, false), start + " and fromtype = ?" + end);
+		assertEquals(cache.getLinksToRecordSql(false, true),
+				start + cursor + end);
+		assertEquals(cache.getLinksToRecordSql(true, true),
+				start + " and fromtype = ?" + cursor + end);
+	}
+
+	@Test
+	public void testLinksToRecordSqlIsSameInstanceForSameShape() throws Exception {
+		assertSame(cache.getLinksToRecordSql(true, true), cache.getLinksToRecordSql(true, true));
+	}
+
+	@Test
+	public void testTraverseLinksSqlLinksToRecord() throws Exception {
+		String sql = cache.getTraverseLinksSql(Direction.LINKS_TO_RECORD, false);
+
+		assertEquals(sql, "with recursive reachable (type, id, depth)"
+				+ " as (select ?::text, ?::text, 0 union select l.fromtype, l.fromid, r.depth + 1"
+				+ " from reachable r join link l on l.totype = r.type and l.toid = r.id"
+				+ " where r.depth < ?)"
+				+ " select type collate \"C\" as type, id collate \"C\" as id, min(depth) as depth"
+				+ " from reachable where depth > 0 and (type, id) <> (?, ?)"
+				+ " group by reachable.type, reachable.id order by depth, type, id limit ?");
+	}
+
+	@Test
+	public void testTraverseLinksSqlLinksFromRecordWithTypes() throws Exception {
+		String sql = cache.getTraverseLinksSql(Direction.LINKS_FROM_RECORD, true);
+
+		assertTrue(sql.contains(" union select l.totype, l.toid, r.depth + 1"
+				+ " from reachable r join link l on l.fromtype = r.type and l.fromid = r.id"
+				+ " where r.depth < ? and l.totype = any(?))"));
+	}
+
+	@Test
+	public void testTraverseLinksSqlIsSameInstanceForSameShape() throws Exception {
+		assertSame(cache.getTraverseLinksSql(Direction.LINKS_TO_RECORD, true),
+				cache.getTraverseLinksSql(Direction.LINKS_TO_RECORD, true));
+	}
+
+	@Test
+	public void testProjectionSql() throws Exception {
+		assertEquals(cache.getProjectionSql(2), "select data->>'name' as name"
+				+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path0"
+				+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path1"
+				+ " from record where type = ? and id = ?");
+	}
+
+	@Test
+	public void testProjectionSqlReadCompressedData() throws Exception {
+		cache = QueryTemplateCache.usingReadCompressedData(true);
+
+		assertEquals(cache.getProjectionSql(1), "select data->>'name' as name, compresseddata"
+				+ ", jsonb_path_query_array(data::jsonb, ?::jsonpath) as path0"
+				+ " from record where type = ? and id = ?");
+	}
+
+	@Test
+	public void testProjectionSqlIsCachedPerNumberOfPaths() throws Exception {
+		String sql = cache.getProjectionSql(1);
+
+		assertSame(cache.getProjectionSql(1), sql);
+		cache.getProjectionSql(2);
+		assertEquals(cache.onlyForTestGetNumberOfCachedProjections(), 2);
+	}
+
+	@Test
+	public void testProjectionSqlWithMoreThanMaxPathsIsNotCached() throws Exception {
+		int numberOfPaths = QueryTemplateCache.MAX_CACHED_PROJECTION_PATHS + 1;
+
+		String sql = cache.getProjectionSql(numberOfPaths);
+
+		assertTrue(sql.endsWith("?::jsonpath) as path" + (numberOfPaths - 1)
+				+ " from record where type = ? and id = ?"));
+		assertEquals(cache.onlyForTestGetNumberOfCachedProjections(), 0);
+	}
+
+	@Test
+	public void testReadListSql() throws Exception {
+		String start = "select * from recordstorageterm where type = any(?)";
+
+		assertEquals(cache.getReadListSql(0, false, false), start + " order by id desc");
+		assertEquals(cache.getReadListSql(0, true, false), start + " order by id desc offset ?");
+		assertEquals(cache.getReadListSql(0, false, true), start + " order by id desc limit ?");
+		assertEquals(cache.getReadListSql(2, true, true),
+				start + " and storagekey = ? and value = ? and storagekey = ? and value = ?"
+						+ " order by id desc offset ? limit ?");
+	}
+
+	@Test
+	public void testCountSql() throws Exception {
+		String start = "select count(*) as count from recordstorageterm where type = any(?)";
+
+		assertEquals(cache.getCountSql(0), start);
+		assertEquals(cache.getCountSql(1), start + " and storagekey = ? and value = ?");
+	}
+
+	@Test
+	public void testListSqlIsCachedPerShape() throws Exception {
+		String sql = cache.getReadListSql(1, true, false);
+
+		assertSame(cache.getReadListSql(1, true, false), sql);
+		cache.getReadListSql(1, false, false);
+		cache.getCountSql(1);
+		assertSame(cache.getCountSql(1), cache.getCountSql(1));
+		assertEquals(cache.onlyForTestGetNumberOfCachedLists(), 3);
+	}
+
+	@Test
+	public void testListSqlWithMoreThanMaxConditionsIsNotCached() throws Exception {
+		int numberOfConditions = QueryTemplateCache.MAX_CACHED_LIST_CONDITIONS + 1;
+
+		String sql = cache.getReadListSql(numberOfConditions, false, true);
+		String countSql = cache.getCountSql(numberOfConditions);
+
+		assertEquals(sql.split("storagekey = \\?", -1).length - 1, numberOfConditions);
+		assertTrue(sql.endsWith(" and value = ? order by id desc limit ?"));
+		assertEquals(countSql.split("storagekey = \\?", -1).length - 1, numberOfConditions);
+		assertEquals(cache.onlyForTestGetNumberOfCachedLists(), 0);
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataLink;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.sqlstorage.spy.sql.RowSpy;
+import se.uu.ub.cora.storage.StorageException;
+
+public class RecordDataCompressorTest {
+	private static final String JSON = "{\"name\":\"someName\",\"children\":[\"s\u00e5me\"]}";
+	private RecordDataCompressor compressor;
+	private DataFactorySpy dataFactory;
+	private DataGroupSpy dataRecord;
+	private DataGroupSpy groupFromJson;
+	private List<String> convertedJson;
+	private Function<String, DataGroup> jsonToDataGroup;
+	private List<DataGroup> convertedToJson;
+	private Function<DataGroup, String> dataGroupToJson;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		dataFactory = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactory);
+		compressor = RecordDataCompressor.usingCompressedTypesAndThreshold(Set.of("someType"), 10);
+		dataRecord = new DataGroupSpy();
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "someNameInData");
+		groupFromJson = new DataGroupSpy();
+		convertedJson = new ArrayList<>();
+		jsonToDataGroup = json -> {
+			convertedJson.add(json);
+			return groupFromJson;
+		};
+		convertedToJson = new ArrayList<>();
+		dataGroupToJson = dataGroup -> {
+			convertedToJson.add(dataGroup);
+			return JSON;
+		};
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertEquals(compressor.onlyForTestGetCompressedTypes(), Set.of("someType"));
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 10);
+		assertTrue(compressor.isEnabled());
+	}
+
+	@Test
+	public void testNoCompression() throws Exception {
+		compressor = RecordDataCompressor.noCompression();
+
+		assertFalse(compressor.isEnabled());
+		assertTrue(compressor.possiblyCompress("someType", dataRecord, dataGroupToJson).isEmpty());
+	}
+
+	@Test
+	public void testNotCompressedForOtherType() throws Exception {
+		Optional<byte[]> compressed = compressor.possiblyCompress("someOtherType", dataRecord,
+				dataGroupToJson);
+
+		assertTrue(compressed.isEmpty());
+		dataRecord.MCR.assertMethodNotCalled("getNameInData");
+	}
+
+	@Test
+	public void testNotCompressedBelowThreshold() throws Exception {
+		compressor = RecordDataCompressor.usingCompressedTypesAndThreshold(Set.of("someType"),
+				1000);
+
+		assertTrue(compressor.possiblyCompress("someType", dataRecord, dataGroupToJson).isEmpty());
+	}
+
+	@Test
+	public void testCompressAndDecompress() throws Exception {
+		byte[] compressed = compressor.possiblyCompress("someType", dataRecord, dataGroupToJson)
+				.get();
+
+		assertEquals(compressed[0], 2);
+		DataGroup decompressed = RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "someNameInData");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, decompressed);
+		assertTrue(convertedJson.isEmpty());
+		assertTrue(convertedToJson.isEmpty());
+	}
+
+	@Test
+	public void testCompressAndDecompressConcurrently() throws Exception {
+		List<Thread> threads = new ArrayList<>();
+		List<String> errors = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 8; i++) {
+			String json = "{\"thread\":\"" + i + "\"}".repeat(i + 1);
+			Thread thread = new Thread(() -> compressAndDecompressRepeatedly(json, errors));
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(errors, List.of());
+	}
+
+	private void compressAndDecompressRepeatedly(String json, List<String> errors) {
+		for (int i = 0; i < 200; i++) {
+			byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(json));
+			RecordDataCompressor.decompress(compressed, decompressedJson -> {
+				if (!json.equals(decompressedJson)) {
+					errors.add(decompressedJson);
+				}
+				return null;
+			});
+		}
+	}
+
+	@Test
+	public void testRecordThatCanNotBeBinaryEncodedIsCompressedAsJson() throws Exception {
+		DataLink resourceLink = new DataLink() {
+		};
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(resourceLink));
+
+		byte[] compressed = compressor.possiblyCompress("someType", dataRecord, dataGroupToJson)
+				.get();
+
+		assertEquals(compressed[0], 1);
+		assertEquals(convertedToJson, List.of(dataRecord));
+		DataGroup decompressed = RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+		assertEquals(convertedJson, List.of(JSON));
+		assertSame(decompressed, groupFromJson);
+	}
+
+	@Test
+	public void testThresholdAppliesToJsonSizeForRecordCompressedAsJson() throws Exception {
+		compressor = RecordDataCompressor.usingCompressedTypesAndThreshold(Set.of("someType"),
+				toBytes(JSON).length + 1);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(new DataLink() {
+				}));
+
+		assertTrue(compressor.possiblyCompress("someType", dataRecord, dataGroupToJson)
+				.isEmpty());
+		assertEquals(convertedToJson, List.of(dataRecord));
+	}
+
+	@Test
+	public void testDecompressJson() throws Exception {
+		byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+
+		DataGroup decompressed = RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+
+		assertEquals(convertedJson, List.of(JSON));
+		assertSame(decompressed, groupFromJson);
+	}
+
+	private byte[] toBytes(String json) {
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testCompressLargeData() throws Exception {
+		String largeJson = JSON.repeat(1000);
+
+		byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(largeJson));
+
+		assertTrue(compressed.length < largeJson.length() / 10);
+		RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+		assertEquals(convertedJson, List.of(largeJson));
+	}
+
+	@Test
+	public void testCompressTwiceGivesSameResult() throws Exception {
+		byte[] first = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+		byte[] second = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+
+		assertEquals(second, first);
+	}
+
+	@Test
+	public void testCompressAndDecompressSmallDataAfterLargeData() throws Exception {
+		String largeJson = JSON.repeat(50000);
+		byte[] compressedLarge = RecordDataCompressor.compress((byte) 1, toBytes(largeJson));
+		RecordDataCompressor.decompress(compressedLarge, jsonToDataGroup);
+
+		byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+		RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+
+		assertEquals(convertedJson, List.of(largeJson, JSON));
+	}
+
+	@Test
+	public void testDecompressUnknownFormat() throws Exception {
+		byte[] compressed = RecordDataCompressor.compress((byte) 7, toBytes(JSON));
+		try {
+			RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Unknown format of compressed record data: 7.");
+		}
+	}
+
+	@Test
+	public void testDecompressCorruptData() throws Exception {
+		byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+		Arrays.fill(compressed, 5, compressed.length, (byte) -1);
+		try {
+			RecordDataCompressor.decompress(compressed, jsonToDataGroup);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Compressed record data is corrupt.");
+		}
+	}
+
+	@Test
+	public void testDecompressIncompleteData() throws Exception {
+		byte[] compressed = RecordDataCompressor.compress((byte) 1, toBytes(JSON));
+		byte[] incomplete = Arrays.copyOf(compressed, compressed.length - 4);
+		try {
+			RecordDataCompressor.decompress(incomplete, jsonToDataGroup);
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Compressed record data is incomplete.");
+		}
+	}
+
+	@Test
+	public void testReadDataGroupFromRowWithData() throws Exception {
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> JSON, "data");
+
+		DataGroup dataGroup = RecordDataCompressor.readDataGroupFromRow(row, jsonToDataGroup);
+
+		assertSame(dataGroup, groupFromJson);
+		assertEquals(convertedJson, List.of(JSON));
+		row.MCR.assertNumberOfCallsToMethod("getValueByColumn", 1);
+	}
+
+	@Test
+	public void testReadDataGroupFromRowWithCompressedData() throws Exception {
+		byte[] compressed = compressor.possiblyCompress("someType", dataRecord, dataGroupToJson)
+				.get();
+		RowSpy row = new RowSpy();
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> null, "data");
+		row.MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> compressed,
+				"compresseddata");
+
+		DataGroup dataGroup = RecordDataCompressor.readDataGroupFromRow(row, jsonToDataGroup);
+
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, dataGroup);
+		row.MCR.assertParameters("getValueByColumn", 0, "data");
+		row.MCR.assertParameters("getValueByColumn", 1, "compresseddata");
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.postgresql.util.PGobject;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.storage.StorageException;
+
+public class RecordDataTypeTest {
+
+	@Test
+	public void testTypeNames() throws Exception {
+		assertEquals(RecordDataType.JSON.typeName(), "json");
+		assertEquals(RecordDataType.JSONB.typeName(), "jsonb");
+	}
+
+	@Test
+	public void testFromTypeName() throws Exception {
+		assertEquals(RecordDataType.fromTypeName("json"), RecordDataType.JSON);
+		assertEquals(RecordDataType.fromTypeName("jsonb"), RecordDataType.JSONB);
+	}
+
+	@Test
+	public void testFromUnknownTypeName() throws Exception {
+		try {
+			RecordDataType.fromTypeName("xml");
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "No RecordDataType exists for typeName: xml.");
+		}
+	}
+
+	@Test
+	public void testReadJsonFromString() throws Exception {
+		String json = "{\"name\":\"someName\"}";
+
+		assertSame(RecordDataType.readJsonFromColumnValue(json), json);
+	}
+
+	@Test
+	public void testReadJsonFromPGobject() throws Exception {
+		String json = "{\"name\":\"someName\"}";
+		PGobject pgObject = new PGobject();
+		pgObject.setType("jsonb");
+		pgObject.setValue(json);
+
+		assertSame(RecordDataType.readJsonFromColumnValue(pgObject), json);
+	}
+}
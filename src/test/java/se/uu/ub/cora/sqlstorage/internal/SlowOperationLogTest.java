@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+import se.uu.ub.cora.storage.Condition;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.Part;
+import se.uu.ub.cora.storage.RelationalOperator;
+
+public class SlowOperationLogTest {
+	private static final List<String> TYPES = List.of("someType", "someOtherType");
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+	private LoggerFactorySpy loggerFactorySpy;
+	private Filter filter;
+	private Supplier<String> queryPlanSupplier = () -> "someQueryPlan";
+	private Supplier<String> failingQueryPlanSupplier = () -> {
+		fail("query plan should not be read");
+		return null;
+	};
+
+	@BeforeMethod
+	public void beforeMethod() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		filter = new Filter();
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(200, 0.1);
+
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), 200);
+		assertEquals(slowOperationLog.onlyForTestGetExplainSampleRate(), 0.1);
+		assertFalse(slowOperationLog.onlyForTestGetExplainAnalyze());
+	}
+
+	@Test
+	public void testExplainSqlWithoutAnalyzeByDefault() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(200, 0.1);
+
+		assertEquals(slowOperationLog.createExplainSql("someSql"), "explain someSql");
+	}
+
+	@Test
+	public void testWithExplainAnalyze() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(200, 0.1).withExplainAnalyze(true);
+
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), 200);
+		assertEquals(slowOperationLog.onlyForTestGetExplainSampleRate(), 0.1);
+		assertTrue(slowOperationLog.onlyForTestGetExplainAnalyze());
+		assertEquals(slowOperationLog.createExplainSql("someSql"),
+				"explain (analyze, buffers) someSql");
+	}
+
+	@Test
+	public void testNoLogNeverLogs() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog.noLog();
+
+		slowOperationLog.logIfSlow("readList", TYPES, filter, 10, Long.MAX_VALUE - 1,
+				failingQueryPlanSupplier);
+
+		loggerFactorySpy.MCR.assertMethodNotCalled("factorForClass");
+	}
+
+	@Test
+	public void testOperationFasterThanThresholdIsNotLogged() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(1000, 1);
+
+		slowOperationLog.logIfSlow("readList", TYPES, filter, 10, ONE_SECOND - 1,
+				failingQueryPlanSupplier);
+
+		loggerFactorySpy.MCR.assertMethodNotCalled("factorForClass");
+	}
+
+	@Test
+	public void testSlowOperationIsLoggedWithoutQueryPlan() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(1000, 0);
+
+		slowOperationLog.logIfSlow("readList", TYPES, filter, 10, ONE_SECOND,
+				failingQueryPlanSupplier);
+
+		getLoggerSpy().MCR.assertParameters("logWarnUsingMessage", 0,
+				"Slow readList for types: [someType, someOtherType] with filter: "
+						+ "include: [], exclude: [], rows: 10, took: 1000 ms");
+	}
+
+	@Test
+	public void testSlowOperationWithoutQueryPlanSupplierIsLoggedWithoutQueryPlan()
+			throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(1000, 1);
+
+		slowOperationLog.logIfSlow("readList", TYPES, filter, 10, ONE_SECOND);
+
+		getLoggerSpy().MCR.assertParameters("logWarnUsingMessage", 0,
+				"Slow readList for types: [someType, someOtherType] with filter: "
+						+ "include: [], exclude: [], rows: 10, took: 1000 ms");
+	}
+
+	private LoggerSpy getLoggerSpy() {
+		loggerFactorySpy.MCR.assertParameters("factorForClass", 0, SlowOperationLog.class);
+		return (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 0);
+	}
+
+	@Test
+	public void testSlowOperationIsLoggedWithQueryPlanWhenSampled() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(1000, 1);
+
+		slowOperationLog.logIfSlow("getTotalNumberOfRecordsForTypes", TYPES, filter, 4711,
+				ONE_SECOND, queryPlanSupplier);
+
+		getLoggerSpy().MCR.assertParameters("logWarnUsingMessage", 0,
+				"Slow getTotalNumberOfRecordsForTypes for types: [someType, someOtherType] with "
+						+ "filter: include: [], exclude: [], rows: 4711, took: 1000 ms, "
+						+ "query plan:\nsomeQueryPlan");
+	}
+
+	@Test
+	public void testErrorReadingQueryPlanIsLogged() throws Exception {
+		SlowOperationLog slowOperationLog = SlowOperationLog
+				.usingThresholdMillisAndExplainSampleRate(1000, 1);
+		RuntimeException error = new RuntimeException("someError");
+
+		slowOperationLog.logIfSlow("readList", TYPES, filter, 10, ONE_SECOND, () -> {
+			throw error;
+		});
+
+		LoggerSpy loggerSpy = getLoggerSpy();
+		loggerSpy.MCR.assertParameters("logWarnUsingMessage", 0,
+				"Slow readList for types: [someType, someOtherType] with filter: "
+						+ "include: [], exclude: [], rows: 10, took: 1000 ms");
+		loggerSpy.MCR.assertParameters("logWarnUsingMessageAndException", 0,
+				"Could not read query plan for slow readList.", error);
+	}
+
+	@Test
+	public void testNormalizeFilterLeavesOutValues() throws Exception {
+		filter.include.add(createPart(
+				new Condition("title", RelationalOperator.EQUAL_TO, "someTitle"),
+				new Condition("year", RelationalOperator.LIKE, "2026")));
+		filter.include.add(createPart(
+				new Condition("author", RelationalOperator.EQUAL_TO, "someAuthor")));
+		filter.exclude.add(createPart(
+				new Condition("status", RelationalOperator.EQUAL_TO, "deleted")));
+		filter.fromNo = 11;
+		filter.toNo = 20;
+
+		assertEquals(SlowOperationLog.normalizeFilter(filter),
+				"include: [title EQUAL_TO ? and year LIKE ?, author EQUAL_TO ?], "
+						+ "exclude: [status EQUAL_TO ?], fromNo: ?, toNo: ?");
+	}
+
+	private Part createPart(Condition... conditions) {
+		Part part = new Part();
+		part.conditions.addAll(List.of(conditions));
+		return part;
+	}
+}
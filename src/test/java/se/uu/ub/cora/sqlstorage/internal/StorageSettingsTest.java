@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.initialize.InitializationException;
+import se.uu.ub.cora.initialize.SettingsProvider;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.JsonParserSpy;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlDatabaseFactorySpy;
+
+public class StorageSettingsTest {
+	private Map<String, String> settingsMap;
+	private LoggerSpy logger;
+	private StorageSettings settings;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		settingsMap = new HashMap<>();
+		SettingsProvider.setSettings(settingsMap);
+		logger = new LoggerSpy();
+		settings = StorageSettings.usingLoggerAndProviderName(logger, "SomeProvider");
+	}
+
+	@Test
+	public void testReadDatabaseLookupName() throws Exception {
+		settingsMap.put("coraDatabaseLookupName", "someLookupName");
+
+		assertEquals(settings.readDatabaseLookupName(), "someLookupName");
+	}
+
+	@Test(expectedExceptions = InitializationException.class)
+	public void testReadDatabaseLookupNameNotSet() throws Exception {
+		settings.readDatabaseLookupName();
+	}
+
+	@Test
+	public void testGetSettingOrDefault() throws Exception {
+		settingsMap.put("someSetting", "someValue");
+
+		assertEquals(settings.getSettingOrDefault("someSetting", "default"), "someValue");
+		assertEquals(settings.getSettingOrDefault("otherSetting", "default"), "default");
+	}
+
+	@Test
+	public void testGetIntAndLongSettingOrDefault() throws Exception {
+		settingsMap.put("someSetting", "12");
+
+		assertEquals(settings.getIntSettingOrDefault("someSetting", 5), 12);
+		assertEquals(settings.getIntSettingOrDefault("otherSetting", 5), 5);
+		assertEquals(settings.getLongSettingOrDefault("someSetting", 5), 12);
+		assertEquals(settings.getLongSettingOrDefault("otherSetting", 5), 5);
+	}
+
+	@Test
+	public void testGetTypesSetting() throws Exception {
+		settingsMap.put("someTypes", " someType, ,otherType,");
+
+		assertEquals(settings.getTypesSetting("someTypes"), Set.of("someType", "otherType"));
+		assertEquals(settings.getTypesSetting("otherTypes"), Set.of());
+	}
+
+	@Test
+	public void testDefaultDatabaseRecordStorageOptions() throws Exception {
+		DatabaseRecordStorageOptions options = settings.readDatabaseRecordStorageOptions();
+
+		assertEquals(options.recordDataType(), RecordDataType.JSON);
+		assertFalse(options.recordDataCompressor().isEnabled());
+		assertEquals(options.slowOperationLog().onlyForTestGetThresholdMillis(), Long.MAX_VALUE);
+		logger.MCR.assertMethodNotCalled("logInfoUsingMessage");
+	}
+
+	@Test
+	public void testDatabaseRecordStorageOptionsFromSettings() throws Exception {
+		settingsMap.put("recordDataType", "jsonb");
+		settingsMap.put("compressedRecordTypes", "someType");
+		settingsMap.put("compressionThresholdBytes", "100");
+		settingsMap.put("slowOperationThresholdMillis", "200");
+		settingsMap.put("slowOperationExplainSampleRate", "0.5");
+		settingsMap.put("slowOperationExplainAnalyze", "true");
+
+		DatabaseRecordStorageOptions options = settings.readDatabaseRecordStorageOptions();
+
+		assertEquals(options.recordDataType(), RecordDataType.JSONB);
+		RecordDataCompressor compressor = options.recordDataCompressor();
+		assertEquals(compressor.onlyForTestGetCompressedTypes(), Set.of("someType"));
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 100);
+		SlowOperationLog slowOperationLog = options.slowOperationLog();
+		assertEquals(slowOperationLog.onlyForTestGetThresholdMillis(), 200);
+		assertEquals(slowOperationLog.onlyForTestGetExplainSampleRate(), 0.5);
+		assertTrue(slowOperationLog.onlyForTestGetExplainAnalyze());
+		logger.MCR.assertParameters("logInfoUsingMessage", 0,
+				"SomeProvider compressing records of types: someType with at least 100 bytes");
+		logger.MCR.assertParameters("logInfoUsingMessage", 1,
+				"SomeProvider logging operations slower than 200 ms with explainSampleRate: 0.5"
+						+ " and explainAnalyze: true");
+	}
+
+	@Test
+	public void testDefaultCompressionThreshold() throws Exception {
+		settingsMap.put("compressedRecordTypes", "someType");
+
+		RecordDataCompressor compressor = settings.readDatabaseRecordStorageOptions()
+				.recordDataCompressor();
+
+		assertEquals(compressor.onlyForTestGetThresholdInBytes(), 8192);
+	}
+
+	@Test
+	public void testCreateParsingRecordJsonConverter() throws Exception {
+		JsonParserSpy jsonParser = new JsonParserSpy();
+
+		ParsingRecordJsonConverter converter = (ParsingRecordJsonConverter) settings
+				.createRecordJsonConverter(jsonParser);
+
+		assertSame(converter.onlyForTestGetJsonParser(), jsonParser);
+		logger.MCR.assertMethodNotCalled("logInfoUsingMessage");
+	}
+
+	@Test
+	public void testCreateStreamingRecordJsonConverter() throws Exception {
+		settingsMap.put("recordJsonConverter", "streaming");
+		JsonParserSpy jsonParser = new JsonParserSpy();
+
+		StreamingRecordJsonConverter converter = (StreamingRecordJsonConverter) settings
+				.createRecordJsonConverter(jsonParser);
+
+		ParsingRecordJsonConverter fallback = (ParsingRecordJsonConverter) converter
+				.onlyForTestGetFallbackConverter();
+		assertSame(fallback.onlyForTestGetJsonParser(), jsonParser);
+		logger.MCR.assertParameters("logInfoUsingMessage", 0,
+				"SomeProvider using streaming json converter");
+	}
+
+	@Test
+	public void testNoGroupCommit() throws Exception {
+		DatabaseRecordStorage database = createDatabase();
+
+		assertSame(settings.possiblyUseGroupCommit(database), database);
+	}
+
+	private DatabaseRecordStorage createDatabase() {
+		return new DatabaseRecordStorage(new SqlDatabaseFactorySpy(), new JsonParserSpy());
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		settingsMap.put("groupCommitMaxBatchSize", "50");
+		DatabaseRecordStorage database = createDatabase();
+
+		GroupCommitRecordStorage groupCommitStorage = (GroupCommitRecordStorage) settings
+				.possiblyUseGroupCommit(database);
+
+		assertSame(groupCommitStorage.onlyForTestGetDatabase(), database);
+		GroupCommitWriter writer = groupCommitStorage.onlyForTestGetGroupCommitWriter();
+		assertEquals(writer.onlyForTestGetMaxBatchSize(), 50);
+		assertEquals(writer.onlyForTestGetMaxWaitMillis(), 5);
+		logger.MCR.assertParameters("logInfoUsingMessage", 0,
+				"SomeProvider using group commit with maxBatchSize: 50 and maxWaitMillis: 5");
+		writer.close();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.internal;
+
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
+
+public class StreamingRecordJsonConverterTest {
+	private DataFactorySpy dataFactory;
+	private RecordJsonConverterSpy fallbackConverter;
+	private StreamingRecordJsonConverter converter;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		dataFactory = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactory);
+		fallbackConverter = new RecordJsonConverterSpy();
+		converter = StreamingRecordJsonConverter.usingFallbackConverter(fallbackConverter);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(converter.onlyForTestGetFallbackConverter(), fallbackConverter);
+	}
+
+	@Test
+	public void testConvertEmptyGroup() throws Exception {
+		DataGroup dataGroup = converter.convert("{\"name\":\"book\",\"children\":[]}");
+
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataFactory.MCR.assertReturn("factorGroupUsingNameInData", 0, dataGroup);
+		fallbackConverter.MCR.assertMethodNotCalled("convert");
+	}
+
+	@Test
+	public void testConvertGroupWithAtomicsInAnyKeyOrder() throws Exception {
+		String json = """
+				{"children": [
+				  {"name": "title", "value": "x"},
+				  {"value": "y", "repeatId": "1", "name": "title"}
+				 ],
+				 "name": "book"}
+				""";
+
+		DataGroupSpy dataGroup = (DataGroupSpy) converter.convert(json);
+
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "title", "x");
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 1, "title", "y");
+		DataAtomicSpy secondAtomic = (DataAtomicSpy) dataFactory.MCR
+				.getReturnValue("factorAtomicUsingNameInDataAndValue", 1);
+		secondAtomic.MCR.assertParameters("setRepeatId", 0, "1");
+		dataFactory.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		dataGroup.MCR.assertParameters("addChild", 0,
+				dataFactory.MCR.getReturnValue("factorAtomicUsingNameInDataAndValue", 0));
+		dataGroup.MCR.assertParameters("addChild", 1, secondAtomic);
+		fallbackConverter.MCR.assertMethodNotCalled("convert");
+	}
+
+	@Test
+	public void testConvertRepeatIdAndAttributesOnGroup() throws Exception {
+		String json = """
+				{"name":"book","children":[],"repeatId":"2",
+				"attributes":{"type":"novel","language":"sv"}}""";
+
+		DataGroupSpy dataGroup = (DataGroupSpy) converter.convert(json);
+
+		dataGroup.MCR.assertParameters("setRepeatId", 0, "2");
+		dataGroup.MCR.assertParameters("addAttributeByIdWithValue", 0, "type", "novel");
+		dataGroup.MCR.assertParameters("addAttributeByIdWithValue", 1, "language", "sv");
+	}
+
+	@Test
+	public void testConvertRecordLink() throws Exception {
+		String json = """
+				{"name":"book","children":[{"name":"author","repeatId":"0","children":[
+				{"name":"linkedRecordType","value":"person"},
+				{"name":"linkedRecordId","value":"person:1"}]}]}""";
+
+		DataGroupSpy dataGroup = (DataGroupSpy) converter.convert(json);
+
+		dataFactory.MCR.assertParameters("factorRecordLinkUsingNameInDataAndTypeAndId", 0,
+				"author", "person", "person:1");
+		DataRecordLinkSpy link = (DataRecordLinkSpy) dataFactory.MCR
+				.getReturnValue("factorRecordLinkUsingNameInDataAndTypeAndId", 0);
+		link.MCR.assertParameters("setRepeatId", 0, "0");
+		dataGroup.MCR.assertParameters("addChild", 0, link);
+		dataFactory.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 1);
+	}
+
+	@Test
+	public void testConvertEscapedStrings() throws Exception {
+		String json = "{\"name\":\"book\",\"children\":[{\"name\":\"title\","
+				+ "\"value\":\"a\\\"b\\\\c\\/d\\n\\t\\u00e5\\b\\f\\r\"}]}";
+
+		converter.convert(json);
+
+		dataFactory.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "title",
+				"a\"b\\c/d\n\t\u00e5\b\f\r");
+	}
+
+	@Test
+	public void testUnsupportedJsonUsesFallback() throws Exception {
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[],\"actionLinks\":{}}");
+		assertFallbackUsed("{\"name\":\"book\",\"value\":\"x\",\"children\":[]}");
+		assertFallbackUsed("{\"children\":[]}");
+		assertFallbackUsed("{\"name\":\"title\",\"value\":\"x\"}");
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[{\"name\":\"master\",\"children\":["
+				+ "{\"name\":\"mimeType\",\"value\":\"image/png\"}]}]}");
+		assertFallbackUsed("{\"name\":\"author\",\"children\":["
+				+ "{\"name\":\"linkedRecordType\",\"value\":\"person\"},"
+				+ "{\"name\":\"linkedRecordId\",\"value\":\"person:1\"},"
+				+ "{\"name\":\"linkedRepeatId\",\"value\":\"1\"}]}");
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[{\"name\":\"author\",\"children\":["
+				+ "{\"name\":\"linkedRecordType\",\"value\":\"person\","
+				+ "\"attributes\":{\"a\":\"b\"}},"
+				+ "{\"name\":\"linkedRecordId\",\"value\":\"person:1\"}]}]}");
+	}
+
+	private void assertFallbackUsed(String json) {
+		int callNumber = fallbackConverter.MCR.getNumberOfCallsToMethod("convert");
+
+		DataGroup dataGroup = converter.convert(json);
+
+		fallbackConverter.MCR.assertParameters("convert", callNumber, json);
+		fallbackConverter.MCR.assertReturn("convert", callNumber, dataGroup);
+	}
+
+	@Test
+	public void testInvalidJsonUsesFallback() throws Exception {
+		assertFallbackUsed("");
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[]");
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[]}}");
+		assertFallbackUsed("{\"name\":\"book\" \"children\":[]}");
+		assertFallbackUsed("{\"name\":\"book\",\"children\":[],}");
+		assertFallbackUsed("{\"name\":\"bo");
+		assertFallbackUsed("{\"name\":\"bo\\");
+		assertFallbackUsed("{\"name\":\"bo\\x\",\"children\":[]}");
+		assertFallbackUsed("{\"name\":\"bo\\u00g5\",\"children\":[]}");
+		assertFallbackUsed("{\"name\":\"bo\\u00\"");
+		assertFallbackUsed("{\"name\":\"bo\nok\",\"children\":[]}");
+		assertFallbackUsed("{\"name\":\"b\\no\nok\",\"children\":[]}");
+		assertFallbackUsed("{\"name\":1,\"children\":[]}");
+	}
+}
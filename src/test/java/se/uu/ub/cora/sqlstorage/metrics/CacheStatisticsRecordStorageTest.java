@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordNotFoundException;
+
+public class CacheStatisticsRecordStorageTest {
+	private static final long EMPTY_GROUP_BYTES = 128;
+	private static final List<String> TYPES = List.of("someType");
+	private SqlRecordStorageSpy cache;
+	private CacheStatistics cacheStatistics;
+	private CacheStatisticsRecordStorage storage;
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+	private Set<StorageTerm> storageTerms = Set.of();
+	private Set<Link> links = Set.of();
+	private Filter filter = new Filter();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		cache = new SqlRecordStorageSpy();
+		cacheStatistics = new CacheStatistics();
+		storage = CacheStatisticsRecordStorage.usingCacheAndCacheStatistics(cache,
+				cacheStatistics);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(storage.onlyForTestGetCache(), cache);
+		assertSame(storage.onlyForTestGetCacheStatistics(), cacheStatistics);
+	}
+
+	@Test
+	public void testReadsAreCountedAndSentToCache() throws Exception {
+		cache.MRV.setSpecificReturnValuesSupplier("read", () -> dataRecord, TYPES,
+				"someId");
+
+		var readRecordGroup = storage.read("someType", "someId");
+		var readDataGroup = storage.read(TYPES, "someId");
+		storage.readList("someType", filter);
+		storage.readList(TYPES, filter);
+
+		cache.MCR.assertReturn("read", 0, readRecordGroup);
+		cache.MCR.assertReturn("read", 1, readDataGroup);
+		cache.MCR.assertParameters("readList", 0, "someType", filter);
+		cache.MCR.assertParameters("readList", 1, TYPES, filter);
+		CacheTypeStatistics typeStatistics = getOnlyTypeStatistics();
+		assertEquals(typeStatistics.getRecordType(), "someType");
+		assertEquals(typeStatistics.getReads(), 4);
+		assertEquals(typeStatistics.getMisses(), 0);
+	}
+
+	private CacheTypeStatistics getOnlyTypeStatistics() {
+		List<CacheTypeStatistics> statistics = cacheStatistics.getTypeStatistics();
+		assertEquals(statistics.size(), 1);
+		return statistics.get(0);
+	}
+
+	@Test
+	public void testReadsForSeveralTypesAreCountedForMultipleTypes() throws Exception {
+		storage.readList(List.of("someType", "someOtherType"), filter);
+
+		assertEquals(getOnlyTypeStatistics().getRecordType(), StorageMetrics.MULTIPLE_TYPES);
+	}
+
+	@Test
+	public void testReadOfMissingRecordIsCountedAsMiss() throws Exception {
+		RecordNotFoundException notFound = RecordNotFoundException.withMessage("not found");
+		cache.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			throw notFound;
+		});
+
+		assertReadThrows(() -> storage.read("someType", "someId"), notFound);
+		assertReadThrows(() -> storage.read(TYPES, "someId"), notFound);
+
+		CacheTypeStatistics typeStatistics = getOnlyTypeStatistics();
+		assertEquals(typeStatistics.getReads(), 2);
+		assertEquals(typeStatistics.getMisses(), 2);
+	}
+
+	private void assertReadThrows(Runnable read, RuntimeException expected) {
+		try {
+			read.run();
+			fail("read should throw");
+		} catch (RuntimeException e) {
+			assertSame(e, expected);
+		}
+	}
+
+	@Test
+	public void testCreateIsCountedWithEstimatedSize() throws Exception {
+		storage.create("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+
+		cache.MCR.assertParameters("create", 0, "someType", "someId", dataRecord, storageTerms,
+				links, "someDataDivider");
+		CacheTypeStatistics typeStatistics = getOnlyTypeStatistics();
+		assertEquals(typeStatistics.getEntryCount(), 1);
+		assertEquals(typeStatistics.getEstimatedRetainedBytes(), EMPTY_GROUP_BYTES);
+		assertEquals(typeStatistics.getWrites(), 1);
+	}
+
+	@Test
+	public void testUpdateReplacesEstimatedSizeOfRecordInCache() throws Exception {
+		storage.create("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+		DataGroupSpy recordInCache = createGroupWithOneChild();
+		cache.MRV.setSpecificReturnValuesSupplier("read", () -> recordInCache,
+				TYPES, "someId");
+
+		storage.update("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+
+		cache.MCR.assertParameters("update", 0, "someType", "someId", dataRecord, storageTerms,
+				links, "someDataDivider");
+		CacheTypeStatistics typeStatistics = getOnlyTypeStatistics();
+		assertEquals(typeStatistics.getEntryCount(), 1);
+		assertEquals(typeStatistics.getEstimatedRetainedBytes(),
+				EMPTY_GROUP_BYTES - RecordSizeEstimator.estimateRetainedBytes(recordInCache)
+						+ EMPTY_GROUP_BYTES);
+		assertEquals(typeStatistics.getWrites(), 2);
+	}
+
+	private DataGroupSpy createGroupWithOneChild() {
+		DataGroupSpy dataGroup = new DataGroupSpy();
+		dataGroup.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(new DataGroupSpy()));
+		return dataGroup;
+	}
+
+	@Test
+	public void testDeleteRemovesEstimatedSizeOfRecordInCache() throws Exception {
+		storage.create("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+		cache.MRV.setSpecificReturnValuesSupplier("read", () -> dataRecord, TYPES,
+				"someId");
+
+		storage.deleteByTypeAndId("someType", "someId");
+
+		cache.MCR.assertParameters("deleteByTypeAndId", 0, "someType", "someId");
+		CacheTypeStatistics typeStatistics = getOnlyTypeStatistics();
+		assertEquals(typeStatistics.getEntryCount(), 0);
+		assertEquals(typeStatistics.getEstimatedRetainedBytes(), 0);
+		assertEquals(typeStatistics.getWrites(), 2);
+	}
+
+	@Test
+	public void testDeleteOfRecordMissingInCacheIsSentToCache() throws Exception {
+		cache.MRV.setDefaultReturnValuesSupplier("read", () -> {
+			throw RecordNotFoundException.withMessage("not found");
+		});
+
+		storage.deleteByTypeAndId("someType", "someId");
+
+		cache.MCR.assertParameters("deleteByTypeAndId", 0, "someType", "someId");
+		assertEquals(getOnlyTypeStatistics().getEstimatedRetainedBytes(), 0);
+	}
+
+	@Test
+	public void testOtherCallsAreSentToCacheWithoutCounting() throws Exception {
+		storage.recordExists(TYPES, "someId");
+		storage.linksExistForRecord("someType", "someId");
+		storage.getLinksToRecord("someType", "someId");
+		storage.getTotalNumberOfRecordsForTypes(TYPES, filter);
+
+		cache.MCR.assertParameters("recordExists", 0, TYPES, "someId");
+		cache.MCR.assertParameters("linksExistForRecord", 0, "someType", "someId");
+		cache.MCR.assertParameters("getLinksToRecord", 0, "someType", "someId");
+		cache.MCR.assertParameters("getTotalNumberOfRecordsForTypes", 0, TYPES,
+				filter);
+		assertEquals(cacheStatistics.getTypeStatistics().size(), 0);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+
+public class CacheStatisticsTest {
+	private LoggerFactorySpy loggerFactorySpy;
+	private long nanoTime;
+	private CacheStatistics cacheStatistics;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		nanoTime = 0;
+		cacheStatistics = new CacheStatistics(() -> nanoTime);
+	}
+
+	@Test
+	public void testNoStatisticsWhenNothingRecorded() throws Exception {
+		assertTrue(cacheStatistics.getTypeStatistics().isEmpty());
+		assertEquals(cacheStatistics.getTotalEstimatedRetainedBytes(), 0);
+		assertEquals(cacheStatistics.getMillisSinceWarmUp(), 0);
+	}
+
+	@Test
+	public void testEntriesAndSizesFollowWrites() throws Exception {
+		cacheStatistics.recordCreate("someType", 100);
+		cacheStatistics.recordCreate("someType", 200);
+		cacheStatistics.recordUpdate("someType", 100, 150);
+		cacheStatistics.recordCreate("someOtherType", 1000);
+		cacheStatistics.recordDelete("someType", 200);
+
+		List<CacheTypeStatistics> statistics = cacheStatistics.getTypeStatistics();
+
+		assertEquals(statistics.size(), 2);
+		assertTypeStatistics(statistics.get(0), "someOtherType", 1, 1000);
+		assertTypeStatistics(statistics.get(1), "someType", 1, 150);
+		assertEquals(statistics.get(1).getWrites(), 4);
+		assertEquals(cacheStatistics.getTotalEstimatedRetainedBytes(), 1150);
+	}
+
+	private void assertTypeStatistics(CacheTypeStatistics typeStatistics, String recordType,
+			long entryCount, long estimatedRetainedBytes) {
+		assertEquals(typeStatistics.getRecordType(), recordType);
+		assertEquals(typeStatistics.getEntryCount(), entryCount);
+		assertEquals(typeStatistics.getEstimatedRetainedBytes(), estimatedRetainedBytes);
+	}
+
+	@Test
+	public void testReadsAndMisses() throws Exception {
+		cacheStatistics.recordRead("someType");
+		cacheStatistics.recordRead("someType");
+		cacheStatistics.recordMiss("someType");
+
+		CacheTypeStatistics typeStatistics = cacheStatistics.getTypeStatistics().get(0);
+
+		assertEquals(typeStatistics.getReads(), 2);
+		assertEquals(typeStatistics.getMisses(), 1);
+		assertEquals(typeStatistics.getEntryCount(), 0);
+	}
+
+	@Test
+	public void testMarkWarmedUpClearsCountsButKeepsEntries() throws Exception {
+		cacheStatistics.recordCreate("someType", 100);
+		cacheStatistics.recordRead("someType");
+		cacheStatistics.recordMiss("someType");
+		nanoTime = TimeUnit.SECONDS.toNanos(5);
+
+		cacheStatistics.markWarmedUp();
+
+		CacheTypeStatistics typeStatistics = cacheStatistics.getTypeStatistics().get(0);
+		assertTypeStatistics(typeStatistics, "someType", 1, 100);
+		assertEquals(typeStatistics.getReads(), 0);
+		assertEquals(typeStatistics.getMisses(), 0);
+		assertEquals(typeStatistics.getWrites(), 0);
+		assertEquals(cacheStatistics.getMillisSinceWarmUp(), 0);
+	}
+
+	@Test
+	public void testRatesArePerSecondSinceWarmUp() throws Exception {
+		cacheStatistics.markWarmedUp();
+		for (int i = 0; i < 10; i++) {
+			cacheStatistics.recordRead("someType");
+		}
+		cacheStatistics.recordCreate("someType", 100);
+		nanoTime = TimeUnit.SECONDS.toNanos(4);
+
+		CacheTypeStatistics typeStatistics = cacheStatistics.getTypeStatistics().get(0);
+
+		assertEquals(cacheStatistics.getMillisSinceWarmUp(), 4000);
+		assertEquals(typeStatistics.getReadsPerSecond(), 2.5);
+		assertEquals(typeStatistics.getWritesPerSecond(), 0.25);
+	}
+
+	@Test
+	public void testRatesAreZeroDirectlyAfterWarmUp() throws Exception {
+		cacheStatistics.recordRead("someType");
+
+		CacheTypeStatistics typeStatistics = cacheStatistics.getTypeStatistics().get(0);
+
+		assertEquals(typeStatistics.getReadsPerSecond(), 0.0);
+	}
+
+	@Test
+	public void testLogSummary() throws Exception {
+		cacheStatistics.recordCreate("someType", 100);
+		cacheStatistics.recordCreate("someOtherType", 2000);
+		cacheStatistics.markWarmedUp();
+		cacheStatistics.recordRead("someType");
+		cacheStatistics.recordRead("someType");
+		cacheStatistics.recordMiss("someType");
+		nanoTime = TimeUnit.SECONDS.toNanos(4);
+
+		cacheStatistics.logSummary();
+
+		getLoggerSpy().MCR.assertParameters("logInfoUsingMessage", 0,
+				"Cache statistics 4 s after warm-up, estimated bytes in total: 2100"
+						+ System.lineSeparator()
+						+ "someOtherType entries: 1, estimated bytes: 2000, reads/s: 0.00, "
+						+ "writes/s: 0.00, misses: 0" + System.lineSeparator()
+						+ "someType entries: 1, estimated bytes: 100, reads/s: 0.50, "
+						+ "writes/s: 0.00, misses: 1");
+	}
+
+	private LoggerSpy getLoggerSpy() {
+		loggerFactorySpy.MCR.assertParameters("factorForClass", 0, CacheStatistics.class);
+		return (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 0);
+	}
+
+	@Test
+	public void testStartAndStopLoggingSummary() throws Exception {
+		assertNull(cacheStatistics.onlyForTestGetSummaryLogger());
+
+		cacheStatistics.startLoggingSummaryWithIntervalInMilliseconds(10);
+
+		ScheduledExecutorService summaryLogger = cacheStatistics.onlyForTestGetSummaryLogger();
+		assertFalse(summaryLogger.isShutdown());
+		waitForSummaryToBeLogged();
+		cacheStatistics.stopLoggingSummary();
+		assertTrue(summaryLogger.isShutdown());
+	}
+
+	private void waitForSummaryToBeLogged() throws InterruptedException {
+		LoggerSpy loggerSpy = getLoggerSpy();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!loggerSpy.MCR.methodWasCalled("logInfoUsingMessage")
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loggerSpy.MCR.assertMethodWasCalled("logInfoUsingMessage");
+	}
+
+	@Test
+	public void testStopLoggingSummaryWhenNotStarted() throws Exception {
+		cacheStatistics.stopLoggingSummary();
+
+		assertNull(cacheStatistics.onlyForTestGetSummaryLogger());
+	}
+
+	@Test
+	public void testRegisterInPlatformMBeanServer() throws Exception {
+		cacheStatistics.recordCreate("someType", 100);
+
+		cacheStatistics.registerInPlatformMBeanServer();
+		new CacheStatistics().registerInPlatformMBeanServer();
+
+		ObjectName objectName = new ObjectName(CacheStatistics.OBJECT_NAME);
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+		assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+				"TotalEstimatedRetainedBytes"), 0L);
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class HistogramStorageMetricsTest {
+	private HistogramStorageMetrics metrics;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		metrics = new HistogramStorageMetrics();
+	}
+
+	@Test
+	public void testNoStatisticsBeforeRecording() throws Exception {
+		assertTrue(metrics.getOperationStatistics().isEmpty());
+	}
+
+	@Test
+	public void testRecordLatency() throws Exception {
+		metrics.recordLatency(StorageLayer.DATABASE, StorageOperation.READ, "someType", 2_000);
+		metrics.recordLatency(StorageLayer.DATABASE, StorageOperation.READ, "someType", 4_000);
+
+		List<OperationStatistics> statistics = metrics.getOperationStatistics();
+
+		assertEquals(statistics.size(), 1);
+		OperationStatistics read = statistics.get(0);
+		assertEquals(read.getLayer(), "DATABASE");
+		assertEquals(read.getOperation(), "READ");
+		assertEquals(read.getRecordType(), "someType");
+		assertEquals(read.getCount(), 2);
+		assertEquals(read.getErrorCount(), 0);
+		assertEquals(read.getMeanMicros(), 3.0);
+		assertEquals(read.getP50Micros(), 2);
+		assertEquals(read.getP90Micros(), 4);
+		assertEquals(read.getP99Micros(), 4);
+		assertEquals(read.getP999Micros(), 4);
+		assertEquals(read.getMaxMicros(), 4);
+	}
+
+	@Test
+	public void testRecordError() throws Exception {
+		metrics.recordError(StorageLayer.STORAGE, StorageOperation.CREATE, "someType");
+
+		OperationStatistics create = metrics.getOperationStatistics().get(0);
+
+		assertEquals(create.getLayer(), "STORAGE");
+		assertEquals(create.getOperation(), "CREATE");
+		assertEquals(create.getCount(), 0);
+		assertEquals(create.getErrorCount(), 1);
+	}
+
+	@Test
+	public void testStatisticsAreKeptPerLayerOperationAndType() throws Exception {
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "someType", 1_000);
+		metrics.recordLatency(StorageLayer.CACHE, StorageOperation.READ, "someType", 1_000);
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.UPDATE, "someType", 1_000);
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "otherType", 1_000);
+		metrics.recordLatency(StorageLayer.JSON_CONVERSION, StorageOperation.TO_JSON,
+				"allTypes", 1_000);
+
+		List<OperationStatistics> statistics = metrics.getOperationStatistics();
+
+		assertEquals(statistics.size(), 5);
+		assertStatistics(statistics.get(0), "allTypes", "JSON_CONVERSION", "TO_JSON");
+		assertStatistics(statistics.get(1), "otherType", "STORAGE", "READ");
+		assertStatistics(statistics.get(2), "someType", "STORAGE", "READ");
+		assertStatistics(statistics.get(3), "someType", "STORAGE", "UPDATE");
+		assertStatistics(statistics.get(4), "someType", "CACHE", "READ");
+	}
+
+	private void assertStatistics(OperationStatistics statistics, String recordType,
+			String layer, String operation) {
+		assertEquals(statistics.getRecordType(), recordType);
+		assertEquals(statistics.getLayer(), layer);
+		assertEquals(statistics.getOperation(), operation);
+		assertEquals(statistics.getCount(), 1);
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "someType", 1_000);
+		metrics.recordError(StorageLayer.STORAGE, StorageOperation.READ, "someType");
+
+		metrics.reset();
+
+		assertTrue(metrics.getOperationStatistics().isEmpty());
+	}
+
+	@Test
+	public void testRecordingFromManyThreads() throws Exception {
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(this::recordThousandReads);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(metrics.getOperationStatistics().get(0).getCount(), 4000);
+	}
+
+	private void recordThousandReads() {
+		for (int i = 0; i < 1000; i++) {
+			metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "someType", 1_000);
+		}
+	}
+
+	@Test
+	public void testRegisterInPlatformMBeanServer() throws Exception {
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "someType", 1_000);
+
+		metrics.registerInPlatformMBeanServer();
+
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("se.uu.ub.cora.sqlstorage:type=StorageMetrics");
+		CompositeData[] statistics = (CompositeData[]) mBeanServer.getAttribute(objectName,
+				"OperationStatistics");
+		assertEquals(statistics.length, 1);
+		assertEquals(statistics[0].get("operation"), "READ");
+		assertEquals(statistics[0].get("count"), 1L);
+	}
+
+	@Test
+	public void testRegisterReplacesPreviouslyRegisteredMetrics() throws Exception {
+		new HistogramStorageMetrics().registerInPlatformMBeanServer();
+		metrics.recordLatency(StorageLayer.STORAGE, StorageOperation.READ, "someType", 1_000);
+
+		metrics.registerInPlatformMBeanServer();
+
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		CompositeData[] statistics = (CompositeData[]) mBeanServer.getAttribute(
+				new ObjectName(HistogramStorageMetrics.OBJECT_NAME), "OperationStatistics");
+		assertEquals(statistics.length, 1);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+	private LatencyHistogram histogram;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test
+	public void testEmptyHistogram() throws Exception {
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getMaxMicros(), 0);
+		assertEquals(histogram.getMeanMicros(), 0.0);
+		assertEquals(histogram.getValueAtPercentile(99), 0);
+	}
+
+	@Test
+	public void testSmallValuesAreExact() throws Exception {
+		for (int micros = 0; micros < 32; micros++) {
+			assertEquals(LatencyHistogram.bucketIndex(micros), micros);
+			assertEquals(LatencyHistogram.highestValueInBucket(micros), micros);
+		}
+	}
+
+	@Test
+	public void testBucketsAreContinuous() throws Exception {
+		assertEquals(LatencyHistogram.bucketIndex(32), 32);
+		assertEquals(LatencyHistogram.bucketIndex(63), 63);
+		assertEquals(LatencyHistogram.bucketIndex(64), 64);
+		assertEquals(LatencyHistogram.bucketIndex(65), 64);
+		assertEquals(LatencyHistogram.bucketIndex(66), 65);
+		assertEquals(LatencyHistogram.highestValueInBucket(64), 65);
+	}
+
+	@Test
+	public void testRelativeErrorOfBucketsIsSmall() throws Exception {
+		for (long micros = 1; micros < 1L << 36; micros = micros * 3 + 1) {
+			long highestValue = LatencyHistogram
+					.highestValueInBucket(LatencyHistogram.bucketIndex(micros));
+			assertTrue(highestValue >= micros, "value: " + micros);
+			assertTrue(highestValue - micros <= micros / 32, "value: " + micros);
+		}
+	}
+
+	@Test
+	public void testHugeValuesAreRecordedInLastBucket() throws Exception {
+		int lastBucket = LatencyHistogram.bucketIndex(1L << 36);
+
+		assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), lastBucket);
+		assertEquals(LatencyHistogram.bucketIndex((1L << 36) - 1), lastBucket);
+	}
+
+	@Test
+	public void testRecordNanos() throws Exception {
+		histogram.recordNanos(1_500);
+		histogram.recordNanos(2_000);
+		histogram.recordNanos(6_999);
+
+		assertEquals(histogram.getCount(), 3);
+		assertEquals(histogram.getMaxMicros(), 6);
+		assertEquals(histogram.getMeanMicros(), 3.0);
+	}
+
+	@Test
+	public void testNegativeNanosAreRecordedAsZero() throws Exception {
+		histogram.recordNanos(-5_000);
+
+		assertEquals(histogram.getCount(), 1);
+		assertEquals(histogram.getMaxMicros(), 0);
+	}
+
+	@Test
+	public void testPercentiles() throws Exception {
+		for (int micros = 1; micros <= 1000; micros++) {
+			histogram.recordNanos(micros * 1000L);
+		}
+
+		assertValueWithinError(histogram.getValueAtPercentile(50), 500);
+		assertValueWithinError(histogram.getValueAtPercentile(90), 900);
+		assertValueWithinError(histogram.getValueAtPercentile(99), 990);
+		assertEquals(histogram.getValueAtPercentile(100), 1000);
+		assertEquals(histogram.getValueAtPercentile(0), 1);
+	}
+
+	private void assertValueWithinError(long value, long expected) {
+		assertTrue(value >= expected && value <= expected + expected / 32,
+				"value: " + value + " expected: " + expected);
+	}
+
+	@Test
+	public void testPercentileIsLimitedByMax() throws Exception {
+		histogram.recordNanos(1_000_000);
+
+		assertEquals(histogram.getValueAtPercentile(50), 1000);
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		histogram.recordNanos(1_000_000);
+
+		histogram.reset();
+
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getMaxMicros(), 0);
+		assertEquals(histogram.getValueAtPercentile(50), 0);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.sqlstorage.spy.json.RecordJsonConverterSpy;
+import se.uu.ub.cora.sqlstorage.spy.metrics.StorageMetricsSpy;
+
+public class MeasuredRecordJsonConverterTest {
+	private RecordJsonConverterSpy recordJsonConverter;
+	private StorageMetricsSpy storageMetrics;
+	private MeasuredRecordJsonConverter converter;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		recordJsonConverter = new RecordJsonConverterSpy();
+		storageMetrics = new StorageMetricsSpy();
+		converter = MeasuredRecordJsonConverter.usingConverterAndMetrics(recordJsonConverter,
+				storageMetrics);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(converter.onlyForTestGetRecordJsonConverter(), recordJsonConverter);
+		assertSame(converter.onlyForTestGetStorageMetrics(), storageMetrics);
+	}
+
+	@Test
+	public void testConvert() throws Exception {
+		DataGroup dataGroup = converter.convert("someJson");
+
+		recordJsonConverter.MCR.assertParameters("convert", 0, "someJson");
+		recordJsonConverter.MCR.assertReturn("convert", 0, dataGroup);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "layer",
+				StorageLayer.JSON_CONVERSION);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "operation",
+				StorageOperation.FROM_JSON);
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "recordType", "allTypes");
+		storageMetrics.MCR.assertMethodNotCalled("recordError");
+	}
+
+	@Test
+	public void testConversionTimeIsAddedToJsonConversionTime() throws Exception {
+		long before = JsonConversionTime.onCurrentThread();
+
+		converter.convert("someJson");
+
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "nanos",
+				JsonConversionTime.onCurrentThread() - before);
+	}
+
+	@Test
+	public void testFailedConversionIsRecordedAsError() throws Exception {
+		RuntimeException error = new RuntimeException("someError");
+		recordJsonConverter.MRV.setDefaultReturnValuesSupplier("convert", () -> {
+			throw error;
+		});
+
+		try {
+			converter.convert("someJson");
+			fail("convert should fail");
+		} catch (RuntimeException e) {
+			assertSame(e, error);
+			storageMetrics.MCR.assertParameters("recordError", 0, StorageLayer.JSON_CONVERSION,
+					StorageOperation.FROM_JSON, "allTypes");
+			storageMetrics.MCR.assertNumberOfCallsToMethod("recordLatency", 1);
+		}
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest.Direction;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.spy.metrics.StorageMetricsSpy;
+import se.uu.ub.cora.sqlstorage.spy.sql.SqlRecordStorageSpy;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.StorageException;
+
+public class MeasuredSqlRecordStorageTest {
+	private SqlRecordStorageSpy database;
+	private StorageMetricsSpy storageMetrics;
+	private MeasuredSqlRecordStorage storage;
+	private DataGroupSpy dataRecord = new DataGroupSpy();
+	private Set<StorageTerm> storageTerms = Set.of();
+	private Set<Link> links = Set.of();
+	private Filter filter = new Filter();
+
+	@BeforeMethod
+	public void beforeMethod() {
+		database = new SqlRecordStorageSpy();
+		storageMetrics = new StorageMetricsSpy();
+		storage = MeasuredSqlRecordStorage.usingDatabaseAndMetricsAndLayer(database,
+				storageMetrics, StorageLayer.DATABASE);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(storage.onlyForTestGetRecordStorage(), database);
+		assertSame(storage.onlyForTestGetStorageMetrics(), storageMetrics);
+		assertEquals(storage.onlyForTestGetLayer(), StorageLayer.DATABASE);
+	}
+
+	@Test
+	public void testMeasuredRecordStorageInit() throws Exception {
+		MeasuredRecordStorage measuredStorage = MeasuredRecordStorage
+				.usingRecordStorageAndMetricsAndLayer(database, storageMetrics, StorageLayer.CACHE);
+
+		measuredStorage.read("someType", "someId");
+
+		assertSame(measuredStorage.onlyForTestGetRecordStorage(), database);
+		assertSame(measuredStorage.onlyForTestGetStorageMetrics(), storageMetrics);
+		assertEquals(measuredStorage.onlyForTestGetLayer(), StorageLayer.CACHE);
+		database.MCR.assertParameters("read", 0, "someType", "someId");
+		storageMetrics.MCR.assertParameter("recordLatency", 0, "layer", StorageLayer.CACHE);
+	}
+
+	@Test
+	public void testJsonConversionIsLeftOutOfDatabaseLayer() throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("read", this::convertForTwentyMillis);
+
+		storage.read("someType", "someId");
+
+		long nanos = (long) storageMetrics.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("recordLatency", 0, "nanos");
+		assertTrue(nanos >= 0);
+		assertTrue(nanos < TimeUnit.MILLISECONDS.toNanos(20));
+	}
+
+	private DataRecordGroupSpy convertForTwentyMillis() {
+		long start = System.nanoTime();
+		try {
+			Thread.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		JsonConversionTime.addOnCurrentThread(System.nanoTime() - start);
+		return new DataRecordGroupSpy();
+	}
+
+	@Test
+	public void testJsonConversionIsIncludedInOtherLayers() throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("read", this::convertForTwentyMillis);
+		storage = MeasuredSqlRecordStorage.usingDatabaseAndMetricsAndLayer(database,
+				storageMetrics, StorageLayer.STORAGE);
+
+		storage.read("someType", "someId");
+
+		long nanos = (long) storageMetrics.MCR
+				.getValueForMethodNameAndCallNumberAndParameterName("recordLatency", 0, "nanos");
+		assertTrue(nanos >= TimeUnit.MILLISECONDS.toNanos(20));
+	}
+
+	@Test
+	public void testRecordStorageMethodsAreMeasured() throws Exception {
+		List<String> types = List.of("someType");
+		List<String> multipleTypes = List.of("someType", "otherType");
+
+		storage.read(multipleTypes, "someId");
+		storage.read("someType", "someId");
+		storage.create("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+		storage.deleteByTypeAndId("someType", "someId");
+		storage.update("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+		storage.readList("someType", filter);
+		storage.readList(types, filter);
+		storage.recordExists(multipleTypes, "someId");
+		storage.linksExistForRecord("someType", "someId");
+		storage.getLinksToRecord("someType", "someId");
+		storage.getTotalNumberOfRecordsForTypes(types, filter);
+
+		database.MCR.assertParameters("read", 0, multipleTypes, "someId");
+		database.MCR.assertParameters("read", 1, "someType", "someId");
+		database.MCR.assertParameters("create", 0, "someType", "someId", dataRecord, storageTerms,
+				links, "someDataDivider");
+		database.MCR.assertParameters("deleteByTypeAndId", 0, "someType", "someId");
+		database.MCR.assertParameters("update", 0, "someType", "someId", dataRecord, storageTerms,
+				links, "someDataDivider");
+		database.MCR.assertParameters("readList", 0, "someType", filter);
+		database.MCR.assertParameters("readList", 1, types, filter);
+		database.MCR.assertParameters("recordExists", 0, multipleTypes, "someId");
+		database.MCR.assertParameters("linksExistForRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("getLinksToRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("getTotalNumberOfRecordsForTypes", 0, types, filter);
+		assertMeasured(0, StorageOperation.READ, "multipleTypes");
+		assertMeasured(1, StorageOperation.READ, "someType");
+		assertMeasured(2, StorageOperation.CREATE, "someType");
+		assertMeasured(3, StorageOperation.DELETE, "someType");
+		assertMeasured(4, StorageOperation.UPDATE, "someType");
+		assertMeasured(5, StorageOperation.READ_LIST, "someType");
+		assertMeasured(6, StorageOperation.READ_LIST, "someType");
+		assertMeasured(7, StorageOperation.RECORD_EXISTS, "multipleTypes");
+		assertMeasured(8, StorageOperation.LINKS_EXIST_FOR_RECORD, "someType");
+		assertMeasured(9, StorageOperation.GET_LINKS_TO_RECORD, "someType");
+		assertMeasured(10, StorageOperation.GET_TOTAL_NUMBER_OF_RECORDS, "someType");
+		storageMetrics.MCR.assertMethodNotCalled("recordError");
+	}
+
+	private void assertMeasured(int callNumber, StorageOperation operation, String recordType) {
+		storageMetrics.MCR.assertParameter("recordLatency", callNumber, "layer",
+				StorageLayer.DATABASE);
+		storageMetrics.MCR.assertParameter("recordLatency", callNumber, "operation", operation);
+		storageMetrics.MCR.assertParameter("recordLatency", callNumber, "recordType",
+				recordType);
+		long nanos = (long) storageMetrics.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"recordLatency", callNumber, "nanos");
+		assertTrue(nanos >= 0);
+	}
+
+	@Test
+	public void testSqlRecordStorageMethodsAreMeasured() throws Exception {
+		List<RecordWrite> writes = List.of(RecordWrite.forDelete("someType", "someId"));
+		List<String> ids = List.of("someId");
+		RecordProjection projection = RecordProjection.usingPaths("recordInfo");
+		LinkPageRequest pageRequest = LinkPageRequest.usingLimit(10);
+		LinkTraversalRequest traversalRequest = LinkTraversalRequest
+				.usingDirectionAndMaxDepthAndLimit(Direction.LINKS_TO_RECORD, 2, 10);
+
+		storage.writeInOneTransaction(writes);
+		storage.deleteByTypeAndIds("someType", ids);
+		storage.deleteAllOfType("someType");
+		storage.upsert("someType", "someId", dataRecord, storageTerms, links, "someDataDivider");
+		storage.updateUsingExpectedVersion("someType", "someId", dataRecord, storageTerms, links,
+				"someDataDivider", 3L);
+		storage.readVersion("someType", "someId");
+		storage.readWithVersion("someType", "someId");
+		storage.readProjection("someType", "someId", projection);
+		storage.readLinksToRecord("someType", "someId", pageRequest);
+		storage.countLinksToRecord("someType", "someId");
+		storage.traverseLinks("someType", "someId", traversalRequest);
+
+		database.MCR.assertParameters("writeInOneTransaction", 0, writes);
+		database.MCR.assertParameters("deleteByTypeAndIds", 0, "someType", ids);
+		database.MCR.assertParameters("deleteAllOfType", 0, "someType");
+		database.MCR.assertParameters("upsert", 0, "someType", "someId", dataRecord, storageTerms,
+				links, "someDataDivider");
+		database.MCR.assertParameters("updateUsingExpectedVersion", 0, "someType", "someId",
+				dataRecord, storageTerms, links, "someDataDivider", 3L);
+		database.MCR.assertParameters("readVersion", 0, "someType", "someId");
+		database.MCR.assertParameters("readWithVersion", 0, "someType", "someId");
+		database.MCR.assertParameters("readProjection", 0, "someType", "someId", projection);
+		database.MCR.assertParameters("readLinksToRecord", 0, "someType", "someId", pageRequest);
+		database.MCR.assertParameters("countLinksToRecord", 0, "someType", "someId");
+		database.MCR.assertParameters("traverseLinks", 0, "someType", "someId",
+				traversalRequest);
+		assertMeasured(0, StorageOperation.WRITE_IN_ONE_TRANSACTION, "someType");
+		assertMeasured(1, StorageOperation.DELETE_BY_TYPE_AND_IDS, "someType");
+		assertMeasured(2, StorageOperation.DELETE_ALL_OF_TYPE, "someType");
+		assertMeasured(3, StorageOperation.UPSERT, "someType");
+		assertMeasured(4, StorageOperation.UPDATE_USING_EXPECTED_VERSION, "someType");
+		assertMeasured(5, StorageOperation.READ_VERSION, "someType");
+		assertMeasured(6, StorageOperation.READ_WITH_VERSION, "someType");
+		assertMeasured(7, StorageOperation.READ_PROJECTION, "someType");
+		assertMeasured(8, StorageOperation.READ_LINKS_TO_RECORD, "someType");
+		assertMeasured(9, StorageOperation.COUNT_LINKS_TO_RECORD, "someType");
+		assertMeasured(10, StorageOperation.TRAVERSE_LINKS, "someType");
+	}
+
+	@Test
+	public void testReturnValuesArePassedOn() throws Exception {
+		assertSame(storage.read("someType", "someId"), database.MCR.getReturnValue("read", 0));
+		assertSame(storage.readList("someType", filter),
+				database.MCR.getReturnValue("readList", 0));
+		assertSame(storage.readWithVersion("someType", "someId"),
+				database.MCR.getReturnValue("readWithVersion", 0));
+		assertEquals(storage.readVersion("someType", "someId"), 1L);
+	}
+
+	@Test
+	public void testWriteInOneTransactionForDifferentTypes() throws Exception {
+		storage.writeInOneTransaction(List.of(RecordWrite.forDelete("someType", "someId"),
+				RecordWrite.forDelete("someType", "otherId"),
+				RecordWrite.forDelete("otherType", "someId")));
+		storage.writeInOneTransaction(List.of());
+
+		assertMeasured(0, StorageOperation.WRITE_IN_ONE_TRANSACTION, "multipleTypes");
+		assertMeasured(1, StorageOperation.WRITE_IN_ONE_TRANSACTION, "multipleTypes");
+	}
+
+	@Test
+	public void testWriteInOneTransactionUsingSavepointsIsMeasured() throws Exception {
+		List<RecordWrite> writes = List.of(RecordWrite.forDelete("someType", "someId"));
+
+		List<Optional<RuntimeException>> outcomes = storage
+				.writeInOneTransactionUsingSavepoints(writes);
+
+		database.MCR.assertParameters("writeInOneTransactionUsingSavepoints", 0, writes);
+		database.MCR.assertReturn("writeInOneTransactionUsingSavepoints", 0, outcomes);
+		assertMeasured(0, StorageOperation.WRITE_IN_ONE_TRANSACTION_USING_SAVEPOINTS,
+				"someType");
+	}
+
+	@Test
+	public void testRunInUnitOfWorkIsMeasuredForMultipleTypes() throws Exception {
+		database.MRV.setDefaultReturnValuesSupplier("runInUnitOfWork", () -> "someResult");
+		Function<UnitOfWork, String> work = unitOfWork -> "notCalledBySpy";
+
+		String result = storage.runInUnitOfWork(work);
+
+		database.MCR.assertParameters("runInUnitOfWork", 0, work);
+		assertEquals(result, "someResult");
+		assertMeasured(0, StorageOperation.RUN_IN_UNIT_OF_WORK, "multipleTypes");
+	}
+
+	@Test
+	public void testFailedCallIsRecordedAsErrorAndRethrown() throws Exception {
+		database.idsToThrowExceptionForOnWrite.add("someId");
+
+		try {
+			storage.deleteByTypeAndId("someType", "someId");
+			fail("delete should fail");
+		} catch (Exception e) {
+			assertTrue(e instanceof StorageException);
+			assertEquals(e.getMessage(), "Error from SqlRecordStorageSpy for id: someId");
+			storageMetrics.MCR.assertParameters("recordError", 0, StorageLayer.DATABASE,
+					StorageOperation.DELETE, "someType");
+			assertMeasured(0, StorageOperation.DELETE, "someType");
+		}
+	}
+}
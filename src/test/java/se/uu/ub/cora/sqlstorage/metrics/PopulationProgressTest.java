@@ -0,0 +1,262 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.logger.spies.LoggerFactorySpy;
+import se.uu.ub.cora.logger.spies.LoggerSpy;
+
+public class PopulationProgressTest {
+	private LoggerFactorySpy loggerFactorySpy;
+	private long nanoTime;
+	private PopulationProgress progress;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		nanoTime = 0;
+		progress = new PopulationProgress(1000, true, () -> nanoTime);
+	}
+
+	@Test
+	public void testNotStartedBeforeFirstPhase() throws Exception {
+		assertFalse(progress.isReady());
+		assertFalse(progress.isFailed());
+		assertEquals(progress.getFailureDescription(), "");
+		assertTrue(progress.getFailure().isEmpty());
+		assertEquals(progress.getPhase(), "NOT_STARTED");
+		assertEquals(progress.getRowsProcessed(), 0);
+		assertEquals(progress.getRowsToProcess(), -1);
+		assertEquals(progress.getRowsPerSecond(), 0.0);
+		assertEquals(progress.getEstimatedSecondsRemaining(), -1);
+	}
+
+	@Test
+	public void testUsingLogIntervalMillis() throws Exception {
+		PopulationProgress reportedProgress = PopulationProgress.usingLogIntervalMillis(5000);
+
+		assertTrue(reportedProgress.isReported());
+		assertEquals(reportedProgress.onlyForTestGetLogIntervalMillis(), 5000);
+	}
+
+	@Test
+	public void testNotReportedLogsNothing() throws Exception {
+		PopulationProgress notReported = PopulationProgress.notReported();
+
+		notReported.startPhase(PopulationPhase.RECORDS, 10);
+		notReported.rowsRead(10);
+		notReported.rowProcessed();
+		notReported.finishPhase();
+
+		assertFalse(notReported.isReported());
+		assertEquals(notReported.getRowsProcessed(), 1);
+		loggerFactorySpy.MCR.assertMethodNotCalled("factorForClass");
+	}
+
+	@Test
+	public void testStartPhaseLogsEstimatedRows() throws Exception {
+		progress.startPhase(PopulationPhase.STORAGE_TERMS, 1500);
+
+		assertEquals(progress.getPhase(), "STORAGE_TERMS");
+		assertEquals(progress.getRowsToProcess(), 1500);
+		assertLogged(0, "Populating cache, starting phase: STORAGE_TERMS, estimated rows: 1500");
+	}
+
+	private void assertLogged(int callNumber, String message) {
+		loggerFactorySpy.MCR.assertParameters("factorForClass", callNumber,
+				PopulationProgress.class);
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass",
+				callNumber);
+		logger.MCR.assertParameters("logInfoUsingMessage", 0, message);
+	}
+
+	@Test
+	public void testStartPhaseWithUnknownEstimate() throws Exception {
+		progress.startPhase(PopulationPhase.LINKS, -1);
+
+		assertLogged(0, "Populating cache, starting phase: LINKS, estimated rows: unknown");
+	}
+
+	@Test
+	public void testRowsReadReplacesEstimate() throws Exception {
+		progress.startPhase(PopulationPhase.RECORDS, 1500);
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(250);
+
+		progress.rowsRead(1000);
+
+		assertEquals(progress.getRowsToProcess(), 1000);
+		assertLogged(1, "Populating cache, phase: RECORDS, read 1000 rows from database in 250 ms");
+	}
+
+	@Test
+	public void testRowProcessedLogsProgressOncePerInterval() throws Exception {
+		progress.startPhase(PopulationPhase.RECORDS, 1500);
+		progress.rowsRead(400);
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(500);
+		processRows(100);
+		loggerFactorySpy.MCR.assertNumberOfCallsToMethod("factorForClass", 2);
+
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(1000);
+		processRows(100);
+
+		assertEquals(progress.getRowsProcessed(), 200);
+		assertEquals(progress.getRowsPerSecond(), 200.0);
+		assertEquals(progress.getEstimatedSecondsRemaining(), 1);
+		loggerFactorySpy.MCR.assertNumberOfCallsToMethod("factorForClass", 3);
+		assertLoggedStartingWith(2, "Populating cache, phase: RECORDS, rows: 101 of 400, "
+				+ "rows/s: 101.0, estimated time remaining: 3 s, heap used: ");
+	}
+
+	private void processRows(int numberOfRows) {
+		for (int i = 0; i < numberOfRows; i++) {
+			progress.rowProcessed();
+		}
+	}
+
+	private void assertLoggedStartingWith(int callNumber, String start) {
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass",
+				callNumber);
+		String message = (String) logger.MCR.getValueForMethodNameAndCallNumberAndParameterName(
+				"logInfoUsingMessage", 0, "message");
+		assertTrue(message.startsWith(start), message);
+		assertTrue(message.endsWith(" MB"), message);
+	}
+
+	@Test
+	public void testFinishPhaseLogsSummary() throws Exception {
+		progress.startPhase(PopulationPhase.LINKS, 10);
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(500);
+		progress.rowsRead(10);
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(1000);
+		processRows(10);
+
+		progress.finishPhase();
+
+		assertEquals(progress.getEstimatedSecondsRemaining(), 0);
+		assertLoggedStartingWith(3, "Populating cache, finished phase: LINKS, rows: 10 in 1000 ms,"
+				+ " rows/s: 20.0, heap used: ");
+	}
+
+	@Test
+	public void testMillisSinceLastProgress() throws Exception {
+		progress.startPhase(PopulationPhase.RECORDS, 10);
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(100);
+		progress.rowProcessed();
+
+		nanoTime = TimeUnit.MILLISECONDS.toNanos(2100);
+
+		assertEquals(progress.getMillisSinceLastProgress(), 2000);
+	}
+
+	@Test
+	public void testMarkReady() throws Exception {
+		progress.markReady();
+
+		assertTrue(progress.isReady());
+		assertEquals(progress.getPhase(), "READY");
+	}
+
+	@Test
+	public void testMarkFailed() throws Exception {
+		progress.startPhase(PopulationPhase.RECORDS, 10);
+		progress.rowsRead(10);
+		processRows(3);
+		RuntimeException exception = new RuntimeException("some error");
+
+		progress.markFailed(exception);
+
+		assertFalse(progress.isReady());
+		assertTrue(progress.isFailed());
+		assertEquals(progress.getPhase(), "FAILED");
+		assertSame(progress.getFailure().get(), exception);
+		assertEquals(progress.getFailureDescription(),
+				"java.lang.RuntimeException: some error");
+		LoggerSpy logger = (LoggerSpy) loggerFactorySpy.MCR.getReturnValue("factorForClass", 2);
+		logger.MCR.assertParameters("logErrorUsingMessage", 0,
+				"Populating cache failed in phase: RECORDS, rows: 3 of 10, with: "
+						+ "java.lang.RuntimeException: some error");
+	}
+
+	@Test
+	public void testNotReportedMarkFailedLogsNothing() throws Exception {
+		PopulationProgress notReported = PopulationProgress.notReported();
+		OutOfMemoryError error = new OutOfMemoryError("some error");
+
+		notReported.markFailed(error);
+
+		assertTrue(notReported.isFailed());
+		assertSame(notReported.getFailure().get(), error);
+		loggerFactorySpy.MCR.assertMethodNotCalled("factorForClass");
+	}
+
+	@Test
+	public void testHeapUsedBytes() throws Exception {
+		assertTrue(progress.getHeapUsedBytes() > 0);
+	}
+
+	@Test
+	public void testRegisterInPlatformMBeanServer() throws Exception {
+		progress.registerInPlatformMBeanServer();
+		progress.markReady();
+
+		Object ready = ManagementFactory.getPlatformMBeanServer()
+				.getAttribute(new ObjectName(PopulationProgress.OBJECT_NAME), "Ready");
+		assertEquals(ready, true);
+	}
+
+	@Test
+	public void testFailureExposedInPlatformMBeanServer() throws Exception {
+		progress.registerInPlatformMBeanServer();
+		progress.markFailed(new RuntimeException("some error"));
+
+		ObjectName objectName = new ObjectName(PopulationProgress.OBJECT_NAME);
+		assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+				"Failed"), true);
+		assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+				"FailureDescription"), "java.lang.RuntimeException: some error");
+	}
+
+	@Test
+	public void testRegisterTwiceReplacesProgress() throws Exception {
+		progress.registerInPlatformMBeanServer();
+		PopulationProgress otherProgress = PopulationProgress.usingLogIntervalMillis(1000);
+
+		otherProgress.registerInPlatformMBeanServer();
+
+		progress.markReady();
+
+		Object phase = ManagementFactory.getPlatformMBeanServer()
+				.getAttribute(new ObjectName(PopulationProgress.OBJECT_NAME), "Phase");
+		assertEquals(phase, "NOT_STARTED");
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.data.DataAttribute;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+
+public class RecordSizeEstimatorTest {
+	private static final long EMPTY_GROUP_BYTES = 128;
+	private static final long ATOMIC_BYTES = 144;
+	private static final long RECORD_LINK_BYTES = 200;
+
+	@Test
+	public void testEmptyGroup() throws Exception {
+		DataGroupSpy dataRecord = new DataGroupSpy();
+
+		assertEquals(RecordSizeEstimator.estimateRetainedBytes(dataRecord), EMPTY_GROUP_BYTES);
+	}
+
+	@Test
+	public void testGroupWithAtomicAndRecordLink() throws Exception {
+		DataGroupSpy dataRecord = createGroupWithChildren(new DataAtomicSpy(),
+				new DataRecordLinkSpy());
+
+		long childListBytes = 48;
+		assertEquals(RecordSizeEstimator.estimateRetainedBytes(dataRecord),
+				EMPTY_GROUP_BYTES - 40 + childListBytes + ATOMIC_BYTES + RECORD_LINK_BYTES);
+	}
+
+	private DataGroupSpy createGroupWithChildren(DataChild... children) {
+		DataGroupSpy dataGroup = new DataGroupSpy();
+		dataGroup.MRV.setDefaultReturnValuesSupplier("getChildren", () -> List.of(children));
+		return dataGroup;
+	}
+
+	@Test
+	public void testNestedGroup() throws Exception {
+		DataGroupSpy dataRecord = createGroupWithChildren(new DataGroupSpy());
+
+		long childListBytes = 48;
+		assertEquals(RecordSizeEstimator.estimateRetainedBytes(dataRecord),
+				EMPTY_GROUP_BYTES - 40 + childListBytes + EMPTY_GROUP_BYTES);
+	}
+
+	@Test
+	public void testRepeatIdAndAttributesAreCounted() throws Exception {
+		DataAtomicSpy atomic = new DataAtomicSpy();
+		atomic.MRV.setDefaultReturnValuesSupplier("getRepeatId", () -> "1");
+		atomic.MRV.setDefaultReturnValuesSupplier("hasAttributes", () -> true);
+		atomic.MRV.setDefaultReturnValuesSupplier("getAttributes",
+				() -> List.of(new Attribute("type", "x")));
+		DataGroupSpy dataRecord = createGroupWithChildren(atomic);
+
+		long childListBytes = 48;
+		long repeatIdBytes = 48;
+		long attributesBytes = 48 + 24 + 48 + 48;
+		assertEquals(RecordSizeEstimator.estimateRetainedBytes(dataRecord),
+				EMPTY_GROUP_BYTES - 40 + childListBytes + ATOMIC_BYTES + repeatIdBytes
+						+ attributesBytes);
+	}
+
+	private record Attribute(String getNameInData, String getValue) implements DataAttribute {
+	}
+}
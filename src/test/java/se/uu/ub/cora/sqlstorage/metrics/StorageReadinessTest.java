@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.metrics;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class StorageReadinessTest {
+
+	@BeforeMethod
+	public void beforeMethod() {
+		StorageReadiness.setPopulationProgress(null);
+	}
+
+	@Test
+	public void testPrivateConstructor() throws Exception {
+		Constructor<StorageReadiness> constructor = StorageReadiness.class
+				.getDeclaredConstructor();
+		assertTrue(Modifier.isPrivate(constructor.getModifiers()));
+	}
+
+	@Test(expectedExceptions = InvocationTargetException.class)
+	public void testPrivateConstructorInvoke() throws Exception {
+		Constructor<StorageReadiness> constructor = StorageReadiness.class
+				.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		constructor.newInstance();
+	}
+
+	@Test
+	public void testNotReadyBeforeStorageIsStarted() throws Exception {
+		assertFalse(StorageReadiness.isReady());
+		assertFalse(StorageReadiness.isFailed());
+		assertTrue(StorageReadiness.getFailure().isEmpty());
+		assertTrue(StorageReadiness.getPopulationProgress().isEmpty());
+	}
+
+	@Test
+	public void testNotReadyWhileStorageIsStarted() throws Exception {
+		PopulationProgress progress = PopulationProgress.notReported();
+		StorageReadiness.setPopulationProgress(progress);
+
+		assertFalse(StorageReadiness.isReady());
+		assertFalse(StorageReadiness.isFailed());
+		assertTrue(StorageReadiness.getFailure().isEmpty());
+		assertSame(StorageReadiness.getPopulationProgress().get(), progress);
+	}
+
+	@Test
+	public void testReadyWhenStorageIsStarted() throws Exception {
+		PopulationProgress progress = PopulationProgress.notReported();
+		StorageReadiness.setPopulationProgress(progress);
+
+		progress.markReady();
+
+		assertTrue(StorageReadiness.isReady());
+	}
+
+	@Test
+	public void testFailedWhenStartOfStorageFails() throws Exception {
+		PopulationProgress progress = PopulationProgress.notReported();
+		StorageReadiness.setPopulationProgress(progress);
+		RuntimeException exception = new RuntimeException("some error");
+
+		progress.markFailed(exception);
+
+		assertFalse(StorageReadiness.isReady());
+		assertTrue(StorageReadiness.isFailed());
+		assertSame(StorageReadiness.getFailure().get(), exception);
+	}
+}
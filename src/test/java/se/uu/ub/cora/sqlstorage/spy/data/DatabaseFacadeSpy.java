@@ -23,20 +23,28 @@ import java.util.List;
 
 import se.uu.ub.cora.sqldatabase.DatabaseFacade;
 import se.uu.ub.cora.sqldatabase.Row;
+import se.uu.ub.cora.sqldatabase.SqlDatabaseException;
 import se.uu.ub.cora.testutils.mcr.MethodCallRecorder;
 import se.uu.ub.cora.testutils.mrv.MethodReturnValues;
 
 public class DatabaseFacadeSpy implements DatabaseFacade {
 	public MethodCallRecorder MCR = new MethodCallRecorder();
 	public MethodReturnValues MRV = new MethodReturnValues();
+	public boolean throwExceptionOnExecuteSql = false;
+	public boolean throwExceptionOnReadSql = false;
 
 	public DatabaseFacadeSpy() {
 		MCR.useMRV(MRV);
 		MRV.setDefaultReturnValuesSupplier("readUsingSqlAndValues", () -> Collections.emptyList());
+		MRV.setDefaultReturnValuesSupplier("executeSqlWithValues", () -> 1);
 	}
 
 	@Override
 	public List<Row> readUsingSqlAndValues(String sql, List<Object> values) {
+		if (throwExceptionOnReadSql) {
+			MCR.addCall("sql", sql, "values", values);
+			throw SqlDatabaseException.withMessage("Error from readUsingSqlAndValues in spy");
+		}
 		return (List<Row>) MCR.addCallAndReturnFromMRV("sql", sql, "values", values);
 	}
 
@@ -47,6 +55,10 @@ public class DatabaseFacadeSpy implements DatabaseFacade {
 
 	@Override
 	public int executeSqlWithValues(String sql, List<Object> values) {
+		if (throwExceptionOnExecuteSql) {
+			MCR.addCall("sql", sql, "values", values);
+			throw SqlDatabaseException.withMessage("Error from executeSqlWithValues in spy");
+		}
 		return (int) MCR.addCallAndReturnFromMRV("sql", sql, "values", values);
 	}
 
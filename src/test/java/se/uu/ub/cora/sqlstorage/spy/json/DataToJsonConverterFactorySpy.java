@@ -28,10 +28,14 @@ public class DataToJsonConverterFactorySpy implements DataToJsonConverterFactory
 
 	DataToJsonConverter dataToJsonConverter = new DataToJsonConverterSpy();
 	public MethodCallRecorder MCR = new MethodCallRecorder();
+	public boolean throwException = false;
 
 	@Override
 	public DataToJsonConverter factorUsingConvertible(Convertible convertible) {
 		MCR.addCall("convertible", convertible);
+		if (throwException) {
+			throw new RuntimeException("Error from DataToJsonConverterFactorySpy");
+		}
 		MCR.addReturned(dataToJsonConverter);
 		return dataToJsonConverter;
 	}
@@ -33,6 +33,7 @@ public class RowSpy implements Row {
 
 		MRV.setDefaultReturnValuesSupplier("getValueByColumn",
 				() -> "some value from getValueByColumn in rowSpy");
+		MRV.setSpecificReturnValuesSupplier("getValueByColumn", () -> 1L, "version");
 	}
 
 	@Override
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.sqlstorage.spy.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.collected.Link;
+import se.uu.ub.cora.data.collected.StorageTerm;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.sqlstorage.LinkPage;
+import se.uu.ub.cora.sqlstorage.LinkPageRequest;
+import se.uu.ub.cora.sqlstorage.LinkTraversalRequest;
+import se.uu.ub.cora.sqlstorage.ReachableRecord;
+import se.uu.ub.cora.sqlstorage.RecordProjection;
+import se.uu.ub.cora.sqlstorage.RecordWrite;
+import se.uu.ub.cora.sqlstorage.SqlRecordStorage;
+import se.uu.ub.cora.sqlstorage.UnitOfWork;
+import se.uu.ub.cora.sqlstorage.VersionedRecordGroup;
+import se.uu.ub.cora.storage.Filter;
+import se.uu.ub.cora.storage.RecordConflictException;
+import se.uu.ub.cora.storage.StorageException;
+import se.uu.ub.cora.storage.StorageReadResult;
+import se.uu.ub.cora.testutils.mcr.MethodCallRecorder;
+import se.uu.ub.cora.testutils.mrv.MethodReturnValues;
+
+public class SqlRecordStorageSpy implements SqlRecordStorage {
+	public MethodCallRecorder MCR = new MethodCallRecorder();
+	public MethodReturnValues MRV = new MethodReturnValues();
+	public boolean throwExceptionOnWriteInOneTransaction = false;
+	public Set<String> idsToThrowExceptionForOnWrite = new HashSet<>();
+	public Set<String> idsToThrowConflictForOnWrite = new HashSet<>();
+
+	public SqlRecordStorageSpy() {
+		MCR.useMRV(MRV);
+		MRV.setDefaultReturnValuesSupplier("read", DataRecordGroupSpy::new);
+		MRV.setDefaultReturnValuesSupplier("readList", StorageReadResult::new);
+		MRV.setDefaultReturnValuesSupplier("recordExists", () -> false);
+		MRV.setDefaultReturnValuesSupplier("linksExistForRecord", () -> false);
+		MRV.setDefaultReturnValuesSupplier("getLinksToRecord", Collections::emptySet);
+		MRV.setDefaultReturnValuesSupplier("getTotalNumberOfRecordsForTypes", () -> 0L);
+		MRV.setDefaultReturnValuesSupplier("readVersion", () -> 1L);
+		MRV.setDefaultReturnValuesSupplier("readProjection", DataGroupSpy::new);
+		MRV.setDefaultReturnValuesSupplier("deleteByTypeAndIds", Collections::emptyList);
+		MRV.setDefaultReturnValuesSupplier("deleteAllOfType", Collections::emptyList);
+		MRV.setDefaultReturnValuesSupplier("readWithVersion",
+				() -> new VersionedRecordGroup(new DataRecordGroupSpy(), 1L));
+		MRV.setDefaultReturnValuesSupplier("readLinksToRecord",
+				() -> new LinkPage(Collections.emptyList(), null));
+		MRV.setDefaultReturnValuesSupplier("countLinksToRecord", () -> 0L);
+		MRV.setDefaultReturnValuesSupplier("traverseLinks", Collections::emptyList);
+		MRV.setDefaultReturnValuesSupplier("runInUnitOfWork", () -> null);
+	}
+
+	@Override
+	public DataGroup read(List<String> types, String id) {
+		return (DataGroup) MCR.addCallAndReturnFromMRV("types", types, "id", id);
+	}
+
+	@Override
+	public DataRecordGroup read(String type, String id) {
+		return (DataRecordGroup) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@Override
+	public void create(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		MCR.addCall("type", type, "id", id, "dataRecord", dataRecord, "storageTerms",
+				storageTerms, "links", links, "dataDivider", dataDivider);
+		possiblyThrowExceptionForId(id);
+	}
+
+	private void possiblyThrowExceptionForId(String id) {
+		if (idsToThrowExceptionForOnWrite.contains(id)) {
+			throw StorageException.withMessage("Error from SqlRecordStorageSpy for id: " + id);
+		}
+		if (idsToThrowConflictForOnWrite.contains(id)) {
+			throw RecordConflictException
+					.withMessage("Conflict from SqlRecordStorageSpy for id: " + id);
+		}
+	}
+
+	@Override
+	public void deleteByTypeAndId(String type, String id) {
+		MCR.addCall("type", type, "id", id);
+		possiblyThrowExceptionForId(id);
+	}
+
+	@Override
+	public void update(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		MCR.addCall("type", type, "id", id, "dataRecord", dataRecord, "storageTerms",
+				storageTerms, "links", links, "dataDivider", dataDivider);
+		possiblyThrowExceptionForId(id);
+	}
+
+	@Override
+	public StorageReadResult readList(String type, Filter filter) {
+		return (StorageReadResult) MCR.addCallAndReturnFromMRV("type", type, "filter", filter);
+	}
+
+	@Override
+	public StorageReadResult readList(List<String> types, Filter filter) {
+		return (StorageReadResult) MCR.addCallAndReturnFromMRV("types", types, "filter", filter);
+	}
+
+	@Override
+	public boolean recordExists(List<String> types, String id) {
+		return (boolean) MCR.addCallAndReturnFromMRV("types", types, "id", id);
+	}
+
+	@Override
+	public boolean linksExistForRecord(String type, String id) {
+		return (boolean) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<Link> getLinksToRecord(String type, String id) {
+		return (Set<Link>) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@Override
+	public long getTotalNumberOfRecordsForTypes(List<String> types, Filter filter) {
+		return (long) MCR.addCallAndReturnFromMRV("types", types, "filter", filter);
+	}
+
+	@Override
+	public void writeInOneTransaction(List<RecordWrite> writes) {
+		MCR.addCall("writes", List.copyOf(writes));
+		if (throwExceptionOnWriteInOneTransaction) {
+			throw StorageException.withMessage("Error from SqlRecordStorageSpy");
+		}
+	}
+
+	@Override
+	public List<Optional<RuntimeException>> writeInOneTransactionUsingSavepoints(
+			List<RecordWrite> writes) {
+		MCR.addCall("writes", List.copyOf(writes));
+		if (throwExceptionOnWriteInOneTransaction) {
+			throw StorageException.withMessage("Error from SqlRecordStorageSpy");
+		}
+		List<Optional<RuntimeException>> outcomes = new ArrayList<>();
+		for (RecordWrite write : writes) {
+			outcomes.add(createOutcomeForId(write.id()));
+		}
+		MCR.addReturned(outcomes);
+		return outcomes;
+	}
+
+	private Optional<RuntimeException> createOutcomeForId(String id) {
+		try {
+			possiblyThrowExceptionForId(id);
+			return Optional.empty();
+		} catch (RuntimeException e) {
+			return Optional.of(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<String> deleteByTypeAndIds(String type, List<String> ids) {
+		return (List<String>) MCR.addCallAndReturnFromMRV("type", type, "ids", ids);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<String> deleteAllOfType(String type) {
+		return (List<String>) MCR.addCallAndReturnFromMRV("type", type);
+	}
+
+	@Override
+	public void upsert(String type, String id, DataGroup dataRecord, Set<StorageTerm> storageTerms,
+			Set<Link> links, String dataDivider) {
+		MCR.addCall("type", type, "id", id, "dataRecord", dataRecord, "storageTerms",
+				storageTerms, "links", links, "dataDivider", dataDivider);
+		possiblyThrowExceptionForId(id);
+	}
+
+	@Override
+	public void updateUsingExpectedVersion(String type, String id, DataGroup dataRecord,
+			Set<StorageTerm> storageTerms, Set<Link> links, String dataDivider,
+			long expectedVersion) {
+		MCR.addCall("type", type, "id", id, "dataRecord", dataRecord, "storageTerms",
+				storageTerms, "links", links, "dataDivider", dataDivider, "expectedVersion",
+				expectedVersion);
+		possiblyThrowExceptionForId(id);
+	}
+
+	@Override
+	public long readVersion(String type, String id) {
+		return (long) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@Override
+	public VersionedRecordGroup readWithVersion(String type, String id) {
+		return (VersionedRecordGroup) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@Override
+	public LinkPage readLinksToRecord(String type, String id, LinkPageRequest pageRequest) {
+		return (LinkPage) MCR.addCallAndReturnFromMRV("type", type, "id", id, "pageRequest",
+				pageRequest);
+	}
+
+	@Override
+	public long countLinksToRecord(String type, String id) {
+		return (long) MCR.addCallAndReturnFromMRV("type", type, "id", id);
+	}
+
+	@Override
+	public DataGroup readProjection(String type, String id, RecordProjection projection) {
+		return (DataGroup) MCR.addCallAndReturnFromMRV("type", type, "id", id, "projection",
+				projection);
+	}
+
+	@Override
+	public List<ReachableRecord> traverseLinks(String type, String id,
+			LinkTraversalRequest traversalRequest) {
+		return (List<ReachableRecord>) MCR.addCallAndReturnFromMRV("type", type, "id", id,
+				"traversalRequest", traversalRequest);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T runInUnitOfWork(Function<UnitOfWork, T> work) {
+		return (T) MCR.addCallAndReturnFromMRV("work", work);
+	}
+}
@@ -4,9 +4,18 @@ import java.util.List;
 
 import se.uu.ub.cora.sqldatabase.table.TableQuery;
 import se.uu.ub.cora.testutils.mcr.MethodCallRecorder;
+import se.uu.ub.cora.testutils.mrv.MethodReturnValues;
 
 public class TableQuerySpy implements TableQuery {
 	public MethodCallRecorder MCR = new MethodCallRecorder();
+	public MethodReturnValues MRV = new MethodReturnValues();
+
+	public TableQuerySpy() {
+		MCR.useMRV(MRV);
+		MRV.setDefaultReturnValuesSupplier("assembleReadSql", () -> "someReadSql");
+		MRV.setDefaultReturnValuesSupplier("assembleCountSql", () -> "someCountSql");
+		MRV.setDefaultReturnValuesSupplier("getQueryValues", () -> List.of("someValue"));
+	}
 
 	@Override
 	public void addParameter(String name, Object value) {
@@ -46,8 +55,7 @@ public class TableQuerySpy implements TableQuery {
 
 	@Override
 	public String assembleReadSql() {
-		// TODO Auto-generated method stub
-		return null;
+		return (String) MCR.addCallAndReturnFromMRV();
 	}
 
 	@Override
@@ -64,14 +72,12 @@ public class TableQuerySpy implements TableQuery {
 
 	@Override
 	public List<Object> getQueryValues() {
-		// TODO Auto-generated method stub
-		return null;
+		return (List<Object>) MCR.addCallAndReturnFromMRV();
 	}
 
 	@Override
 	public String assembleCountSql() {
-		// TODO Auto-generated method stub
-		return null;
+		return (String) MCR.addCallAndReturnFromMRV();
 	}
 
 }